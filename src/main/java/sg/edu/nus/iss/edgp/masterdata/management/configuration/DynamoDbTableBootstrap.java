@@ -0,0 +1,97 @@
+package sg.edu.nus.iss.edgp.masterdata.management.configuration;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.DynamicDetailService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.QueryPlanner;
+
+/**
+ * Checks (and if needed creates) the service's tables once at startup, so request paths and
+ * the scheduler find them in {@link DynamicDetailService}'s in-memory registry instead of
+ * calling DescribeTable each time, then makes sure the {@link QueryPlanner} indexes exist.
+ * A table that cannot be bootstrapped is only logged; the lazy create-on-first-use paths
+ * still cover it.
+ */
+@RequiredArgsConstructor
+@Component
+public class DynamoDbTableBootstrap {
+
+	@Value("${aws.dynamodb.bootstrap.enabled:true}")
+	private boolean enabled = true;
+
+	@Value("${aws.dynamodb.table.master.data.header}")
+	private String headerTableName;
+
+	@Value("${aws.dynamodb.table.master.data.staging}")
+	private String stagingTableName;
+
+	@Value("${aws.dynamodb.table.master.data.task.tracker}")
+	private String taskTrackerTableName;
+
+	@Value("${aws.dynamodb.table.domain}")
+	private String domainTableName;
+
+	@Value("${aws.dynamodb.table.master.data.schema:MasterDataSchema}")
+	private String schemaTableName = "MasterDataSchema";
+
+	@Value("${aws.dynamodb.table.master.data.listing.version:MasterDataListingVersion}")
+	private String listingVersionTableName = "MasterDataListingVersion";
+
+	private static final Logger logger = LoggerFactory.getLogger(DynamoDbTableBootstrap.class);
+
+	private final DynamicDetailService dynamoService;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void bootstrap() {
+		if (!enabled) {
+			logger.info("DynamoDB table bootstrap disabled");
+			return;
+		}
+		Set<String> tables = new LinkedHashSet<>();
+		for (String t : new String[] { headerTableName, stagingTableName, taskTrackerTableName, domainTableName,
+				schemaTableName, listingVersionTableName }) {
+			if (t != null && !t.isBlank()) tables.add(t.trim());
+		}
+		for (String table : tables) {
+			try {
+				dynamoService.ensureTable(table, indexesOf(table));
+				logger.info("DynamoDB table {} is ready", table);
+			} catch (Exception e) {
+				logger.warn("Unable to bootstrap DynamoDB table {}: {}", table, e.toString());
+			}
+		}
+
+		// Tables created before the indexes existed get them added here; a backfill can take
+		// a while, so it runs off the startup thread and queries scan until it is done
+		Thread t = new Thread(this::ensureIndexes, "mdm-index-bootstrap");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	void ensureIndexes() {
+		for (String table : List.of(stagingTableName.trim(), headerTableName.trim())) {
+			try {
+				dynamoService.ensureIndexes(table, indexesOf(table));
+				logger.info("Indexes on DynamoDB table {} are active", table);
+			} catch (Exception e) {
+				logger.warn("Unable to build indexes on DynamoDB table {}: {}", table, e.toString());
+			}
+		}
+	}
+
+	private List<QueryPlanner.Index> indexesOf(String table) {
+		if (table.equals(stagingTableName.trim())) return QueryPlanner.STAGING_INDEXES;
+		if (table.equals(headerTableName.trim())) return QueryPlanner.HEADER_INDEXES;
+		return List.of();
+	}
+}
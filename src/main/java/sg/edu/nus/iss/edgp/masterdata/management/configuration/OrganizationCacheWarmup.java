@@ -0,0 +1,79 @@
+package sg.edu.nus.iss.edgp.masterdata.management.configuration;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.HeaderService;
+import sg.edu.nus.iss.edgp.masterdata.management.utility.JSONReader;
+
+/**
+ * Fills the organization name cache at startup with the organizations of recently uploaded
+ * headers, so listings do not call the organization service after a restart. The lookups use
+ * a token of one of each organization's uploaders and run off the startup thread; failures are
+ * only logged and the names are then loaded on first use instead.
+ * At most {@code org.cache.warmup.max.organizations} organizations are warmed, found within
+ * {@code org.cache.warmup.max.pages} pages of the header scan.
+ */
+@RequiredArgsConstructor
+@Component
+public class OrganizationCacheWarmup {
+
+	@Value("${org.cache.warmup.enabled:true}")
+	private boolean enabled = true;
+
+	@Value("${org.cache.warmup.days:30}")
+	private int days = 30;
+
+	@Value("${org.cache.warmup.max.organizations:500}")
+	private int maxOrganizations = 500;
+
+	@Value("${org.cache.warmup.max.pages:10}")
+	private int maxPages = 10;
+
+	private static final Logger logger = LoggerFactory.getLogger(OrganizationCacheWarmup.class);
+
+	private final HeaderService headerService;
+	private final JSONReader jsonReader;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp() {
+		if (!enabled) {
+			logger.info("Organization cache warm-up disabled");
+			return;
+		}
+		Thread t = new Thread(this::preload, "mdm-org-cache-warmup");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	void preload() {
+		try {
+			String since = LocalDateTime.now(ZoneId.of("Asia/Singapore")).minusDays(days)
+					.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+			Map<String, String> uploaders = headerService.findRecentUploadersByOrganization(since,
+					maxOrganizations, maxPages);
+
+			Map<String, String> tokens = new HashMap<>();
+			int loaded = 0;
+			for (Map.Entry<String, String> e : uploaders.entrySet()) {
+				String token = tokens.computeIfAbsent(e.getValue(), jsonReader::getAccessToken);
+				if (token == null || token.isEmpty()) continue;
+				if (!jsonReader.getOrganizationName(e.getKey(), "Bearer " + token).isEmpty()) loaded++;
+			}
+			logger.info("Organization cache warmed with {} of {} recent organization(s)", loaded, uploaders.size());
+		} catch (Exception e) {
+			logger.warn("Organization cache warm-up failed: {}", e.toString());
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package sg.edu.nus.iss.edgp.masterdata.management.controller;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -7,6 +8,7 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -16,12 +18,14 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.APIResponse;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.AuditDTO;
+import sg.edu.nus.iss.edgp.masterdata.management.dto.BulkIngestResult;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.UploadResult;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.ValidationResult;
 import sg.edu.nus.iss.edgp.masterdata.management.enums.AuditLogInvalidUser;
@@ -95,6 +99,54 @@ public class DataIngestController {
 		}
 	}
 
+	@PostMapping(value = "/bulk", consumes = { "application/json", "application/x-ndjson" }, produces = "application/json")
+	@PreAuthorize("hasAuthority('SCOPE_manage:mdm') or hasAuthority('SCOPE_view:policy')")
+	public ResponseEntity<APIResponse<BulkIngestResult>> createBulkData(
+			@RequestHeader("Authorization") String authorizationHeader,
+			@RequestHeader(value = HttpHeaders.CONTENT_TYPE, defaultValue = "application/json") String contentType,
+			@RequestParam("domain_name") String domainName, @RequestParam("policy_id") String policyId,
+			InputStream body) {
+
+		final String activityType = "Bulk Create Master Data";
+
+		final HTTPVerb httpMethod = HTTPVerb.POST;
+		String message = "";
+		String endPoint = API_ENDPOINT + "/ingest/bulk";
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endPoint,
+				httpMethod);
+
+		try {
+			boolean ndjson = contentType.toLowerCase().startsWith("application/x-ndjson");
+			BulkIngestResult result = dataIngestService.processBulkIngest(body, ndjson, domainName, policyId,
+					authorizationHeader);
+
+			if (result.getAccepted() < 1) {
+				message = "No rows ingested; " + result.getRejected() + " row(s) rejected.";
+				auditService.logAudit(auditDTO, 400, message, authorizationHeader);
+				return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(APIResponse.<BulkIngestResult>builder()
+						.success(false).message(message).data(result).build());
+			}
+
+			message = "Ingested " + result.getAccepted() + " row(s)"
+					+ (result.getRejected() > 0 ? "; " + result.getRejected() + " row(s) rejected." : ".");
+			auditService.logAudit(auditDTO, 200, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.OK).body(APIResponse.success(result, message, result.getAccepted()));
+
+		} catch (IllegalArgumentException e) {
+			message = e.getMessage();
+			auditService.logAudit(auditDTO, 400, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(APIResponse.error(message));
+		} catch (Exception e) {
+
+			message = e instanceof MasterdataServiceException ? e.getMessage() : UNEXPECTED_ERROR;
+
+			logger.error(LOG_MESSAGE_FORMAT, message, e.getMessage());
+			auditDTO.setRemarks(e.getMessage());
+			auditService.logAudit(auditDTO, 500, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(APIResponse.error(message));
+		}
+	}
+
 	@PutMapping(value = "/update", produces = "application/json")
 	@PreAuthorize("hasAuthority('SCOPE_manage:mdm') or hasAuthority('SCOPE_view:policy')")
 	public ResponseEntity<APIResponse<List<Map<String, Object>>>> updateData(
@@ -1,28 +1,58 @@
 package sg.edu.nus.iss.edgp.masterdata.management.controller;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.*;
 import sg.edu.nus.iss.edgp.masterdata.management.enums.*;
 import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.ChunkedUploadRequest;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.UploadRequest;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.AuditService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.ChunkedUploadService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.ListingCache;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.MasterdataService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.UploadJobService;
+import sg.edu.nus.iss.edgp.masterdata.management.utility.CSVWriter;
 import sg.edu.nus.iss.edgp.masterdata.management.utility.DataUploadValidation;
+import sg.edu.nus.iss.edgp.masterdata.management.utility.JSONReader;
 
 @RestController
 @RequiredArgsConstructor
@@ -33,6 +63,10 @@ public class MasterdataController {
 	private final MasterdataService masterdataService;
 	private final AuditService auditService;
 	private final DataUploadValidation dataUploadValidation;
+	private final UploadJobService uploadJobService;
+	private final ChunkedUploadService chunkedUploadService;
+	private final JSONReader jsonReader;
+	private final ListingCache listingCache;
 	 
 	
 
@@ -44,13 +78,21 @@ public class MasterdataController {
 	private static final String API_ENDPOINT = "/api/mdm/data";
 	private static final String UNEXPECTED_ERROR = "An unexpected error occurred. Please contact support.";
 	private static final String LOG_MESSAGE_FORMAT = "{} {}";
+	// rows are flushed once per page, not once per row; the servlet closes its own stream
+	private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+	private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+	private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+	private static final ObjectMapper STREAM_MAPPER = new ObjectMapper()
+			.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+			.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 
 	@PostMapping(value = "/upload", produces = "application/json")
 	@PreAuthorize("hasAuthority('SCOPE_manage:mdm') or hasAuthority('SCOPE_manage:mdm')")
 	public ResponseEntity<APIResponse<List<Map<String, Object>>>>  uploadAndInsertCsvData(
 			@RequestHeader("Authorization") String authorizationHeader,
 			@RequestPart("UploadRequest") UploadRequest uploadReq, 
-			@RequestParam("file") MultipartFile file) {
+			@RequestParam("file") MultipartFile file,
+			@RequestParam(value = "async", defaultValue = "false") boolean async) {
 
 		final String activityType = "Upload Master Data";
 
@@ -68,6 +110,16 @@ public class MasterdataController {
 				return ResponseEntity.status(validResult.getStatus()).body(APIResponse.error(message));
 
 			}
+			if (async) {
+				String fileId = uploadJobService.submit(file, uploadReq, authorizationHeader);
+				Map<String, Object> job = new LinkedHashMap<>();
+				job.put("file_id", fileId);
+				job.put("upload_state", UploadJobState.QUEUED.name());
+				job.put("progress_url", API_ENDPOINT + "/upload/" + fileId + "/progress");
+				message = "Upload accepted for processing.";
+				auditService.logAudit(auditDTO, 202, message, authorizationHeader);
+				return ResponseEntity.status(HttpStatus.ACCEPTED).body(APIResponse.success(List.of(job), message, 1));
+			}
 			UploadResult result = masterdataService.uploadCsvDataToTable(file, uploadReq,authorizationHeader);
 			if (result.getTotalRecord()< 1) {
 				message = "Upload failed due to incorrect data or missing values.";
@@ -80,6 +132,10 @@ public class MasterdataController {
 		} catch (Exception e) {
 
 			message = e instanceof MasterdataServiceException ? e.getMessage() : UNEXPECTED_ERROR;
+			if (e.getCause() instanceof RejectedExecutionException) {
+				auditService.logAudit(auditDTO, 503, message, authorizationHeader);
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(APIResponse.error(message));
+			}
 
 			logger.error(LOG_MESSAGE_FORMAT, message, e.getMessage());
 			auditDTO.setRemarks(e.getMessage());
@@ -89,11 +145,232 @@ public class MasterdataController {
 	}
 	
 
+	@PostMapping(value = "/upload/chunked", produces = "application/json")
+	@PreAuthorize("hasAuthority('SCOPE_manage:mdm')")
+	public ResponseEntity<APIResponse<Map<String, Object>>> initiateChunkedUpload(
+			@RequestHeader("Authorization") String authorizationHeader,
+			@RequestBody ChunkedUploadRequest uploadReq) {
+
+		final String activityType = "Initiate Chunked Upload";
+		final HTTPVerb httpMethod = HTTPVerb.POST;
+		final String endpoint = API_ENDPOINT + "/upload/chunked";
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endpoint,
+				httpMethod);
+
+		try {
+			ValidationResult validResult = dataUploadValidation.isValidFileNameToUpload(uploadReq.getFileName(), uploadReq,
+					authorizationHeader);
+			if (!validResult.isValid()) {
+				String message = validResult.getMessage();
+				auditService.logAudit(auditDTO, 400, message, authorizationHeader);
+				return ResponseEntity.status(validResult.getStatus()).body(APIResponse.error(message));
+			}
+
+			String uploadId = chunkedUploadService.initiate(uploadReq, authorizationHeader);
+			Map<String, Object> session = new LinkedHashMap<>();
+			session.put("upload_id", uploadId);
+			session.put("chunk_url", endpoint + "/" + uploadId + "/chunks/{index}");
+
+			String message = "Chunked upload started.";
+			auditService.logAudit(auditDTO, 201, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.CREATED).body(APIResponse.success(session, message, 1));
+
+		} catch (Exception e) {
+			return errorResponse(auditDTO, e, authorizationHeader);
+		}
+	}
+
+	@PutMapping(value = "/upload/chunked/{uploadId}/chunks/{index}", produces = "application/json")
+	@PreAuthorize("hasAuthority('SCOPE_manage:mdm')")
+	public ResponseEntity<APIResponse<Map<String, Object>>> putChunk(
+			@RequestHeader("Authorization") String authorizationHeader,
+			@PathVariable("uploadId") String uploadId, @PathVariable("index") int index, InputStream body) {
+
+		final String activityType = "Upload Chunk";
+		final HTTPVerb httpMethod = HTTPVerb.PUT;
+		final String endpoint = API_ENDPOINT + "/upload/chunked/" + uploadId + "/chunks/" + index;
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endpoint,
+				httpMethod);
+
+		try {
+			Optional<ChunkedUploadService.ChunkStatus> status = chunkedUploadService.putChunk(uploadId, index, body,
+					authorizationHeader);
+			if (status.isEmpty()) {
+				String message = "Upload not found or already completed.";
+				auditService.logAudit(auditDTO, 404, message, authorizationHeader);
+				return ResponseEntity.status(HttpStatus.NOT_FOUND).body(APIResponse.error(message));
+			}
+			String message = "Chunk " + index + " stored.";
+			auditService.logAudit(auditDTO, 200, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.OK)
+					.body(APIResponse.success(chunkStatusBody(status.get()), message, 1));
+
+		} catch (Exception e) {
+			return errorResponse(auditDTO, e, authorizationHeader);
+		}
+	}
+
+	@GetMapping(value = "/upload/chunked/{uploadId}", produces = "application/json")
+	@PreAuthorize("hasAuthority('SCOPE_manage:mdm')")
+	public ResponseEntity<APIResponse<Map<String, Object>>> getChunkedUploadStatus(
+			@RequestHeader("Authorization") String authorizationHeader, @PathVariable("uploadId") String uploadId) {
+
+		final String activityType = "Get Chunked Upload Status";
+		final HTTPVerb httpMethod = HTTPVerb.GET;
+		final String endpoint = API_ENDPOINT + "/upload/chunked/" + uploadId;
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endpoint,
+				httpMethod);
+
+		try {
+			Optional<ChunkedUploadService.ChunkStatus> status = chunkedUploadService.getStatus(uploadId,
+					authorizationHeader);
+			if (status.isEmpty()) {
+				String message = "Upload not found.";
+				auditService.logAudit(auditDTO, 404, message, authorizationHeader);
+				return ResponseEntity.status(HttpStatus.NOT_FOUND).body(APIResponse.error(message));
+			}
+			String message = "Successfully retrieved chunked upload status.";
+			auditService.logAudit(auditDTO, 200, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.OK)
+					.body(APIResponse.success(chunkStatusBody(status.get()), message, 1));
+
+		} catch (Exception e) {
+			return errorResponse(auditDTO, e, authorizationHeader);
+		}
+	}
+
+	@PostMapping(value = "/upload/chunked/{uploadId}/complete", produces = "application/json")
+	@PreAuthorize("hasAuthority('SCOPE_manage:mdm')")
+	public ResponseEntity<APIResponse<Map<String, Object>>> completeChunkedUpload(
+			@RequestHeader("Authorization") String authorizationHeader, @PathVariable("uploadId") String uploadId,
+			@RequestParam("totalChunks") int totalChunks) {
+
+		final String activityType = "Complete Chunked Upload";
+		final HTTPVerb httpMethod = HTTPVerb.POST;
+		final String endpoint = API_ENDPOINT + "/upload/chunked/" + uploadId + "/complete";
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endpoint,
+				httpMethod);
+
+		try {
+			Optional<ChunkedUploadService.ChunkStatus> status = chunkedUploadService.getStatus(uploadId,
+					authorizationHeader);
+			if (status.isEmpty()) {
+				String message = "Upload not found.";
+				auditService.logAudit(auditDTO, 404, message, authorizationHeader);
+				return ResponseEntity.status(HttpStatus.NOT_FOUND).body(APIResponse.error(message));
+			}
+
+			List<Integer> missing = chunkedUploadService.missingChunks(status.get(), totalChunks);
+			if (totalChunks < 1 || !missing.isEmpty() || status.get().receivedChunks().size() != totalChunks) {
+				String message = missing.isEmpty() ? "Received chunks do not match totalChunks=" + totalChunks + "."
+						: "Missing chunks: " + missing;
+				auditService.logAudit(auditDTO, 409, message, authorizationHeader);
+				return ResponseEntity.status(HttpStatus.CONFLICT).body(APIResponse.<Map<String, Object>>builder()
+						.success(false).message(message).data(chunkStatusBody(status.get())).build());
+			}
+
+			String fileId = chunkedUploadService.complete(uploadId, totalChunks, authorizationHeader);
+			Map<String, Object> job = new LinkedHashMap<>();
+			job.put("file_id", fileId);
+			job.put("upload_state", UploadJobState.QUEUED.name());
+			job.put("progress_url", API_ENDPOINT + "/upload/" + fileId + "/progress");
+
+			String message = "Upload accepted for processing.";
+			auditService.logAudit(auditDTO, 202, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.ACCEPTED).body(APIResponse.success(job, message, 1));
+
+		} catch (Exception e) {
+			return errorResponse(auditDTO, e, authorizationHeader);
+		}
+	}
+
+	private static Map<String, Object> chunkStatusBody(ChunkedUploadService.ChunkStatus status) {
+		Map<String, Object> body = new LinkedHashMap<>();
+		body.put("upload_id", status.uploadId());
+		body.put("file_name", status.fileName());
+		body.put("received_chunks", status.receivedChunks());
+		body.put("received_bytes", status.receivedBytes());
+		return body;
+	}
+
+	private ResponseEntity<APIResponse<Map<String, Object>>> errorResponse(AuditDTO auditDTO, Exception e,
+			String authorizationHeader) {
+		HttpStatus status = HttpStatus.INTERNAL_SERVER_ERROR;
+		String message = UNEXPECTED_ERROR;
+		if (e instanceof IllegalArgumentException) {
+			status = HttpStatus.BAD_REQUEST;
+			message = e.getMessage();
+		} else if (e instanceof MasterdataServiceException) {
+			status = e.getCause() instanceof RejectedExecutionException ? HttpStatus.SERVICE_UNAVAILABLE
+					: HttpStatus.INTERNAL_SERVER_ERROR;
+			message = e.getMessage();
+		}
+
+		logger.error(LOG_MESSAGE_FORMAT, message, e.getMessage());
+		auditDTO.setRemarks(e.getMessage());
+		auditService.logAudit(auditDTO, status.value(), message, authorizationHeader);
+		return ResponseEntity.status(status).body(APIResponse.error(message));
+	}
+
+	@GetMapping(value = "/upload/{fileId}/progress", produces = "application/json")
+	@PreAuthorize("hasAuthority('SCOPE_view:mdm') or hasAuthority('SCOPE_manage:mdm')")
+	public ResponseEntity<APIResponse<Map<String, Object>>> getUploadProgress(
+			@RequestHeader("Authorization") String authorizationHeader, @PathVariable("fileId") String fileId) {
+
+		final String activityType = "Get Upload Progress";
+		final HTTPVerb httpMethod = HTTPVerb.GET;
+		final String endpoint = API_ENDPOINT + "/upload/" + fileId + "/progress";
+
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endpoint,
+				httpMethod);
+
+		try {
+			Optional<MasterDataHeader> found = uploadJobService.getProgress(fileId.trim(), authorizationHeader);
+			if (found.isEmpty()) {
+				String message = "Upload not found.";
+				auditService.logAudit(auditDTO, 404, message, authorizationHeader);
+				return ResponseEntity.status(HttpStatus.NOT_FOUND).body(APIResponse.error(message));
+			}
+
+			MasterDataHeader header = found.get();
+			Map<String, Object> progress = new LinkedHashMap<>();
+			progress.put("file_id", header.getId());
+			progress.put("file_name", header.getFileName());
+			progress.put("process_stage", String.valueOf(header.getProcessStage()));
+			progress.put("upload_state", header.getUploadState() == null ? UploadJobState.COMPLETED.name()
+					: header.getUploadState().name());
+			progress.put("rows_parsed", header.getRowsParsed());
+			progress.put("rows_written", header.getRowsWritten());
+			progress.put("rows_per_second", header.getRowsPerSecond());
+			progress.put("total_rows_count", header.getTotalRowsCount());
+			if (header.getUploadError() != null && !header.getUploadError().isBlank()) {
+				progress.put("error", header.getUploadError());
+			}
+
+			String message = "Successfully retrieved upload progress.";
+			auditService.logAudit(auditDTO, 200, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.OK).body(APIResponse.success(progress, message, 1));
+
+		} catch (Exception e) {
+			String errorMessage = (e instanceof MasterdataServiceException) ? e.getMessage() : UNEXPECTED_ERROR;
+
+			logger.error(LOG_MESSAGE_FORMAT, errorMessage, e.getMessage());
+			auditDTO.setRemarks(e.getMessage());
+			auditService.logAudit(auditDTO, 500, errorMessage, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(APIResponse.error(errorMessage));
+		}
+	}
+
+	/**
+	 * Supports conditional GET: the response carries an ETag, and a request whose {@code If-None-Match}
+	 * still matches gets 304 after a single header read. Unchanged listings are served from {@link ListingCache}.
+	 */
 	@GetMapping(value = "", produces = "application/json")
 	@PreAuthorize("hasAuthority('SCOPE_view:mdm') or hasAuthority('SCOPE_manage:mdm')")
 	public ResponseEntity<APIResponse<List<Map<String, Object>>>> getUploadedData(
 			@RequestHeader("Authorization") String authorizationHeader,
-			@Valid @ModelAttribute SearchRequest searchRequest) {
+			@Valid @ModelAttribute SearchRequest searchRequest,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
 		final String activityType = "Get All Uploaded Data" + searchRequest.getDomainName() + "List";
 		final HTTPVerb httpMethod = HTTPVerb.GET;
@@ -116,27 +393,42 @@ public class MasterdataController {
 		    boolean hasDomainName = domainName !=null && !domainName.isBlank();
 		    
 		    boolean hasfileId = fileId !=null && !fileId.isBlank();
-		    
-		    List<Map<String, Object>> result = new ArrayList<Map<String,Object>>();
-			
-			if (hasPolicyId  && hasDomainName) {
-				result= masterdataService.getDataByPolicyAndDomainName( searchRequest,authorizationHeader);
-		    } else if (hasPolicyId) {
-		    	result= masterdataService.getDataByPolicyId(searchRequest,authorizationHeader);
-		    }  else if(hasDomainName) {
-		    	result= masterdataService.getDataByDomainName(searchRequest,authorizationHeader);
-		    }  else if(hasfileId) {
-		    	result= masterdataService.getDataByFileId(searchRequest,authorizationHeader);
-		    } else {
-		    	result= masterdataService.getAllData(authorizationHeader);
+
+		    String etag = listingCache.etag(masterdataService.listingVersion(authorizationHeader), "data", policyId,
+		    		domainName, fileId, searchRequest.getPage(), searchRequest.getSize(), searchRequest.getCursor(),
+		    		searchRequest.getFields(), searchRequest.getFilter(), searchRequest.getSort());
+		    if (ListingCache.matches(ifNoneMatch, etag)) {
+		    	auditService.logAudit(auditDTO, 304, "Not modified.", authorizationHeader);
+		    	return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
 		    }
+		    
+		    PageResult<Map<String, Object>> result = listingCache.get(etag, () -> {
+				if (hasPolicyId  && hasDomainName) {
+					return masterdataService.getDataByPolicyAndDomainName( searchRequest,authorizationHeader);
+			    } else if (hasPolicyId) {
+			    	return masterdataService.getDataByPolicyId(searchRequest,authorizationHeader);
+			    }  else if(hasDomainName) {
+			    	return masterdataService.getDataByDomainName(searchRequest,authorizationHeader);
+			    }  else if(hasfileId) {
+			    	return masterdataService.getDataByFileId(searchRequest,authorizationHeader);
+			    } else {
+			    	return masterdataService.getAllData(searchRequest,authorizationHeader);
+			    }
+		    });
 		     
 			 
-			String message = result.isEmpty() ? "No data found." : "Successfully retrieved "+searchRequest.getDomainName()+" data.";
+			String message = result.items().isEmpty() ? "No data found." : "Successfully retrieved "+searchRequest.getDomainName()+" data.";
 			auditService.logAudit(auditDTO, 200, message, authorizationHeader);
 
-			return ResponseEntity.status(HttpStatus.OK).body(APIResponse.success(result, message, result.size()));
+			return ResponseEntity.status(HttpStatus.OK).eTag(etag).cacheControl(CacheControl.noCache().cachePrivate()).body(
+					APIResponse.success(result.items(), message, result.items().size(), result.nextCursor()));
+
+		} catch (IllegalArgumentException e) {
+			logger.error(LOG_MESSAGE_FORMAT, e.getMessage(), e.getMessage());
+			auditDTO.setRemarks(e.getMessage());
+			auditService.logAudit(auditDTO, 400, e.getMessage(), authorizationHeader);
 
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(APIResponse.error(e.getMessage()));
 		} catch (Exception e) {
 			String errorMessage = (e instanceof MasterdataServiceException) ? e.getMessage()
 					: UNEXPECTED_ERROR;
@@ -149,10 +441,91 @@ public class MasterdataController {
 		}
 	}
 	
+	/**
+	 * Same search as {@link #getUploadedData} but streamed: rows are written to the response as each
+	 * DynamoDB page is read, so neither the full list nor the full JSON body is held in memory.
+	 * The envelope fields follow {@code data}; once streaming has started the status stays 200 and a
+	 * failure is reported as {@code "success": false}.
+	 */
+	@GetMapping(value = "/stream", produces = "application/json")
+	@PreAuthorize("hasAuthority('SCOPE_view:mdm') or hasAuthority('SCOPE_manage:mdm')")
+	public ResponseEntity<StreamingResponseBody> streamUploadedData(
+			@RequestHeader("Authorization") String authorizationHeader,
+			@Valid @ModelAttribute SearchRequest searchRequest) {
+
+		final String activityType = "Stream All Uploaded Data" + searchRequest.getDomainName() + "List";
+		final HTTPVerb httpMethod = HTTPVerb.GET;
+		final String endpoint = API_ENDPOINT + "/stream";
+
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endpoint,
+				httpMethod);
+
+		StreamingResponseBody body = out -> {
+			try (JsonGenerator gen = STREAM_MAPPER.getFactory().createGenerator(out)) {
+				gen.writeStartObject();
+				gen.writeArrayFieldStart("data");
+				try {
+					long total = masterdataService.streamData(searchRequest, authorizationHeader, rows -> {
+						for (Map<String, Object> row : rows) {
+							STREAM_MAPPER.writeValue(gen, row);
+						}
+						gen.flush();
+					});
+					String message = total == 0 ? "No data found."
+							: "Successfully retrieved " + searchRequest.getDomainName() + " data.";
+					gen.writeEndArray();
+					gen.writeBooleanField("success", true);
+					gen.writeStringField("message", message);
+					gen.writeNumberField("totalRecord", total);
+					auditService.logAudit(auditDTO, 200, message, authorizationHeader);
+				} catch (Exception e) {
+					boolean badRequest = e instanceof IllegalArgumentException;
+					String errorMessage = (badRequest || e instanceof MasterdataServiceException) ? e.getMessage()
+							: UNEXPECTED_ERROR;
+
+					logger.error(LOG_MESSAGE_FORMAT, errorMessage, e.getMessage());
+					auditDTO.setRemarks(e.getMessage());
+					auditService.logAudit(auditDTO, badRequest ? 400 : 500, errorMessage, authorizationHeader);
+
+					if (gen.getOutputContext().inArray()) gen.writeEndArray();
+					gen.writeBooleanField("success", false);
+					gen.writeStringField("message", errorMessage);
+				}
+				gen.writeEndObject();
+			}
+		};
+		return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON).body(body);
+	}
+
+	/**
+	 * Drops an organization name from the cache of the instance that serves this request only;
+	 * other instances keep theirs until it expires ({@code org.cache.ttl.seconds}).
+	 */
+	@DeleteMapping(value = "/cache/local/organizations/{orgId}", produces = "application/json")
+	@PreAuthorize("hasAuthority('SCOPE_manage:mdm')")
+	public ResponseEntity<APIResponse<Map<String, Object>>> evictLocalOrganizationCache(
+			@RequestHeader("Authorization") String authorizationHeader, @PathVariable("orgId") String orgId) {
+
+		final String activityType = "Evict Locally Cached Organization";
+		final HTTPVerb httpMethod = HTTPVerb.DELETE;
+		final String endpoint = API_ENDPOINT + "/cache/local/organizations/" + orgId;
+
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endpoint,
+				httpMethod);
+
+		jsonReader.evictOrganization(orgId.trim());
+		String message = "Organization " + orgId.trim()
+				+ " evicted from this instance's cache; other instances refresh it when their entry expires.";
+		auditService.logAudit(auditDTO, 200, message, authorizationHeader);
+		return ResponseEntity.status(HttpStatus.OK).body(APIResponse.successWithNoData(message));
+	}
+
 	@GetMapping(value = "/file", produces = "application/json")
 	@PreAuthorize("hasAuthority('SCOPE_view:mdm') or hasAuthority('SCOPE_manage:mdm')")
 	public ResponseEntity<APIResponse<List<Map<String, Object>>>> getUploadedFile(
-			@RequestHeader("Authorization") String authorizationHeader) {
+			@RequestHeader("Authorization") String authorizationHeader,
+			@RequestParam(value = "fields", defaultValue = "") String fields,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
 		final String activityType = "Get All Uploaded File List";
 		final HTTPVerb httpMethod = HTTPVerb.GET;
@@ -163,15 +536,27 @@ public class MasterdataController {
 
 		try {
 			    
-		    List<Map<String, Object>> result = new ArrayList<Map<String,Object>>();
-				 
-		    result= masterdataService.getAllUploadFiles(authorizationHeader);
+		    String etag = listingCache.etag(masterdataService.listingVersion(authorizationHeader), "file", fields);
+		    if (ListingCache.matches(ifNoneMatch, etag)) {
+		    	auditService.logAudit(auditDTO, 304, "Not modified.", authorizationHeader);
+		    	return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+		    }
+
+		    List<Map<String, Object>> result = listingCache.get(etag,
+		    		() -> masterdataService.getAllUploadFiles(authorizationHeader, fields));
 		    
 			String message = result.isEmpty() ? "No data found." : "Successfully retrieved files.";
 			auditService.logAudit(auditDTO, 200, message, authorizationHeader);
 
-			return ResponseEntity.status(HttpStatus.OK).body(APIResponse.success(result, message, result.size()));
+			return ResponseEntity.status(HttpStatus.OK).eTag(etag).cacheControl(CacheControl.noCache().cachePrivate())
+					.body(APIResponse.success(result, message, result.size()));
+
+		} catch (IllegalArgumentException e) {
+			logger.error(LOG_MESSAGE_FORMAT, e.getMessage(), e.getMessage());
+			auditDTO.setRemarks(e.getMessage());
+			auditService.logAudit(auditDTO, 400, e.getMessage(), authorizationHeader);
 
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(APIResponse.error(e.getMessage()));
 		} catch (Exception e) {
 			String errorMessage = (e instanceof MasterdataServiceException) ? e.getMessage()
 					: UNEXPECTED_ERROR;
@@ -184,6 +569,286 @@ public class MasterdataController {
 		}
 	}
 	
+	/**
+	 * Number of staging rows matching the same criteria and filter as {@link #getUploadedData}, returned
+	 * as {@code count} and in {@code totalRecord}, without transferring the rows.
+	 */
+	@GetMapping(value = "/count", produces = "application/json")
+	@PreAuthorize("hasAuthority('SCOPE_view:mdm') or hasAuthority('SCOPE_manage:mdm')")
+	public ResponseEntity<APIResponse<Map<String, Object>>> countUploadedData(
+			@RequestHeader("Authorization") String authorizationHeader,
+			@Valid @ModelAttribute SearchRequest searchRequest) {
+
+		final String activityType = "Count Uploaded Data";
+		final HTTPVerb httpMethod = HTTPVerb.GET;
+		final String endpoint = API_ENDPOINT + "/count";
+
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endpoint,
+				httpMethod);
+
+		try {
+			long count = masterdataService.countData(searchRequest, authorizationHeader);
+			Map<String, Object> data = new LinkedHashMap<>();
+			data.put("count", count);
+
+			String message = "Successfully counted data.";
+			auditService.logAudit(auditDTO, 200, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.OK).body(APIResponse.success(data, message, count));
+
+		} catch (Exception e) {
+			return errorResponse(auditDTO, e, authorizationHeader);
+		}
+	}
+
+	@GetMapping(value = "/exists", produces = "application/json")
+	@PreAuthorize("hasAuthority('SCOPE_view:mdm') or hasAuthority('SCOPE_manage:mdm')")
+	public ResponseEntity<APIResponse<Map<String, Object>>> uploadedDataExists(
+			@RequestHeader("Authorization") String authorizationHeader,
+			@Valid @ModelAttribute SearchRequest searchRequest) {
+
+		final String activityType = "Check Uploaded Data Exists";
+		final HTTPVerb httpMethod = HTTPVerb.GET;
+		final String endpoint = API_ENDPOINT + "/exists";
+
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endpoint,
+				httpMethod);
+
+		try {
+			boolean exists = masterdataService.dataExists(searchRequest, authorizationHeader);
+			Map<String, Object> data = new LinkedHashMap<>();
+			data.put("exists", exists);
+
+			String message = exists ? "Data found." : "No data found.";
+			auditService.logAudit(auditDTO, 200, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.OK).body(APIResponse.success(data, message, exists ? 1 : 0));
+
+		} catch (Exception e) {
+			return errorResponse(auditDTO, e, authorizationHeader);
+		}
+	}
+
+	/** Number of the caller's uploaded files, optionally only those in {@code stage}. */
+	@GetMapping(value = "/file/count", produces = "application/json")
+	@PreAuthorize("hasAuthority('SCOPE_view:mdm') or hasAuthority('SCOPE_manage:mdm')")
+	public ResponseEntity<APIResponse<Map<String, Object>>> countUploadedFiles(
+			@RequestHeader("Authorization") String authorizationHeader,
+			@RequestParam(value = "stage", defaultValue = "") String stage) {
+
+		final String activityType = "Count Uploaded Files";
+		final HTTPVerb httpMethod = HTTPVerb.GET;
+		final String endpoint = API_ENDPOINT + "/file/count";
+
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endpoint,
+				httpMethod);
+
+		try {
+			FileProcessStage processStage = null;
+			if (!stage.isBlank()) {
+				try {
+					processStage = FileProcessStage.valueOf(stage.trim().toUpperCase());
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException("Unknown stage: " + stage.trim());
+				}
+			}
+			long count = masterdataService.countUploadFiles(authorizationHeader, processStage);
+			Map<String, Object> data = new LinkedHashMap<>();
+			data.put("count", count);
+			if (processStage != null) data.put("stage", processStage.name());
+
+			String message = "Successfully counted files.";
+			auditService.logAudit(auditDTO, 200, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.OK).body(APIResponse.success(data, message, count));
+
+		} catch (Exception e) {
+			return errorResponse(auditDTO, e, authorizationHeader);
+		}
+	}
+
+	/** Row counters and stage of one of the caller's files, read from its header item. */
+	@GetMapping(value = "/file/{fileId}/summary", produces = "application/json")
+	@PreAuthorize("hasAuthority('SCOPE_view:mdm') or hasAuthority('SCOPE_manage:mdm')")
+	public ResponseEntity<APIResponse<Map<String, Object>>> getUploadedFileSummary(
+			@RequestHeader("Authorization") String authorizationHeader, @PathVariable("fileId") String fileId) {
+
+		final String activityType = "Get Uploaded File Summary";
+		final HTTPVerb httpMethod = HTTPVerb.GET;
+		final String endpoint = API_ENDPOINT + "/file/" + fileId + "/summary";
+
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endpoint,
+				httpMethod);
+
+		try {
+			Optional<Map<String, Object>> summary = masterdataService.fileSummary(fileId, authorizationHeader);
+			if (summary.isEmpty()) {
+				String message = "File not found.";
+				auditService.logAudit(auditDTO, 404, message, authorizationHeader);
+				return ResponseEntity.status(HttpStatus.NOT_FOUND).body(APIResponse.error(message));
+			}
+
+			String message = "Successfully retrieved file summary.";
+			auditService.logAudit(auditDTO, 200, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.OK).body(APIResponse.success(summary.get(), message, 1));
+
+		} catch (Exception e) {
+			return errorResponse(auditDTO, e, authorizationHeader);
+		}
+	}
+
+	/**
+	 * Downloads the rows staged for one of the caller's files as CSV or NDJSON. Rows are read a page at a
+	 * time and written straight to the response, gzip-encoded when the client accepts it, so memory does
+	 * not grow with the file. CSV columns are {@code id} and the domain's catalogued columns, plus any
+	 * others found on the first page. A failure after streaming has started aborts the response, so a
+	 * truncated download is never mistaken for a complete one.
+	 */
+	@GetMapping(value = "/file/{fileId}/export")
+	@PreAuthorize("hasAuthority('SCOPE_view:mdm') or hasAuthority('SCOPE_manage:mdm')")
+	public ResponseEntity<?> exportUploadedFile(@RequestHeader("Authorization") String authorizationHeader,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+			@PathVariable("fileId") String fileId,
+			@RequestParam(value = "format", defaultValue = "csv") String format) {
+
+		final String activityType = "Export Uploaded File";
+		final HTTPVerb httpMethod = HTTPVerb.GET;
+		final String endpoint = API_ENDPOINT + "/file/" + fileId + "/export";
+
+		AuditDTO auditDTO = auditService.createAuditDTO(INVALID_USER_ID, activityType, activityTypePrefix, endpoint,
+				httpMethod);
+
+		ExportFormat exportFormat;
+		Optional<List<String>> columns;
+		try {
+			try {
+				exportFormat = ExportFormat.valueOf(format.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown export format: " + format.trim());
+			}
+			columns = masterdataService.exportColumns(fileId, authorizationHeader);
+		} catch (Exception e) {
+			return errorResponse(auditDTO, e, authorizationHeader);
+		}
+		if (columns.isEmpty()) {
+			String message = "File not found.";
+			auditService.logAudit(auditDTO, 404, message, authorizationHeader);
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(APIResponse.error(message));
+		}
+
+		boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+		StreamingResponseBody body = out -> {
+			OutputStream target = gzip ? new GZIPOutputStream(out, EXPORT_BUFFER_SIZE) : out;
+			Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8),
+					EXPORT_BUFFER_SIZE);
+			try {
+				long total;
+				if (exportFormat == ExportFormat.CSV) {
+					CsvRowSink sink = new CsvRowSink(writer, columns.get(), fileId);
+					total = masterdataService.exportFile(fileId, authorizationHeader, sink);
+					sink.finish();
+				} else {
+					total = masterdataService.exportFile(fileId, authorizationHeader, ndjsonSink(writer));
+				}
+				writer.flush();
+				if (target instanceof GZIPOutputStream gz) gz.finish();
+
+				String message = "Successfully exported " + total + " rows.";
+				auditService.logAudit(auditDTO, 200, message, authorizationHeader);
+			} catch (IOException | RuntimeException e) {
+				String errorMessage = (e instanceof MasterdataServiceException) ? e.getMessage() : UNEXPECTED_ERROR;
+
+				logger.error(LOG_MESSAGE_FORMAT, errorMessage, e.getMessage());
+				auditDTO.setRemarks(e.getMessage());
+				auditService.logAudit(auditDTO, 500, errorMessage, authorizationHeader);
+				throw e;
+			}
+		};
+
+		String extension = exportFormat.name().toLowerCase();
+		ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK)
+				.contentType(exportFormat == ExportFormat.CSV ? TEXT_CSV : APPLICATION_NDJSON)
+				.header(HttpHeaders.CONTENT_DISPOSITION,
+						ContentDisposition.attachment().filename(fileId.trim() + "." + extension).build().toString())
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if (gzip) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		return response.body(body);
+	}
+
+	/** One JSON object per line; the writer is flushed once per page. */
+	private static MasterdataService.RowSink ndjsonSink(Writer writer) throws IOException {
+		JsonGenerator gen = STREAM_MAPPER.getFactory().createGenerator(writer);
+		gen.setRootValueSeparator(null);
+		return rows -> {
+			for (Map<String, Object> row : rows) {
+				STREAM_MAPPER.writeValue(gen, row);
+				gen.writeRaw('\n');
+			}
+			gen.flush();
+		};
+	}
+
+	/**
+	 * Writes rows under a header fixed by the first page: the given columns, then any other keys found
+	 * on that page. Keys that first appear on a later page have no column; they are left out and
+	 * logged once the export finishes.
+	 */
+	private static final class CsvRowSink implements MasterdataService.RowSink {
+
+		private final CSVWriter csv;
+		private final Writer writer;
+		private final List<String> columns;
+		private final Set<String> known;
+		private final Set<String> dropped = new LinkedHashSet<>();
+		private final String fileId;
+		private boolean headerWritten;
+
+		CsvRowSink(Writer writer, List<String> columns, String fileId) {
+			this.writer = writer;
+			this.csv = new CSVWriter(writer);
+			this.columns = new ArrayList<>(columns);
+			this.known = new HashSet<>(columns);
+			this.fileId = fileId;
+		}
+
+		@Override
+		public void accept(List<Map<String, Object>> rows) throws IOException {
+			for (Map<String, Object> row : rows) {
+				for (String key : row.keySet()) {
+					if (known.contains(key)) continue;
+					if (headerWritten) {
+						dropped.add(key);
+					} else {
+						known.add(key);
+						columns.add(key);
+					}
+				}
+			}
+			if (!headerWritten) writeHeader();
+			List<Object> values = new ArrayList<>(columns.size());
+			for (Map<String, Object> row : rows) {
+				values.clear();
+				for (String column : columns) {
+					values.add(row.get(column));
+				}
+				csv.writeRecord(values);
+			}
+			writer.flush();
+		}
+
+		/** Writes the header of an export without rows. */
+		void finish() throws IOException {
+			if (!headerWritten) writeHeader();
+			if (!dropped.isEmpty()) {
+				logger.warn("CSV export of file {} left out column(s) missing from the schema catalog: {}", fileId,
+						dropped);
+			}
+		}
+
+
+		private void writeHeader() throws IOException {
+			csv.writeRecord(columns);
+			headerWritten = true;
+		}
+	}
+
 	@PutMapping(value = "/update", produces = "application/json")
 	@PreAuthorize("hasAuthority('SCOPE_manage:mdm') or hasAuthority('SCOPE_view:policy')")
 	public ResponseEntity<APIResponse<List<Map<String, Object>>>>  updateData(
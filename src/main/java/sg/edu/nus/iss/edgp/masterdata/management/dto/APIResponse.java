@@ -1,5 +1,7 @@
 package sg.edu.nus.iss.edgp.masterdata.management.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,6 +16,10 @@ public class APIResponse<T> {
 	private long totalRecord;
 	private T data;
 
+	/** Present while more pages follow; pass it back as {@code cursor}. */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String nextCursor;
+
 	public static <T> APIResponse<T> error(String message) {
 		return APIResponse.<T>builder().success(false).message(message).totalRecord(0).build();
 	}	
@@ -23,6 +29,11 @@ public class APIResponse<T> {
 		return APIResponse.<T>builder().success(true).message(message).totalRecord(totalRecord).data(data).build();
 	}
 	
+	public static <T> APIResponse<T> success(T data, String message, long totalRecord, String nextCursor) {
+		return APIResponse.<T>builder().success(true).message(message).totalRecord(totalRecord).data(data)
+				.nextCursor(nextCursor).build();
+	}
+
 	public static <T> APIResponse<T> successWithNoData(String message) {
 		return APIResponse.<T>builder().success(true).message(message).totalRecord(1).build();
 	}
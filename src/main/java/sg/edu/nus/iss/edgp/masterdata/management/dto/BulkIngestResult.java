@@ -0,0 +1,23 @@
+package sg.edu.nus.iss.edgp.masterdata.management.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class BulkIngestResult {
+
+	public record RowError(long row, String message) {
+	}
+
+	private String fileId;
+	private int accepted;
+	private int rejected;
+	private boolean truncated;
+	private List<RowError> errors;
+
+}
@@ -0,0 +1,11 @@
+package sg.edu.nus.iss.edgp.masterdata.management.dto;
+
+import java.util.List;
+
+/** One page of a search; {@code nextCursor} is null on the last page. */
+public record PageResult<T>(List<T> items, String nextCursor) {
+
+	public static <T> PageResult<T> empty() {
+		return new PageResult<>(List.of(), null);
+	}
+}
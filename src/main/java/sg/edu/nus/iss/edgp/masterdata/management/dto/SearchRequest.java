@@ -1,5 +1,6 @@
 package sg.edu.nus.iss.edgp.masterdata.management.dto;
 
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Getter;
@@ -16,9 +17,22 @@ public class SearchRequest {
 	    private int page = 0;
 
 	    @Min(1)
+	    @Max(1000)
 	    private int size = 50;
 
 	    private String policyId="";
 	    
 	    private String fileId="";
+
+	    /** {@code nextCursor} of the previous page; takes precedence over {@code page}. */
+	    private String cursor="";
+
+	    /** Comma separated keys to return for each row; empty returns whole rows. */
+	    private String fields="";
+
+	    /** Column predicates, e.g. {@code amount:ge:100;name:begins_with:Al}; see {@code QueryFilter}. */
+	    private String filter="";
+
+	    /** Index range key to order by, e.g. {@code file_id:desc}. */
+	    private String sort="";
 }
@@ -0,0 +1,6 @@
+package sg.edu.nus.iss.edgp.masterdata.management.enums;
+
+public enum ExportFormat {
+	CSV,
+	NDJSON
+}
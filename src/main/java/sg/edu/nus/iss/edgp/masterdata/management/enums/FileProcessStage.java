@@ -1,6 +1,7 @@
 package sg.edu.nus.iss.edgp.masterdata.management.enums;
 
 public enum FileProcessStage {
+	UPLOADING,
 	UNPROCESSED,
     PROCESSING,
     COMPLETE 
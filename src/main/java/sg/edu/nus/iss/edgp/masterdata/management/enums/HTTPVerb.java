@@ -1,7 +1,7 @@
 package sg.edu.nus.iss.edgp.masterdata.management.enums;
 
 public enum HTTPVerb {
-	GET, POST, PUT, PATCH;
+	GET, POST, PUT, PATCH, DELETE;
 	
 	  public static HTTPVerb fromString(String method) {
         for (HTTPVerb verb : HTTPVerb.values()) {
@@ -0,0 +1,20 @@
+package sg.edu.nus.iss.edgp.masterdata.management.enums;
+
+/**
+ * Per-file row counters kept on the header item and maintained with DynamoDB {@code ADD}.
+ * Row outcomes are recorded by the workflow on the tracker, not here, so there are no outcome counters.
+ */
+public enum RowCounter {
+	STAGED("rows_staged"),
+	DISPATCHED("rows_dispatched");
+
+	private final String attribute;
+
+	RowCounter(String attribute) {
+		this.attribute = attribute;
+	}
+
+	public String attribute() {
+		return attribute;
+	}
+}
@@ -0,0 +1,8 @@
+package sg.edu.nus.iss.edgp.masterdata.management.enums;
+
+public enum UploadJobState {
+	QUEUED,
+	RUNNING,
+	COMPLETED,
+	FAILED
+}
@@ -0,0 +1,12 @@
+package sg.edu.nus.iss.edgp.masterdata.management.pojo;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Setter
+@Getter
+public class ChunkedUploadRequest extends UploadRequest {
+
+	private String fileName="";
+
+}
@@ -3,6 +3,7 @@ package sg.edu.nus.iss.edgp.masterdata.management.pojo;
 import lombok.Getter;
 import lombok.Setter;
 import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.UploadJobState;
 
 @Getter
 @Setter
@@ -19,5 +20,12 @@ public class MasterDataHeader {
 	private String uploadedBy="";
 	private FileProcessStage processStage = FileProcessStage.UNPROCESSED;
 	private String fileStatus="";
+	private UploadJobState uploadState;
+	private long rowsParsed=0;
+	private long rowsWritten=0;
+	private long rowsPerSecond=0;
+	private String uploadError="";
+	private long rowsStaged=0;
+	private long rowsDispatched=0;
 	
 }
@@ -1,8 +1,10 @@
 package sg.edu.nus.iss.edgp.masterdata.management.service;
 
+import java.util.Map;
 import java.util.Optional;
 
 import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.UploadJobState;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
 
 public interface IHeaderService {
@@ -14,4 +16,21 @@ public interface IHeaderService {
 	void updateFileStage(String fileId, FileProcessStage processStage);
 	
 	boolean filenameExists(String filename);
+
+	Optional<MasterDataHeader> findById(String fileId);
+
+	long markDispatched(String fileId);
+
+	void updateUploadProgress(String fileId, UploadJobState state, long rowsParsed, long rowsWritten, long newlyStaged,
+			long rowsPerSecond);
+
+	void completeUpload(String fileId, long rowsWritten, long newlyStaged, long rowsPerSecond);
+
+	void failUpload(String fileId, String error);
+
+	void heartbeatUpload(String fileId);
+
+	boolean failStaleUpload(String fileId, String seenUpdatedDate, String error);
+
+	Map<String, String> findRecentUploadersByOrganization(String since, int maxOrganizations, int maxPages);
 }
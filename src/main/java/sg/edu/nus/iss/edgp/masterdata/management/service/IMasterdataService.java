@@ -5,7 +5,9 @@ import java.util.Map;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.UploadRequest;
+import sg.edu.nus.iss.edgp.masterdata.management.dto.PageResult;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.SearchRequest;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.UploadResult;
 
@@ -13,17 +15,23 @@ public interface IMasterdataService {
 
 	UploadResult uploadCsvDataToTable(MultipartFile file, UploadRequest uploadRequest, String authorizationHeader);
 
-	List<Map<String, Object>> getAllUploadFiles(String authorizationHeader );
+	List<Map<String, Object>> getAllUploadFiles(String authorizationHeader, String fields);
 	
-	List<Map<String, Object>> getDataByPolicyAndDomainName(SearchRequest searchReq,String authorizationHeader );
+	PageResult<Map<String, Object>> getDataByPolicyAndDomainName(SearchRequest searchReq,String authorizationHeader );
 	 
-	List<Map<String, Object>> getAllData(String authorizationHeader);
+	PageResult<Map<String, Object>> getAllData(SearchRequest searchReq, String authorizationHeader);
 
-	List<Map<String, Object>> getDataByPolicyId(SearchRequest searchReq,String authorizationHeader);
+	PageResult<Map<String, Object>> getDataByPolicyId(SearchRequest searchReq,String authorizationHeader);
 	
-	List<Map<String, Object>> getDataByDomainName(SearchRequest searchReq,String authorizationHeader);
+	PageResult<Map<String, Object>> getDataByDomainName(SearchRequest searchReq,String authorizationHeader);
 	
-	List<Map<String, Object>> getDataByFileId(SearchRequest searchReq, String authorizationHeader) ;
+	PageResult<Map<String, Object>> getDataByFileId(SearchRequest searchReq, String authorizationHeader) ;
+
+	long countData(SearchRequest searchReq, String authorizationHeader);
+
+	boolean dataExists(SearchRequest searchReq, String authorizationHeader);
+
+	long countUploadFiles(String authorizationHeader, FileProcessStage stage);
 	
 	int processAndSendRawDataToSqs();
 	
@@ -0,0 +1,214 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * Writes 25-item BatchWriteItem batches on a shared worker pool.
+ * Each {@link Pipeline} keeps up to {@code maxInFlight} batches of one upload in flight;
+ * a batch with unprocessed items backs off on its own worker without holding up the others.
+ * Every call draws from the shared {@link WriteRateLimiter}.
+ */
+@RequiredArgsConstructor
+@Service
+public class BatchWriteService {
+
+	@Value("${aws.dynamodb.batch.write.concurrency:4}")
+	private int maxInFlight = 4;
+
+	@Value("${aws.dynamodb.batch.write.threads:16}")
+	private int threads = 16;
+
+	private static final Logger logger = LoggerFactory.getLogger(BatchWriteService.class);
+
+	private final DynamoDbClient dynamoDbClient;
+	private final WriteRateLimiter writeRateLimiter;
+
+	private volatile ExecutorService executor;
+
+	/** Starts a write pipeline for one caller. Pipelines are not thread-safe. */
+	public Pipeline open(String tableName) {
+		return new Pipeline(tableName);
+	}
+
+	public final class Pipeline {
+
+		private final String tableName;
+		private final Deque<CompletableFuture<Long>> inFlight = new ArrayDeque<>();
+		private final AtomicLong written = new AtomicLong();
+		private int batches;
+		private long totalLatencyMs;
+		private long maxLatencyMs;
+
+		private Pipeline(String tableName) {
+			this.tableName = tableName;
+		}
+
+		/** Queues a batch; blocks while {@code maxInFlight} batches of this pipeline are still running. */
+		public void submit(List<WriteRequest> batch) {
+			while (inFlight.size() >= Math.max(1, maxInFlight)) {
+				awaitOldest();
+			}
+			List<WriteRequest> copy = List.copyOf(batch);
+			inFlight.add(CompletableFuture.supplyAsync(() -> {
+				long latencyMs = writeWithRetry(tableName, copy);
+				written.addAndGet(copy.size());
+				return latencyMs;
+			}, executor()));
+		}
+
+		/** Items acknowledged by DynamoDB so far; safe to read from any thread. */
+		public long written() {
+			return written.get();
+		}
+
+		/** Waits for every queued batch and logs the pipeline's latency summary. */
+		public void awaitAll() {
+			while (!inFlight.isEmpty()) {
+				awaitOldest();
+			}
+			if (batches > 0) {
+				logger.info("Wrote {} batch(es) to {}: avg {} ms, max {} ms per batch", batches, tableName,
+						totalLatencyMs / batches, maxLatencyMs);
+			}
+		}
+
+		/**
+		 * Called when the producer fails between submits: waits for the batches already running, so nothing
+		 * is still writing once the failure is reported, and attaches their own errors to {@code failure}.
+		 */
+		public void abort(Throwable failure) {
+			drain(failure);
+		}
+
+		private void drain(Throwable failure) {
+			while (!inFlight.isEmpty()) {
+				try {
+					inFlight.poll().join();
+				} catch (CompletionException | CancellationException e) {
+					Throwable cause = e.getCause() != null ? e.getCause() : e;
+					if (cause != failure) failure.addSuppressed(cause);
+				}
+			}
+		}
+
+		private void awaitOldest() {
+			try {
+				long latencyMs = inFlight.poll().join();
+				batches++;
+				totalLatencyMs += latencyMs;
+				maxLatencyMs = Math.max(maxLatencyMs, latencyMs);
+			} catch (CompletionException e) {
+				Throwable cause = e.getCause() != null ? e.getCause() : e;
+				drain(cause);
+				if (cause instanceof RuntimeException re) throw re;
+				throw new MasterdataServiceException("Batch write failed: " + cause.getMessage(), cause);
+			}
+		}
+	}
+
+	/** Writes one batch, retrying unprocessed items with jittered backoff. Returns the latency in ms. */
+	long writeWithRetry(String table, List<WriteRequest> wrs) {
+		long start = System.nanoTime();
+
+		Map<String, List<WriteRequest>> req = new HashMap<>();
+		req.put(table, wrs);
+
+		BatchWriteItemResponse resp = send(req);
+		Map<String, List<WriteRequest>> unprocessed = resp.unprocessedItems();
+
+		int attempt = 0;
+		while (unprocessed != null && !unprocessed.isEmpty()) {
+			int base = (int) Math.min(1000L * (1L << Math.min(attempt, 3)), 8000L);
+			int sleep = ThreadLocalRandom.current().nextInt(base / 2, base);
+			try {
+				Thread.sleep(sleep);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MasterdataServiceException("Interrupted while retrying unprocessed items for " + table);
+			}
+
+			// rebuild request each retry
+			resp = send(unprocessed);
+			unprocessed = resp.unprocessedItems();
+			attempt++;
+		}
+
+		long latencyMs = (System.nanoTime() - start) / 1_000_000;
+		logger.debug("Batch of {} item(s) to {} written in {} ms after {} retr(ies)", wrs.size(), table, latencyMs,
+				attempt);
+		return latencyMs;
+	}
+
+	private BatchWriteItemResponse send(Map<String, List<WriteRequest>> items) {
+		int count = countItems(items);
+		writeRateLimiter.acquire(count);
+		try {
+			BatchWriteItemResponse resp = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder()
+					.requestItems(items).returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build());
+			writeRateLimiter.record(count, resp.consumedCapacity(), count, countItems(resp.unprocessedItems()));
+			return resp;
+		} catch (DynamoDbException e) {
+			if (e.isThrottlingException()) writeRateLimiter.onThrottled();
+			throw e;
+		}
+	}
+
+	private static int countItems(Map<String, List<WriteRequest>> items) {
+		if (items == null) return 0;
+		int n = 0;
+		for (List<WriteRequest> l : items.values()) n += l.size();
+		return n;
+	}
+
+	private ExecutorService executor() {
+		ExecutorService ex = executor;
+		if (ex == null) {
+			synchronized (this) {
+				ex = executor;
+				if (ex == null) {
+					AtomicInteger seq = new AtomicInteger();
+					ex = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+						Thread t = new Thread(r, "ddb-batch-write-" + seq.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					});
+					executor = ex;
+				}
+			}
+		}
+		return ex;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		ExecutorService ex = executor;
+		if (ex != null) ex.shutdown();
+	}
+}
@@ -0,0 +1,300 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
+import sg.edu.nus.iss.edgp.masterdata.management.jwt.JWTService;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.ChunkedUploadRequest;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.UploadRequest;
+
+/**
+ * Resumable uploads: initiate, put chunk N (any order, re-sends overwrite), complete.
+ * Each session is a directory under {@code upload.chunk.dir} holding the session metadata
+ * and one file per chunk, so sessions survive a restart of the pod that owns the disk.
+ * On completion the chunks are streamed in order, without being joined first, into
+ * {@link UploadJobService}; heap use does not depend on the file size.
+ */
+@RequiredArgsConstructor
+@Service
+public class ChunkedUploadService {
+
+	@Value("${upload.chunk.dir:${java.io.tmpdir}/mdm-chunks}")
+	private String chunkDir = System.getProperty("java.io.tmpdir") + "/mdm-chunks";
+
+	@Value("${upload.chunk.max.bytes:67108864}")
+	private long maxChunkBytes = 64L * 1024 * 1024;
+
+	@Value("${upload.chunk.max.count:10000}")
+	private int maxChunks = 10000;
+
+	@Value("${upload.chunk.ttl.hours:24}")
+	private long ttlHours = 24;
+
+	private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+	private static final String SESSION_FILE = "session.properties";
+	private static final String COMPLETED_MARKER = "completed";
+	private static final String CHUNK_PREFIX = "chunk-";
+	private static final String CHUNK_SUFFIX = ".part";
+
+	private final JWTService jwtService;
+	private final UploadJobService uploadJobService;
+
+	/** Received chunk indices and their total size for one session. */
+	public record ChunkStatus(String uploadId, String fileName, List<Integer> receivedChunks, long receivedBytes) {
+	}
+
+	public String initiate(ChunkedUploadRequest req, String authorizationHeader) {
+		String uploadId = UUID.randomUUID().toString();
+		Path dir = root().resolve(uploadId);
+
+		Properties session = new Properties();
+		session.setProperty("fileName", req.getFileName().trim());
+		session.setProperty("policyId", req.getPolicyId().trim());
+		session.setProperty("domainName", req.getDomainName().trim());
+		session.setProperty("uploadedBy", userOf(authorizationHeader));
+		session.setProperty("createdAt", Instant.now().toString());
+
+		try {
+			Files.createDirectories(dir);
+			try (Writer w = Files.newBufferedWriter(dir.resolve(SESSION_FILE), StandardCharsets.UTF_8)) {
+				session.store(w, null);
+			}
+		} catch (IOException e) {
+			throw new MasterdataServiceException("Unable to start chunked upload: " + e.getMessage(), e);
+		}
+		return uploadId;
+	}
+
+	/**
+	 * Stores one chunk; a chunk that was already received is replaced.
+	 * @return empty when the session does not exist, belongs to another user or was already completed
+	 * @throws IllegalArgumentException for an index out of range or a chunk above {@code maxChunkBytes}
+	 */
+	public Optional<ChunkStatus> putChunk(String uploadId, int index, InputStream body, String authorizationHeader) {
+		if (index < 0 || index >= maxChunks) {
+			throw new IllegalArgumentException("Chunk index must be between 0 and " + (maxChunks - 1) + ".");
+		}
+		Optional<Path> dir = openSession(uploadId, authorizationHeader);
+		if (dir.isEmpty() || Files.exists(dir.get().resolve(COMPLETED_MARKER))) return Optional.empty();
+
+		Path target = dir.get().resolve(chunkName(index));
+		Path tmp = dir.get().resolve(chunkName(index) + "." + UUID.randomUUID() + ".tmp");
+		try {
+			try (OutputStream out = Files.newOutputStream(tmp)) {
+				byte[] buf = new byte[64 * 1024];
+				long written = 0;
+				int n;
+				while ((n = body.read(buf)) > 0) {
+					written += n;
+					if (written > maxChunkBytes) {
+						throw new IllegalArgumentException("Chunk exceeds " + maxChunkBytes + " bytes.");
+					}
+					out.write(buf, 0, n);
+				}
+			}
+			Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new MasterdataServiceException("Unable to store chunk " + index + ": " + e.getMessage(), e);
+		} finally {
+			deleteQuietly(tmp);
+		}
+		return status(dir.get(), uploadId);
+	}
+
+	public Optional<ChunkStatus> getStatus(String uploadId, String authorizationHeader) {
+		return openSession(uploadId, authorizationHeader).flatMap(dir -> status(dir, uploadId));
+	}
+
+	/** Indices in {@code [0, totalChunks)} that have not been received yet. */
+	public List<Integer> missingChunks(ChunkStatus status, int totalChunks) {
+		List<Integer> missing = new ArrayList<>();
+		TreeSet<Integer> received = new TreeSet<>(status.receivedChunks());
+		for (int i = 0; i < totalChunks; i++) {
+			if (!received.contains(i)) missing.add(i);
+		}
+		return missing;
+	}
+
+	/**
+	 * Hands the assembled chunks to the async ingest and returns the file id.
+	 * Callers check {@link #missingChunks} first.
+	 */
+	public String complete(String uploadId, int totalChunks, String authorizationHeader) {
+		Path dir = openSession(uploadId, authorizationHeader)
+				.orElseThrow(() -> new IllegalArgumentException("Unknown upload " + uploadId + "."));
+		Properties session = readSession(dir)
+				.orElseThrow(() -> new IllegalArgumentException("Unknown upload " + uploadId + "."));
+		try {
+			Files.createFile(dir.resolve(COMPLETED_MARKER));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Upload " + uploadId + " is already complete.");
+		}
+
+		UploadRequest req = new UploadRequest();
+		req.setPolicyId(session.getProperty("policyId"));
+		req.setDomainName(session.getProperty("domainName"));
+		try {
+			return uploadJobService.submit(session.getProperty("fileName"), req, authorizationHeader,
+					() -> new SequenceInputStream(new ChunkEnumeration(dir, totalChunks)), () -> deleteSession(dir));
+		} catch (RuntimeException e) {
+			deleteQuietly(dir.resolve(COMPLETED_MARKER)); // chunks stay, so the client can retry completion
+			throw e;
+		}
+	}
+
+	/** Drops sessions that have not received a chunk within {@code ttlHours}. */
+	@Scheduled(fixedDelayString = "PT1H")
+	public void purgeExpired() {
+		Path root = root();
+		if (!Files.isDirectory(root)) return;
+		Instant cutoff = Instant.now().minus(Duration.ofHours(ttlHours));
+		try (Stream<Path> dirs = Files.list(root)) {
+			dirs.filter(Files::isDirectory)
+					.filter(d -> !Files.exists(d.resolve(COMPLETED_MARKER)))
+					.filter(d -> lastModified(d).isBefore(cutoff))
+					.forEach(d -> {
+						logger.info("Purging expired chunked upload {}", d.getFileName());
+						deleteSession(d);
+					});
+		} catch (IOException e) {
+			logger.warn("Unable to purge chunked uploads: {}", e.toString());
+		}
+	}
+
+	/** Opens chunk files one at a time as the CSV reader reaches them. */
+	private static final class ChunkEnumeration implements Enumeration<InputStream> {
+
+		private final Path dir;
+		private final int total;
+		private int next;
+
+		ChunkEnumeration(Path dir, int total) {
+			this.dir = dir;
+			this.total = total;
+		}
+
+		@Override
+		public boolean hasMoreElements() {
+			return next < total;
+		}
+
+		@Override
+		public InputStream nextElement() {
+			try {
+				return Files.newInputStream(dir.resolve(chunkName(next++)));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private Optional<Path> openSession(String uploadId, String authorizationHeader) {
+		try {
+			UUID.fromString(uploadId); // also keeps the id from escaping the chunk directory
+		} catch (IllegalArgumentException e) {
+			return Optional.empty();
+		}
+		Path dir = root().resolve(uploadId);
+		return readSession(dir)
+				.filter(s -> s.getProperty("uploadedBy", "").equals(userOf(authorizationHeader)))
+				.map(s -> dir);
+	}
+
+	private static Optional<Properties> readSession(Path dir) {
+		Path file = dir.resolve(SESSION_FILE);
+		if (!Files.isRegularFile(file)) return Optional.empty();
+		Properties p = new Properties();
+		try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			p.load(r);
+		} catch (IOException e) {
+			return Optional.empty();
+		}
+		return Optional.of(p);
+	}
+
+	private static Optional<ChunkStatus> status(Path dir, String uploadId) {
+		Optional<Properties> session = readSession(dir);
+		if (session.isEmpty()) return Optional.empty();
+		List<Integer> received = new ArrayList<>();
+		long bytes = 0;
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path f : (Iterable<Path>) files::iterator) {
+				String name = f.getFileName().toString();
+				if (!name.startsWith(CHUNK_PREFIX) || !name.endsWith(CHUNK_SUFFIX)) continue;
+				received.add(Integer.parseInt(
+						name.substring(CHUNK_PREFIX.length(), name.length() - CHUNK_SUFFIX.length())));
+				bytes += Files.size(f);
+			}
+		} catch (IOException e) {
+			throw new MasterdataServiceException("Unable to read chunked upload " + uploadId + ": " + e.getMessage(), e);
+		}
+		received.sort(Comparator.naturalOrder());
+		return Optional.of(new ChunkStatus(uploadId, session.get().getProperty("fileName"), received, bytes));
+	}
+
+	private String userOf(String authorizationHeader) {
+		return jwtService.extractUserEmailFromToken(authorizationHeader.substring(7));
+	}
+
+	private Path root() {
+		return Paths.get(chunkDir);
+	}
+
+	private static String chunkName(int index) {
+		return String.format("%s%06d%s", CHUNK_PREFIX, index, CHUNK_SUFFIX);
+	}
+
+	private static Instant lastModified(Path dir) {
+		try {
+			return Files.getLastModifiedTime(dir).toInstant();
+		} catch (IOException e) {
+			return Instant.now();
+		}
+	}
+
+	private static void deleteSession(Path dir) {
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(ChunkedUploadService::deleteQuietly);
+		} catch (IOException e) {
+			logger.warn("Unable to delete chunked upload {}: {}", dir, e.toString());
+		}
+	}
+
+	private static void deleteQuietly(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			logger.warn("Unable to delete {}: {}", path, e.toString());
+		}
+	}
+}
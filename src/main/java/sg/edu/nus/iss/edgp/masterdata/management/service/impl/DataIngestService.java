@@ -8,16 +8,21 @@ import org.springframework.web.bind.annotation.RequestBody;
 
 import lombok.RequiredArgsConstructor;
 import sg.edu.nus.iss.edgp.masterdata.management.aws.service.SQSPublishingService;
+import sg.edu.nus.iss.edgp.masterdata.management.dto.BulkIngestResult;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.InsertionSummary;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.UploadResult;
 import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.UploadJobState;
 import sg.edu.nus.iss.edgp.masterdata.management.jwt.JWTService;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.DataIngestResult;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
 import sg.edu.nus.iss.edgp.masterdata.management.service.IDataIngestService;
 import sg.edu.nus.iss.edgp.masterdata.management.utility.GeneralUtility;
 import sg.edu.nus.iss.edgp.masterdata.management.utility.JSONReader;
+import sg.edu.nus.iss.edgp.masterdata.management.utility.JsonRowParser;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -40,6 +45,9 @@ public class DataIngestService implements IDataIngestService {
 
 	private static final Logger logger = LoggerFactory.getLogger(DataIngestService.class);
 
+	private static final int MAX_REPORTED_ROW_ERRORS = 1000;
+	private static final Set<String> BULK_RESERVED_KEYS = Set.of("domain_name", "policy_id", "uploaded_by");
+
 	private final DynamoDbClient dynamoDbClient;
 
 	private final JWTService jwtService;
@@ -47,6 +55,7 @@ public class DataIngestService implements IDataIngestService {
 	private final HeaderService headerService;
 	private final StagingDataService stagingDataService;
 	private final MasterdataService masterdataService;
+	private final IngestCoalescer ingestCoalescer;
 
 	public UploadResult processIngest( Map<String, Object> request, String authorizationHeader) {
 
@@ -107,6 +116,12 @@ public class DataIngestService implements IDataIngestService {
 	        if (row.isEmpty()) {
 	            return new UploadResult("No row fields provided in data.", 0, List.of());
 	        }
+
+	        // Coalescing mode: share one header and one batched write with concurrent callers
+	        if (ingestCoalescer.isEnabled()) {
+	            Map<String, Object> staged = ingestCoalescer.ingest(row, orgId, policyId, domainName, uploadedBy);
+	            return new UploadResult("Data created successfully.", 1, List.of(staged));
+	        }
 	        header.setTotalRowsCount(1);
 
 	        // 5) Ensure tables exist, then save header
@@ -143,6 +158,130 @@ public class DataIngestService implements IDataIngestService {
 
 	
 
+	/**
+	 * Bulk variant of {@link #processIngest}: one header for the whole body, rows streamed through
+	 * the batched staging writer. Rows that are not objects, carry a different domain/policy or have
+	 * no fields are skipped and reported by their 1-based position.
+	 * The header is saved first as {@link FileProcessStage#UPLOADING} and only moves to
+	 * {@link FileProcessStage#UNPROCESSED} once the body is staged, so rows left behind by a failed
+	 * body stay under a failed header the dispatcher never picks up.
+	 */
+	public BulkIngestResult processBulkIngest(InputStream body, boolean ndjson, String domainName, String policyId,
+			String authorizationHeader) throws IOException {
+
+		final String domain = trimToEmpty(domainName);
+		final String policy = trimToEmpty(policyId);
+		if (domain.isEmpty()) throw new IllegalArgumentException("domain_name is mandatory.");
+		if (policy.isEmpty()) throw new IllegalArgumentException("policy_id is mandatory.");
+
+		final String jwtToken = extractBearerToken(authorizationHeader);
+		String uploadedBy = defaultIfBlank(jwtService.extractUserEmailFromToken(jwtToken), "system");
+		String orgId = defaultIfBlank(jwtService.extractOrgIdFromToken(jwtToken), "");
+
+		if (!dynamoService.tableExists(headerTableName.trim())) {
+			dynamoService.createTable(headerTableName.trim());
+		}
+		if (!dynamoService.tableExists(stagingTableName.trim())) {
+			dynamoService.createTable(stagingTableName.trim());
+		}
+
+		String headerId = UUID.randomUUID().toString();
+		MasterDataHeader header = new MasterDataHeader();
+		header.setId(headerId);
+		header.setFileName("bulk data ingest");
+		header.setDomainName(domain.toLowerCase());
+		header.setOrganizationId(orgId);
+		header.setPolicyId(policy);
+		header.setUploadedBy(uploadedBy);
+		header.setProcessStage(FileProcessStage.UPLOADING);
+		header.setUploadState(UploadJobState.RUNNING);
+		headerService.saveHeader(headerTableName.trim(), header);
+
+		long start = System.nanoTime();
+		List<BulkIngestResult.RowError> errors = new ArrayList<>();
+		int[] rejected = { 0 };
+		boolean[] truncated = { false };
+
+		InsertionSummary summary;
+		try (JsonRowParser.RowIterator rows = JsonRowParser.open(body, ndjson)) {
+			Iterator<Map<String, Object>> accepted = new Iterator<>() {
+				private Map<String, Object> next;
+
+				@Override
+				public boolean hasNext() {
+					while (next == null && rows.hasNext()) {
+						JsonRowParser.Row row = rows.next();
+						String error = row.isValid() ? null : row.error();
+						Map<String, Object> values = null;
+						if (error == null) {
+							values = bulkRowValues(row.values(), domain, policy);
+							if (values == null) error = "domain_name/policy_id do not match the request.";
+							else if (values.isEmpty()) error = "No row fields provided.";
+						}
+						if (error == null) {
+							next = values;
+						} else {
+							rejected[0]++;
+							truncated[0] |= row.fatal();
+							if (errors.size() < MAX_REPORTED_ROW_ERRORS) {
+								errors.add(new BulkIngestResult.RowError(row.index(), error));
+							}
+						}
+					}
+					return next != null;
+				}
+
+				@Override
+				public Map<String, Object> next() {
+					if (!hasNext()) throw new NoSuchElementException();
+					Map<String, Object> r = next;
+					next = null;
+					return r;
+				}
+			};
+			summary = stagingDataService.insertToStaging(stagingTableName.trim(), accepted, orgId, policy, domain,
+					headerId, uploadedBy);
+		} catch (IOException | RuntimeException e) {
+			failBulkIngest(headerId, e.getMessage());
+			throw e;
+		}
+
+		long total = summary.totalInserted();
+		if (total > 0) {
+			long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+			headerService.completeUpload(headerId, total, total, total * 1000 / elapsedMs);
+		} else {
+			failBulkIngest(headerId, "No valid rows.");
+		}
+
+		return new BulkIngestResult(summary.totalInserted() > 0 ? headerId : null, summary.totalInserted(),
+				rejected[0], truncated[0], errors);
+	}
+
+	private void failBulkIngest(String headerId, String error) {
+		try {
+			headerService.failUpload(headerId, error);
+		} catch (Exception e) {
+			logger.error("Unable to record failure for bulk ingest {}: {}", headerId, e.toString());
+		}
+	}
+
+	/** Drops the meta keys the request already carries; null if a row names a different domain or policy. */
+	private static Map<String, Object> bulkRowValues(Map<String, Object> values, String domain, String policy) {
+		String rowDomain = trimToEmpty(values.get("domain_name"));
+		String rowPolicy = trimToEmpty(values.get("policy_id"));
+		if (!rowDomain.isEmpty() && !rowDomain.equalsIgnoreCase(domain)) return null;
+		if (!rowPolicy.isEmpty() && !rowPolicy.equals(policy)) return null;
+
+		LinkedHashMap<String, Object> row = new LinkedHashMap<>();
+		for (Map.Entry<String, Object> e : values.entrySet()) {
+			String key = e.getKey() == null ? "" : e.getKey().trim();
+			if (key.isEmpty() || BULK_RESERVED_KEYS.contains(key) || e.getValue() == null) continue;
+			row.put(key, e.getValue());
+		}
+		return row;
+	}
+
 	private String extractBearerToken(String authorizationHeader) {
 		if (authorizationHeader == null || authorizationHeader.isBlank()) {
 			throw new IllegalArgumentException("Missing Authorization header.");
@@ -7,6 +7,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,7 +24,6 @@ import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedExce
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
-import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 
 @RequiredArgsConstructor
 @Service
@@ -47,17 +47,15 @@ public class DomainService implements IDomainService {
 				ScanRequest scanRequest = ScanRequest.builder().tableName(domainTableName.trim())
 						.attributesToGet("name").build();
 
-				ScanResponse response = dynamoDbClient.scan(scanRequest);
-
-				List<Map<String, AttributeValue>> items = response.items();
-
-				logger.info("Total record in findDomains: {}", items.size());
-
-				for (Map<String, AttributeValue> item : items) {
-					if (item.containsKey("name") && item.get("name").s() != null) {
-						retList.add(item.get("name").s());
-					}
+				try (Stream<Map<String, AttributeValue>> items = dynamoService.parallelScan(scanRequest)) {
+					items.forEach(item -> {
+						if (item.containsKey("name") && item.get("name").s() != null) {
+							retList.add(item.get("name").s());
+						}
+					});
 				}
+
+				logger.info("Total record in findDomains: {}", retList.size());
 			}
 
 			return retList;
@@ -1,41 +1,124 @@
 package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
 import sg.edu.nus.iss.edgp.masterdata.management.service.IDynamicDetailService;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.waiters.Waiter;
+import software.amazon.awssdk.core.waiters.WaiterAcceptor;
+import software.amazon.awssdk.retries.api.BackoffStrategy;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.CreateGlobalSecondaryIndexAction;
 import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
 import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
 import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexUpdate;
+import software.amazon.awssdk.services.dynamodb.model.IndexStatus;
 import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
 import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
 import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateTableRequest;
+import software.amazon.awssdk.services.dynamodb.waiters.DynamoDbWaiter;
 
 @RequiredArgsConstructor
 @Service
 public class DynamicDetailService implements IDynamicDetailService {
 
 	private final DynamoDbClient dynamoDbClient;
+	private final WriteRateLimiter writeRateLimiter;
+
+	// Tables this service has seen or created; the app never drops tables, so positives never go stale
+	private final Set<String> knownTables = ConcurrentHashMap.newKeySet();
+
+	private static final long INDEX_RECHECK_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+	private record IndexState(Set<String> active, long checkedAtNanos) {
+	}
+
+	private final Map<String, IndexState> indexStates = new ConcurrentHashMap<>();
+
+	@Value("${aws.dynamodb.index.poll.ms:15000}")
+	private long indexPollMs = 15000;
+
+	// backfilling an index on a large table can take a long time
+	@Value("${aws.dynamodb.index.wait.hours:6}")
+	private long indexWaitHours = 6;
+
+	@Value("${aws.dynamodb.scan.segment.mb:256}")
+	private long scanSegmentMb = 256;
+
+	@Value("${aws.dynamodb.scan.max.segments:8}")
+	private int maxScanSegments = 8;
+
+	// readers per scan, not per process: a slow consumer only holds its own scan's threads
+	@Value("${aws.dynamodb.scan.threads:8}")
+	private int scanThreads = 8;
+
+	@Value("${aws.dynamodb.scan.stall.ms:300000}")
+	private long scanStallMs = 300000;
+
+	// DynamoDB refreshes TableSizeBytes about every six hours
+	private static final long TABLE_SIZE_RECHECK_NANOS = TimeUnit.HOURS.toNanos(1);
+
+	private record TableSize(long bytes, long checkedAtNanos) {
+	}
+
+	private final Map<String, TableSize> tableSizes = new ConcurrentHashMap<>();
+
+	private volatile ExecutorService scanExecutor;
 
 	@Override
 	public void insertStagingMasterData(String tableName, Map<String, String> rawData) {
@@ -90,10 +173,13 @@ public class DynamicDetailService implements IDynamicDetailService {
 		}
 	}
 
+	/** Answered from memory once a table is known; only unknown tables cost a DescribeTable call. */
 	@Override
 	public boolean tableExists(String tableName) {
+		if (knownTables.contains(tableName)) return true;
 		try {
 			dynamoDbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build());
+			knownTables.add(tableName);
 			return true;
 		} catch (ResourceNotFoundException e) {
 			return false;
@@ -102,33 +188,348 @@ public class DynamicDetailService implements IDynamicDetailService {
 
 	@Override
 	public void createTable(String tableName) {
-		CreateTableRequest request = CreateTableRequest.builder().tableName(tableName)
+		createTable(tableName, List.of());
+	}
+
+	/** Creates the table together with its global secondary indexes. */
+	public void createTable(String tableName, List<QueryPlanner.Index> indexes) {
+		Map<String, AttributeDefinition> attributes = new LinkedHashMap<>();
+		attributes.put("id",
+				AttributeDefinition.builder().attributeName("id").attributeType(ScalarAttributeType.S).build());
+		List<GlobalSecondaryIndex> gsis = new ArrayList<>();
+		for (QueryPlanner.Index idx : indexes) {
+			gsis.add(toGsi(idx));
+			for (String key : List.of(idx.hashKey(), idx.rangeKey())) {
+				attributes.putIfAbsent(key,
+						AttributeDefinition.builder().attributeName(key).attributeType(ScalarAttributeType.S).build());
+			}
+		}
+
+		CreateTableRequest.Builder request = CreateTableRequest.builder().tableName(tableName)
 				.keySchema(KeySchemaElement.builder().attributeName("id").keyType(KeyType.HASH).build())
-				.attributeDefinitions(
-						AttributeDefinition.builder().attributeName("id").attributeType(ScalarAttributeType.S).build())
-				.billingMode(BillingMode.PAY_PER_REQUEST).build();
+				.attributeDefinitions(attributes.values())
+				.billingMode(BillingMode.PAY_PER_REQUEST);
+		if (!gsis.isEmpty()) request.globalSecondaryIndexes(gsis);
 
-		dynamoDbClient.createTable(request);
+		try {
+			dynamoDbClient.createTable(request.build());
+		} catch (ResourceInUseException e) {
+			// another pod or thread got there first; wait for its table instead
+		}
 		// Wait until table is ACTIVE
 		waitForTableToBecomeActive(tableName);
+		knownTables.add(tableName);
 	}
 
-	private void waitForTableToBecomeActive(String tableName) {
-		while (true) {
-			DescribeTableResponse response = dynamoDbClient
-					.describeTable(DescribeTableRequest.builder().tableName(tableName).build());
+	/** Creates the table, with the given indexes, unless it already exists. */
+	public void ensureTable(String tableName, List<QueryPlanner.Index> indexes) {
+		if (!tableExists(tableName)) {
+			createTable(tableName, indexes);
+		}
+	}
+
+	/** Forgets a cached table, e.g. after a data call reported it missing. */
+	public void forgetTable(String tableName) {
+		knownTables.remove(tableName);
+	}
+
+	/**
+	 * Adds the indexes the table is missing, one at a time (DynamoDB only builds one online index
+	 * per table at once), and waits for each backfill to finish.
+	 */
+	public void ensureIndexes(String tableName, List<QueryPlanner.Index> indexes) {
+		for (QueryPlanner.Index idx : indexes) {
+			if (indexStatus(describe(tableName), idx.name()) == null) {
+				try {
+					dynamoDbClient.updateTable(UpdateTableRequest.builder().tableName(tableName)
+							.attributeDefinitions(
+									AttributeDefinition.builder().attributeName(idx.hashKey())
+											.attributeType(ScalarAttributeType.S).build(),
+									AttributeDefinition.builder().attributeName(idx.rangeKey())
+											.attributeType(ScalarAttributeType.S).build())
+							.globalSecondaryIndexUpdates(GlobalSecondaryIndexUpdate.builder()
+									.create(CreateGlobalSecondaryIndexAction.builder().indexName(idx.name())
+											.keySchema(toGsi(idx).keySchema())
+											.projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+											.build())
+									.build())
+							.build());
+				} catch (DynamoDbException e) {
+					// another pod may be building it (or another index) right now
+					if (indexStatus(describe(tableName), idx.name()) == null) throw e;
+				}
+			}
+			waitForIndexToBecomeActive(tableName, idx.name());
+		}
+		indexStates.remove(tableName);
+	}
+
+	/**
+	 * Whether the index exists and has finished backfilling. Answered from memory; a table whose
+	 * index is not active yet is described again at most once per {@code INDEX_RECHECK_NANOS}.
+	 */
+	public boolean indexActive(String tableName, String indexName) {
+		IndexState st = indexStates.get(tableName);
+		if (st == null || (!st.active().contains(indexName) && System.nanoTime() - st.checkedAtNanos() > INDEX_RECHECK_NANOS)) {
+			Set<String> active = new HashSet<>();
+			try {
+				TableDescription table = describe(tableName);
+				if (table.hasGlobalSecondaryIndexes()) {
+					for (GlobalSecondaryIndexDescription gsi : table.globalSecondaryIndexes()) {
+						if (gsi.indexStatus() == IndexStatus.ACTIVE && !Boolean.TRUE.equals(gsi.backfilling())) {
+							active.add(gsi.indexName());
+						}
+					}
+				}
+			} catch (ResourceNotFoundException e) {
+				// no table, no index
+			}
+			st = new IndexState(active, System.nanoTime());
+			indexStates.put(tableName, st);
+		}
+		return st.active().contains(indexName);
+	}
+
+	/**
+	 * Reads every item the scan matches, as a stream. Large tables are split into
+	 * {@code TotalSegments} segments read by at most {@code aws.dynamodb.scan.threads} readers of
+	 * this scan, on a shared pool that grows with the number of scans; their pages are merged
+	 * through a small queue, so memory stays at a few pages however large the table is.
+	 * Items come in no particular order. Close the stream (try-with-resources) if it is not
+	 * consumed to the end, so the segment readers stop.
+	 */
+	public Stream<Map<String, AttributeValue>> parallelScan(ScanRequest request) {
+		return parallelScan(request, scanSegmentsFor(request.tableName()));
+	}
+
+	public Stream<Map<String, AttributeValue>> parallelScan(ScanRequest request, int totalSegments) {
+		if (totalSegments <= 1) {
+			Iterator<List<Map<String, AttributeValue>>> pages = new Iterator<>() {
+				private Map<String, AttributeValue> start;
+				private boolean done;
+
+				@Override
+				public boolean hasNext() {
+					return !done;
+				}
+
+				@Override
+				public List<Map<String, AttributeValue>> next() {
+					if (done) throw new NoSuchElementException();
+					ScanResponse page = dynamoDbClient.scan(start == null ? request
+							: request.toBuilder().exclusiveStartKey(start).build());
+					start = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty() ? page.lastEvaluatedKey() : null;
+					done = start == null;
+					return page.items();
+				}
+			};
+			return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED), false)
+					.flatMap(List::stream);
+		}
+
+		SegmentedScan scan = new SegmentedScan(request, totalSegments);
+		scan.start();
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(scan, Spliterator.NONNULL), false)
+				.flatMap(List::stream).onClose(scan::cancel);
+	}
+
+	/** One segment per {@code aws.dynamodb.scan.segment.mb} of table data, capped at {@code aws.dynamodb.scan.max.segments}. */
+	int scanSegmentsFor(String tableName) {
+		TableSize size = tableSizes.get(tableName);
+		if (size == null || System.nanoTime() - size.checkedAtNanos() > TABLE_SIZE_RECHECK_NANOS) {
+			long bytes = 0;
+			try {
+				DescribeTableResponse resp = dynamoDbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build());
+				TableDescription table = resp == null ? null : resp.table();
+				if (table != null && table.tableSizeBytes() != null) bytes = table.tableSizeBytes();
+			} catch (DynamoDbException e) {
+				// scanned as a single segment; the scan itself reports a missing table
+			}
+			size = new TableSize(bytes, System.nanoTime());
+			tableSizes.put(tableName, size);
+		}
+		long perSegment = Math.max(1, scanSegmentMb) * 1024 * 1024;
+		long segments = (size.bytes() + perSegment - 1) / perSegment;
+		return (int) Math.max(1, Math.min(Math.max(1, maxScanSegments), segments));
+	}
+
+	/** Pages of all segments, in arrival order; each segment ends with an empty marker list. */
+	private final class SegmentedScan implements Iterator<List<Map<String, AttributeValue>>> {
+
+		private final ScanRequest request;
+		private final int totalSegments;
+		private final BlockingQueue<Object> pages;
+		private final List<Future<?>> readers = new ArrayList<>();
+		private final AtomicInteger nextSegment = new AtomicInteger();
+		private volatile boolean cancelled;
+		private int finished;
+		private List<Map<String, AttributeValue>> next;
+
+		SegmentedScan(ScanRequest request, int totalSegments) {
+			this.request = request;
+			this.totalSegments = totalSegments;
+			this.pages = new ArrayBlockingQueue<>(totalSegments * 2);
+		}
 
-			String status = response.table().tableStatusAsString();
-			if ("ACTIVE".equalsIgnoreCase(status))
-				break;
+		void start() {
+			int readerCount = Math.min(totalSegments, Math.max(1, scanThreads));
+			for (int i = 0; i < readerCount; i++) {
+				readers.add(scanExecutor().submit(this::readSegments));
+			}
+		}
 
+		/** Each reader takes the next unread segment until none is left. */
+		private void readSegments() {
+			for (int segment = nextSegment.getAndIncrement(); segment < totalSegments && !cancelled
+					&& !Thread.currentThread().isInterrupted(); segment = nextSegment.getAndIncrement()) {
+				readSegment(segment);
+			}
+		}
+
+		private void readSegment(int segment) {
+			ScanRequest segmentRequest = request.toBuilder().segment(segment).totalSegments(totalSegments).build();
+			Map<String, AttributeValue> start = null;
 			try {
-				Thread.sleep(1000); // Wait 1 sec before checking again
+				do {
+					ScanResponse page = dynamoDbClient.scan(start == null ? segmentRequest
+							: segmentRequest.toBuilder().exclusiveStartKey(start).build());
+					if (!page.items().isEmpty()) offer(page.items());
+					start = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty() ? page.lastEvaluatedKey() : null;
+				} while (start != null && !cancelled);
+				offer(List.of());
 			} catch (InterruptedException e) {
 				Thread.currentThread().interrupt();
-				throw new RuntimeException("Interrupted while waiting for DynamoDB table to become active");
+			} catch (RuntimeException e) {
+				try {
+					offer(e);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
 			}
 		}
+
+		private void offer(Object page) throws InterruptedException {
+			// a consumer that stopped reading without closing the stream must not pin a pool thread forever
+			if (!cancelled && !pages.offer(page, scanStallMs, TimeUnit.MILLISECONDS)) {
+				cancel();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && finished < totalSegments) {
+				Object o;
+				try {
+					o = pages.poll(scanStallMs, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					cancel();
+					throw new MasterdataServiceException("Interrupted while scanning " + request.tableName());
+				}
+				if (o == null) {
+					cancel();
+					throw new MasterdataServiceException("Scan of " + request.tableName() + " stalled");
+				}
+				if (o instanceof RuntimeException e) {
+					cancel();
+					throw new MasterdataServiceException("Scan of " + request.tableName() + " failed: " + e.getMessage(), e);
+				}
+				@SuppressWarnings("unchecked")
+				List<Map<String, AttributeValue>> page = (List<Map<String, AttributeValue>>) o;
+				if (page.isEmpty()) {
+					finished++;
+				} else {
+					next = page;
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public List<Map<String, AttributeValue>> next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			List<Map<String, AttributeValue>> page = next;
+			next = null;
+			return page;
+		}
+
+		void cancel() {
+			cancelled = true;
+			readers.forEach(f -> f.cancel(true));
+		}
+	}
+
+	private ExecutorService scanExecutor() {
+		ExecutorService ex = scanExecutor;
+		if (ex == null) {
+			synchronized (this) {
+				ex = scanExecutor;
+				if (ex == null) {
+					AtomicInteger seq = new AtomicInteger();
+					ex = Executors.newCachedThreadPool(r -> {
+						Thread t = new Thread(r, "mdm-scan-" + seq.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					});
+					scanExecutor = ex;
+				}
+			}
+		}
+		return ex;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		ExecutorService ex = scanExecutor;
+		if (ex != null) ex.shutdownNow();
+	}
+
+	private TableDescription describe(String tableName) {
+		return dynamoDbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build()).table();
+	}
+
+	private static IndexStatus indexStatus(TableDescription table, String indexName) {
+		if (table == null || !table.hasGlobalSecondaryIndexes()) return null;
+		for (GlobalSecondaryIndexDescription gsi : table.globalSecondaryIndexes()) {
+			if (gsi.indexName().equals(indexName)) return gsi.indexStatus();
+		}
+		return null;
+	}
+
+	private void waitForIndexToBecomeActive(String tableName, String indexName) {
+		Waiter<TableDescription> waiter = Waiter.builder(TableDescription.class)
+				.overrideConfiguration(o -> o.backoffStrategyV2(BackoffStrategy.fixedDelay(Duration.ofMillis(Math.max(1, indexPollMs))))
+						.waitTimeout(Duration.ofHours(indexWaitHours)))
+				.addAcceptor(WaiterAcceptor.successOnResponseAcceptor(t -> indexStatus(t, indexName) == IndexStatus.ACTIVE))
+				.addAcceptor(WaiterAcceptor.errorOnResponseAcceptor(t -> indexStatus(t, indexName) == null,
+						"Index " + indexName + " disappeared"))
+				.addAcceptor(WaiterAcceptor.retryOnResponseAcceptor(t -> true))
+				.build();
+		try {
+			waiter.run(() -> describe(tableName));
+		} catch (SdkClientException e) {
+			throw new MasterdataServiceException("Index " + indexName + " on " + tableName + " did not become active: "
+					+ e.getMessage(), e);
+		}
+	}
+
+	private static GlobalSecondaryIndex toGsi(QueryPlanner.Index idx) {
+		return GlobalSecondaryIndex.builder().indexName(idx.name())
+				.keySchema(KeySchemaElement.builder().attributeName(idx.hashKey()).keyType(KeyType.HASH).build(),
+						KeySchemaElement.builder().attributeName(idx.rangeKey()).keyType(KeyType.RANGE).build())
+				.projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+				.build();
+	}
+
+	private void waitForTableToBecomeActive(String tableName) {
+		try (DynamoDbWaiter waiter = DynamoDbWaiter.builder().client(dynamoDbClient)
+				.overrideConfiguration(o -> o.backoffStrategyV2(BackoffStrategy.fixedDelay(Duration.ofSeconds(1)))
+						.waitTimeout(Duration.ofMinutes(5)))
+				.build()) {
+			waiter.waitUntilTableExists(r -> r.tableName(tableName));
+		} catch (SdkClientException e) {
+			throw new MasterdataServiceException("Table " + tableName + " did not become active: " + e.getMessage(), e);
+		}
 	}
 
 	@Override
@@ -138,7 +539,7 @@ public class DynamicDetailService implements IDynamicDetailService {
 
 		PutItemRequest request = PutItemRequest.builder().tableName(tableName).item(rowData).build();
 
-		dynamoDbClient.putItem(request);
+		limitedPut(request);
 	}
 
 	@Override
@@ -178,7 +579,7 @@ public class DynamicDetailService implements IDynamicDetailService {
 						AttributeValue.builder().s(updatedDate).build()))
 				.conditionExpression("attribute_exists(id)").build();
 
-		dynamoDbClient.updateItem(req);
+		limitedUpdate(req);
 	}
 
 	public Map<String, AttributeValue> getDomainNameByFileID(String tableName, String id) {
@@ -207,7 +608,7 @@ public class DynamicDetailService implements IDynamicDetailService {
 	    
 
 	    try {
-	        dynamoDbClient.updateItem(UpdateItemRequest.builder()
+	        limitedUpdate(UpdateItemRequest.builder()
 	            .tableName(table)
 	            .key(key)
 	            .conditionExpression(
@@ -240,7 +641,7 @@ public class DynamicDetailService implements IDynamicDetailService {
 	            .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
 	    
 
-	    dynamoDbClient.updateItem(UpdateItemRequest.builder()
+	    limitedUpdate(UpdateItemRequest.builder()
 	        .tableName(table)
 	        .key(key)
 	        .conditionExpression(
@@ -262,7 +663,7 @@ public class DynamicDetailService implements IDynamicDetailService {
 	        "id", AttributeValue.builder().s(stgId).build()
 	    );
 
-	    dynamoDbClient.updateItem(UpdateItemRequest.builder()
+	    limitedUpdate(UpdateItemRequest.builder()
 	        .tableName(table)
 	        .key(key)
 	        .conditionExpression(
@@ -276,5 +677,35 @@ public class DynamicDetailService implements IDynamicDetailService {
 	        .build());
 	}
 
+	// Dispatch-path writes share the process-wide write budget with staging inserts.
+	private PutItemResponse limitedPut(PutItemRequest request) {
+		writeRateLimiter.acquire(1);
+		try {
+			PutItemResponse resp = dynamoDbClient.putItem(
+					request.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build());
+			writeRateLimiter.record(1, resp == null ? null : consumedOf(resp.consumedCapacity()), 1, 0);
+			return resp;
+		} catch (DynamoDbException e) {
+			if (e.isThrottlingException()) writeRateLimiter.onThrottled();
+			throw e;
+		}
+	}
+
+	private UpdateItemResponse limitedUpdate(UpdateItemRequest request) {
+		writeRateLimiter.acquire(1);
+		try {
+			UpdateItemResponse resp = dynamoDbClient.updateItem(
+					request.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build());
+			writeRateLimiter.record(1, resp == null ? null : consumedOf(resp.consumedCapacity()), 1, 0);
+			return resp;
+		} catch (DynamoDbException e) {
+			if (e.isThrottlingException()) writeRateLimiter.onThrottled();
+			throw e;
+		}
+	}
+
+	private static List<ConsumedCapacity> consumedOf(ConsumedCapacity c) {
+		return (c == null) ? null : List.of(c);
+	}
 
 }
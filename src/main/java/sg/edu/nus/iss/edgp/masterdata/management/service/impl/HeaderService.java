@@ -1,8 +1,11 @@
 package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -11,17 +14,24 @@ import org.springframework.stereotype.Service;
 
 import lombok.RequiredArgsConstructor;
 import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.RowCounter;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.UploadJobState;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
 import sg.edu.nus.iss.edgp.masterdata.management.service.IHeaderService;
 import sg.edu.nus.iss.edgp.masterdata.management.utility.CSVUploadHeader;
+import sg.edu.nus.iss.edgp.masterdata.management.utility.GeneralUtility;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 import software.amazon.awssdk.services.dynamodb.model.Select;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
 
 @Service
 @RequiredArgsConstructor
@@ -30,7 +40,10 @@ public class HeaderService implements IHeaderService {
 	@Value("${aws.dynamodb.table.master.data.header}")
 	private String headerTableName;
 
+	private static final int UPLOADER_SCAN_PAGE = 1000;
+
 	private final DynamoDbClient dynamoDbClient;
+	private final ListingVersionService listingVersionService;
 
 	@Override
 	public void saveHeader(String tableName, MasterDataHeader header) {
@@ -39,6 +52,7 @@ public class HeaderService implements IHeaderService {
 		PutItemRequest request = PutItemRequest.builder().tableName(tableName).item(csvUpHeader.toItem()).build();
 
 		dynamoDbClient.putItem(request);
+		listingVersionService.bump(header.getUploadedBy());
 	}
 
 	@Override
@@ -98,11 +112,32 @@ public class HeaderService implements IHeaderService {
 				.expressionAttributeValues(Map.of(":ps", AttributeValue.builder().s(processStage.name()).build(),
 						 ":now",
 						AttributeValue.builder().s(updatedDate).build()))
-				.conditionExpression("attribute_exists(id)").returnValues(ReturnValue.UPDATED_NEW).build();
+				.conditionExpression("attribute_exists(id)").returnValues(ReturnValue.ALL_NEW).build();
 
-		dynamoDbClient.updateItem(req);
+		touched(dynamoDbClient.updateItem(req));
 	}
 	
+	/**
+	 * Moves the file to {@code PROCESSING} and counts one dispatched row in the same write.
+	 * @return the file's dispatched-row count after this write
+	 */
+	@Override
+	public long markDispatched(String fileId) {
+		Map<String, AttributeValue> key = Map.of("id", AttributeValue.builder().s(fileId).build());
+
+		UpdateItemResponse resp = dynamoDbClient.updateItem(UpdateItemRequest.builder()
+				.tableName(headerTableName.trim()).key(key)
+				.updateExpression("SET #ps = :ps, updated_date = :now ADD #d :one")
+				.expressionAttributeNames(Map.of("#ps", "process_stage", "#d", RowCounter.DISPATCHED.attribute()))
+				.expressionAttributeValues(Map.of(
+						":ps", AttributeValue.builder().s(FileProcessStage.PROCESSING.name()).build(),
+						":now", AttributeValue.builder().s(GeneralUtility.nowSgt()).build(),
+						":one", AttributeValue.builder().n("1").build()))
+				.conditionExpression("attribute_exists(id)").returnValues(ReturnValue.ALL_NEW).build());
+		touched(resp);
+		return resp == null || !resp.hasAttributes() ? 0 : num(resp.attributes(), RowCounter.DISPATCHED.attribute());
+	}
+
 	@Override
 	public boolean filenameExists(String filename) {
 	    String fn = filename == null ? null : filename.trim();
@@ -132,4 +167,197 @@ public class HeaderService implements IHeaderService {
 	}
 
 
+	@Override
+	public Optional<MasterDataHeader> findById(String fileId) {
+		GetItemResponse resp = dynamoDbClient.getItem(GetItemRequest.builder()
+				.tableName(headerTableName.trim())
+				.key(Map.of("id", AttributeValue.builder().s(fileId).build()))
+				.consistentRead(true)
+				.build());
+		if (resp == null || !resp.hasItem() || resp.item().isEmpty()) return Optional.empty();
+
+		Map<String, AttributeValue> item = resp.item();
+		MasterDataHeader header = new MasterDataHeader();
+		header.setId(fileId);
+		header.setFileName(str(item, "file_name"));
+		header.setDomainName(str(item, "domain_name"));
+		header.setOrganizationId(str(item, "organization_id"));
+		header.setPolicyId(str(item, "policy_id"));
+		header.setUploadedBy(str(item, "uploaded_by"));
+		header.setUploadDate(str(item, "uploaded_date"));
+		header.setUpdated_date(str(item, "updated_date"));
+		header.setFileStatus(str(item, "file_status"));
+		header.setTotalRowsCount((int) num(item, "total_rows_count"));
+		String stage = str(item, "process_stage");
+		if (!stage.isEmpty()) header.setProcessStage(FileProcessStage.valueOf(stage));
+		String uploadState = str(item, "upload_state");
+		if (!uploadState.isEmpty()) header.setUploadState(UploadJobState.valueOf(uploadState));
+		header.setRowsParsed(num(item, "rows_parsed"));
+		header.setRowsWritten(num(item, "rows_written"));
+		header.setRowsPerSecond(num(item, "rows_per_second"));
+		header.setUploadError(str(item, "upload_error"));
+		header.setRowsStaged(num(item, RowCounter.STAGED.attribute()));
+		header.setRowsDispatched(num(item, RowCounter.DISPATCHED.attribute()));
+		return Optional.of(header);
+	}
+
+	/**
+	 * Organizations with headers uploaded on or after {@code since} ({@code yyyy-MM-dd HH:mm:ss}),
+	 * each mapped to one of its uploaders. Stops at {@code maxOrganizations} organizations or after
+	 * {@code maxPages} scan pages of at most {@value #UPLOADER_SCAN_PAGE} headers, whichever comes first.
+	 */
+	@Override
+	public Map<String, String> findRecentUploadersByOrganization(String since, int maxOrganizations, int maxPages) {
+		ScanRequest req = ScanRequest.builder()
+				.tableName(headerTableName.trim())
+				.filterExpression("uploaded_date >= :since")
+				.expressionAttributeValues(Map.of(":since", AttributeValue.builder().s(since).build()))
+				.projectionExpression("organization_id, uploaded_by")
+				.limit(UPLOADER_SCAN_PAGE)
+				.build();
+
+		int limit = Math.max(1, maxOrganizations);
+		Map<String, String> uploaders = new LinkedHashMap<>();
+		Map<String, AttributeValue> start = null;
+		int pages = 0;
+		do {
+			ScanResponse page = dynamoDbClient.scan(start == null ? req : req.toBuilder().exclusiveStartKey(start).build());
+			pages++;
+			for (Map<String, AttributeValue> item : page.items()) {
+				String org = str(item, "organization_id");
+				String user = str(item, "uploaded_by");
+				if (!org.isEmpty() && !user.isEmpty()) uploaders.putIfAbsent(org, user);
+				if (uploaders.size() >= limit) return uploaders;
+			}
+			start = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty() ? page.lastEvaluatedKey() : null;
+		} while (start != null && pages < Math.max(1, maxPages));
+		return uploaders;
+	}
+
+	@Override
+	public void updateUploadProgress(String fileId, UploadJobState state, long rowsParsed, long rowsWritten,
+			long newlyStaged, long rowsPerSecond) {
+		updateUpload(fileId, state, rowsParsed, rowsWritten, newlyStaged, rowsPerSecond, Map.of());
+	}
+
+	/**
+	 * Marks an async upload as finished and releases the file to the dispatcher.
+	 * @param newlyStaged rows written since the last progress update, added to {@code rows_staged}
+	 */
+	@Override
+	public void completeUpload(String fileId, long rowsWritten, long newlyStaged, long rowsPerSecond) {
+		updateUpload(fileId, UploadJobState.COMPLETED, rowsWritten, rowsWritten, newlyStaged, rowsPerSecond,
+				Map.of("process_stage", AttributeValue.builder().s(FileProcessStage.UNPROCESSED.name()).build(),
+						"total_rows_count", AttributeValue.builder().n(String.valueOf(rowsWritten)).build()));
+	}
+
+	@Override
+	public void failUpload(String fileId, String error) {
+		Map<String, AttributeValue> key = Map.of("id", AttributeValue.builder().s(fileId).build());
+		touched(dynamoDbClient.updateItem(UpdateItemRequest.builder()
+				.tableName(headerTableName.trim()).key(key)
+				.updateExpression("SET upload_state = :st, upload_error = :err, updated_date = :now")
+				.expressionAttributeValues(Map.of(
+						":st", AttributeValue.builder().s(UploadJobState.FAILED.name()).build(),
+						":err", AttributeValue.builder().s(error == null ? "" : error).build(),
+						":now", AttributeValue.builder().s(GeneralUtility.nowSgt()).build()))
+				.conditionExpression("attribute_exists(id)").returnValues(ReturnValue.ALL_NEW).build()));
+	}
+
+	/** Refreshes {@code updated_date} of an upload that is still queued or running; a finished one is left alone. */
+	@Override
+	public void heartbeatUpload(String fileId) {
+		Map<String, AttributeValue> key = Map.of("id", AttributeValue.builder().s(fileId).build());
+		try {
+			dynamoDbClient.updateItem(UpdateItemRequest.builder()
+					.tableName(headerTableName.trim()).key(key)
+					.updateExpression("SET updated_date = :now")
+					.conditionExpression("upload_state IN (:queued, :running)")
+					.expressionAttributeValues(Map.of(
+							":now", AttributeValue.builder().s(GeneralUtility.nowSgt()).build(),
+							":queued", AttributeValue.builder().s(UploadJobState.QUEUED.name()).build(),
+							":running", AttributeValue.builder().s(UploadJobState.RUNNING.name()).build()))
+					.build());
+		} catch (ConditionalCheckFailedException e) {
+			// the job finished between the caller's check and this write
+		}
+	}
+
+	/**
+	 * Fails an upload whose worker stopped reporting, provided nothing has touched it since
+	 * {@code seenUpdatedDate} was read.
+	 * @return false if the upload moved on in the meantime
+	 */
+	@Override
+	public boolean failStaleUpload(String fileId, String seenUpdatedDate, String error) {
+		Map<String, AttributeValue> key = Map.of("id", AttributeValue.builder().s(fileId).build());
+		try {
+			touched(dynamoDbClient.updateItem(UpdateItemRequest.builder()
+					.tableName(headerTableName.trim()).key(key)
+					.updateExpression("SET upload_state = :st, upload_error = :err, updated_date = :now")
+					.conditionExpression("updated_date = :seen AND upload_state IN (:queued, :running)")
+					.expressionAttributeValues(Map.of(
+							":st", AttributeValue.builder().s(UploadJobState.FAILED.name()).build(),
+							":err", AttributeValue.builder().s(error).build(),
+							":now", AttributeValue.builder().s(GeneralUtility.nowSgt()).build(),
+							":seen", AttributeValue.builder().s(seenUpdatedDate).build(),
+							":queued", AttributeValue.builder().s(UploadJobState.QUEUED.name()).build(),
+							":running", AttributeValue.builder().s(UploadJobState.RUNNING.name()).build()))
+					.returnValues(ReturnValue.ALL_NEW).build()));
+			return true;
+		} catch (ConditionalCheckFailedException e) {
+			return false;
+		}
+	}
+
+	private void updateUpload(String fileId, UploadJobState state, long rowsParsed, long rowsWritten,
+			long newlyStaged, long rowsPerSecond, Map<String, AttributeValue> extra) {
+		Map<String, AttributeValue> key = Map.of("id", AttributeValue.builder().s(fileId).build());
+
+		StringBuilder expr = new StringBuilder(
+				"SET upload_state = :st, rows_parsed = :rp, rows_written = :rw, rows_per_second = :rps, updated_date = :now");
+		Map<String, String> names = new HashMap<>();
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":st", AttributeValue.builder().s(state.name()).build());
+		values.put(":rp", AttributeValue.builder().n(String.valueOf(rowsParsed)).build());
+		values.put(":rw", AttributeValue.builder().n(String.valueOf(rowsWritten)).build());
+		values.put(":rps", AttributeValue.builder().n(String.valueOf(rowsPerSecond)).build());
+		values.put(":now", AttributeValue.builder().s(GeneralUtility.nowSgt()).build());
+		int i = 0;
+		for (Map.Entry<String, AttributeValue> e : extra.entrySet()) {
+			expr.append(", #x").append(i).append(" = :x").append(i);
+			names.put("#x" + i, e.getKey());
+			values.put(":x" + i, e.getValue());
+			i++;
+		}
+		if (newlyStaged > 0) {
+			expr.append(" ADD #staged :staged");
+			names.put("#staged", RowCounter.STAGED.attribute());
+			values.put(":staged", AttributeValue.builder().n(String.valueOf(newlyStaged)).build());
+		}
+
+		UpdateItemRequest.Builder req = UpdateItemRequest.builder()
+				.tableName(headerTableName.trim()).key(key)
+				.updateExpression(expr.toString())
+				.expressionAttributeValues(values)
+				.conditionExpression("attribute_exists(id)").returnValues(ReturnValue.ALL_NEW);
+		if (!names.isEmpty()) req.expressionAttributeNames(names);
+		touched(dynamoDbClient.updateItem(req.build()));
+	}
+
+	/** Bumps the listing version of the uploader of the header a write returned. */
+	private void touched(UpdateItemResponse resp) {
+		if (resp != null && resp.hasAttributes()) listingVersionService.bump(resp.attributes());
+	}
+
+	private static String str(Map<String, AttributeValue> item, String name) {
+		AttributeValue v = item.get(name);
+		return (v == null || v.s() == null) ? "" : v.s();
+	}
+
+	private static long num(Map<String, AttributeValue> item, String name) {
+		AttributeValue v = item.get(name);
+		return (v == null || v.n() == null) ? 0 : new BigDecimal(v.n()).longValue();
+	}
+
 }
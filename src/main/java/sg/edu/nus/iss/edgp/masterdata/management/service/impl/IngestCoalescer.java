@@ -0,0 +1,284 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
+import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
+
+/**
+ * Groups single-row ingests that share organization, policy, domain and uploader into one header.
+ * A group is flushed when it reaches {@code maxRows} or {@code windowMs} after its first row,
+ * whichever comes first; the rows go through one batched staging write and each caller is
+ * released with its own staged row once the whole group is acknowledged.
+ */
+@RequiredArgsConstructor
+@Service
+public class IngestCoalescer {
+
+	@Value("${aws.dynamodb.table.master.data.header}")
+	private String headerTableName;
+
+	@Value("${aws.dynamodb.table.master.data.staging}")
+	private String stagingTableName;
+
+	@Value("${ingest.coalesce.enabled:false}")
+	private boolean enabled = false;
+
+	@Value("${ingest.coalesce.window.ms:200}")
+	private long windowMs = 200;
+
+	@Value("${ingest.coalesce.max.rows:500}")
+	private int maxRows = 500;
+
+	@Value("${ingest.coalesce.threads:2}")
+	private int threads = 2;
+
+	@Value("${ingest.coalesce.timeout.ms:30000}")
+	private long timeoutMs = 30000;
+
+	private static final Logger logger = LoggerFactory.getLogger(IngestCoalescer.class);
+
+	private final DynamicDetailService dynamoService;
+	private final HeaderService headerService;
+	private final StagingDataService stagingDataService;
+
+	private final Map<Key, Group> open = new HashMap<>();
+	private volatile ScheduledThreadPoolExecutor timer;
+	private volatile ExecutorService flusher;
+
+	private record Key(String organizationId, String policyId, String domainName, String uploadedBy) {
+	}
+
+	/** One caller's row; {@code assigned} completes with the staged row as soon as its id is generated. */
+	private static final class Slot {
+		final Map<String, Object> row;
+		final CompletableFuture<Map<String, Object>> assigned = new CompletableFuture<>();
+		final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+
+		Slot(Map<String, Object> row) {
+			this.row = row;
+		}
+	}
+
+	private static final class Group {
+		final Key key;
+		final List<Slot> slots = new ArrayList<>();
+		// set under the lock when the flush takes the rows; from then on none can be withdrawn
+		boolean claimed;
+
+		Group(Key key) {
+			this.key = key;
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Adds one row to its group and blocks until the group has been written.
+	 * A caller that times out before its group is flushed withdraws its row, so a retry never
+	 * stores it twice; once the flush has taken the row, the caller gets its staged row instead.
+	 * @return the staged row, including its generated id
+	 */
+	public Map<String, Object> ingest(Map<String, Object> row, String organizationId, String policyId,
+			String domainName, String uploadedBy) {
+		Key key = new Key(organizationId, policyId, domainName.trim().toLowerCase(), uploadedBy);
+		Slot slot = new Slot(row);
+
+		Group group;
+		Group full = null;
+		synchronized (open) {
+			group = open.get(key);
+			if (group == null) {
+				group = new Group(key);
+				open.put(key, group);
+				Group scheduled = group;
+				timer().schedule(() -> flushIfOpen(scheduled), windowMs, TimeUnit.MILLISECONDS);
+			}
+			group.slots.add(slot);
+			if (group.slots.size() >= Math.max(1, maxRows)) {
+				open.remove(key);
+				full = group;
+			}
+		}
+		if (full != null) {
+			Group toFlush = full;
+			flusher().execute(() -> flush(toFlush));
+		}
+
+		try {
+			return slot.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			withdraw(group, slot);
+			throw new MasterdataServiceException("Interrupted while waiting for ingest batch");
+		} catch (TimeoutException e) {
+			if (withdraw(group, slot)) {
+				throw new MasterdataServiceException("Timed out waiting for ingest batch", e);
+			}
+			return assignedRow(slot, e);
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	/** Takes the row out of a group that has not been flushed yet; false if the flush already has it. */
+	private boolean withdraw(Group g, Slot slot) {
+		synchronized (open) {
+			if (g.claimed) return false;
+			g.slots.remove(slot);
+			if (g.slots.isEmpty() && open.get(g.key) == g) open.remove(g.key);
+			return true;
+		}
+	}
+
+	/** The row is already being written: hand back its generated id rather than failing the caller. */
+	private Map<String, Object> assignedRow(Slot slot, TimeoutException timeout) {
+		try {
+			Map<String, Object> staged = slot.assigned.get(timeoutMs, TimeUnit.MILLISECONDS);
+			logger.warn("Ingest batch still writing after {} ms; returning staged row {}", timeoutMs, staged.get("id"));
+			return staged;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MasterdataServiceException("Interrupted while waiting for ingest batch");
+		} catch (TimeoutException e) {
+			throw new MasterdataServiceException("Timed out waiting for ingest batch", timeout);
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	private static RuntimeException unwrap(ExecutionException e) {
+		Throwable cause = e.getCause();
+		if (cause instanceof RuntimeException re) return re;
+		return new MasterdataServiceException("Ingest batch failed: " + cause.getMessage(), cause);
+	}
+
+	private void flushIfOpen(Group g) {
+		synchronized (open) {
+			// a group that filled up (or whose callers all left) was already removed
+			if (open.get(g.key) != g) return;
+			open.remove(g.key);
+		}
+		flusher().execute(() -> flush(g));
+	}
+
+	private void flush(Group g) {
+		List<Slot> slots;
+		synchronized (open) {
+			g.claimed = true;
+			slots = new ArrayList<>(g.slots);
+		}
+		if (slots.isEmpty()) return;
+
+		try {
+			if (!dynamoService.tableExists(headerTableName.trim())) {
+				dynamoService.createTable(headerTableName.trim());
+			}
+			if (!dynamoService.tableExists(stagingTableName.trim())) {
+				dynamoService.createTable(stagingTableName.trim());
+			}
+
+			String headerId = UUID.randomUUID().toString();
+			List<Map<String, Object>> staged = new ArrayList<>(slots.size());
+			stagingDataService.insertToStaging(stagingTableName.trim(), slots.stream().map(s -> s.row).iterator(),
+					g.key.organizationId(), g.key.policyId(), g.key.domainName(), headerId, g.key.uploadedBy(),
+					(parsed, written) -> {
+					}, item -> {
+						slots.get(staged.size()).assigned.complete(item);
+						staged.add(item);
+					});
+
+			// Header goes in last so the dispatcher never sees a group that is still being written
+			MasterDataHeader header = new MasterDataHeader();
+			header.setId(headerId);
+			header.setFileName("data ingest workflow");
+			header.setDomainName(g.key.domainName());
+			header.setOrganizationId(g.key.organizationId());
+			header.setPolicyId(g.key.policyId());
+			header.setUploadedBy(g.key.uploadedBy());
+			header.setProcessStage(FileProcessStage.UNPROCESSED);
+			header.setTotalRowsCount(staged.size());
+			headerService.saveHeader(headerTableName.trim(), header);
+
+			logger.debug("Coalesced {} ingest row(s) into header {}", staged.size(), headerId);
+			for (int i = 0; i < slots.size(); i++) {
+				slots.get(i).result.complete(staged.get(i));
+			}
+		} catch (Exception e) {
+			logger.error("Coalesced ingest of {} row(s) failed: {}", slots.size(), e.toString());
+			for (Slot s : slots) {
+				s.assigned.completeExceptionally(e);
+				s.result.completeExceptionally(e);
+			}
+		}
+	}
+
+	/** Only closes windows; the writes themselves run on {@link #flusher()} so a slow flush never delays a deadline. */
+	private ScheduledThreadPoolExecutor timer() {
+		ScheduledThreadPoolExecutor ex = timer;
+		if (ex == null) {
+			synchronized (this) {
+				ex = timer;
+				if (ex == null) {
+					ex = new ScheduledThreadPoolExecutor(1, r -> {
+						Thread t = new Thread(r, "mdm-ingest-window");
+						t.setDaemon(true);
+						return t;
+					});
+					ex.setRemoveOnCancelPolicy(true);
+					timer = ex;
+				}
+			}
+		}
+		return ex;
+	}
+
+	private ExecutorService flusher() {
+		ExecutorService ex = flusher;
+		if (ex == null) {
+			synchronized (this) {
+				ex = flusher;
+				if (ex == null) {
+					AtomicInteger seq = new AtomicInteger();
+					ex = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+						Thread t = new Thread(r, "mdm-ingest-coalesce-" + seq.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					});
+					flusher = ex;
+				}
+			}
+		}
+		return ex;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		ScheduledThreadPoolExecutor t = timer;
+		if (t != null) t.shutdown();
+		ExecutorService f = flusher;
+		if (f != null) f.shutdown();
+	}
+}
@@ -0,0 +1,92 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import sg.edu.nus.iss.edgp.masterdata.management.utility.RefreshingCache;
+
+/**
+ * Short-lived cache of rendered listings, keyed by their ETag. An ETag hashes the caller's listing
+ * version (see {@link MasterdataService#listingVersion}) and the request parameters, so it only changes
+ * when the caller's files change; a renamed policy or organization shows up with the next such change.
+ * Failed loads are not cached.
+ */
+@Service
+public class ListingCache {
+
+	@Value("${listing.cache.ttl.seconds:30}")
+	private long ttlSeconds = 30;
+
+	@Value("${listing.cache.max.entries:200}")
+	private int maxEntries = 200;
+
+	private volatile RefreshingCache<String, Object> listings;
+
+	/** A quoted strong ETag for {@code version} and the parameters that shape the listing. */
+	public String etag(String version, Object... parts) {
+		StringBuilder sb = new StringBuilder(String.valueOf(version));
+		for (Object part : parts) {
+			sb.append('\u0000').append(part);
+		}
+		return "\"" + sha256(sb.toString()).substring(0, 32) + "\"";
+	}
+
+	/** Whether an {@code If-None-Match} header value matches {@code etag}. */
+	public static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+		for (String candidate : ifNoneMatch.split(",")) {
+			String c = candidate.trim();
+			if (c.startsWith("W/")) c = c.substring(2);
+			if (c.equals("*") || c.equals(etag)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * The listing cached under {@code etag}, or the loader's result, which is then cached.
+	 * A failed load is not cached and its exception reaches the caller.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(String etag, Supplier<T> loader) {
+		RuntimeException[] failure = new RuntimeException[1];
+		Object value = listings().get(etag, () -> {
+			try {
+				return loader.get();
+			} catch (RuntimeException e) {
+				failure[0] = e;
+				throw e;
+			}
+		});
+		if (failure[0] != null) throw failure[0];
+		return (T) value;
+	}
+
+	private RefreshingCache<String, Object> listings() {
+		RefreshingCache<String, Object> c = listings;
+		if (c == null) {
+			synchronized (this) {
+				c = listings;
+				if (c == null) {
+					// an ETag names one version of a listing, so an entry never needs refreshing, only expiring
+					c = new RefreshingCache<>("listing", maxEntries, ttlSeconds * 1000, 0, 0, v -> false, null);
+					listings = c;
+				}
+			}
+		}
+		return c;
+	}
+
+	static String sha256(String s) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+}
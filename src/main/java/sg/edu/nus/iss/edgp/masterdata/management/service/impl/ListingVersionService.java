@@ -0,0 +1,91 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+/**
+ * Per-uploader version of what their listings show, one small item per uploader.
+ * Every header write bumps the uploader's counter with an atomic {@code ADD}, so a conditional
+ * listing GET costs one consistent get instead of reading the uploader's headers.
+ * The {@code epoch} is fixed when the item is first written, so a recreated table never
+ * hands out a version an earlier one already used.
+ */
+@Service
+@RequiredArgsConstructor
+public class ListingVersionService {
+
+	@Value("${aws.dynamodb.table.master.data.listing.version:MasterDataListingVersion}")
+	private String versionTableName = "MasterDataListingVersion";
+
+	private static final Logger logger = LoggerFactory.getLogger(ListingVersionService.class);
+
+	private final DynamoDbClient dynamoDbClient;
+	private final DynamicDetailService dynamoService;
+
+	/** The uploader's current version; {@code "0"} before their first header write. */
+	public String current(String uploadedBy) {
+		try {
+			GetItemResponse resp = dynamoDbClient.getItem(GetItemRequest.builder()
+					.tableName(versionTableName.trim()).key(key(uploadedBy)).consistentRead(true).build());
+			if (resp == null || !resp.hasItem()) return "0";
+			AttributeValue epoch = resp.item().get("epoch");
+			AttributeValue version = resp.item().get("version");
+			return (epoch == null ? "" : epoch.s()) + ":" + (version == null ? "0" : version.n());
+		} catch (ResourceNotFoundException e) {
+			// created by the first bump
+			return "0";
+		}
+	}
+
+	/** Bumps the version of the uploader named on a header item; nothing happens without one. */
+	public void bump(Map<String, AttributeValue> header) {
+		AttributeValue uploadedBy = header == null ? null : header.get("uploaded_by");
+		if (uploadedBy != null) bump(uploadedBy.s());
+	}
+
+	/**
+	 * Bumps the uploader's version. Best-effort: the header write it follows is already committed,
+	 * so a failure is logged and that change reaches clients once their cached listing is refetched.
+	 */
+	public void bump(String uploadedBy) {
+		if (uploadedBy == null || uploadedBy.isBlank()) return;
+		try {
+			try {
+				increment(uploadedBy);
+			} catch (ResourceNotFoundException e) {
+				dynamoService.createTable(versionTableName.trim());
+				increment(uploadedBy);
+			}
+		} catch (Exception e) {
+			logger.warn("Unable to bump listing version of {}: {}", uploadedBy, e.toString());
+		}
+	}
+
+	private void increment(String uploadedBy) {
+		dynamoDbClient.updateItem(UpdateItemRequest.builder()
+				.tableName(versionTableName.trim()).key(key(uploadedBy))
+				.updateExpression("SET epoch = if_not_exists(epoch, :epoch) ADD version :one")
+				.expressionAttributeValues(Map.of(
+						":epoch", AttributeValue.builder().s(UUID.randomUUID().toString()).build(),
+						":one", AttributeValue.builder().n("1").build()))
+				.build());
+	}
+
+	private static Map<String, AttributeValue> key(String uploadedBy) {
+		return Map.of("id", AttributeValue.builder().s(uploadedBy.trim().toLowerCase(Locale.ROOT)).build());
+	}
+}
@@ -1,10 +1,12 @@
 package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,17 +14,27 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.*;
 import sg.edu.nus.iss.edgp.masterdata.management.aws.service.SQSPublishingService;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.InsertionSummary;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.Metadata;
+import sg.edu.nus.iss.edgp.masterdata.management.dto.PageResult;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.SearchRequest;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.UploadResult;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.ValidationRule;
 import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.RowCounter;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.UploadJobState;
 import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
 import sg.edu.nus.iss.edgp.masterdata.management.jwt.JWTService;
 import sg.edu.nus.iss.edgp.masterdata.management.service.IMasterdataService;
@@ -34,9 +46,8 @@ import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
-import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
-import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
 
@@ -53,8 +64,17 @@ public class MasterdataService implements IMasterdataService {
 	@Value("${aws.dynamodb.table.master.data.task.tracker}")
 	private String mdataTaskTrackerTable;
 
+	@Value("${data.stream.page.size:500}")
+	private int streamPageSize = 500;
+
+	@Value("${data.enrich.threads:8}")
+	private int enrichThreads = 8;
+
 	private static final Logger logger = LoggerFactory.getLogger(MasterdataService.class);
 
+	// keeps the ProjectionExpression well inside DynamoDB's expression size limit
+	static final int MAX_FIELDS = 100;
+
 	private final DynamoDbClient dynamoDbClient;
 	 
 	private final JWTService jwtService;
@@ -65,13 +85,17 @@ public class MasterdataService implements IMasterdataService {
 	private final PayloadBuilderService payloadBuilderService;
 	private final JSONReader jsonReader;
 	private final GeneralUtility generalUtility;
+	private final QueryPlanner queryPlanner;
+	private final SchemaCatalogService schemaCatalogService;
+	private final ListingVersionService listingVersionService;
+
+	private volatile ExecutorService enrichExecutor;
 
 	@Override
 	public UploadResult uploadCsvDataToTable(MultipartFile file, UploadRequest masterReq, String authorizationHeader) {
 
-		try {
-			List<LinkedHashMap<String, Object>> rows = CSVParser.parseCsvObjects(file);
-			if (rows.isEmpty()) {
+		try (CSVParser.CsvRowIterator rows = CSVParser.streamCsvObjects(file)) {
+			if (!rows.hasNext()) {
 			    return new UploadResult("CSV is empty.", 0, Collections.emptyList());
 			}
 
@@ -89,24 +113,36 @@ public class MasterdataService implements IMasterdataService {
 			header.setOrganizationId(orgId.trim());
 			header.setPolicyId(masterReq.getPolicyId().trim());
 			header.setUploadedBy(uploadedBy);
-			header.setTotalRowsCount(rows.size());
-			header.setProcessStage(FileProcessStage.UNPROCESSED);
+			// Saved before any row is written so the file name is taken and staged rows always have a header;
+			// the dispatcher only picks it up once completeUpload moves it to UNPROCESSED
+			header.setProcessStage(FileProcessStage.UPLOADING);
+			header.setUploadState(UploadJobState.RUNNING);
 
 			if (!dynamoService.tableExists(headerTableName.trim())) {
 				dynamoService.createTable(headerTableName.trim());
 			}
-			headerService.saveHeader(headerTableName.trim(), header);
 
 			if (!dynamoService.tableExists(stagingTableName.trim())) {
 				dynamoService.createTable(stagingTableName.trim());
 			}
-			
+			headerService.saveHeader(headerTableName.trim(), header);
 
-			InsertionSummary summary = stagingDataService.insertToStaging(stagingTableName.trim(), rows, orgId,
-					masterReq.getPolicyId(), masterReq.getDomainName(), headerId, uploadedBy);
+			// Rows are parsed and written in batches as the iterator advances
+			long start = System.nanoTime();
+			InsertionSummary summary;
+			try {
+				summary = stagingDataService.insertToStaging(stagingTableName.trim(), rows, orgId,
+						masterReq.getPolicyId(), masterReq.getDomainName(), headerId, uploadedBy);
+			} catch (RuntimeException e) {
+				failUpload(headerId, e.getMessage());
+				throw e;
+			}
 
-			// Reply to FE with top 50 preview and the total count
 			int total = summary.totalInserted();
+			long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+			headerService.completeUpload(headerId, total, total, total * 1000L / elapsedMs);
+
+			// Reply to FE with top 50 preview and the total count
 			List<Map<String, Object>> top50 = summary.previewTop50();
 
 			String message = "Uploaded " + total + " rows successfully.";
@@ -118,6 +154,14 @@ public class MasterdataService implements IMasterdataService {
 		}
 	}
 
+	private void failUpload(String fileId, String error) {
+		try {
+			headerService.failUpload(fileId, error);
+		} catch (Exception e) {
+			logger.error("Unable to record failure for upload {}: {}", fileId, e.toString());
+		}
+	}
+
 	private List<Map<String, Object>> mapItemsBK(List<Map<String, AttributeValue>> items) {
 		List<Map<String, Object>> result = new ArrayList<>();
 		for (Map<String, AttributeValue> item : items) {
@@ -139,14 +183,30 @@ public class MasterdataService implements IMasterdataService {
 		return result;
 	}
 
-	private List<Map<String, Object>> mapItems(List<Map<String, AttributeValue>> items, String authorizationHeader) {
+	/**
+	 * Converts staging/header items into response rows. Policy and organization names are looked up
+	 * once per distinct id on the page, concurrently, and then joined back onto the rows, so the number
+	 * of remote calls does not grow with the number of rows.
+	 * A non-empty {@code fields} limits the row to those keys (plus {@code id}); lookups for
+	 * {@code policy}/{@code organization} are skipped unless asked for.
+	 */
+	private List<Map<String, Object>> mapItems(List<Map<String, AttributeValue>> items, String authorizationHeader,
+			Set<String> fields) {
 
 		List<Map<String, Object>> result = new ArrayList<>();
+		List<String> policyIds = new ArrayList<>(items.size());
+		List<String> orgIds = new ArrayList<>(items.size());
+		Set<String> sources = sourceAttributes(fields);
+		boolean withPolicy = fields.isEmpty() || fields.contains("policy");
+		boolean withOrganization = fields.isEmpty() || fields.contains("organization");
 
 		for (Map<String, AttributeValue> item : items) {
 			Map<String, Object> row = new HashMap<>();
 
 			item.forEach((key, value) -> {
+				if (!sources.isEmpty() && !sources.contains(key)) {
+					return;
+				}
 				if (value.s() != null) {
 					row.put(key, value.s());
 				} else if (value.n() != null) {
@@ -177,11 +237,29 @@ public class MasterdataService implements IMasterdataService {
 				row.put("file_status", fileStatus);
 			}
 
-			String policyId = asStringAndRemove(row, "policy_id");
+			policyIds.add(asStringAndRemove(row, "policy_id"));
+			orgIds.add(asStringAndRemove(row, "organization_id"));
 
-			if (policyId != null && !policyId.isBlank()) {
+			result.add(row);
+		}
+
+		Map<String, CompletableFuture<PolicyRoot>> policies = withPolicy
+				? lookupEach(policyIds, id -> jsonReader.getValidationRules(id, authorizationHeader))
+				: Map.of();
+		Map<String, CompletableFuture<String>> orgNames = withOrganization
+				? lookupEach(orgIds, id -> jsonReader.getOrganizationName(id, authorizationHeader))
+				: Map.of();
+
+		for (int i = 0; i < result.size(); i++) {
+			Map<String, Object> row = result.get(i);
+			if (!fields.isEmpty()) {
+				row.keySet().removeIf(key -> !key.equals("id") && !fields.contains(key));
+			}
 
-				PolicyRoot policyRoot = jsonReader.getValidationRules(policyId, authorizationHeader);
+			String policyId = policyIds.get(i);
+			if (withPolicy && policyId != null && !policyId.isBlank()) {
+
+				PolicyRoot policyRoot = await(policies.get(policyId));
 				if (policyRoot != null) {
 					Map<String, Object> policy = new HashMap<>();
 					policy.put("id", policyId);
@@ -190,22 +268,98 @@ public class MasterdataService implements IMasterdataService {
 				}
 			}
 
-			String orgId = asStringAndRemove(row, "organization_id");
-
-			if (orgId != null && !orgId.isBlank()) {
-				String orgName = jsonReader.getOrganizationName(orgId, authorizationHeader);
+			String orgId = orgIds.get(i);
+			if (withOrganization && orgId != null && !orgId.isBlank()) {
+				String orgName = await(orgNames.get(orgId));
 
 				Map<String, Object> organization = new HashMap<>();
 				organization.put("id", orgId);
 				organization.put("name", orgName);
 				row.put("organization", organization);
 			}
-
-			result.add(row);
 		}
 		return result;
 	}
 
+	/**
+	 * Parses the {@code fields=} parameter: comma separated response keys, empty for whole rows.
+	 * @throws IllegalArgumentException if more than {@value #MAX_FIELDS} fields are asked for
+	 */
+	static Set<String> requestedFields(String fields) {
+		if (fields == null || fields.isBlank()) return Set.of();
+		Set<String> requested = new LinkedHashSet<>();
+		for (String f : fields.split(",")) {
+			if (!f.isBlank()) requested.add(f.trim());
+		}
+		if (requested.size() > MAX_FIELDS) {
+			throw new IllegalArgumentException("At most " + MAX_FIELDS + " fields can be requested.");
+		}
+		return requested;
+	}
+
+	/** Stored attributes needed to build the requested response keys; empty means all of them. */
+	private static Set<String> sourceAttributes(Set<String> fields) {
+		if (fields.isEmpty()) return Set.of();
+		Set<String> sources = new LinkedHashSet<>(fields);
+		if (sources.remove("policy")) sources.add("policy_id");
+		if (sources.remove("organization")) sources.add("organization_id");
+		if (sources.contains("file_status")) sources.add("process_stage");
+		sources.add("id");
+		return sources;
+	}
+
+	/** Starts one lookup per distinct non-blank id; a single id is resolved on the calling thread. */
+	private <T> Map<String, CompletableFuture<T>> lookupEach(List<String> ids, Function<String, T> lookup) {
+		Set<String> distinct = new LinkedHashSet<>();
+		for (String id : ids) {
+			if (id != null && !id.isBlank()) distinct.add(id);
+		}
+		Map<String, CompletableFuture<T>> futures = new HashMap<>();
+		if (distinct.size() == 1) {
+			String id = distinct.iterator().next();
+			futures.put(id, CompletableFuture.completedFuture(lookup.apply(id)));
+			return futures;
+		}
+		for (String id : distinct) {
+			futures.put(id, CompletableFuture.supplyAsync(() -> lookup.apply(id), enrichExecutor()));
+		}
+		return futures;
+	}
+
+	private static <T> T await(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException re) throw re;
+			throw new MasterdataServiceException("Lookup failed: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	private ExecutorService enrichExecutor() {
+		ExecutorService ex = enrichExecutor;
+		if (ex == null) {
+			synchronized (this) {
+				ex = enrichExecutor;
+				if (ex == null) {
+					AtomicInteger seq = new AtomicInteger();
+					ex = Executors.newFixedThreadPool(Math.max(1, enrichThreads), r -> {
+						Thread t = new Thread(r, "mdm-enrich-" + seq.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					});
+					enrichExecutor = ex;
+				}
+			}
+		}
+		return ex;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		ExecutorService ex = enrichExecutor;
+		if (ex != null) ex.shutdown();
+	}
+
 	// --- helpers ---
 	private static String asStringAndRemove(Map<String, Object> map, String key) {
 		Object v = map.remove(key);
@@ -217,117 +371,361 @@ public class MasterdataService implements IMasterdataService {
 	}
 
 	@Override
-	public List<Map<String, Object>> getDataByPolicyAndDomainName(SearchRequest searchReq, String authorizationHeader) {
+	public PageResult<Map<String, Object>> getDataByPolicyAndDomainName(SearchRequest searchReq, String authorizationHeader) {
 
 		if (!dynamoService.tableExists(stagingTableName.trim())) {
 			logger.warn("Table {} does not exist.", stagingTableName.trim());
-			return Collections.emptyList();
+			return PageResult.empty();
 		}
 
 		String jwtToken = authorizationHeader.substring(7);
 		String uploadedBy = jwtService.extractUserEmailFromToken(jwtToken);
 
-		Map<String, AttributeValue> expressionValues = new HashMap<>();
-		expressionValues.put(":policyId", AttributeValue.builder().s(searchReq.getPolicyId().trim()).build());
-		expressionValues.put(":domainName", AttributeValue.builder().s(searchReq.getDomainName().trim()).build());
-		expressionValues.put(":uploaded_by", AttributeValue.builder().s(uploadedBy.trim()).build());
+		Map<String, String> criteria = new LinkedHashMap<>();
+		criteria.put("policy_id", searchReq.getPolicyId().trim());
+		criteria.put("domain_name", searchReq.getDomainName().trim());
+		criteria.put("uploaded_by", uploadedBy.trim());
 
-		ScanRequest scanRequest = ScanRequest.builder().tableName(stagingTableName.trim())
-				.filterExpression("policy_id = :policyId AND domain_name = :domainName AND uploaded_by = :uploaded_by")
-				.expressionAttributeValues(expressionValues).build();
-
-		ScanResponse response = dynamoDbClient.scan(scanRequest);
-		return mapItems(response.items(), authorizationHeader);
+		return searchStaging(criteria, searchReq, authorizationHeader);
 	}
 
 	@Override
-	public List<Map<String, Object>> getDataByPolicyId(SearchRequest searchReq, String authorizationHeader) {
+	public PageResult<Map<String, Object>> getDataByPolicyId(SearchRequest searchReq, String authorizationHeader) {
 
 		if (!dynamoService.tableExists(stagingTableName.trim())) {
 			logger.warn("Table {} does not exist.", stagingTableName.trim());
-			return Collections.emptyList();
+			return PageResult.empty();
 		}
 
 		String jwtToken = authorizationHeader.substring(7);
 		String uploadedBy = jwtService.extractUserEmailFromToken(jwtToken);
 
-		Map<String, AttributeValue> expressionValues = new HashMap<>();
-		expressionValues.put(":policyId", AttributeValue.builder().s(searchReq.getPolicyId().trim()).build());
-		expressionValues.put(":uploaded_by", AttributeValue.builder().s(uploadedBy.trim()).build());
+		Map<String, String> criteria = new LinkedHashMap<>();
+		criteria.put("policy_id", searchReq.getPolicyId().trim());
+		criteria.put("uploaded_by", uploadedBy.trim());
 
-		ScanRequest scanRequest = ScanRequest.builder().tableName(stagingTableName.trim())
-				.filterExpression("policy_id = :policyId AND uploaded_by = :uploaded_by")
-				.expressionAttributeValues(expressionValues).build();
-
-		ScanResponse response = dynamoDbClient.scan(scanRequest);
-		return mapItems(response.items(), authorizationHeader);
+		return searchStaging(criteria, searchReq, authorizationHeader);
 	}
 
 	@Override
-	public List<Map<String, Object>> getDataByDomainName(SearchRequest searchReq, String authorizationHeader) {
+	public PageResult<Map<String, Object>> getDataByDomainName(SearchRequest searchReq, String authorizationHeader) {
 
 		if (!dynamoService.tableExists(stagingTableName.trim())) {
 			logger.warn("Table {} does not exist.", stagingTableName.trim());
-			return Collections.emptyList();
+			return PageResult.empty();
 		}
 
 		String jwtToken = authorizationHeader.substring(7);
 		String uploadedBy = jwtService.extractUserEmailFromToken(jwtToken);
 
-		Map<String, AttributeValue> expressionValues = new HashMap<>();
-		expressionValues.put(":domainName", AttributeValue.builder().s(searchReq.getDomainName().trim()).build());
-		expressionValues.put(":uploaded_by", AttributeValue.builder().s(uploadedBy.trim()).build());
+		Map<String, String> criteria = new LinkedHashMap<>();
+		criteria.put("domain_name", searchReq.getDomainName().trim());
+		criteria.put("uploaded_by", uploadedBy.trim());
 
-		ScanRequest scanRequest = ScanRequest.builder().tableName(stagingTableName.trim())
-				.filterExpression("domain_name = :domainName AND uploaded_by = :uploaded_by")
-				.expressionAttributeValues(expressionValues).build();
-
-		ScanResponse response = dynamoDbClient.scan(scanRequest);
-		return mapItems(response.items(), authorizationHeader);
+		return searchStaging(criteria, searchReq, authorizationHeader);
 	}
 
 	@Override
-	public List<Map<String, Object>> getDataByFileId(SearchRequest searchReq, String authorizationHeader) {
+	public PageResult<Map<String, Object>> getDataByFileId(SearchRequest searchReq, String authorizationHeader) {
 
 		if (!dynamoService.tableExists(stagingTableName.trim())) {
 			logger.warn("Table {} does not exist.", stagingTableName.trim());
-			return Collections.emptyList();
+			return PageResult.empty();
 		}
 
 		String jwtToken = authorizationHeader.substring(7);
 		String uploadedBy = jwtService.extractUserEmailFromToken(jwtToken);
 
-		Map<String, AttributeValue> expressionValues = new HashMap<>();
-		expressionValues.put(":file_id", AttributeValue.builder().s(searchReq.getFileId().trim()).build());
-		expressionValues.put(":uploaded_by", AttributeValue.builder().s(uploadedBy.trim()).build());
+		Map<String, String> criteria = new LinkedHashMap<>();
+		criteria.put("file_id", searchReq.getFileId().trim());
+		criteria.put("uploaded_by", uploadedBy.trim());
 
-		ScanRequest scanRequest = ScanRequest.builder().tableName(stagingTableName.trim())
-				.filterExpression("file_id = :file_id AND uploaded_by = :uploaded_by")
-				.expressionAttributeValues(expressionValues).build();
-
-		ScanResponse response = dynamoDbClient.scan(scanRequest);
-		return mapItems(response.items(), authorizationHeader);
+		return searchStaging(criteria, searchReq, authorizationHeader);
 	}
 
 	@Override
-	public List<Map<String, Object>> getAllData(String authorizationHeader) {
+	public PageResult<Map<String, Object>> getAllData(SearchRequest searchReq, String authorizationHeader) {
 
 		String jwtToken = authorizationHeader.substring(7);
 		String uploadedBy = jwtService.extractUserEmailFromToken(jwtToken);
 
 		if (!dynamoService.tableExists(stagingTableName.trim())) {
 			logger.warn("Table {} does not exist.", stagingTableName.trim());
-			return Collections.emptyList();
+			return PageResult.empty();
+		}
+
+		return searchStaging(Map.of("uploaded_by", uploadedBy), searchReq, authorizationHeader);
+	}
+
+	/** Receives the mapped rows of one DynamoDB page while a listing is streamed. */
+	@FunctionalInterface
+	public interface RowSink {
+		void accept(List<Map<String, Object>> rows) throws IOException;
+	}
+
+	/**
+	 * Streams every staging row matching the search to {@code sink}, one DynamoDB page of
+	 * {@code data.stream.page.size} rows at a time, so memory does not grow with the result.
+	 * The filters are chosen as in the paged listing; {@code page}, {@code size} and {@code cursor} are ignored.
+	 * @return number of rows handed to the sink
+	 */
+	public long streamData(SearchRequest searchReq, String authorizationHeader, RowSink sink) throws IOException {
+		String jwtToken = authorizationHeader.substring(7);
+		String uploadedBy = jwtService.extractUserEmailFromToken(jwtToken);
+
+		if (!dynamoService.tableExists(stagingTableName.trim())) {
+			logger.warn("Table {} does not exist.", stagingTableName.trim());
+			return 0;
+		}
+
+		Map<String, String> criteria = stagingCriteria(searchReq, uploadedBy);
+
+		Set<String> fields = requestedFields(searchReq.getFields());
+		QueryFilter filter = QueryFilter.parse(searchReq.getFilter(), searchReq.getSort());
+		QueryPlanner.Plan plan = QueryPlanner.project(
+				queryPlanner.plan(stagingTableName.trim(), QueryPlanner.STAGING_INDEXES, criteria, filter),
+				sourceAttributes(fields));
+		return forEachBatch(plan, page -> mapItems(page, authorizationHeader, fields), sink);
+	}
+
+	/**
+	 * Reads every row of {@code plan} and hands them to {@code sink} in batches of at most
+	 * {@code data.stream.page.size}: index queries page by page, full-table reads through a parallel scan.
+	 * A table reported missing is dropped from the {@code tableExists} cache before the error propagates.
+	 * @return number of rows handed to the sink
+	 */
+	private long forEachBatch(QueryPlanner.Plan plan,
+			Function<List<Map<String, AttributeValue>>, List<Map<String, Object>>> mapper, RowSink sink)
+			throws IOException {
+		try {
+			return forEachBatchOf(plan, mapper, sink);
+		} catch (ResourceNotFoundException e) {
+			forgetTableOf(plan);
+			throw e;
+		} catch (MasterdataServiceException e) {
+			// the parallel scan reports a segment's error wrapped
+			if (e.getCause() instanceof ResourceNotFoundException) forgetTableOf(plan);
+			throw e;
+		}
+	}
+
+	private void forgetTableOf(QueryPlanner.Plan plan) {
+		dynamoService.forgetTable(plan.usesIndex() ? plan.query().tableName() : plan.scan().tableName());
+	}
+
+	private long forEachBatchOf(QueryPlanner.Plan plan,
+			Function<List<Map<String, AttributeValue>>, List<Map<String, Object>>> mapper, RowSink sink)
+			throws IOException {
+		long total = 0;
+		if (!plan.usesIndex()) {
+			// a full-table read: scan the segments in parallel and hand rows on in batches as they arrive
+			int batchSize = Math.max(1, streamPageSize);
+			try (Stream<Map<String, AttributeValue>> scanned = dynamoService
+					.parallelScan(plan.scan().toBuilder().limit(batchSize).build())) {
+				Iterator<Map<String, AttributeValue>> it = scanned.iterator();
+				List<Map<String, AttributeValue>> batch = new ArrayList<>(batchSize);
+				while (it.hasNext()) {
+					batch.add(it.next());
+					if (batch.size() == batchSize || !it.hasNext()) {
+						sink.accept(mapper.apply(batch));
+						total += batch.size();
+						batch = new ArrayList<>(batchSize);
+					}
+				}
+			}
+			return total;
+		}
+		Iterator<List<Map<String, AttributeValue>>> pages = queryPlanner.pages(plan, streamPageSize);
+		while (pages.hasNext()) {
+			List<Map<String, AttributeValue>> page = pages.next();
+			if (page.isEmpty()) continue;
+			sink.accept(mapper.apply(page));
+			total += page.size();
+		}
+		return total;
+	}
+
+	// staging bookkeeping written next to the uploaded columns; not part of what the user staged
+	private static final Set<String> STAGING_SYSTEM_ATTRIBUTES = Set.of("organization_id", "policy_id",
+			"domain_name", "file_id", "uploaded_by", "uploaded_date", "is_processed", "is_handled", "claimed_at",
+			"processed_at", "updated_date");
+
+	/**
+	 * Export columns of one of the caller's files: {@code id}, then the columns catalogued for the file's
+	 * domain in case-insensitive order. Empty if the file does not exist or was uploaded by someone else.
+	 */
+	public Optional<List<String>> exportColumns(String fileId, String authorizationHeader) {
+		Optional<MasterDataHeader> header = ownFile(fileId, authorizationHeader);
+		if (header.isEmpty()) {
+			return Optional.empty();
+		}
+
+		List<String> columns = new ArrayList<>();
+		columns.add("id");
+		schemaCatalogService.columns(header.get().getDomainName()).values().stream()
+				.map(SchemaCatalogService.Column::name)
+				.filter(name -> !name.equals("id") && !STAGING_SYSTEM_ATTRIBUTES.contains(name))
+				.sorted(String.CASE_INSENSITIVE_ORDER)
+				.forEach(columns::add);
+		return Optional.of(columns);
+	}
+
+	/** The caller's file header, read with one consistent get; empty if missing or uploaded by someone else. */
+	private Optional<MasterDataHeader> ownFile(String fileId, String authorizationHeader) {
+		String uploadedBy = jwtService.extractUserEmailFromToken(authorizationHeader.substring(7)).trim();
+		return headerService.findById(fileId.trim())
+				.filter(header -> uploadedBy.equalsIgnoreCase(header.getUploadedBy().trim()));
+	}
+
+	/**
+	 * Status of one of the caller's files from its header item alone: the stage and the row counters
+	 * maintained as rows are staged and dispatched, so no staging or tracker rows are read.
+	 * {@code rows_pending} is staged rows not yet dispatched.
+	 */
+	public Optional<Map<String, Object>> fileSummary(String fileId, String authorizationHeader) {
+		return ownFile(fileId, authorizationHeader).map(header -> {
+			Map<String, Object> summary = new LinkedHashMap<>();
+			summary.put("file_id", header.getId());
+			summary.put("file_name", header.getFileName());
+			summary.put("process_stage", String.valueOf(header.getProcessStage()));
+			summary.put("total_rows_count", header.getTotalRowsCount());
+			summary.put(RowCounter.STAGED.attribute(), header.getRowsStaged());
+			summary.put(RowCounter.DISPATCHED.attribute(), header.getRowsDispatched());
+			summary.put("rows_pending", Math.max(0, header.getRowsStaged() - header.getRowsDispatched()));
+			return summary;
+		});
+	}
+
+	/**
+	 * Streams the staged rows of one of the caller's files to {@code sink} as plain values, without the
+	 * staging bookkeeping attributes or any policy/organization lookups, a page at a time.
+	 * Ownership is checked by {@link #exportColumns}; rows are read through the uploader's file index.
+	 * @return number of rows handed to the sink
+	 */
+	public long exportFile(String fileId, String authorizationHeader, RowSink sink) throws IOException {
+		String uploadedBy = jwtService.extractUserEmailFromToken(authorizationHeader.substring(7)).trim();
+		if (!dynamoService.tableExists(stagingTableName.trim())) {
+			logger.warn("Table {} does not exist.", stagingTableName.trim());
+			return 0;
+		}
+
+		Map<String, String> criteria = new LinkedHashMap<>();
+		criteria.put("file_id", fileId.trim());
+		criteria.put("uploaded_by", uploadedBy);
+		QueryPlanner.Plan plan = queryPlanner.plan(stagingTableName.trim(), QueryPlanner.STAGING_INDEXES, criteria);
+		return forEachBatch(plan, page -> {
+			List<Map<String, Object>> rows = new ArrayList<>(page.size());
+			for (Map<String, AttributeValue> item : page) {
+				Map<String, Object> row = avMapToJava(item);
+				row.keySet().removeAll(STAGING_SYSTEM_ATTRIBUTES);
+				rows.add(row);
+			}
+			return rows;
+		}, sink);
+	}
+
+	/**
+	 * Version token for the caller's listings: their per-uploader counter, read with one get.
+	 * Uploads, stage changes, dispatches and edits all write a header, and every header write bumps it.
+	 */
+	public String listingVersion(String authorizationHeader) {
+		String uploadedBy = jwtService.extractUserEmailFromToken(authorizationHeader.substring(7)).trim();
+		return uploadedBy + "\n" + listingVersionService.current(uploadedBy);
+	}
+
+	/** Equality criteria for a staging search: policy (and domain), else domain, else file; always the uploader. */
+	private static Map<String, String> stagingCriteria(SearchRequest searchReq, String uploadedBy) {
+		Map<String, String> criteria = new LinkedHashMap<>();
+		String policyId = searchReq.getPolicyId().trim();
+		String domainName = searchReq.getDomainName().trim();
+		String fileId = searchReq.getFileId().trim();
+		if (!policyId.isBlank()) {
+			criteria.put("policy_id", policyId);
+			if (!domainName.isBlank()) criteria.put("domain_name", domainName);
+		} else if (!domainName.isBlank()) {
+			criteria.put("domain_name", domainName);
+		} else if (!fileId.isBlank()) {
+			criteria.put("file_id", fileId);
 		}
+		criteria.put("uploaded_by", uploadedBy.trim());
+		return criteria;
+	}
 
-		Map<String, AttributeValue> expressionValues = Map.of(":uploaded_by",
-				AttributeValue.builder().s(uploadedBy).build());
+	/**
+	 * Number of staging rows the search matches, without reading them. A whole file is answered from
+	 * its header's {@code total_rows_count} once the upload has finished; anything else is a
+	 * {@code Select.COUNT} read through the best available index.
+	 * @throws IllegalArgumentException if the filter is malformed
+	 */
+	@Override
+	public long countData(SearchRequest searchReq, String authorizationHeader) {
+		String uploadedBy = jwtService.extractUserEmailFromToken(authorizationHeader.substring(7));
+		QueryFilter filter = QueryFilter.parse(searchReq.getFilter(), null);
+		if (!dynamoService.tableExists(stagingTableName.trim())) {
+			return 0;
+		}
 
-		ScanRequest scanRequest = ScanRequest.builder().tableName(stagingTableName.trim())
-				.filterExpression("uploaded_by = :uploaded_by").expressionAttributeValues(expressionValues).build();
+		Map<String, String> criteria = stagingCriteria(searchReq, uploadedBy);
+		if (criteria.containsKey("file_id") && filter.conditions().isEmpty()) {
+			Optional<MasterDataHeader> header = headerService.findById(criteria.get("file_id"));
+			if (header.isPresent() && uploadedBy.trim().equals(header.get().getUploadedBy())
+					&& header.get().getProcessStage() != FileProcessStage.UPLOADING
+					&& (header.get().getUploadState() == null || header.get().getUploadState() == UploadJobState.COMPLETED)) {
+				return header.get().getTotalRowsCount();
+			}
+		}
+		return queryPlanner.count(
+				queryPlanner.plan(stagingTableName.trim(), QueryPlanner.STAGING_INDEXES, criteria, filter));
+	}
 
-		ScanResponse response = dynamoDbClient.scan(scanRequest);
-		return mapItems(response.items(), authorizationHeader);
+	/**
+	 * Whether the search matches any staging row; stops at the first match.
+	 * @throws IllegalArgumentException if the filter is malformed
+	 */
+	@Override
+	public boolean dataExists(SearchRequest searchReq, String authorizationHeader) {
+		String uploadedBy = jwtService.extractUserEmailFromToken(authorizationHeader.substring(7));
+		QueryFilter filter = QueryFilter.parse(searchReq.getFilter(), null);
+		if (!dynamoService.tableExists(stagingTableName.trim())) {
+			return false;
+		}
+		return queryPlanner.exists(queryPlanner.plan(stagingTableName.trim(), QueryPlanner.STAGING_INDEXES,
+				stagingCriteria(searchReq, uploadedBy), filter));
+	}
+
+	/** Number of the caller's uploaded files, optionally only those in {@code stage}. */
+	@Override
+	public long countUploadFiles(String authorizationHeader, FileProcessStage stage) {
+		String uploadedBy = jwtService.extractUserEmailFromToken(authorizationHeader.substring(7));
+		if (!dynamoService.tableExists(headerTableName.trim())) {
+			return 0;
+		}
+		Map<String, String> criteria = new LinkedHashMap<>();
+		criteria.put("uploaded_by", uploadedBy.trim());
+		if (stage != null) criteria.put("process_stage", stage.name());
+		return queryPlanner.count(queryPlanner.plan(headerTableName.trim(), QueryPlanner.HEADER_INDEXES, criteria));
+	}
+
+	/**
+	 * Reads one page of matching staging rows through the best available index, or a scan if none fits.
+	 * @throws IllegalArgumentException if the request's cursor is invalid for these criteria, or its filter
+	 *         or sort is malformed
+	 */
+	private PageResult<Map<String, Object>> searchStaging(Map<String, String> criteria, SearchRequest searchReq,
+			String authorizationHeader) {
+		Set<String> fields = requestedFields(searchReq.getFields());
+		QueryFilter filter = QueryFilter.parse(searchReq.getFilter(), searchReq.getSort());
+		PageResult<Map<String, AttributeValue>> page;
+		try {
+			page = queryPlanner.page(stagingTableName.trim(), QueryPlanner.STAGING_INDEXES, criteria,
+					searchReq.getPage(), searchReq.getSize(), searchReq.getCursor(), sourceAttributes(fields), filter);
+		} catch (ResourceNotFoundException e) {
+			// dropped since tableExists cached it; the next call checks again
+			dynamoService.forgetTable(stagingTableName.trim());
+			logger.warn("Table {} does not exist.", stagingTableName.trim());
+			return PageResult.empty();
+		}
+		return new PageResult<>(mapItems(page.items(), authorizationHeader, fields), page.nextCursor());
 	}
 
 	@Override
@@ -370,6 +768,8 @@ public class MasterdataService implements IMasterdataService {
 				}
 
 				int processedCount = 0;
+				// the header's dispatched counter spans every run, not just this one
+				long dispatched = 0;
 
 				String createdDate = LocalDateTime.now(ZoneId.of("Asia/Singapore")).format(fmt);
 
@@ -425,8 +825,8 @@ public class MasterdataService implements IMasterdataService {
 									
 									sqsPublishingService.sendRecordToQueue(sqsMessage);
 
-									// (5) Mark file stage as processing
-									headerService.updateFileStage(fileId, FileProcessStage.PROCESSING);
+									// (5) Mark file stage as processing and count the dispatch
+									dispatched = headerService.markDispatched(fileId);
 
 									// (6) Mark staging as processed
 									dynamoService.markProcessed(stagingTableName, stgID);
@@ -445,9 +845,9 @@ public class MasterdataService implements IMasterdataService {
 
 					}
 				}
-				if (processedCount > 0) {
-					if (processedCount == totalCount)
-						dynamoService.updateStagingProcessedStatus(headerTableName.trim(), fileId, "1");
+				if (processedCount > 0 && dispatched >= totalCount) {
+					dynamoService.updateStagingProcessedStatus(headerTableName.trim(), fileId, "1");
+					listingVersionService.bump(uploadedBy);
 				}
 				return processedCount;
 			}
@@ -545,7 +945,7 @@ public class MasterdataService implements IMasterdataService {
 	}
 
 	@Override
-	public List<Map<String, Object>> getAllUploadFiles(String authorizationHeader) {
+	public List<Map<String, Object>> getAllUploadFiles(String authorizationHeader, String fields) {
 
 		String jwtToken = authorizationHeader.substring(7);
 		String uploadedBy = jwtService.extractUserEmailFromToken(jwtToken);
@@ -555,15 +955,12 @@ public class MasterdataService implements IMasterdataService {
 			return Collections.emptyList();
 		}
 
-		Map<String, AttributeValue> expressionValues = Map.of(":uploaded_by",
-				AttributeValue.builder().s(uploadedBy).build());
-
-		ScanRequest scanRequest = ScanRequest.builder().tableName(headerTableName.trim())
-				.filterExpression("uploaded_by = :uploaded_by").expressionAttributeValues(expressionValues).build();
-
-		ScanResponse response = dynamoDbClient.scan(scanRequest);
+		Set<String> requested = requestedFields(fields);
+		QueryPlanner.Plan plan = queryPlanner.plan(headerTableName.trim(), QueryPlanner.HEADER_INDEXES,
+				Map.of("uploaded_by", uploadedBy));
 
-		return mapItems(response.items(), authorizationHeader);
+		return mapItems(queryPlanner.execute(QueryPlanner.project(plan, sourceAttributes(requested))),
+				authorizationHeader, requested);
 	}
 
 	private static String asString(Object o) {
@@ -673,15 +1070,25 @@ public class MasterdataService implements IMasterdataService {
                     List.of(GeneralUtility.fromAttrMap(hdrCurrent), stgBefore));
         }
 
-        // 6) Update HEADER
+        // 6) Update HEADER; a dispatched row reset by the edit goes back to pending
+        String hdrAdd = "";
+        Map<String, String> hdrNames = GeneralUtility.merge(hdrUpd.ean, Map.of("#k", "id"));
+        Map<String, AttributeValue> hdrValues = hdrUpd.eav;
+        AttributeValue wasProcessed = getStg.item().get("is_processed");
+        if (stagingUpdated && wasProcessed != null && "1".equals(wasProcessed.n())) {
+            hdrNames = GeneralUtility.merge(hdrNames, Map.of("#rows_dispatched", RowCounter.DISPATCHED.attribute()));
+            hdrValues = new LinkedHashMap<>(hdrValues);
+            hdrValues.put(":undispatched", AttributeValue.builder().n("-1").build());
+            hdrAdd = " ADD #rows_dispatched :undispatched";
+        }
         try {
             if (!hdrUpd.setParts.isEmpty()) {
                 UpdateItemResponse hdrResp = dynamoDbClient.updateItem(UpdateItemRequest.builder()
                         .tableName(headerTableName.trim())
                         .key(headerKey)
-                        .updateExpression("SET " + String.join(", ", hdrUpd.setParts))
-                        .expressionAttributeNames(GeneralUtility.merge(hdrUpd.ean, Map.of("#k", "id")))
-                        .expressionAttributeValues(hdrUpd.eav)
+                        .updateExpression("SET " + String.join(", ", hdrUpd.setParts) + hdrAdd)
+                        .expressionAttributeNames(hdrNames)
+                        .expressionAttributeValues(hdrValues)
                         .conditionExpression("attribute_exists(#k)")
                         .returnValues(ReturnValue.ALL_NEW)
                         .build());
@@ -714,6 +1121,9 @@ public class MasterdataService implements IMasterdataService {
 
         Map<String, AttributeValue> hdrNew = dynamoDbClient.getItem(GetItemRequest.builder()
                 .tableName(headerTableName.trim()).key(headerKey).consistentRead(true).build()).item();
+        listingVersionService.bump(hdrNew);
+
+        if (stagingUpdated) recordEditedColumns(stgNew, stgUpd.ean.values());
 
         int updatedCount = stgUpd.updatedFields + hdrUpd.updatedFields;
         
@@ -726,6 +1136,30 @@ public class MasterdataService implements IMasterdataService {
         );
     }
 
+	/**
+	 * Adds columns created or retyped by an edit to the domain's schema catalog, so listings and exports
+	 * see them. Best-effort like the upload path: the edit is already committed.
+	 */
+	private void recordEditedColumns(Map<String, AttributeValue> staged, Collection<String> edited) {
+		AttributeValue domainAttr = staged == null ? null : staged.get("domain_name");
+		if (domainAttr == null || domainAttr.s() == null || domainAttr.s().isBlank()) return;
+		String domainName = domainAttr.s();
+
+		Map<String, SchemaCatalogService.Column> observed = new HashMap<>();
+		for (String name : edited) {
+			AttributeValue value = staged.get(name);
+			if (value == null || name.equals("id") || STAGING_SYSTEM_ATTRIBUTES.contains(name)) continue;
+			observed.put(name.toLowerCase(Locale.ROOT), new SchemaCatalogService.Column(name, value.type().name()));
+		}
+		if (observed.isEmpty()) return;
+		try {
+			schemaCatalogService.record(domainName, observed);
+		} catch (Exception e) {
+			logger.warn("Unable to update schema catalog for domain {}: {}", domainName, e.toString());
+			schemaCatalogService.invalidate(domainName);
+		}
+	}
+
     
    
     
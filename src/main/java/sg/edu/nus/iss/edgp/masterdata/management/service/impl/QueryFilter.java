@@ -0,0 +1,186 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import sg.edu.nus.iss.edgp.masterdata.management.utility.GeneralUtility;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Column predicates and an optional sort for a search, parsed from the {@code filter} and {@code sort}
+ * request parameters. {@link QueryPlanner} pushes each predicate onto an index's key condition where
+ * one fits and into the FilterExpression otherwise, so rows are filtered by DynamoDB.
+ * <pre>
+ * filter    = condition (";" condition)*
+ * condition = attribute ":" op ":" value     op: eq ne lt le gt ge begins_with between ("low..high")
+ * sort      = attribute [":asc" | ":desc"]   attribute must be the range key of an index
+ * </pre>
+ * Literals are typed the way staging stores them: numbers as N, true/false as BOOL, anything else as S.
+ * {@code begins_with} and index keys always compare as strings.
+ */
+public record QueryFilter(List<Condition> conditions, String sortBy, boolean descending) {
+
+	public static final QueryFilter NONE = new QueryFilter(List.of(), null, false);
+
+	static final int MAX_CONDITIONS = 20;
+
+	public enum Op {
+		EQ("="), NE("<>"), LT("<"), LE("<="), GT(">"), GE(">="), BETWEEN(null), BEGINS_WITH(null);
+
+		private final String symbol;
+
+		Op(String symbol) {
+			this.symbol = symbol;
+		}
+
+		/** Whether the operator may appear in a KeyConditionExpression on a range key. */
+		public boolean keyable() {
+			return this != NE;
+		}
+	}
+
+	/** {@code values} holds two bounds for {@link Op#BETWEEN} and one value otherwise. */
+	public record Condition(String attribute, Op op, List<AttributeValue> values) {
+	}
+
+	/**
+	 * @throws IllegalArgumentException if either parameter is malformed
+	 */
+	public static QueryFilter parse(String filter, String sort) {
+		List<Condition> conditions = new ArrayList<>();
+		if (filter != null && !filter.isBlank()) {
+			for (String part : filter.split(";")) {
+				if (part.isBlank()) continue;
+				conditions.add(condition(part.trim()));
+			}
+		}
+		if (conditions.size() > MAX_CONDITIONS) {
+			throw new IllegalArgumentException("At most " + MAX_CONDITIONS + " filter conditions are allowed.");
+		}
+
+		String sortBy = null;
+		boolean descending = false;
+		if (sort != null && !sort.isBlank()) {
+			String[] s = sort.trim().split(":", 2);
+			sortBy = attribute(s[0], sort);
+			if (s.length == 2) {
+				String dir = s[1].trim().toLowerCase(Locale.ROOT);
+				if (!dir.equals("asc") && !dir.equals("desc")) {
+					throw new IllegalArgumentException("Invalid sort direction in '" + sort + "': use asc or desc.");
+				}
+				descending = dir.equals("desc");
+			}
+		}
+		return new QueryFilter(List.copyOf(conditions), sortBy, descending);
+	}
+
+	private static Condition condition(String part) {
+		String[] p = part.split(":", 3);
+		if (p.length < 3) {
+			throw new IllegalArgumentException("Invalid filter '" + part + "': expected attribute:op:value.");
+		}
+		String attribute = attribute(p[0], part);
+		Op op;
+		try {
+			op = Op.valueOf(p[1].trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown filter operator '" + p[1].trim() + "' in '" + part + "'.");
+		}
+		String value = p[2];
+		if (value.isEmpty()) {
+			throw new IllegalArgumentException("Missing value in filter '" + part + "'.");
+		}
+
+		if (op == Op.BEGINS_WITH) {
+			return new Condition(attribute, op, List.of(AttributeValue.builder().s(value).build()));
+		}
+		if (op == Op.BETWEEN) {
+			String[] bounds = value.split("\\.\\.", 2);
+			if (bounds.length < 2 || bounds[0].isEmpty() || bounds[1].isEmpty()) {
+				throw new IllegalArgumentException("Invalid filter '" + part + "': between takes low..high.");
+			}
+			AttributeValue low = literal(bounds[0]);
+			AttributeValue high = literal(bounds[1]);
+			if (low.type() != high.type()) {
+				throw new IllegalArgumentException("Bounds of '" + part + "' must both be numbers or both be text.");
+			}
+			return new Condition(attribute, op, List.of(low, high));
+		}
+		return new Condition(attribute, op, List.of(literal(value)));
+	}
+
+	private static String attribute(String raw, String part) {
+		String attribute = raw.trim();
+		if (attribute.isEmpty() || attribute.length() > 255) {
+			throw new IllegalArgumentException("Invalid attribute name in '" + part + "'.");
+		}
+		return attribute;
+	}
+
+	private static AttributeValue literal(String v) {
+		if (v.equalsIgnoreCase("true") || v.equalsIgnoreCase("false")) {
+			return AttributeValue.builder().bool(Boolean.parseBoolean(v)).build();
+		}
+		if (GeneralUtility.isNumeric(v)) {
+			return AttributeValue.builder().n(v).build();
+		}
+		return AttributeValue.builder().s(v).build();
+	}
+
+	/** Number of predicates, including an equality criterion, that constrain {@code attribute}. */
+	int count(String attribute, Map<String, String> criteria) {
+		int n = criteria.containsKey(attribute) ? 1 : 0;
+		for (Condition c : conditions) {
+			if (c.attribute().equals(attribute)) n++;
+		}
+		return n;
+	}
+
+	/** The only predicate on {@code attribute}, or null if it is an equality criterion or absent. */
+	Condition only(String attribute) {
+		for (Condition c : conditions) {
+			if (c.attribute().equals(attribute)) return c;
+		}
+		return null;
+	}
+
+	/** Index keys are always stored as strings, so their literals are compared as strings too. */
+	QueryFilter withStringValues(Set<String> attributes) {
+		List<Condition> typed = new ArrayList<>(conditions.size());
+		for (Condition c : conditions) {
+			if (!attributes.contains(c.attribute())) {
+				typed.add(c);
+				continue;
+			}
+			List<AttributeValue> values = new ArrayList<>(c.values().size());
+			for (AttributeValue v : c.values()) {
+				values.add(v.s() != null ? v
+						: AttributeValue.builder().s(v.n() != null ? v.n() : String.valueOf(v.bool())).build());
+			}
+			typed.add(new Condition(c.attribute(), c.op(), values));
+		}
+		return new QueryFilter(typed, sortBy, descending);
+	}
+
+	/** Renders condition {@code i} with {@code #f<i>}/{@code :f<i>} placeholders, adding them to the maps. */
+	String render(int i, Map<String, String> names, Map<String, AttributeValue> values) {
+		Condition c = conditions.get(i);
+		String name = "#f" + i;
+		names.put(name, c.attribute());
+		switch (c.op()) {
+			case BETWEEN:
+				values.put(":f" + i + "a", c.values().get(0));
+				values.put(":f" + i + "b", c.values().get(1));
+				return name + " BETWEEN :f" + i + "a AND :f" + i + "b";
+			case BEGINS_WITH:
+				values.put(":f" + i, c.values().get(0));
+				return "begins_with(" + name + ", :f" + i + ")";
+			default:
+				values.put(":f" + i, c.values().get(0));
+				return name + " " + c.op().symbol + " :f" + i;
+		}
+	}
+}
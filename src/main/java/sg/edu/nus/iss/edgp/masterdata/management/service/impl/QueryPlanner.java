@@ -0,0 +1,417 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import sg.edu.nus.iss.edgp.masterdata.management.dto.PageResult;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+
+/**
+ * Turns a set of equality criteria into the cheapest read: a Query on an ACTIVE global secondary
+ * index whose keys are covered by the criteria, or a Scan with the same filter when none fits
+ * (e.g. while an index is still backfilling). Criteria not used as keys become the filter, and so do
+ * {@link QueryFilter} predicates, which can also narrow or order an index's range key.
+ * Searches are read a page at a time behind opaque cursors that wrap DynamoDB's start key.
+ */
+@RequiredArgsConstructor
+@Service
+public class QueryPlanner {
+
+	private static final Logger logger = LoggerFactory.getLogger(QueryPlanner.class);
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * A global secondary index. {@code sparse} means some items lack the range key, so the index
+	 * can only answer queries that constrain that key.
+	 */
+	public record Index(String name, String hashKey, String rangeKey, boolean sparse) {
+	}
+
+	/** Staging indexes, most selective first; every staging row has a domain_name. */
+	public static final List<Index> STAGING_INDEXES = List.of(
+			new Index("uploaded_by-file_id-index", "uploaded_by", "file_id", true),
+			new Index("uploaded_by-policy_id-index", "uploaded_by", "policy_id", true),
+			new Index("uploaded_by-domain_name-index", "uploaded_by", "domain_name", false));
+
+	public static final List<Index> HEADER_INDEXES = List.of(
+			new Index("uploaded_by-uploaded_date-index", "uploaded_by", "uploaded_date", false));
+
+	private final DynamoDbClient dynamoDbClient;
+	private final DynamicDetailService dynamoService;
+
+	/** Exactly one of {@code query} and {@code scan} is set; {@code index} is null for a scan. */
+	public record Plan(Index index, QueryRequest query, ScanRequest scan) {
+
+		public boolean usesIndex() {
+			return query != null;
+		}
+	}
+
+	/**
+	 * @param criteria attribute name to the value it must equal, in the order the filter should list them
+	 */
+	public Plan plan(String tableName, List<Index> indexes, Map<String, String> criteria) {
+		return plan(tableName, indexes, criteria, QueryFilter.NONE);
+	}
+
+	/**
+	 * As above, with extra predicates and an optional sort. An index is only used when every predicate on
+	 * its keys can go into the key condition, since DynamoDB rejects key attributes in a Query's filter.
+	 * @throws IllegalArgumentException if a sort is asked for and no active index has it as range key
+	 */
+	public Plan plan(String tableName, List<Index> indexes, Map<String, String> criteria, QueryFilter filter) {
+		QueryFilter f = filter.withStringValues(keyAttributes(indexes));
+		Index best = null;
+		int bestScore = 0;
+		for (Index idx : indexes) {
+			if (f.sortBy() != null && !f.sortBy().equals(idx.rangeKey())) continue;
+			if (f.count(idx.hashKey(), criteria) != 1) continue;
+			QueryFilter.Condition hash = f.only(idx.hashKey());
+			if (hash != null && hash.op() != QueryFilter.Op.EQ) continue;
+
+			int rangeConditions = f.count(idx.rangeKey(), criteria);
+			if (rangeConditions > 1) continue;
+			QueryFilter.Condition range = f.only(idx.rangeKey());
+			if (range != null && !range.op().keyable()) continue;
+			boolean rangeMatched = rangeConditions == 1;
+			if (!rangeMatched && idx.sparse()) continue;
+			int score = rangeMatched ? 2 : 1;
+			if (score > bestScore && dynamoService.indexActive(tableName, idx.name())) {
+				best = idx;
+				bestScore = score;
+			}
+		}
+		if (f.sortBy() != null && best == null) {
+			throw new IllegalArgumentException("Cannot sort by " + f.sortBy()
+					+ ": it is not the range key of an index available for this search.");
+		}
+		return build(tableName, best, criteria, f);
+	}
+
+	/**
+	 * Narrows the plan's reads to {@code attributes} with a ProjectionExpression; empty leaves it reading
+	 * whole items. {@code id} and the index keys are always read as well, since cursors are built from them.
+	 */
+	public static Plan project(Plan plan, Collection<String> attributes) {
+		if (attributes == null || attributes.isEmpty()) return plan;
+		Set<String> attrs = new LinkedHashSet<>(attributes);
+		attrs.add("id");
+		if (plan.index() != null) {
+			attrs.add(plan.index().hashKey());
+			attrs.add(plan.index().rangeKey());
+		}
+
+		// every name goes through a placeholder: business columns may clash with reserved words
+		StringBuilder expr = new StringBuilder();
+		Map<String, String> names = new HashMap<>(plan.usesIndex()
+				? plan.query().expressionAttributeNames() : plan.scan().expressionAttributeNames());
+		int i = 0;
+		for (String attr : attrs) {
+			String placeholder = "#p" + i++;
+			if (expr.length() > 0) expr.append(", ");
+			expr.append(placeholder);
+			names.put(placeholder, attr);
+		}
+		if (plan.usesIndex()) {
+			return new Plan(plan.index(), plan.query().toBuilder().projectionExpression(expr.toString())
+					.expressionAttributeNames(names).build(), null);
+		}
+		return new Plan(null, null, plan.scan().toBuilder().projectionExpression(expr.toString())
+				.expressionAttributeNames(names).build());
+	}
+
+	private static Plan build(String tableName, Index index, Map<String, String> criteria, QueryFilter filter) {
+		Map<String, AttributeValue> values = new HashMap<>();
+		criteria.forEach((attr, v) -> values.put(":" + attr, AttributeValue.builder().s(v).build()));
+		Map<String, String> names = new HashMap<>();
+
+		Set<String> keys = index == null ? Set.of() : Set.of(index.hashKey(), index.rangeKey());
+		Map<String, String> keyConditions = new HashMap<>();
+		List<String> rest = new ArrayList<>();
+		for (String attr : criteria.keySet()) {
+			String condition = attr + " = :" + attr;
+			if (keys.contains(attr)) {
+				keyConditions.put(attr, condition);
+			} else {
+				rest.add(condition);
+			}
+		}
+		for (int i = 0; i < filter.conditions().size(); i++) {
+			String attr = filter.conditions().get(i).attribute();
+			String condition = filter.render(i, names, values);
+			if (keys.contains(attr)) {
+				keyConditions.put(attr, condition);
+			} else {
+				rest.add(condition);
+			}
+		}
+
+		if (index == null) {
+			ScanRequest.Builder scan = ScanRequest.builder().tableName(tableName);
+			if (!rest.isEmpty()) {
+				scan.filterExpression(String.join(" AND ", rest)).expressionAttributeValues(values);
+			}
+			if (!names.isEmpty()) scan.expressionAttributeNames(names);
+			return new Plan(null, null, scan.build());
+		}
+
+		List<String> key = new ArrayList<>();
+		key.add(keyConditions.get(index.hashKey()));
+		if (keyConditions.containsKey(index.rangeKey())) key.add(keyConditions.get(index.rangeKey()));
+
+		QueryRequest.Builder query = QueryRequest.builder().tableName(tableName).indexName(index.name())
+				.keyConditionExpression(String.join(" AND ", key))
+				.expressionAttributeValues(values);
+		if (!rest.isEmpty()) query.filterExpression(String.join(" AND ", rest));
+		if (!names.isEmpty()) query.expressionAttributeNames(names);
+		if (filter.descending()) query.scanIndexForward(false);
+		return new Plan(index, query.build(), null);
+	}
+
+	private static Set<String> keyAttributes(List<Index> indexes) {
+		Set<String> keys = new HashSet<>();
+		for (Index idx : indexes) {
+			keys.add(idx.hashKey());
+			keys.add(idx.rangeKey());
+		}
+		return keys;
+	}
+
+	/**
+	 * Reads one page of at most {@code size} items. Without a cursor, {@code page} pages are skipped
+	 * first (cost grows with the page number, so clients should follow {@code nextCursor} instead).
+	 * A cursor pins the access path it was issued for, so a page never switches between index and
+	 * scan half way through a listing.
+	 * @throws IllegalArgumentException if the cursor is malformed or was issued for other criteria
+	 */
+	public PageResult<Map<String, AttributeValue>> page(String tableName, List<Index> indexes,
+			Map<String, String> criteria, int page, int size, String cursor) {
+		return page(tableName, indexes, criteria, page, size, cursor, Set.of());
+	}
+
+	/** As above, reading only {@code attributes} (see {@link #project}); empty reads whole items. */
+	public PageResult<Map<String, AttributeValue>> page(String tableName, List<Index> indexes,
+			Map<String, String> criteria, int page, int size, String cursor, Collection<String> attributes) {
+		return page(tableName, indexes, criteria, page, size, cursor, attributes, QueryFilter.NONE);
+	}
+
+	/** As above, with extra predicates and an optional sort; see {@link #plan(String, List, Map, QueryFilter)}. */
+	public PageResult<Map<String, AttributeValue>> page(String tableName, List<Index> indexes,
+			Map<String, String> criteria, int page, int size, String cursor, Collection<String> attributes,
+			QueryFilter filter) {
+		QueryFilter typed = filter.withStringValues(keyAttributes(indexes));
+		String fingerprint = fingerprint(tableName, criteria, typed);
+		Plan plan;
+		Map<String, AttributeValue> start = null;
+		long toSkip = 0;
+		if (cursor == null || cursor.isBlank()) {
+			plan = plan(tableName, indexes, criteria, typed);
+			toSkip = (long) Math.max(0, page) * size;
+		} else {
+			Cursor c = decode(cursor);
+			if (!fingerprint.equals(c.q())) throw new IllegalArgumentException("Cursor does not match this search.");
+			Index index = null;
+			if (!c.i().isEmpty()) {
+				index = indexes.stream().filter(x -> x.name().equals(c.i())).findFirst()
+						.orElseThrow(() -> new IllegalArgumentException("Invalid cursor."));
+			}
+			plan = build(tableName, index, criteria, typed);
+			start = new HashMap<>();
+			for (Map.Entry<String, String> e : c.k().entrySet()) {
+				start.put(e.getKey(), AttributeValue.builder().s(e.getValue()).build());
+			}
+		}
+
+		plan = project(plan, attributes);
+
+		List<Map<String, AttributeValue>> items = new ArrayList<>(size);
+		while (true) {
+			Fetched f = fetch(plan, start, size);
+			int i = 0;
+			for (; i < f.items().size() && (toSkip > 0 || items.size() < size); i++) {
+				if (toSkip > 0) {
+					toSkip--;
+				} else {
+					items.add(f.items().get(i));
+				}
+			}
+			if (i < f.items().size()) {
+				// stopped inside this response: resume right after the last item handed out
+				return new PageResult<>(items, encode(plan, fingerprint, keyOf(plan, items.get(items.size() - 1))));
+			}
+			start = f.lastKey();
+			if (start == null) return new PageResult<>(items, null);
+			if (items.size() == size && toSkip == 0) return new PageResult<>(items, encode(plan, fingerprint, start));
+		}
+	}
+
+	private record Fetched(List<Map<String, AttributeValue>> items, Map<String, AttributeValue> lastKey) {
+	}
+
+	private Fetched fetch(Plan plan, Map<String, AttributeValue> start, int limit) {
+		if (plan.usesIndex()) {
+			QueryRequest.Builder req = plan.query().toBuilder().limit(limit);
+			if (start != null) req.exclusiveStartKey(start);
+			QueryResponse resp = dynamoDbClient.query(req.build());
+			return new Fetched(resp.items(), resp.hasLastEvaluatedKey() && !resp.lastEvaluatedKey().isEmpty()
+					? resp.lastEvaluatedKey() : null);
+		}
+		ScanRequest.Builder req = plan.scan().toBuilder().limit(limit);
+		if (start != null) req.exclusiveStartKey(start);
+		ScanResponse resp = dynamoDbClient.scan(req.build());
+		return new Fetched(resp.items(), resp.hasLastEvaluatedKey() && !resp.lastEvaluatedKey().isEmpty()
+				? resp.lastEvaluatedKey() : null);
+	}
+
+	/** The start key DynamoDB would have returned had the read stopped at this item. */
+	private static Map<String, AttributeValue> keyOf(Plan plan, Map<String, AttributeValue> item) {
+		Map<String, AttributeValue> key = new HashMap<>();
+		key.put("id", item.get("id"));
+		if (plan.index() != null) {
+			key.put(plan.index().hashKey(), item.get(plan.index().hashKey()));
+			key.put(plan.index().rangeKey(), item.get(plan.index().rangeKey()));
+		}
+		return key;
+	}
+
+	/** Serialized form of a cursor: access path, search fingerprint and the start key. */
+	private record Cursor(String i, String q, Map<String, String> k) {
+	}
+
+	private static String encode(Plan plan, String fingerprint, Map<String, AttributeValue> key) {
+		Map<String, String> k = new TreeMap<>();
+		key.forEach((attr, v) -> {
+			if (v != null && v.s() != null) k.put(attr, v.s());
+		});
+		try {
+			byte[] json = MAPPER.writeValueAsBytes(
+					new Cursor(plan.index() == null ? "" : plan.index().name(), fingerprint, k));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Unable to encode cursor", e);
+		}
+	}
+
+	private static Cursor decode(String cursor) {
+		try {
+			Cursor c = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor.trim()), Cursor.class);
+			if (c.i() == null || c.q() == null || c.k() == null || !c.k().containsKey("id")) {
+				throw new IllegalArgumentException("Invalid cursor.");
+			}
+			return c;
+		} catch (IllegalArgumentException | IOException e) {
+			throw new IllegalArgumentException("Invalid cursor.");
+		}
+	}
+
+	private static String fingerprint(String tableName, Map<String, String> criteria, QueryFilter filter) {
+		return Integer.toHexString(Objects.hash(tableName, new TreeMap<>(criteria), filter));
+	}
+
+	/**
+	 * Lazily walks the plan one DynamoDB page (at most {@code pageSize} items) at a time; the next
+	 * page is only read once the caller asks for it, so at most one page is held in memory.
+	 */
+	public Iterator<List<Map<String, AttributeValue>>> pages(Plan plan, int pageSize) {
+		return new Iterator<>() {
+			private Map<String, AttributeValue> start;
+			private boolean done;
+
+			@Override
+			public boolean hasNext() {
+				return !done;
+			}
+
+			@Override
+			public List<Map<String, AttributeValue>> next() {
+				if (done) throw new NoSuchElementException();
+				Fetched f = fetch(plan, start, Math.max(1, pageSize));
+				start = f.lastKey();
+				done = start == null;
+				return f.items();
+			}
+		};
+	}
+
+	/** Number of items the plan matches, read with {@code Select.COUNT} so no items are transferred. */
+	public long count(Plan plan) {
+		return countMatches(plan, false);
+	}
+
+	/** Whether the plan matches any item; stops at the first page with a match. */
+	public boolean exists(Plan plan) {
+		return countMatches(plan, true) > 0;
+	}
+
+	private long countMatches(Plan plan, boolean stopAtFirst) {
+		long total = 0;
+		Map<String, AttributeValue> start = null;
+		do {
+			Integer count;
+			if (plan.usesIndex()) {
+				QueryRequest.Builder req = plan.query().toBuilder().select(Select.COUNT);
+				if (start != null) req.exclusiveStartKey(start);
+				QueryResponse page = dynamoDbClient.query(req.build());
+				count = page.count();
+				start = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty() ? page.lastEvaluatedKey() : null;
+			} else {
+				ScanRequest.Builder req = plan.scan().toBuilder().select(Select.COUNT);
+				if (start != null) req.exclusiveStartKey(start);
+				ScanResponse page = dynamoDbClient.scan(req.build());
+				count = page.count();
+				start = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty() ? page.lastEvaluatedKey() : null;
+			}
+			total += count == null ? 0 : count;
+			if (stopAtFirst && total > 0) break;
+		} while (start != null);
+		return total;
+	}
+
+	/** Runs the plan through every page and returns all matching items; scanned items come in no particular order. */
+	public List<Map<String, AttributeValue>> execute(Plan plan) {
+		List<Map<String, AttributeValue>> items = new ArrayList<>();
+		if (plan.usesIndex()) {
+			QueryRequest req = plan.query();
+			Map<String, AttributeValue> start = null;
+			do {
+				QueryResponse page = dynamoDbClient.query(start == null ? req : req.toBuilder().exclusiveStartKey(start).build());
+				items.addAll(page.items());
+				start = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty() ? page.lastEvaluatedKey() : null;
+			} while (start != null);
+			logger.debug("Query on {} returned {} item(s)", req.indexName(), items.size());
+		} else {
+			// no index fits, so the whole table is read anyway: do it segment by segment in parallel
+			try (Stream<Map<String, AttributeValue>> scanned = dynamoService.parallelScan(plan.scan())) {
+				scanned.forEach(items::add);
+			}
+		}
+		return items;
+	}
+}
@@ -0,0 +1,190 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import sg.edu.nus.iss.edgp.masterdata.management.utility.GeneralUtility;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+/**
+ * Per-domain catalog of the columns seen in staging: canonical casing and observed DynamoDB type.
+ * One item per domain ({@code id} = lower-cased domain) holds {@code n:<column>} (canonical name)
+ * and {@code t:<column>} (type) attributes. The first casing written wins, so every upload of a
+ * domain maps {@code Email}/{@code EMAIL}/{@code email} to the same attribute.
+ * Reads are served from memory and refreshed after {@code schema.catalog.cache.ttl.seconds};
+ * writes only happen when an upload brings a new column or a new type.
+ */
+@RequiredArgsConstructor
+@Service
+public class SchemaCatalogService {
+
+	@Value("${aws.dynamodb.table.master.data.schema:MasterDataSchema}")
+	private String schemaTableName = "MasterDataSchema";
+
+	@Value("${schema.catalog.cache.ttl.seconds:300}")
+	private long cacheTtlSeconds = 300;
+
+	public static final String MIXED = "MIXED";
+
+	private static final Logger logger = LoggerFactory.getLogger(SchemaCatalogService.class);
+
+	private static final String NAME_PREFIX = "n:";
+	private static final String TYPE_PREFIX = "t:";
+	// keeps each update expression well inside DynamoDB's expression size limit
+	private static final int MAX_COLUMNS_PER_UPDATE = 50;
+
+	private final DynamoDbClient dynamoDbClient;
+	private final DynamicDetailService dynamoService;
+
+	private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+
+	/** One catalogued column: the casing used in staging and its DynamoDB type ({@code S}, {@code N}, ... or {@link #MIXED}). */
+	public record Column(String name, String type) {
+	}
+
+	private record Cached(Map<String, Column> columns, long loadedAtNanos) {
+	}
+
+	/** Columns of a domain keyed by lower-cased name; no I/O while the cached copy is fresh. */
+	public Map<String, Column> columns(String domainName) {
+		String domain = key(domainName);
+		Cached c = cache.get(domain);
+		if (c != null && System.nanoTime() - c.loadedAtNanos() < TimeUnit.SECONDS.toNanos(cacheTtlSeconds)) {
+			return c.columns();
+		}
+		Map<String, Column> loaded = load(domain);
+		cache.put(domain, new Cached(loaded, System.nanoTime()));
+		return loaded;
+	}
+
+	/** Lower-cased column name to its canonical casing. */
+	public Map<String, String> canonicalNames(String domainName) {
+		Map<String, String> names = new HashMap<>();
+		columns(domainName).forEach((lower, col) -> names.put(lower, col.name()));
+		return names;
+	}
+
+	/**
+	 * Merges the columns observed by one upload into the catalog.
+	 * Unknown columns are added with their casing (unless another upload added them first);
+	 * a known column seen with a different type is marked {@link #MIXED}.
+	 * @param observed columns keyed by lower-cased name
+	 */
+	public void record(String domainName, Map<String, Column> observed) {
+		String domain = key(domainName);
+		Map<String, Column> known = columns(domain);
+
+		Map<String, Column> changes = new LinkedHashMap<>();
+		observed.forEach((lower, col) -> {
+			Column k = known.get(lower);
+			if (k == null) {
+				changes.put(lower, col);
+			} else if (!k.type().equals(col.type()) && !MIXED.equals(k.type())) {
+				changes.put(lower, new Column(k.name(), MIXED));
+			}
+		});
+		if (changes.isEmpty()) return;
+
+		try {
+			Map<String, AttributeValue> latest = update(domain, changes);
+			cache.put(domain, new Cached(parse(latest), System.nanoTime()));
+		} catch (ResourceNotFoundException e) {
+			dynamoService.createTable(schemaTableName.trim());
+			Map<String, AttributeValue> latest = update(domain, changes);
+			cache.put(domain, new Cached(parse(latest), System.nanoTime()));
+		}
+		logger.info("Schema catalog for domain {} updated with {} column(s)", domain, changes.size());
+	}
+
+	/** Drops the cached copy so the next read goes to DynamoDB. */
+	public void invalidate(String domainName) {
+		cache.remove(key(domainName));
+	}
+
+	private Map<String, AttributeValue> update(String domain, Map<String, Column> changes) {
+		Map<String, AttributeValue> latest = Map.of();
+		List<Map.Entry<String, Column>> entries = new ArrayList<>(changes.entrySet());
+		for (int from = 0; from < entries.size(); from += MAX_COLUMNS_PER_UPDATE) {
+			List<Map.Entry<String, Column>> part = entries.subList(from,
+					Math.min(entries.size(), from + MAX_COLUMNS_PER_UPDATE));
+
+			StringBuilder expr = new StringBuilder("SET domain_name = :d, updated_date = :now");
+			Map<String, String> names = new HashMap<>();
+			Map<String, AttributeValue> values = new HashMap<>();
+			values.put(":d", AttributeValue.builder().s(domain).build());
+			values.put(":now", AttributeValue.builder().s(GeneralUtility.nowSgt()).build());
+			int i = 0;
+			for (Map.Entry<String, Column> e : part) {
+				// first casing wins; the type always reflects the latest merge
+				expr.append(", #n").append(i).append(" = if_not_exists(#n").append(i).append(", :n").append(i).append(')');
+				expr.append(", #t").append(i).append(" = :t").append(i);
+				names.put("#n" + i, NAME_PREFIX + e.getKey());
+				names.put("#t" + i, TYPE_PREFIX + e.getKey());
+				values.put(":n" + i, AttributeValue.builder().s(e.getValue().name()).build());
+				values.put(":t" + i, AttributeValue.builder().s(e.getValue().type()).build());
+				i++;
+			}
+
+			UpdateItemResponse resp = dynamoDbClient.updateItem(UpdateItemRequest.builder()
+					.tableName(schemaTableName.trim())
+					.key(Map.of("id", AttributeValue.builder().s(domain).build()))
+					.updateExpression(expr.toString())
+					.expressionAttributeNames(names)
+					.expressionAttributeValues(values)
+					.returnValues(ReturnValue.ALL_NEW)
+					.build());
+			if (resp != null && resp.hasAttributes()) latest = resp.attributes();
+		}
+		return latest;
+	}
+
+	private Map<String, Column> load(String domain) {
+		try {
+			GetItemResponse resp = dynamoDbClient.getItem(GetItemRequest.builder()
+					.tableName(schemaTableName.trim())
+					.key(Map.of("id", AttributeValue.builder().s(domain).build()))
+					.consistentRead(true)
+					.build());
+			if (resp == null || !resp.hasItem()) return Map.of();
+			return parse(resp.item());
+		} catch (ResourceNotFoundException e) {
+			// created on the first upload that records a column
+			return Map.of();
+		}
+	}
+
+	private static Map<String, Column> parse(Map<String, AttributeValue> item) {
+		Map<String, Column> columns = new HashMap<>();
+		item.forEach((attr, v) -> {
+			if (!attr.startsWith(NAME_PREFIX) || v.s() == null) return;
+			String lower = attr.substring(NAME_PREFIX.length());
+			AttributeValue t = item.get(TYPE_PREFIX + lower);
+			columns.put(lower, new Column(v.s(), (t == null || t.s() == null) ? "S" : t.s()));
+		});
+		return Collections.unmodifiableMap(columns);
+	}
+
+	private static String key(String domainName) {
+		return domainName.trim().toLowerCase(Locale.ROOT);
+	}
+}
@@ -1,23 +1,28 @@
 package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
 
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
 import java.math.BigDecimal;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import lombok.RequiredArgsConstructor;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.InsertionSummary;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.SchemaCatalogService.Column;
 import sg.edu.nus.iss.edgp.masterdata.management.utility.GeneralUtility;
 
 @RequiredArgsConstructor
 @Service
 public class StagingDataService {
 
-	private final DynamoDbClient dynamoDbClient;
+	private static final Logger logger = LoggerFactory.getLogger(StagingDataService.class);
+
+	private final BatchWriteService batchWriteService;
+	private final SchemaCatalogService schemaCatalogService;
 	
 	
 	public InsertionSummary insertToStaging(
@@ -28,88 +33,156 @@ public class StagingDataService {
 	        String domainName,
 	        String fileId,
 	        String uploadedBy
+	) {
+	    return insertToStaging(stagingTableName, rows.iterator(), organizationId, policyId, domainName, fileId,
+	            uploadedBy);
+	}
+
+	/** Receives row counts after every submitted batch. */
+	@FunctionalInterface
+	public interface ProgressListener {
+	    void onProgress(long rowsParsed, long rowsWritten);
+	}
+
+	/**
+	 * Streaming variant: rows are pulled one at a time and flushed in 25-item batches,
+	 * so the caller (e.g. the CSV row iterator) never has to materialize the whole upload.
+	 */
+	public InsertionSummary insertToStaging(
+	        String stagingTableName,
+	        Iterator<? extends Map<String, Object>> rows,
+	        String organizationId,
+	        String policyId,
+	        String domainName,
+	        String fileId,
+	        String uploadedBy
+	) {
+	    return insertToStaging(stagingTableName, rows, organizationId, policyId, domainName, fileId, uploadedBy,
+	            (parsed, written) -> { });
+	}
+
+	public InsertionSummary insertToStaging(
+	        String stagingTableName,
+	        Iterator<? extends Map<String, Object>> rows,
+	        String organizationId,
+	        String policyId,
+	        String domainName,
+	        String fileId,
+	        String uploadedBy,
+	        ProgressListener progress
+	) {
+	    return insertToStaging(stagingTableName, rows, organizationId, policyId, domainName, fileId, uploadedBy,
+	            progress, null);
+	}
+
+	/**
+	 * @param onStaged if not null, receives every staged item (with its generated id) in input order,
+	 *                 before the batch holding it is acknowledged
+	 */
+	public InsertionSummary insertToStaging(
+	        String stagingTableName,
+	        Iterator<? extends Map<String, Object>> rows,
+	        String organizationId,
+	        String policyId,
+	        String domainName,
+	        String fileId,
+	        String uploadedBy,
+	        ProgressListener progress,
+	        Consumer<Map<String, Object>> onStaged
 	) {
 	    Objects.requireNonNull(stagingTableName, "stagingTableName");
 	    if (domainName == null || domainName.isBlank()) {
 	        throw new IllegalArgumentException("domain_name is mandatory");
 	    }
 
-	    // Discover existing column names
-	    Set<String> existingKeys = getExistingAttributeKeys(stagingTableName);
-	    Map<String, String> existingByLower = new HashMap<>();
-	    for (String k : existingKeys) {
-	        existingByLower.put(k.toLowerCase(Locale.ROOT), k);
-	    }
+	    // Canonical column casing for this domain, served from the cached schema catalog
+	    Map<String, String> existingByLower = schemaCatalogService.canonicalNames(domainName);
+	    Map<String, Column> observed = new HashMap<>();
 
 	    List<Map<String, Object>> top50Preview = new ArrayList<>(50);
 	    int total = 0;
 
 	    final int MAX_BATCH = 25;
 	    List<WriteRequest> batch = new ArrayList<>(MAX_BATCH);
+	    BatchWriteService.Pipeline writer = batchWriteService.open(stagingTableName);
 
-	    for (Map<String, Object> src : rows) {
-	        Map<String, AttributeValue> item = new LinkedHashMap<>();
-
-	        // ️Case-insensitive matching to existing keys
-	        for (var e : src.entrySet()) {
-	            String rawKey = safeKey(e.getKey());
-	            if (rawKey.isEmpty() || "id".equalsIgnoreCase(rawKey)) continue;
-	            Object val = e.getValue();
-	            if (val == null) continue;
-
-	            // If this key already exists in DynamoDB (any case), use the existing casing
-	            String lower = rawKey.toLowerCase(Locale.ROOT);
-	            String canonicalKey = existingByLower.getOrDefault(lower, rawKey);
+	    try {
+	        while (rows.hasNext()) {
+	            Map<String, Object> src = rows.next();
+	            Map<String, AttributeValue> item = new LinkedHashMap<>();
+
+	            // ️Case-insensitive matching to existing keys
+	            for (var e : src.entrySet()) {
+	                String rawKey = safeKey(e.getKey());
+	                if (rawKey.isEmpty() || "id".equalsIgnoreCase(rawKey)) continue;
+	                Object val = e.getValue();
+	                if (val == null) continue;
+
+	                // If this key is already catalogued (any case), use the existing casing;
+	                // otherwise the first casing seen in this upload becomes canonical
+	                String lower = rawKey.toLowerCase(Locale.ROOT);
+	                String canonicalKey = existingByLower.computeIfAbsent(lower, k -> rawKey);
+
+	                AttributeValue av = toAttr(val);
+	                if (av == null) continue;
+	                item.put(canonicalKey, av);
+	                observe(observed, lower, canonicalKey, av);
+	            }
 
-	            AttributeValue av = toAttr(val);
-	            if (av != null) item.put(canonicalKey, av);
+	            //️ System fields (always canonical lowercase)
+	            String id = UUID.randomUUID().toString();
+	            putS(item, "id", id);
+	            putS(item, "organization_id", trimOrEmpty(organizationId));
+	            putS(item, "policy_id", trimOrEmpty(policyId));
+	            putS(item, "domain_name", domainName.trim().toLowerCase());
+	            putS(item, "file_id", trimOrEmpty(fileId));
+	            putS(item, "uploaded_by", trimOrEmpty(uploadedBy));
+	            putS(item, "uploaded_date", GeneralUtility.nowSgt());
+	            putN(item, "is_processed", "0");
+	            putN(item, "is_handled", "0");
+
+	            if (top50Preview.size() < 50) top50Preview.add(toPlainMap(item));
+	            if (onStaged != null) onStaged.accept(toPlainMap(item));
+
+	            batch.add(WriteRequest.builder()
+	                    .putRequest(PutRequest.builder().item(item).build())
+	                    .build());
+
+	            total++;
+	            if (batch.size() == MAX_BATCH) {
+	                writer.submit(batch);
+	                batch.clear();
+	                progress.onProgress(total, writer.written());
+	            }
 	        }
 
-	        //️ System fields (always canonical lowercase)
-	        String id = UUID.randomUUID().toString();
-	        putS(item, "id", id);
-	        putS(item, "organization_id", trimOrEmpty(organizationId));
-	        putS(item, "policy_id", trimOrEmpty(policyId));
-	        putS(item, "domain_name", domainName.trim().toLowerCase());
-	        putS(item, "file_id", trimOrEmpty(fileId));
-	        putS(item, "uploaded_by", trimOrEmpty(uploadedBy));
-	        putS(item, "uploaded_date", GeneralUtility.nowSgt());
-	        putN(item, "is_processed", "0");
-	        putN(item, "is_handled", "0");
-
-	        if (top50Preview.size() < 50) top50Preview.add(toPlainMap(item));
-
-	        batch.add(WriteRequest.builder()
-	                .putRequest(PutRequest.builder().item(item).build())
-	                .build());
-
-	        if (batch.size() == MAX_BATCH) {
-	            flushBatchWithRetry(dynamoDbClient, stagingTableName, batch);
-	            batch.clear();
-	        }
-	        total++;
+	        if (!batch.isEmpty()) writer.submit(batch);
+	    } catch (RuntimeException e) {
+	        // e.g. a malformed CSV row: let the batches already running finish before reporting
+	        writer.abort(e);
+	        throw e;
+	    }
+	    writer.awaitAll();
+	    progress.onProgress(total, writer.written());
+	    try {
+	        schemaCatalogService.record(domainName, observed);
+	    } catch (Exception e) {
+	        // every row is already committed; the catalog catches up on the next upload of this domain
+	        logger.warn("Unable to update schema catalog for domain {}: {}", domainName, e.toString());
+	        schemaCatalogService.invalidate(domainName);
 	    }
-
-	    if (!batch.isEmpty()) flushBatchWithRetry(dynamoDbClient, stagingTableName, batch);
 
 	    return new InsertionSummary(total, top50Preview);
 	}
 
-	private Set<String> getExistingAttributeKeys(String tableName) {
-	    Set<String> keys = new HashSet<>();
-	    try {
-	        ScanRequest scanReq = ScanRequest.builder()
-	                .tableName(tableName)
-	                .limit(1)
-	                .build();
-	        ScanResponse res = dynamoDbClient.scan(scanReq);
-	        if (!res.items().isEmpty()) {
-	            keys.addAll(res.items().get(0).keySet());
-	        }
-	    } catch (Exception e) {
-	        // fallback to empty (new table)
+	private static void observe(Map<String, Column> observed, String lower, String name, AttributeValue av) {
+	    String type = av.type().name();
+	    Column seen = observed.get(lower);
+	    if (seen == null) {
+	        observed.put(lower, new Column(name, type));
+	    } else if (!seen.type().equals(type) && !SchemaCatalogService.MIXED.equals(seen.type())) {
+	        observed.put(lower, new Column(name, SchemaCatalogService.MIXED));
 	    }
-	    return keys;
 	}
 
 
@@ -166,12 +239,9 @@ public class StagingDataService {
 	            return AttributeValue.builder().bool(Boolean.parseBoolean(s)).build();
 	        }
 	       
-	        try {
-	            if (s.matches("^[+-]?\\d*(\\.\\d+)?([eE][+-]?\\d+)?$")) {
-	                new BigDecimal(s); // validate
-	                return AttributeValue.builder().n(s).build();
-	            }
-	        } catch (NumberFormatException ignore) {}
+	        if (GeneralUtility.isNumeric(s)) {
+	            return AttributeValue.builder().n(s).build();
+	        }
 	        
 	        return AttributeValue.builder().s(s).build();
 	    } else if (v instanceof Integer i) {
@@ -204,32 +274,6 @@ public class StagingDataService {
 	    return AttributeValue.builder().s(v.toString()).build();
 	}
 
-	private void flushBatchWithRetry(DynamoDbClient ddb, String table, List<WriteRequest> wrs) {
-	    Map<String, List<WriteRequest>> req = new HashMap<>();
-	    req.put(table, new ArrayList<>(wrs));
-
-	    BatchWriteItemResponse resp = ddb.batchWriteItem(
-	            BatchWriteItemRequest.builder().requestItems(req).build()
-	    );
-	    Map<String, List<WriteRequest>> unprocessed = resp.unprocessedItems();
-
-	    int attempt = 0;
-	    while (unprocessed != null && !unprocessed.isEmpty()) {
-	        int base = (int) Math.min(1000L * (1L << Math.min(attempt, 3)), 8000L);
-	        int sleep = ThreadLocalRandom.current().nextInt(base / 2, base);
-	        try { Thread.sleep(sleep); } catch (InterruptedException ignored) {}
-
-	        // rebuild request each retry
-	        BatchWriteItemRequest retryReq = BatchWriteItemRequest.builder()
-	                .requestItems(unprocessed)
-	                .build();
-	        resp = ddb.batchWriteItem(retryReq);
-
-	        unprocessed = resp.unprocessedItems();
-	        attempt++;
-	    }
-	}
-	
 	private Map<String, Object> toPlainMap(Map<String, AttributeValue> item) {
         Map<String, Object> m = new LinkedHashMap<>();
         item.forEach((k, v) -> {
@@ -0,0 +1,309 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import sg.edu.nus.iss.edgp.masterdata.management.dto.InsertionSummary;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.UploadJobState;
+import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
+import sg.edu.nus.iss.edgp.masterdata.management.jwt.JWTService;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.UploadRequest;
+import sg.edu.nus.iss.edgp.masterdata.management.utility.CSVParser;
+
+/**
+ * Runs CSV uploads in the background.
+ * The request thread spools the file to local disk, saves the header as
+ * {@link FileProcessStage#UPLOADING} and returns; a bounded pool then streams the rows
+ * into staging and records progress on the header. The header only moves to
+ * {@link FileProcessStage#UNPROCESSED} once every row is written, so the dispatcher
+ * never picks up a partial file.
+ * While a job is queued or running on this pod, its header's {@code updated_date} is refreshed
+ * every minute; a status read that finds a queued or running job silent for longer than
+ * {@code upload.job.stale.seconds} (its pod died or restarted) marks it failed.
+ */
+@RequiredArgsConstructor
+@Service
+public class UploadJobService {
+
+	@Value("${aws.dynamodb.table.master.data.header}")
+	private String headerTableName;
+
+	@Value("${aws.dynamodb.table.master.data.staging}")
+	private String stagingTableName;
+
+	@Value("${upload.async.threads:2}")
+	private int threads = 2;
+
+	@Value("${upload.async.queue.capacity:8}")
+	private int queueCapacity = 8;
+
+	@Value("${upload.async.progress.interval.ms:2000}")
+	private long progressIntervalMs = 2000;
+
+	@Value("${upload.job.stale.seconds:600}")
+	private long staleSeconds = 600;
+
+	private static final Logger logger = LoggerFactory.getLogger(UploadJobService.class);
+
+	private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+	private static final ZoneId SGT = ZoneId.of("Asia/Singapore");
+
+	private final JWTService jwtService;
+	private final DynamicDetailService dynamoService;
+	private final HeaderService headerService;
+	private final StagingDataService stagingDataService;
+
+	private volatile ThreadPoolExecutor executor;
+	// uploads queued or running on this pod, kept alive by heartbeat()
+	private final Set<String> active = ConcurrentHashMap.newKeySet();
+
+	/** Opens the CSV bytes of a queued upload; called once, on the worker thread. */
+	@FunctionalInterface
+	public interface UploadSource {
+		InputStream open() throws IOException;
+	}
+
+	/**
+	 * Accepts a multipart upload for background ingest and returns its file id.
+	 * @throws MasterdataServiceException caused by {@link RejectedExecutionException} when the queue is full
+	 */
+	public String submit(MultipartFile file, UploadRequest uploadReq, String authorizationHeader) {
+		Path spool;
+		try {
+			spool = Files.createTempFile("mdm-upload-", ".csv");
+			file.transferTo(spool);
+		} catch (IOException e) {
+			throw new MasterdataServiceException("Unable to buffer upload: " + e.getMessage(), e);
+		}
+		try {
+			return submit(file.getOriginalFilename(), uploadReq, authorizationHeader,
+					() -> Files.newInputStream(spool), () -> deleteQuietly(spool));
+		} catch (RuntimeException e) {
+			deleteQuietly(spool);
+			throw e;
+		}
+	}
+
+	/**
+	 * Accepts an upload whose bytes are already on local disk.
+	 * {@code cleanup} runs once the job has finished; if this method throws, the caller keeps the source.
+	 */
+	public String submit(String fileName, UploadRequest uploadReq, String authorizationHeader, UploadSource source,
+			Runnable cleanup) {
+		String fileId = UUID.randomUUID().toString();
+		try {
+			String jwtToken = authorizationHeader.substring(7);
+			String uploadedBy = jwtService.extractUserEmailFromToken(jwtToken);
+			String orgId = jwtService.extractOrgIdFromToken(jwtToken);
+
+			MasterDataHeader header = new MasterDataHeader();
+			header.setId(fileId);
+			header.setFileName(fileName.trim().toLowerCase());
+			header.setDomainName(uploadReq.getDomainName().trim().toLowerCase());
+			header.setOrganizationId(orgId.trim());
+			header.setPolicyId(uploadReq.getPolicyId().trim());
+			header.setUploadedBy(uploadedBy);
+			header.setProcessStage(FileProcessStage.UPLOADING);
+			header.setUploadState(UploadJobState.QUEUED);
+
+			ensureTable(headerTableName.trim());
+			ensureTable(stagingTableName.trim());
+			headerService.saveHeader(headerTableName.trim(), header);
+
+			active.add(fileId);
+			executor().execute(() -> {
+				try {
+					run(source, fileId, orgId, uploadReq, uploadedBy);
+				} finally {
+					active.remove(fileId);
+					cleanup.run();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			active.remove(fileId);
+			headerService.failUpload(fileId, "Rejected: upload queue is full");
+			throw new MasterdataServiceException("Too many uploads in progress. Please retry later.", e);
+		}
+		return fileId;
+	}
+
+	/** Progress of one of the caller's uploads; empty if missing or uploaded by someone else. */
+	public Optional<MasterDataHeader> getProgress(String fileId, String authorizationHeader) {
+		String uploadedBy = jwtService.extractUserEmailFromToken(authorizationHeader.substring(7)).trim();
+		return headerService.findById(fileId)
+				.filter(header -> uploadedBy.equalsIgnoreCase(header.getUploadedBy().trim()))
+				.map(this::failIfStale);
+	}
+
+	/** Keeps the headers of this pod's queued and running uploads fresh, so they are never taken for stale. */
+	@Scheduled(fixedDelayString = "PT1M")
+	public void heartbeat() {
+		for (String fileId : active) {
+			try {
+				headerService.heartbeatUpload(fileId);
+			} catch (Exception e) {
+				logger.warn("Unable to record heartbeat for upload {}: {}", fileId, e.toString());
+			}
+		}
+	}
+
+	private MasterDataHeader failIfStale(MasterDataHeader header) {
+		UploadJobState state = header.getUploadState();
+		if (state != UploadJobState.QUEUED && state != UploadJobState.RUNNING) return header;
+		String updated = header.getUpdated_date() == null ? "" : header.getUpdated_date();
+		// a job that never started still carries the empty updated_date it was saved with
+		String lastSeen = updated.isBlank() ? header.getUploadDate() : updated;
+		if (!isOlderThan(lastSeen, staleSeconds)) return header;
+
+		String error = "Upload stalled: no progress since " + lastSeen;
+		if (!headerService.failStaleUpload(header.getId(), updated, error)) {
+			// moved on since it was read; report what it is now
+			return headerService.findById(header.getId()).orElse(header);
+		}
+		logger.warn("Upload {} marked failed: no progress since {}", header.getId(), lastSeen);
+		header.setUploadState(UploadJobState.FAILED);
+		header.setUploadError(error);
+		return header;
+	}
+
+	private static boolean isOlderThan(String sgtTimestamp, long seconds) {
+		if (sgtTimestamp == null || sgtTimestamp.isBlank()) return false;
+		try {
+			LocalDateTime at = LocalDateTime.parse(sgtTimestamp.trim(), TIMESTAMP);
+			return at.isBefore(LocalDateTime.now(SGT).minusSeconds(Math.max(1, seconds)));
+		} catch (DateTimeParseException e) {
+			return false;
+		}
+	}
+
+	void run(UploadSource source, String fileId, String orgId, UploadRequest uploadReq, String uploadedBy) {
+		long start = System.nanoTime();
+		ProgressReporter reporter = new ProgressReporter(fileId, start);
+		try (InputStream in = source.open();
+				CSVParser.CsvRowIterator rows = CSVParser.streamCsvObjects(in)) {
+			if (!rows.hasNext()) {
+				headerService.failUpload(fileId, "CSV is empty.");
+				return;
+			}
+			headerService.updateUploadProgress(fileId, UploadJobState.RUNNING, 0, 0, 0, 0);
+
+			InsertionSummary summary = stagingDataService.insertToStaging(stagingTableName.trim(), rows, orgId,
+					uploadReq.getPolicyId(), uploadReq.getDomainName(), fileId, uploadedBy, reporter);
+
+			long total = summary.totalInserted();
+			headerService.completeUpload(fileId, total, total - reporter.staged, rowsPerSecond(total, start));
+			logger.info("Async upload {} finished: {} rows in {} ms", fileId, total,
+					(System.nanoTime() - start) / 1_000_000);
+		} catch (Exception e) {
+			logger.error("Async upload {} failed: {}", fileId, e.toString());
+			try {
+				headerService.failUpload(fileId, e.getMessage());
+			} catch (Exception ex) {
+				logger.error("Unable to record failure for upload {}: {}", fileId, ex.toString());
+			}
+		}
+	}
+
+	/** Writes progress to the header at most once per {@code progressIntervalMs}. */
+	private final class ProgressReporter implements StagingDataService.ProgressListener {
+
+		private final String fileId;
+		private final long start;
+		private long lastReportNanos;
+		// rows already added to the header's staged counter
+		private long staged;
+
+		ProgressReporter(String fileId, long start) {
+			this.fileId = fileId;
+			this.start = start;
+			this.lastReportNanos = start;
+		}
+
+		@Override
+		public void onProgress(long rowsParsed, long rowsWritten) {
+			long now = System.nanoTime();
+			if (now - lastReportNanos < TimeUnit.MILLISECONDS.toNanos(progressIntervalMs)) return;
+			lastReportNanos = now;
+			try {
+				headerService.updateUploadProgress(fileId, UploadJobState.RUNNING, rowsParsed, rowsWritten,
+						rowsWritten - staged, rowsPerSecond(rowsWritten, start));
+				staged = rowsWritten;
+			} catch (Exception e) {
+				// progress is best-effort; the ingest itself carries on
+				logger.warn("Unable to record progress for upload {}: {}", fileId, e.toString());
+			}
+		}
+	}
+
+	private static long rowsPerSecond(long rows, long startNanos) {
+		long elapsedMs = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+		return rows * 1000 / elapsedMs;
+	}
+
+	private void ensureTable(String tableName) {
+		if (!dynamoService.tableExists(tableName)) {
+			dynamoService.createTable(tableName);
+		}
+	}
+
+	private static void deleteQuietly(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			logger.warn("Unable to delete spooled upload {}: {}", path, e.toString());
+		}
+	}
+
+	private ThreadPoolExecutor executor() {
+		ThreadPoolExecutor ex = executor;
+		if (ex == null) {
+			synchronized (this) {
+				ex = executor;
+				if (ex == null) {
+					AtomicInteger seq = new AtomicInteger();
+					int size = Math.max(1, threads);
+					ex = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+							new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+								Thread t = new Thread(r, "mdm-upload-" + seq.incrementAndGet());
+								t.setDaemon(true);
+								return t;
+							}, new ThreadPoolExecutor.AbortPolicy());
+					executor = ex;
+				}
+			}
+		}
+		return ex;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		ThreadPoolExecutor ex = executor;
+		if (ex != null) ex.shutdown();
+	}
+}
@@ -0,0 +1,136 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service.impl;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+
+/**
+ * Process-wide token bucket for DynamoDB writes, measured in write capacity units per second.
+ * The rate adapts AIMD-style:
+ * - throttling or unprocessed items cut the rate in proportion to the rejected share;
+ * - every clean second in which writers waited for tokens, or used at least 90% of the rate,
+ *   raises it by 10%, up to the configured ceiling; idle seconds leave it unchanged, so a quiet
+ *   period never builds up a rate that was not proven against the table.
+ * Token debt is settled with the ConsumedCapacity reported by each call, so large items
+ * cost what DynamoDB actually charged rather than the one-unit-per-item estimate.
+ */
+@Service
+public class WriteRateLimiter {
+
+	@Value("${aws.dynamodb.write.rate.initial:1000}")
+	private double initialRate = 1000;
+
+	@Value("${aws.dynamodb.write.rate.min:25}")
+	private double minRate = 25;
+
+	@Value("${aws.dynamodb.write.rate.max:40000}")
+	private double maxRate = 40000;
+
+	private static final Logger logger = LoggerFactory.getLogger(WriteRateLimiter.class);
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private static final double BUSY_SHARE = 0.9;
+
+	private double rate = -1;
+	private double tokens;
+	private long lastRefillNanos = System.nanoTime();
+	private long lastAdjustNanos = lastRefillNanos;
+	// demand seen since lastAdjustNanos
+	private double unitsSinceAdjust;
+	private boolean waitedSinceAdjust;
+
+	/** Blocks until {@code units} write capacity units are available. */
+	public void acquire(int units) {
+		long waitNanos = reserve(units);
+		if (waitNanos <= 0) return;
+		try {
+			Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MasterdataServiceException("Interrupted while waiting for DynamoDB write capacity");
+		}
+	}
+
+	/**
+	 * Feeds the outcome of one write call back into the limiter.
+	 * @param estimatedUnits units passed to {@link #acquire(int)} for the call
+	 * @param consumed       capacity reported by DynamoDB (may be null or empty)
+	 * @param requestedItems items sent
+	 * @param rejectedItems  items returned as unprocessed
+	 */
+	public synchronized void record(int estimatedUnits, List<ConsumedCapacity> consumed, int requestedItems,
+			int rejectedItems) {
+		double actual = totalUnits(consumed);
+		if (actual > 0) {
+			tokens -= (actual - estimatedUnits); // settle the estimate
+		}
+
+		long now = System.nanoTime();
+		if (requestedItems > 0 && rejectedItems > 0) {
+			decrease((double) rejectedItems / requestedItems, now);
+		} else if (now - lastAdjustNanos >= NANOS_PER_SECOND) {
+			double elapsedSeconds = (double) (now - lastAdjustNanos) / NANOS_PER_SECOND;
+			if (waitedSinceAdjust || unitsSinceAdjust >= BUSY_SHARE * currentRate() * elapsedSeconds) {
+				rate = Math.min(maxRate, currentRate() * 1.1);
+			}
+			resetDemand(now);
+		}
+	}
+
+	/** Called when DynamoDB rejects a write with a throttling error. */
+	public synchronized void onThrottled() {
+		decrease(1.0, System.nanoTime());
+	}
+
+	public synchronized double currentRate() {
+		if (rate < 0) {
+			rate = Math.max(minRate, Math.min(maxRate, initialRate));
+			tokens = rate;
+		}
+		return rate;
+	}
+
+	private synchronized long reserve(int units) {
+		double r = currentRate();
+		long now = System.nanoTime();
+		tokens = Math.min(r, tokens + (now - lastRefillNanos) * r / NANOS_PER_SECOND);
+		lastRefillNanos = now;
+		tokens -= units;
+		unitsSinceAdjust += units;
+		if (tokens >= 0) return 0;
+		waitedSinceAdjust = true;
+		return (long) (-tokens / r * NANOS_PER_SECOND);
+	}
+
+	private void resetDemand(long now) {
+		lastAdjustNanos = now;
+		unitsSinceAdjust = 0;
+		waitedSinceAdjust = false;
+	}
+
+	private void decrease(double rejectedShare, long now) {
+		double before = currentRate();
+		double factor = 1.0 - 0.5 * Math.min(1.0, rejectedShare);
+		rate = Math.max(minRate, before * factor);
+		tokens = Math.min(tokens, 0);
+		resetDemand(now);
+		logger.info("DynamoDB write rate lowered from {} to {} WCU/s ({}% rejected)", Math.round(before),
+				Math.round(rate), Math.round(rejectedShare * 100));
+	}
+
+	private static double totalUnits(List<ConsumedCapacity> consumed) {
+		if (consumed == null) return 0;
+		double sum = 0;
+		for (ConsumedCapacity c : consumed) {
+			if (c != null && c.capacityUnits() != null) sum += c.capacityUnits();
+		}
+		return sum;
+	}
+}
@@ -1,14 +1,22 @@
 package sg.edu.nus.iss.edgp.masterdata.management.utility;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
 
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
@@ -20,83 +28,158 @@ import java.time.*;
 @Component
 public class CSVParser {
 
+    /** Rows read ahead to infer each column's type before the first row is returned. */
+    static final int TYPE_SAMPLE_ROWS = 100;
+
+    private static final int DECOMPRESS_BUFFER_SIZE = 64 * 1024;
+
+    private static final ZoneId SGT = ZoneId.of("Asia/Singapore");
+    private static final int[] ISO_DATE_DIGIT_POSITIONS = { 0, 1, 2, 3, 5, 6, 8, 9 };
+
     /** Entry point: parse a MultipartFile into JSON-native rows. */
     public static List<LinkedHashMap<String, Object>> parseCsvObjects(MultipartFile file) throws IOException {
         List<LinkedHashMap<String, Object>> result = new ArrayList<>();
-        if (file == null || file.isEmpty()) return result;
+        try (CsvRowIterator rows = streamCsvObjects(file)) {
+            rows.forEachRemaining(result::add);
+        }
+        return result;
+    }
 
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+    /**
+     * Streaming entry point: rows are read and cast lazily while the caller iterates,
+     * so only the current row is held in memory. The caller must close the iterator.
+     */
+    public static CsvRowIterator streamCsvObjects(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) return CsvRowIterator.empty();
+        return streamCsvObjects(file.getInputStream());
+    }
 
-            String headerLine = reader.readLine();
-            if (headerLine == null) return result;
+    /** Accepts plain or gzip-compressed UTF-8; the format is detected from the first bytes. */
+    public static CsvRowIterator streamCsvObjects(InputStream in) throws IOException {
+        if (in == null) return CsvRowIterator.empty();
+        return CsvRowIterator.open(new CSVTokenizer(new InputStreamReader(decompress(in), StandardCharsets.UTF_8)));
+    }
 
-            // Strip BOM if present
-            if (!headerLine.isEmpty() && headerLine.charAt(0) == '\uFEFF') {
-                headerLine = headerLine.substring(1);
-            }
+    /**
+     * Wraps gzip input in a streaming inflater; anything else is passed through.
+     * Zstandard frames are recognised so the caller gets a clear error instead of garbage columns.
+     */
+    static InputStream decompress(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, DECOMPRESS_BUFFER_SIZE);
+        buffered.mark(4);
+        byte[] magic = buffered.readNBytes(4);
+        buffered.reset();
 
-            List<String> rawHeaders = parseCsvLine(headerLine);
-            List<String> headers = ensureUniqueHeaders(rawHeaders.stream()
-                    .map(CSVParser::normalizeHeader)
-                    .toList());
+        if (magic.length >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) {
+            return new GZIPInputStream(buffered, DECOMPRESS_BUFFER_SIZE);
+        }
+        if (magic.length == 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5
+                && (magic[2] & 0xFF) == 0x2F && (magic[3] & 0xFF) == 0xFD) {
+            throw new IOException("Zstandard-compressed CSV is not supported; upload plain or gzip (.csv.gz) instead.");
+        }
+        return buffered;
+    }
+
+    /* ---------------- Row iterator ---------------- */
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.isBlank()) continue;
+    public static final class CsvRowIterator implements Iterator<LinkedHashMap<String, Object>>, Closeable {
 
-                List<String> values = parseCsvLine(line);
-                LinkedHashMap<String, Object> row = new LinkedHashMap<>();
+        private final CSVTokenizer tokenizer;
+        private final List<String> headers;
+        private final Deque<List<String>> sample;
+        private final ColumnType[] types;
+        private LinkedHashMap<String, Object> next;
 
-                for (int i = 0; i < headers.size(); i++) {
-                    String key = headers.get(i);
-                    String raw = i < values.size() ? unquote(values.get(i)).trim() : "";
-                    Object casted = smartCast(raw);
-                    if (key != null && !key.isEmpty()) {
-                        row.put(key, casted);
-                    }
+        private CsvRowIterator(CSVTokenizer tokenizer, List<String> headers, Deque<List<String>> sample) {
+            this.tokenizer = tokenizer;
+            this.headers = headers;
+            this.sample = sample;
+            this.types = inferColumnTypes(headers.size(), sample);
+        }
+
+        static CsvRowIterator open(CSVTokenizer tokenizer) throws IOException {
+            try {
+                List<String> headers = readHeaders(tokenizer);
+                Deque<List<String>> sample = new ArrayDeque<>();
+                List<String> values;
+                while (!headers.isEmpty() && sample.size() < TYPE_SAMPLE_ROWS
+                        && (values = tokenizer.nextRecord()) != null) {
+                    if (!isBlankRecord(values)) sample.add(List.copyOf(values));
                 }
-                result.add(row);
+                return new CsvRowIterator(tokenizer, headers, sample);
+            } catch (IOException | RuntimeException e) {
+                tokenizer.close();
+                throw e;
             }
         }
-        return result;
-    }
 
-    /* ---------------- CSV line parsing ---------------- */
+        static CsvRowIterator empty() {
+            return new CsvRowIterator(null, List.of(), new ArrayDeque<>());
+        }
+
+        public List<String> getHeaders() {
+            return headers;
+        }
 
-    private static List<String> parseCsvLine(String line) {
-        List<String> fields = new ArrayList<>();
-        StringBuilder sb = new StringBuilder();
-        boolean inQuotes = false;
+        @Override
+        public boolean hasNext() {
+            if (next != null) return true;
+            if (!sample.isEmpty()) {
+                next = toRow(sample.poll());
+                return true;
+            }
+            if (tokenizer == null || headers.isEmpty()) return false;
+            try {
+                List<String> values;
+                while ((values = tokenizer.nextRecord()) != null) {
+                    if (isBlankRecord(values)) continue;
+                    next = toRow(values);
+                    return true;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return false;
+        }
 
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
+        @Override
+        public LinkedHashMap<String, Object> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            LinkedHashMap<String, Object> row = next;
+            next = null;
+            return row;
+        }
 
-            if (c == '"') {
-                if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
-                    sb.append('"'); // escaped quote
-                    i++;
-                } else {
-                    inQuotes = !inQuotes;
+        @Override
+        public void close() throws IOException {
+            if (tokenizer != null) tokenizer.close();
+        }
+
+        private LinkedHashMap<String, Object> toRow(List<String> values) {
+            LinkedHashMap<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < headers.size(); i++) {
+                String key = headers.get(i);
+                String raw = i < values.size() ? values.get(i) : "";
+                Object casted = castCell(types[i], raw);
+                if (key != null && !key.isEmpty()) {
+                    row.put(key, casted);
                 }
-            } else if (c == ',' && !inQuotes) {
-                fields.add(sb.toString());
-                sb.setLength(0);
-            } else {
-                sb.append(c);
             }
+            return row;
         }
-        fields.add(sb.toString());
-        return fields;
-    }
 
-    private static String unquote(String s) {
-        if (s == null) return null;
-        String t = s;
-        if (t.length() >= 2 && t.startsWith("\"") && t.endsWith("\"")) {
-            t = t.substring(1, t.length() - 1);
+        private static List<String> readHeaders(CSVTokenizer tokenizer) throws IOException {
+            List<String> rawHeaders = tokenizer.nextRecord();
+            if (rawHeaders == null) return List.of();
+
+            return ensureUniqueHeaders(rawHeaders.stream()
+                    .map(CSVParser::normalizeHeader)
+                    .toList());
+        }
+
+        private static boolean isBlankRecord(List<String> values) {
+            return values.size() == 1 && values.get(0).isBlank();
         }
-        return t.replace("\"\"", "\"");
     }
 
    
@@ -121,6 +204,74 @@ public class CSVParser {
         return out;
     }
 
+    /* ---------------- Type inference ---------------- */
+
+    /**
+     * Column types inferred from the sample. Each type has an exception-free fast path;
+     * a value that does not fit its column's type falls back to {@link #smartCast(String)},
+     * so the result is always the same as casting the cell on its own.
+     */
+    enum ColumnType {
+        STRING, BOOLEAN, NUMBER, LOCAL_DATE, LOCAL_DATE_TIME, ZONED_DATE_TIME;
+
+        /** Returns the cast value, or null when s does not fit this type. */
+        Object cast(String s) {
+            switch (this) {
+            case BOOLEAN:
+                return isBoolean(s) ? Boolean.parseBoolean(s) : null;
+            case NUMBER:
+                return GeneralUtility.isNumeric(s) ? toBigDecimal(s) : null;
+            case LOCAL_DATE:
+                return looksLikeIsoDate(s) && s.length() == 10 ? parseLocalDate(s) : null;
+            case LOCAL_DATE_TIME:
+                return looksLikeIsoDate(s) && s.length() > 10 ? parseLocalDateTime(s) : null;
+            case ZONED_DATE_TIME:
+                return looksLikeIsoDate(s) && s.length() > 10 ? parseZonedDateTime(s) : null;
+            default:
+                return null;
+            }
+        }
+    }
+
+    static ColumnType[] inferColumnTypes(int columns, Iterable<List<String>> sample) {
+        ColumnType[] types = new ColumnType[columns];
+        for (int i = 0; i < columns; i++) {
+            ColumnType type = null;
+            for (List<String> values : sample) {
+                String s = i < values.size() ? values.get(i).trim() : "";
+                if (s.isEmpty()) continue;
+                ColumnType detected = detectType(s);
+                if (type == null) {
+                    type = detected;
+                } else if (type != detected) {
+                    type = ColumnType.STRING;
+                    break;
+                }
+            }
+            types[i] = (type == null) ? ColumnType.STRING : type;
+        }
+        return types;
+    }
+
+    static Object castCell(ColumnType type, String v) {
+        if (v == null) return null;
+        String s = v.trim();
+        if (s.isEmpty()) return "";
+        Object casted = type.cast(s);
+        return (casted != null) ? casted : smartCast(s);
+    }
+
+    private static ColumnType detectType(String s) {
+        if (isBoolean(s)) return ColumnType.BOOLEAN;
+        if (GeneralUtility.isNumeric(s) && toBigDecimal(s) != null) return ColumnType.NUMBER;
+        if (looksLikeIsoDate(s)) {
+            if (s.length() == 10 && parseLocalDate(s) != null) return ColumnType.LOCAL_DATE;
+            if (parseZonedDateTime(s) != null) return ColumnType.ZONED_DATE_TIME;
+            if (parseLocalDateTime(s) != null) return ColumnType.LOCAL_DATE_TIME;
+        }
+        return ColumnType.STRING;
+    }
+
     private static Object smartCast(String v) {
         if (v == null) return null;
         String s = v.trim();
@@ -128,15 +279,14 @@ public class CSVParser {
         if (s.isEmpty()) return "";
 
         // boolean
-        if (s.equalsIgnoreCase("true") || s.equalsIgnoreCase("false")) {
+        if (isBoolean(s)) {
             return Boolean.parseBoolean(s);
         }
 
         // number (integer/decimal/scientific, with optional sign)
-        if (s.matches("^[+-]?\\d*(?:\\.\\d+)?(?:[eE][+-]?\\d+)?$")) {
-            try {
-                return new BigDecimal(s);
-            } catch (NumberFormatException ignore) {}
+        if (GeneralUtility.isNumeric(s)) {
+            BigDecimal n = toBigDecimal(s);
+            if (n != null) return n;
         }
 
         // date/time (normalize to ISO-8601 UTC string if recognized)
@@ -147,18 +297,57 @@ public class CSVParser {
         return s;
     }
 
+    private static boolean isBoolean(String s) {
+        return s.equalsIgnoreCase("true") || s.equalsIgnoreCase("false");
+    }
+
+    private static BigDecimal toBigDecimal(String s) {
+        try {
+            return new BigDecimal(s);
+        } catch (NumberFormatException ignore) {
+            return null;
+        }
+    }
+
+    /** Cheap shape check (yyyy-MM-dd prefix) so plain strings never reach the java.time parsers. */
+    private static boolean looksLikeIsoDate(String s) {
+        if (s.length() < 10 || s.charAt(4) != '-' || s.charAt(7) != '-') return false;
+        for (int i : ISO_DATE_DIGIT_POSITIONS) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
     private static String tryIsoNormalize(String s) {
+        if (!looksLikeIsoDate(s)) return null;
+        if (s.length() == 10) return parseLocalDate(s);
+        String zoned = parseZonedDateTime(s);
+        return (zoned != null) ? zoned : parseLocalDateTime(s);
+    }
+
+    /** Values carrying an offset or zone; normalized to a UTC instant. */
+    private static String parseZonedDateTime(String s) {
         try { return Instant.parse(s).toString(); } catch (Exception ignored) {}
         try { return OffsetDateTime.parse(s).toInstant().toString(); } catch (Exception ignored) {}
         try { return ZonedDateTime.parse(s).toInstant().toString(); } catch (Exception ignored) {}
+        return null;
+    }
+
+    private static String parseLocalDateTime(String s) {
         try {
             // Assume Asia/Singapore for naive LocalDateTime, convert to UTC
-            LocalDateTime ldt = LocalDateTime.parse(s);
-            ZoneId sgt = ZoneId.of("Asia/Singapore");
-            return ldt.atZone(sgt).toInstant().toString();
-        } catch (Exception ignored) {}
-        try { return LocalDate.parse(s).toString(); } catch (Exception ignored) {}
-        return null;
+            return LocalDateTime.parse(s).atZone(SGT).toInstant().toString();
+        } catch (Exception ignored) {
+            return null;
+        }
     }
-}
 
+    private static String parseLocalDate(String s) {
+        try {
+            return LocalDate.parse(s).toString();
+        } catch (Exception ignored) {
+            return null;
+        }
+    }
+}
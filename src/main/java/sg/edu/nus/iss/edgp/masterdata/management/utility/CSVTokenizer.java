@@ -0,0 +1,158 @@
+package sg.edu.nus.iss.edgp.masterdata.management.utility;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RFC 4180 record tokenizer working directly on a char buffer.
+ * - Quoted fields may contain commas, escaped quotes ("") and CR/LF line breaks.
+ * - Records end on LF, CR or CRLF; a leading UTF-8 BOM is skipped.
+ * - The field buffer and the returned record list are reused between calls,
+ *   so the only per-field allocation is the final String.
+ */
+final class CSVTokenizer implements Closeable {
+
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	private static final int FIELD_START = 0;
+	private static final int UNQUOTED = 1;
+	private static final int QUOTED = 2;
+	private static final int QUOTE_IN_QUOTED = 3;
+
+	private final Reader reader;
+	private final char[] buf = new char[READ_BUFFER_SIZE];
+	private int pos;
+	private int limit;
+
+	private char[] field = new char[256];
+	private int fieldLen;
+
+	private final List<String> record = new ArrayList<>();
+	private boolean started;
+	private boolean skipLf;
+
+	CSVTokenizer(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Reads the next record, or returns null at end of input.
+	 * The returned list is only valid until the next call.
+	 */
+	List<String> nextRecord() throws IOException {
+		record.clear();
+		fieldLen = 0;
+		int state = FIELD_START;
+		boolean consumed = false;
+
+		while (true) {
+			if (pos == limit && !fill()) {
+				if (!consumed) return null;
+				endField();
+				return record;
+			}
+
+			char c = buf[pos++];
+
+			if (skipLf) {
+				skipLf = false;
+				if (c == '\n') continue;
+			}
+			consumed = true;
+
+			switch (state) {
+			case FIELD_START:
+				if (c == '"') {
+					fieldLen = 0; // drop whitespace before an opening quote
+					state = QUOTED;
+				} else if (c == ',') {
+					endField();
+				} else if (c == '\r' || c == '\n') {
+					return endRecord(c);
+				} else {
+					append(c);
+					if (c != ' ' && c != '\t') state = UNQUOTED;
+				}
+				break;
+
+			case UNQUOTED:
+				if (c == ',') {
+					endField();
+					state = FIELD_START;
+				} else if (c == '\r' || c == '\n') {
+					return endRecord(c);
+				} else {
+					append(c);
+				}
+				break;
+
+			case QUOTED:
+				if (c == '"') {
+					state = QUOTE_IN_QUOTED;
+				} else {
+					append(c);
+				}
+				break;
+
+			case QUOTE_IN_QUOTED:
+				if (c == '"') {
+					append('"'); // escaped quote
+					state = QUOTED;
+				} else if (c == ',') {
+					endField();
+					state = FIELD_START;
+				} else if (c == '\r' || c == '\n') {
+					return endRecord(c);
+				} else {
+					// lenient: text after a closing quote is kept as-is
+					append(c);
+					state = UNQUOTED;
+				}
+				break;
+
+			default:
+				throw new IllegalStateException("Unknown tokenizer state " + state);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private boolean fill() throws IOException {
+		int n = reader.read(buf, 0, buf.length);
+		if (n <= 0) return false;
+		pos = 0;
+		limit = n;
+		if (!started) {
+			started = true;
+			if (buf[0] == '\uFEFF') pos = 1; // strip BOM
+			return pos < limit || fill();
+		}
+		return true;
+	}
+
+	private List<String> endRecord(char terminator) {
+		skipLf = terminator == '\r';
+		endField();
+		return record;
+	}
+
+	private void endField() {
+		record.add(new String(field, 0, fieldLen));
+		fieldLen = 0;
+	}
+
+	private void append(char c) {
+		if (fieldLen == field.length) {
+			field = Arrays.copyOf(field, fieldLen << 1);
+		}
+		field[fieldLen++] = c;
+	}
+}
@@ -7,6 +7,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.RowCounter;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.UploadJobState;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
@@ -25,6 +27,7 @@ public class CSVUploadHeader {
     private final int totalRows;
     private final FileProcessStage processStage;
     private final String fileStatus;
+    private final UploadJobState uploadState;
     
 
     public CSVUploadHeader( MasterDataHeader header) {
@@ -39,6 +42,7 @@ public class CSVUploadHeader {
         this.totalRows = header.getTotalRowsCount();
         this.processStage = header.getProcessStage();
         this.fileStatus = header.getFileStatus();
+        this.uploadState = header.getUploadState();
         
     }
 
@@ -55,6 +59,17 @@ public class CSVUploadHeader {
         item.put("total_rows_count", AttributeValue.builder().n(String.valueOf(totalRows)).build());
         item.put("process_stage", AttributeValue.builder().s(String.valueOf(processStage)).build());
         item.put("file_status", AttributeValue.builder().s(fileStatus).build());
+        // synchronous uploads save the header after staging; async ones start at 0 and ADD as they write
+        for (RowCounter counter : RowCounter.values()) {
+            long initial = counter == RowCounter.STAGED ? totalRows : 0;
+            item.put(counter.attribute(), AttributeValue.builder().n(String.valueOf(initial)).build());
+        }
+        if (uploadState != null) {
+            item.put("upload_state", AttributeValue.builder().s(uploadState.name()).build());
+            item.put("rows_parsed", AttributeValue.builder().n("0").build());
+            item.put("rows_written", AttributeValue.builder().n("0").build());
+            item.put("rows_per_second", AttributeValue.builder().n("0").build());
+        }
         
         return item;
     }
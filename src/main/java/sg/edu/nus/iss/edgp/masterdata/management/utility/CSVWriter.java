@@ -0,0 +1,67 @@
+package sg.edu.nus.iss.edgp.masterdata.management.utility;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/**
+ * RFC 4180 record writer, the counterpart of {@link CSVTokenizer}.
+ * - Fields containing a comma, quote, CR or LF are quoted, with quotes doubled.
+ * - Records end with CRLF.
+ * - Null is written as an empty field and numbers in plain notation.
+ * Nothing is buffered here; wrap the target in a BufferedWriter.
+ */
+public final class CSVWriter implements Flushable {
+
+	private final Writer out;
+
+	public CSVWriter(Writer out) {
+		this.out = out;
+	}
+
+	public void writeRecord(Iterable<?> values) throws IOException {
+		boolean first = true;
+		for (Object value : values) {
+			if (!first) out.write(',');
+			first = false;
+			writeField(format(value));
+		}
+		out.write("\r\n");
+	}
+
+	private void writeField(String s) throws IOException {
+		if (!needsQuotes(s)) {
+			out.write(s);
+			return;
+		}
+		out.write('"');
+		int from = 0;
+		for (int i = s.indexOf('"'); i >= 0; i = s.indexOf('"', from)) {
+			out.write(s, from, i + 1 - from);
+			out.write('"');
+			from = i + 1;
+		}
+		out.write(s, from, s.length() - from);
+		out.write('"');
+	}
+
+	private static boolean needsQuotes(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == ',' || c == '"' || c == '\r' || c == '\n') return true;
+		}
+		return false;
+	}
+
+	static String format(Object value) {
+		if (value == null) return "";
+		if (value instanceof BigDecimal d) return d.toPlainString();
+		return value.toString();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+}
@@ -40,7 +40,20 @@ public class DataUploadValidation {
 	        return result;
 	    }
 
-	    String fileName = file.getOriginalFilename();
+	    return isValidFileNameToUpload(file.getOriginalFilename(), uploadReq, authHeader);
+	}
+
+	/** Same checks for uploads that arrive in chunks, where only the file name is known up front. */
+	public ValidationResult isValidFileNameToUpload(String fileName, UploadRequest uploadReq, String authHeader) {
+	    ValidationResult result = new ValidationResult();
+
+	    if (fileName == null || fileName.isBlank()) {
+	        result.setValid(false);
+	        result.setMessage("File name is required.");
+	        result.setStatus(HttpStatus.BAD_REQUEST);
+	        return result;
+	    }
+
 	    if (dynamoService.tableExists(masterDataHeader.trim())) {
 	        if (headerService.filenameExists(fileName.trim())) {
 	            result.setValid(false);
@@ -39,6 +39,43 @@ public class GeneralUtility {
 		return LocalDateTime.now(ZoneId.of("Asia/Singapore")).format(fmt);
 	}
 
+	/**
+	 * Exception-free check for [+-]digits[.digits][e[+-]digits] (at least one mantissa digit),
+	 * i.e. strings that new BigDecimal(s) accepts. Exponents are capped at 9 significant digits.
+	 */
+	public static boolean isNumeric(String s) {
+		if (s == null) return false;
+		int len = s.length();
+		int i = 0;
+		if (i < len && (s.charAt(i) == '+' || s.charAt(i) == '-')) i++;
+
+		int intDigits = 0;
+		while (i < len && isDigit(s.charAt(i))) { i++; intDigits++; }
+
+		int fracDigits = 0;
+		if (i < len && s.charAt(i) == '.') {
+			i++;
+			while (i < len && isDigit(s.charAt(i))) { i++; fracDigits++; }
+			if (fracDigits == 0) return false;
+		}
+		if (intDigits + fracDigits == 0) return false;
+
+		if (i < len && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+			i++;
+			if (i < len && (s.charAt(i) == '+' || s.charAt(i) == '-')) i++;
+			int expStart = i;
+			while (i < len && s.charAt(i) == '0') i++;
+			int significant = i;
+			while (i < len && isDigit(s.charAt(i))) i++;
+			if (i == expStart || i - significant > 9) return false;
+		}
+		return i == len;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
 	@lombok.Value
 	public class BuiltUpdate {
 		public Map<String, String> ean;
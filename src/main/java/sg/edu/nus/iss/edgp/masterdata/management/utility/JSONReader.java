@@ -3,18 +3,25 @@ package sg.edu.nus.iss.edgp.masterdata.management.utility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Base64;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import sg.edu.nus.iss.edgp.masterdata.management.api.connector.*;
+import sg.edu.nus.iss.edgp.masterdata.management.jwt.JWTService;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.PolicyRoot;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.User;
 
@@ -28,6 +35,38 @@ public class JSONReader {
 	private final JSONDataMapper mapper;
 
 	private static final Logger logger = LoggerFactory.getLogger(JSONReader.class);
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	@Value("${policy.cache.max.entries:1000}")
+	private int policyCacheMaxEntries = 1000;
+
+	@Value("${policy.cache.ttl.seconds:300}")
+	private long policyCacheTtlSeconds = 300;
+
+	@Value("${policy.cache.stale.seconds:600}")
+	private long policyCacheStaleSeconds = 600;
+
+	@Value("${policy.cache.negative.ttl.seconds:30}")
+	private long policyCacheNegativeTtlSeconds = 30;
+
+	@Value("${org.cache.max.entries:5000}")
+	private int orgCacheMaxEntries = 5000;
+
+	@Value("${org.cache.ttl.seconds:86400}")
+	private long orgCacheTtlSeconds = 86400;
+
+	@Value("${org.cache.stale.seconds:604800}")
+	private long orgCacheStaleSeconds = 604800;
+
+	@Value("${org.cache.negative.ttl.seconds:60}")
+	private long orgCacheNegativeTtlSeconds = 60;
+
+	@Value("${policy.cache.refresh.threads:2}")
+	private int refreshThreads = 2;
+
+	private volatile RefreshingCache<PolicyKey, PolicyRoot> policyCache;
+	private volatile RefreshingCache<String, String> orgCache;
+	private volatile ExecutorService refresher;
 
 	public JSONObject getActiveUserInfo(String userId, String authorizationHeader) {
 		JSONObject jsonResponse = new JSONObject();
@@ -76,18 +115,120 @@ public class JSONReader {
 		return null;
 	}
 
+	/**
+	 * Parsed policy and rules, served from {@link #policyCache()}. The Policy API answers per caller
+	 * ("my-policy"), so entries are scoped to the caller's organization.
+	 * Returns null when the Policy API could not be reached or its reply could not be parsed.
+	 */
 	public PolicyRoot getValidationRules(String policyId, String authorizationHeader) {
+		return policyCache().get(new PolicyKey(callerScope(authorizationHeader), policyId),
+				() -> loadValidationRules(policyId, authorizationHeader));
+	}
+
+	public RefreshingCache.Stats getPolicyCacheStats() {
+		return policyCache().stats();
+	}
+
+	private PolicyRoot loadValidationRules(String policyId, String authorizationHeader) {
 
 		String responseStr = policyAPICall.getRuleByPolicyId(policyId, authorizationHeader);
+		if (responseStr == null || responseStr.isEmpty()) {
+			throw new IllegalStateException("no response from policy service for " + policyId);
+		}
 		try {
-			if (responseStr != null && !responseStr.isEmpty()) {
-				return mapper.getPolicyAndRules(responseStr);
-			}
+			return mapper.getPolicyAndRules(responseStr);
 		} catch (Exception e) {
 			logger.error("Error parsing JSON response for getValidationRules...", e);
+			throw new IllegalStateException("unreadable policy response for " + policyId, e);
+		}
+	}
+
+	private record PolicyKey(String scope, String policyId) {
 
+		// the scope can hold a bearer token; keep it out of the logs
+		@Override
+		public String toString() {
+			return "policy " + policyId;
 		}
-		return null;
+	}
+
+	private RefreshingCache<PolicyKey, PolicyRoot> policyCache() {
+		RefreshingCache<PolicyKey, PolicyRoot> c = policyCache;
+		if (c == null) {
+			synchronized (this) {
+				c = policyCache;
+				if (c == null) {
+					// an unknown policy comes back as a body without data
+					c = new RefreshingCache<>("policy", policyCacheMaxEntries, policyCacheTtlSeconds * 1000,
+							policyCacheStaleSeconds * 1000, policyCacheNegativeTtlSeconds * 1000,
+							p -> p == null || p.getData() == null, refresher());
+					policyCache = c;
+				}
+			}
+		}
+		return c;
+	}
+
+	private RefreshingCache<String, String> orgCache() {
+		RefreshingCache<String, String> c = orgCache;
+		if (c == null) {
+			synchronized (this) {
+				c = orgCache;
+				if (c == null) {
+					c = new RefreshingCache<>("organization", orgCacheMaxEntries, orgCacheTtlSeconds * 1000,
+							orgCacheStaleSeconds * 1000, orgCacheNegativeTtlSeconds * 1000,
+							name -> name == null || name.isEmpty(), refresher());
+					orgCache = c;
+				}
+			}
+		}
+		return c;
+	}
+
+	private ExecutorService refresher() {
+		ExecutorService ex = refresher;
+		if (ex == null) {
+			synchronized (this) {
+				ex = refresher;
+				if (ex == null) {
+					AtomicInteger seq = new AtomicInteger();
+					ex = Executors.newFixedThreadPool(Math.max(1, refreshThreads), r -> {
+						Thread t = new Thread(r, "mdm-cache-refresh-" + seq.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					});
+					refresher = ex;
+				}
+			}
+		}
+		return ex;
+	}
+
+	/**
+	 * The organization claim of the bearer token, read without verifying the signature: the security
+	 * filter (or the admin API that issued it) has already done so, and the value only partitions the cache.
+	 * Falls back to the whole header, i.e. one partition per token.
+	 */
+	static String callerScope(String authorizationHeader) {
+		if (authorizationHeader == null) return "";
+		String token = authorizationHeader.startsWith("Bearer ") ? authorizationHeader.substring(7) : authorizationHeader;
+		String[] parts = token.split("\\.");
+		if (parts.length == 3) {
+			try {
+				JsonNode claims = MAPPER.readTree(Base64.getUrlDecoder().decode(parts[1]));
+				JsonNode org = claims.get(JWTService.ORG_ID);
+				if (org != null && org.isTextual() && !org.asText().isBlank()) return "org:" + org.asText();
+			} catch (Exception e) {
+				// not a JWT we can read; keep the per-token scope
+			}
+		}
+		return "token:" + authorizationHeader;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		ExecutorService ex = refresher;
+		if (ex != null) ex.shutdown();
 	}
 
 	public String getAccessToken(String email) {
@@ -106,25 +247,37 @@ public class JSONReader {
 		return "";
 	}
 	
+	/**
+	 * Display name of an organization, served from a long-lived cache; names are not caller
+	 * specific, so entries are keyed by organization id only. Returns "" when unknown or unreachable.
+	 */
 	public String getOrganizationName(String orgId, String authorizationHeader) {
-		String organizationName ="";
-		
+		String name = orgCache().get(orgId, () -> loadOrganizationName(orgId, authorizationHeader));
+		return name == null ? "" : name;
+	}
+
+	/** Drops a cached organization name from this instance, e.g. after the organization was renamed. */
+	public void evictOrganization(String orgId) {
+		orgCache().invalidate(orgId);
+	}
+
+	public RefreshingCache.Stats getOrganizationCacheStats() {
+		return orgCache().stats();
+	}
+
+	private String loadOrganizationName(String orgId, String authorizationHeader) {
 		String responseStr = orgAPICall.validateActiveOrganization(orgId, authorizationHeader);
+		if (responseStr == null || responseStr.isEmpty()) {
+			throw new IllegalStateException("no response from organization service for " + orgId);
+		}
 		try {
-			if (responseStr != null && !responseStr.isEmpty()) {
-				ObjectMapper mapper = new ObjectMapper();
-				 
-				Map<String, Object> responseMap = mapper.readValue(responseStr, Map.class);
-				Map<String, Object> dataMap = (Map<String, Object>) responseMap.get("data");
-				organizationName = (String) dataMap.get("organizationName"); 
-			}
+			Map<String, Object> responseMap = MAPPER.readValue(responseStr, Map.class);
+			Map<String, Object> dataMap = (Map<String, Object>) responseMap.get("data");
+			String organizationName = dataMap == null ? null : (String) dataMap.get("organizationName");
+			return organizationName == null ? "" : organizationName;
 		} catch (Exception e) {
 			logger.error("Error parsing JSON response for getOrganizationName...", e);
-
+			throw new IllegalStateException("unreadable organization response for " + orgId, e);
 		}
-		
-		return organizationName;
-
-
 	}
 }
@@ -0,0 +1,156 @@
+package sg.edu.nus.iss.edgp.masterdata.management.utility;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streams rows out of a bulk ingest body, one object at a time.
+ * - JSON: a top-level array of objects, read with the streaming parser.
+ * - NDJSON: one object per line; a malformed line only fails that row.
+ * Rows that are not objects come back as error rows instead of failing the whole body.
+ */
+public final class JsonRowParser {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final TypeReference<LinkedHashMap<String, Object>> ROW_TYPE = new TypeReference<>() {
+	};
+
+	private JsonRowParser() {
+	}
+
+	/**
+	 * One entry of the body. {@code index} is 1-based; exactly one of {@code values} and {@code error} is set.
+	 * A {@code fatal} error means the rest of the body could not be read.
+	 */
+	public record Row(long index, Map<String, Object> values, String error, boolean fatal) {
+
+		public boolean isValid() {
+			return error == null;
+		}
+	}
+
+	public static RowIterator open(InputStream in, boolean ndjson) throws IOException {
+		return ndjson ? new NdjsonRows(in) : new ArrayRows(in);
+	}
+
+	public abstract static class RowIterator implements Iterator<Row>, Closeable {
+
+		private Row next;
+		private boolean done;
+		protected long index;
+
+		/** Returns the next row, or null at end of input. */
+		protected abstract Row read() throws IOException;
+
+		@Override
+		public boolean hasNext() {
+			if (next != null) return true;
+			if (done) return false;
+			try {
+				next = read();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			if (next == null || next.fatal()) done = true;
+			return next != null;
+		}
+
+		@Override
+		public Row next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			Row r = next;
+			next = null;
+			return r;
+		}
+	}
+
+	static final class NdjsonRows extends RowIterator {
+
+		private final BufferedReader reader;
+
+		NdjsonRows(InputStream in) {
+			this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		}
+
+		@Override
+		protected Row read() throws IOException {
+			String line;
+			do {
+				line = reader.readLine();
+				if (line == null) return null;
+			} while (line.isBlank());
+
+			long i = ++index;
+			try {
+				JsonParser p = MAPPER.getFactory().createParser(line);
+				if (p.nextToken() != JsonToken.START_OBJECT) {
+					return new Row(i, null, "Row must be a JSON object.", false);
+				}
+				return new Row(i, MAPPER.readValue(p, ROW_TYPE), null, false);
+			} catch (JsonProcessingException e) {
+				return new Row(i, null, "Malformed JSON: " + e.getOriginalMessage(), false);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+	static final class ArrayRows extends RowIterator {
+
+		private final JsonParser parser;
+		private boolean started;
+
+		ArrayRows(InputStream in) throws IOException {
+			this.parser = MAPPER.getFactory().createParser(in);
+		}
+
+		@Override
+		protected Row read() throws IOException {
+			long i = index + 1;
+			try {
+				if (!started) {
+					started = true;
+					if (parser.nextToken() != JsonToken.START_ARRAY) {
+						throw new IllegalArgumentException("Body must be a JSON array of objects.");
+					}
+				}
+				JsonToken t = parser.nextToken();
+				if (t == null || t == JsonToken.END_ARRAY) return null;
+
+				index = i;
+				if (t != JsonToken.START_OBJECT) {
+					parser.skipChildren();
+					return new Row(i, null, "Row must be a JSON object.", false);
+				}
+				return new Row(i, MAPPER.readValue(parser, ROW_TYPE), null, false);
+			} catch (JsonProcessingException e) {
+				// the streaming parser cannot resynchronise inside an array, so stop here
+				index = i;
+				return new Row(i, null, "Malformed JSON, remaining input ignored: " + e.getOriginalMessage(), true);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			parser.close();
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package sg.edu.nus.iss.edgp.masterdata.management.utility;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded in-process cache for values fetched from another service.
+ * - Fresh for {@code ttlMs}; for a further {@code staleMs} the old value is served while one
+ *   background load replaces it (stale-while-revalidate).
+ * - Values the {@code negative} predicate matches (e.g. "not found") are kept for {@code negativeTtlMs} only.
+ * - Concurrent misses of one key share a single load; the other callers wait for its result.
+ * - A load that throws is not cached: a miss returns null, a stale entry stays in place.
+ *   An {@link IllegalArgumentException} is the caller's mistake, not a failed load, and is rethrown.
+ * - Over {@code maxEntries} the entry loaded longest ago is evicted.
+ */
+public final class RefreshingCache<K, V> {
+
+	private static final Logger logger = LoggerFactory.getLogger(RefreshingCache.class);
+
+	private final String name;
+	private final int maxEntries;
+	private final long ttlNanos;
+	private final long staleNanos;
+	private final long negativeTtlNanos;
+	private final Predicate<V> negative;
+	private final Executor refresher;
+
+	private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+	// cold loads in progress, so concurrent misses of one key call the loader once
+	private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong staleHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong loadFailures = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private static final class Entry<V> {
+		final V value;
+		final long loadedAtNanos;
+		final boolean negative;
+		final AtomicBoolean refreshing = new AtomicBoolean();
+
+		Entry(V value, long loadedAtNanos, boolean negative) {
+			this.value = value;
+			this.loadedAtNanos = loadedAtNanos;
+			this.negative = negative;
+		}
+	}
+
+	/** Counters since the cache was created; {@code staleHits} are also counted in {@code hits}. */
+	public record Stats(long hits, long staleHits, long misses, long loadFailures, long evictions, int size) {
+
+		public double hitRate() {
+			long total = hits + misses;
+			return total == 0 ? 0 : (double) hits / total;
+		}
+	}
+
+	public RefreshingCache(String name, int maxEntries, long ttlMs, long staleMs, long negativeTtlMs,
+			Predicate<V> negative, Executor refresher) {
+		this.name = name;
+		this.maxEntries = Math.max(1, maxEntries);
+		this.ttlNanos = ttlMs * 1_000_000;
+		this.staleNanos = staleMs * 1_000_000;
+		this.negativeTtlNanos = negativeTtlMs * 1_000_000;
+		this.negative = Objects.requireNonNull(negative);
+		this.refresher = refresher;
+	}
+
+	/**
+	 * Returns the cached value for {@code key}, loading it with {@code loader} when absent or expired.
+	 * The loader of a call that finds a stale entry is the one used for the background refresh.
+	 */
+	public V get(K key, Callable<V> loader) {
+		long now = System.nanoTime();
+		Entry<V> e = entries.get(key);
+		if (e != null) {
+			long age = now - e.loadedAtNanos;
+			if (age < (e.negative ? negativeTtlNanos : ttlNanos)) {
+				hits.incrementAndGet();
+				return e.value;
+			}
+			if (!e.negative && age < ttlNanos + staleNanos) {
+				hits.incrementAndGet();
+				staleHits.incrementAndGet();
+				refreshInBackground(key, e, loader);
+				return e.value;
+			}
+		}
+		misses.incrementAndGet();
+		CompletableFuture<V> mine = new CompletableFuture<>();
+		CompletableFuture<V> shared = inFlight.computeIfAbsent(key, k -> mine);
+		if (shared != mine) return await(shared);
+		try {
+			V value = load(key, loader);
+			mine.complete(value);
+			return value;
+		} catch (IllegalArgumentException ex) {
+			mine.completeExceptionally(ex);
+			throw ex;
+		} catch (Exception ex) {
+			mine.completeExceptionally(ex);
+			loadFailures.incrementAndGet();
+			logger.warn("{} cache: load of {} failed: {}", name, key, ex.toString());
+			return null;
+		} finally {
+			inFlight.remove(key, mine);
+		}
+	}
+
+	/** Result of another caller's load of the same key; its failure was already counted and logged. */
+	private V await(CompletableFuture<V> shared) {
+		try {
+			return shared.join();
+		} catch (CompletionException | CancellationException ex) {
+			if (ex.getCause() instanceof IllegalArgumentException iae) throw iae;
+			return null;
+		}
+	}
+
+	public void invalidate(K key) {
+		entries.remove(key);
+	}
+
+	public Stats stats() {
+		return new Stats(hits.get(), staleHits.get(), misses.get(), loadFailures.get(), evictions.get(),
+				entries.size());
+	}
+
+	private V load(K key, Callable<V> loader) throws Exception {
+		V value = loader.call();
+		entries.put(key, new Entry<>(value, System.nanoTime(), negative.test(value)));
+		if (entries.size() > maxEntries) evictOldest();
+		return value;
+	}
+
+	private void refreshInBackground(K key, Entry<V> stale, Callable<V> loader) {
+		if (refresher == null || !stale.refreshing.compareAndSet(false, true)) return;
+		try {
+			refresher.execute(() -> {
+				try {
+					load(key, loader);
+				} catch (Exception ex) {
+					loadFailures.incrementAndGet();
+					logger.warn("{} cache: refresh of {} failed, serving stale value: {}", name, key, ex.toString());
+				} finally {
+					stale.refreshing.set(false);
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			stale.refreshing.set(false);
+		}
+	}
+
+	private void evictOldest() {
+		while (entries.size() > maxEntries) {
+			K oldest = null;
+			long oldestAt = Long.MAX_VALUE;
+			for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+				if (e.getValue().loadedAtNanos < oldestAt) {
+					oldestAt = e.getValue().loadedAtNanos;
+					oldest = e.getKey();
+				}
+			}
+			if (oldest == null || entries.remove(oldest) == null) return;
+			evictions.incrementAndGet();
+		}
+	}
+}
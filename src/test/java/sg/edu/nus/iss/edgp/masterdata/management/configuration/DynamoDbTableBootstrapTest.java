@@ -0,0 +1,63 @@
+package sg.edu.nus.iss.edgp.masterdata.management.configuration;
+
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.DynamicDetailService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.QueryPlanner;
+
+class DynamoDbTableBootstrapTest {
+
+    private DynamicDetailService dynamoService;
+    private DynamoDbTableBootstrap bootstrap;
+
+    @BeforeEach
+    void setUp() {
+        dynamoService = mock(DynamicDetailService.class);
+        bootstrap = new DynamoDbTableBootstrap(dynamoService);
+        ReflectionTestUtils.setField(bootstrap, "headerTableName", "hdr ");
+        ReflectionTestUtils.setField(bootstrap, "stagingTableName", "stg");
+        ReflectionTestUtils.setField(bootstrap, "taskTrackerTableName", "trk");
+        ReflectionTestUtils.setField(bootstrap, "domainTableName", "dom");
+        ReflectionTestUtils.setField(bootstrap, "schemaTableName", "sch");
+        ReflectionTestUtils.setField(bootstrap, "listingVersionTableName", "ver");
+    }
+
+    @Test
+    void bootstrap_ensuresEveryTable_evenAfterAFailure() {
+        doThrow(new RuntimeException("denied")).when(dynamoService).ensureTable(eq("stg"), anyList());
+
+        bootstrap.bootstrap();
+
+        verify(dynamoService).ensureTable("hdr", QueryPlanner.HEADER_INDEXES);
+        verify(dynamoService).ensureTable("stg", QueryPlanner.STAGING_INDEXES);
+        for (String t : new String[] { "trk", "dom", "sch", "ver" }) {
+            verify(dynamoService).ensureTable(t, List.of());
+        }
+    }
+
+    @Test
+    void bootstrap_buildsMissingIndexesInTheBackground() {
+        doThrow(new RuntimeException("limit exceeded")).when(dynamoService)
+                .ensureIndexes("stg", QueryPlanner.STAGING_INDEXES);
+
+        bootstrap.bootstrap();
+
+        verify(dynamoService, timeout(5000)).ensureIndexes("stg", QueryPlanner.STAGING_INDEXES);
+        verify(dynamoService, timeout(5000)).ensureIndexes("hdr", QueryPlanner.HEADER_INDEXES);
+    }
+
+    @Test
+    void bootstrap_disabled_touchesNothing() {
+        ReflectionTestUtils.setField(bootstrap, "enabled", false);
+
+        bootstrap.bootstrap();
+
+        verifyNoInteractions(dynamoService);
+    }
+}
@@ -0,0 +1,65 @@
+package sg.edu.nus.iss.edgp.masterdata.management.configuration;
+
+import static org.mockito.Mockito.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.HeaderService;
+import sg.edu.nus.iss.edgp.masterdata.management.utility.JSONReader;
+
+class OrganizationCacheWarmupTest {
+
+    private HeaderService headerService;
+    private JSONReader jsonReader;
+    private OrganizationCacheWarmup warmup;
+
+    @BeforeEach
+    void setUp() {
+        headerService = mock(HeaderService.class);
+        jsonReader = mock(JSONReader.class);
+        warmup = new OrganizationCacheWarmup(headerService, jsonReader);
+    }
+
+    @Test
+    void preload_looksUpEachRecentOrgWithOneTokenPerUploader() {
+        Map<String, String> uploaders = new LinkedHashMap<>();
+        uploaders.put("ORG1", "a@x.com");
+        uploaders.put("ORG2", "a@x.com");
+        uploaders.put("ORG3", "gone@x.com");
+        when(headerService.findRecentUploadersByOrganization(anyString(), eq(500), eq(10))).thenReturn(uploaders);
+        when(jsonReader.getAccessToken("a@x.com")).thenReturn("tok");
+        when(jsonReader.getAccessToken("gone@x.com")).thenReturn("");
+        when(jsonReader.getOrganizationName(anyString(), eq("Bearer tok"))).thenReturn("Acme");
+
+        warmup.preload();
+
+        verify(jsonReader, times(1)).getAccessToken("a@x.com");
+        verify(jsonReader).getOrganizationName("ORG1", "Bearer tok");
+        verify(jsonReader).getOrganizationName("ORG2", "Bearer tok");
+        verify(jsonReader, never()).getOrganizationName(eq("ORG3"), anyString());
+    }
+
+    @Test
+    void warmUp_disabled_readsNothing() {
+        ReflectionTestUtils.setField(warmup, "enabled", false);
+
+        warmup.warmUp();
+
+        verifyNoInteractions(headerService, jsonReader);
+    }
+
+    @Test
+    void preload_headerReadFails_isOnlyLogged() {
+        when(headerService.findRecentUploadersByOrganization(anyString(), anyInt(), anyInt()))
+                .thenThrow(new RuntimeException("no table"));
+
+        warmup.preload();
+
+        verifyNoInteractions(jsonReader);
+    }
+}
@@ -18,6 +18,7 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import sg.edu.nus.iss.edgp.masterdata.management.dto.AuditDTO;
+import sg.edu.nus.iss.edgp.masterdata.management.dto.BulkIngestResult;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.UploadResult;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.ValidationResult;
 import sg.edu.nus.iss.edgp.masterdata.management.jwt.JWTService;
@@ -234,4 +235,45 @@ class DataIngestControllerTest {
                 .andExpect(jsonPath("$.success").value(false))
                 .andExpect(jsonPath("$.message").value("An unexpected error occurred. Please contact support."));
     }
+
+    @Test
+    @WithMockUser(authorities = {"SCOPE_manage:mdm"})
+    void createBulkData_ndjson_returns200WithRowErrors() throws Exception {
+        when(auditService.createAuditDTO(any(), any(), any(), any(), any())).thenReturn(new AuditDTO());
+        BulkIngestResult res = new BulkIngestResult("F1", 2, 1, false,
+                List.of(new BulkIngestResult.RowError(2, "Malformed JSON: x")));
+        when(dataIngestService.processBulkIngest(any(), eq(true), eq("vendor"), eq("P1"), anyString())).thenReturn(res);
+
+        mockMvc.perform(post("/api/mdm/data/ingest/bulk")
+                        .param("domain_name", "vendor")
+                        .param("policy_id", "P1")
+                        .header("Authorization", "Bearer mock-token")
+                        .contentType("application/x-ndjson")
+                        .content("{\"a\":1}\nx\n{\"a\":2}\n")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Ingested 2 row(s); 1 row(s) rejected."))
+                .andExpect(jsonPath("$.data.fileId").value("F1"))
+                .andExpect(jsonPath("$.data.errors[0].row").value(2));
+    }
+
+    @Test
+    @WithMockUser(authorities = {"SCOPE_manage:mdm"})
+    void createBulkData_nothingAccepted_returns400() throws Exception {
+        when(auditService.createAuditDTO(any(), any(), any(), any(), any())).thenReturn(new AuditDTO());
+        BulkIngestResult res = new BulkIngestResult(null, 0, 1, false,
+                List.of(new BulkIngestResult.RowError(1, "Row must be a JSON object.")));
+        when(dataIngestService.processBulkIngest(any(), eq(false), eq("vendor"), eq("P1"), anyString())).thenReturn(res);
+
+        mockMvc.perform(post("/api/mdm/data/ingest/bulk")
+                        .param("domain_name", "vendor")
+                        .param("policy_id", "P1")
+                        .header("Authorization", "Bearer mock-token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1]")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.data.rejected").value(1));
+    }
 }
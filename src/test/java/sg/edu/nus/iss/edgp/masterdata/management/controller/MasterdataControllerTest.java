@@ -3,8 +3,12 @@ package sg.edu.nus.iss.edgp.masterdata.management.controller;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,14 +20,25 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import sg.edu.nus.iss.edgp.masterdata.management.dto.*;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
 import sg.edu.nus.iss.edgp.masterdata.management.enums.HTTPVerb;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.UploadJobState;
 import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.UploadRequest;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.AuditService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.ChunkedUploadService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.ListingCache;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.MasterdataService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.UploadJobService;
 import sg.edu.nus.iss.edgp.masterdata.management.utility.DataUploadValidation;
+import sg.edu.nus.iss.edgp.masterdata.management.utility.JSONReader;
 
 @ExtendWith(SpringExtension.class)
 public class MasterdataControllerTest {
@@ -31,6 +46,9 @@ public class MasterdataControllerTest {
     @InjectMocks
     private MasterdataController controller;
 
+    @Mock
+    private JSONReader jsonReader;
+
     @Mock
     private MasterdataService masterdataService;
 
@@ -40,6 +58,15 @@ public class MasterdataControllerTest {
     @Mock
     private DataUploadValidation dataUploadValidation;
 
+    @Mock
+    private UploadJobService uploadJobService;
+
+    @Mock
+    private ChunkedUploadService chunkedUploadService;
+
+    @Spy
+    private ListingCache listingCache = new ListingCache();
+
     @Value("${audit.activity.type.prefix:MDM}")
     private String activityTypePrefix = "MDM";
 
@@ -90,14 +117,14 @@ public class MasterdataControllerTest {
         request.setFileId("");
 
         List<Map<String, Object>> mockData = List.of(Map.of("id", "1", "name", "Sample"));
-        when(masterdataService.getAllData(AUTH)).thenReturn(mockData);
+        when(masterdataService.getAllData(eq(request), eq(AUTH))).thenReturn(new PageResult<>(mockData, null));
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.getUploadedData(AUTH, request);
+                controller.getUploadedData(AUTH, request, null);
 
         assertEquals(200, response.getStatusCodeValue());
         assertTrue(response.getBody().getSuccess());
-        verify(masterdataService).getAllData(AUTH);
+        verify(masterdataService).getAllData(eq(request), eq(AUTH));
         verify(auditService).logAudit(eq(auditDTO), eq(200), contains("Successfully"), eq(AUTH));
     }
 
@@ -109,10 +136,10 @@ public class MasterdataControllerTest {
         request.setFileId("");
 
         List<Map<String, Object>> mockData = List.of(Map.of("id", "1", "name", "Filtered Vendor"));
-        when(masterdataService.getDataByPolicyAndDomainName(eq(request), eq(AUTH))).thenReturn(mockData);
+        when(masterdataService.getDataByPolicyAndDomainName(eq(request), eq(AUTH))).thenReturn(new PageResult<>(mockData, null));
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.getUploadedData(AUTH, request);
+                controller.getUploadedData(AUTH, request, null);
 
         assertEquals(200, response.getStatusCodeValue());
         assertTrue(response.getBody().getSuccess());
@@ -127,10 +154,10 @@ public class MasterdataControllerTest {
         request.setFileId("");
 
         List<Map<String, Object>> mockData = List.of(Map.of("id", "1"));
-        when(masterdataService.getDataByPolicyId(eq(request), eq(AUTH))).thenReturn(mockData);
+        when(masterdataService.getDataByPolicyId(eq(request), eq(AUTH))).thenReturn(new PageResult<>(mockData, null));
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.getUploadedData(AUTH, request);
+                controller.getUploadedData(AUTH, request, null);
 
         assertEquals(200, response.getStatusCodeValue());
         verify(masterdataService).getDataByPolicyId(eq(request), eq(AUTH));
@@ -144,10 +171,10 @@ public class MasterdataControllerTest {
         request.setFileId("");
 
         List<Map<String, Object>> mockData = List.of(Map.of("id", "1"));
-        when(masterdataService.getDataByDomainName(eq(request), eq(AUTH))).thenReturn(mockData);
+        when(masterdataService.getDataByDomainName(eq(request), eq(AUTH))).thenReturn(new PageResult<>(mockData, null));
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.getUploadedData(AUTH, request);
+                controller.getUploadedData(AUTH, request, null);
 
         assertEquals(200, response.getStatusCodeValue());
         verify(masterdataService).getDataByDomainName(eq(request), eq(AUTH));
@@ -161,15 +188,194 @@ public class MasterdataControllerTest {
         request.setFileId("FILE-1");
 
         List<Map<String, Object>> mockData = List.of(Map.of("id", "1"));
-        when(masterdataService.getDataByFileId(eq(request), eq(AUTH))).thenReturn(mockData);
+        when(masterdataService.getDataByFileId(eq(request), eq(AUTH))).thenReturn(new PageResult<>(mockData, null));
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.getUploadedData(AUTH, request);
+                controller.getUploadedData(AUTH, request, null);
 
         assertEquals(200, response.getStatusCodeValue());
         verify(masterdataService).getDataByFileId(eq(request), eq(AUTH));
     }
 
+    @Test
+    void testGetUploadedData_passesNextCursor() {
+        SearchRequest request = new SearchRequest();
+        request.setDomainName("vendor");
+        request.setPolicyId("");
+        request.setFileId("");
+
+        List<Map<String, Object>> mockData = List.of(Map.of("id", "1"));
+        when(masterdataService.getDataByDomainName(eq(request), eq(AUTH)))
+                .thenReturn(new PageResult<>(mockData, "next-token"));
+
+        ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
+                controller.getUploadedData(AUTH, request, null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("next-token", response.getBody().getNextCursor());
+        assertEquals(1, response.getBody().getTotalRecord());
+    }
+
+    @Test
+    void testGetUploadedData_invalidCursor_returns400() {
+        SearchRequest request = new SearchRequest();
+        request.setDomainName("");
+        request.setPolicyId("");
+        request.setFileId("");
+        request.setCursor("garbage");
+
+        when(masterdataService.getAllData(eq(request), eq(AUTH)))
+                .thenThrow(new IllegalArgumentException("Invalid cursor."));
+
+        ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
+                controller.getUploadedData(AUTH, request, null);
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals("Invalid cursor.", response.getBody().getMessage());
+        verify(auditService).logAudit(eq(auditDTO), eq(400), eq("Invalid cursor."), eq(AUTH));
+    }
+
+    @Test
+    void testStreamUploadedData_writesRowsThenEnvelope() throws Exception {
+        SearchRequest request = new SearchRequest();
+        request.setDomainName("vendor");
+
+        when(masterdataService.streamData(eq(request), eq(AUTH), any())).thenAnswer(inv -> {
+            MasterdataService.RowSink sink = inv.getArgument(2);
+            sink.accept(List.of(Map.of("id", "1")));
+            sink.accept(List.of(Map.of("id", "2")));
+            return 2L;
+        });
+
+        ResponseEntity<StreamingResponseBody> response = controller.streamUploadedData(AUTH, request);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        JsonNode json = new ObjectMapper().readTree(out.toByteArray());
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(2, json.get("data").size());
+        assertEquals("2", json.get("data").get(1).get("id").asText());
+        assertTrue(json.get("success").asBoolean());
+        assertEquals(2, json.get("totalRecord").asLong());
+        verify(auditService).logAudit(eq(auditDTO), eq(200), contains("Successfully"), eq(AUTH));
+    }
+
+    @Test
+    void testStreamUploadedData_failureMidStream_closesJsonWithError() throws Exception {
+        SearchRequest request = new SearchRequest();
+
+        when(masterdataService.streamData(eq(request), eq(AUTH), any())).thenAnswer(inv -> {
+            MasterdataService.RowSink sink = inv.getArgument(2);
+            sink.accept(List.of(Map.of("id", "1")));
+            throw new MasterdataServiceException("read failed");
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        controller.streamUploadedData(AUTH, request).getBody().writeTo(out);
+
+        JsonNode json = new ObjectMapper().readTree(out.toByteArray());
+        assertEquals(1, json.get("data").size());
+        assertFalse(json.get("success").asBoolean());
+        assertEquals("read failed", json.get("message").asText());
+        verify(auditService).logAudit(eq(auditDTO), eq(500), eq("read failed"), eq(AUTH));
+    }
+
+    @Test
+    void testGetUploadedFileSummary_foundAndMissing() {
+        Map<String, Object> summary = Map.of("file_id", "F1", "rows_staged", 10L);
+        when(masterdataService.fileSummary("F1", AUTH)).thenReturn(Optional.of(summary));
+        when(masterdataService.fileSummary("F9", AUTH)).thenReturn(Optional.empty());
+
+        ResponseEntity<APIResponse<Map<String, Object>>> found = controller.getUploadedFileSummary(AUTH, "F1");
+        ResponseEntity<APIResponse<Map<String, Object>>> missing = controller.getUploadedFileSummary(AUTH, "F9");
+
+        assertEquals(200, found.getStatusCodeValue());
+        assertEquals(10L, found.getBody().getData().get("rows_staged"));
+        assertEquals(404, missing.getStatusCodeValue());
+        verify(auditService).logAudit(eq(auditDTO), eq(404), eq("File not found."), eq(AUTH));
+    }
+
+    @Test
+    void testExportUploadedFile_csvGzip_writesHeaderAndRowsCompressed() throws Exception {
+        when(masterdataService.exportColumns("F1", AUTH)).thenReturn(Optional.of(List.of("id", "amount")));
+        when(masterdataService.exportFile(eq("F1"), eq(AUTH), any())).thenAnswer(inv -> {
+            MasterdataService.RowSink sink = inv.getArgument(2);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", "1");
+            row.put("amount", 5);
+            row.put("note", "a,b");
+            sink.accept(List.of(row));
+            sink.accept(List.of(Map.of("id", "2", "late", "dropped")));
+            return 2L;
+        });
+
+        ResponseEntity<?> response = controller.exportUploadedFile(AUTH, "gzip, deflate", "F1", "csv");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("gzip", response.getHeaders().getFirst("Content-Encoding"));
+        assertEquals("text/csv;charset=UTF-8", String.valueOf(response.getHeaders().getContentType()));
+        assertTrue(response.getHeaders().getContentDisposition().toString().contains("F1.csv"));
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertEquals("id,amount,note\r\n1,5,\"a,b\"\r\n2,,\r\n", csv);
+        verify(auditService).logAudit(eq(auditDTO), eq(200), contains("2 rows"), eq(AUTH));
+    }
+
+    @Test
+    void testExportUploadedFile_ndjsonWithoutGzip_writesOneObjectPerLine() throws Exception {
+        when(masterdataService.exportColumns("F1", AUTH)).thenReturn(Optional.of(List.of("id")));
+        when(masterdataService.exportFile(eq("F1"), eq(AUTH), any())).thenAnswer(inv -> {
+            MasterdataService.RowSink sink = inv.getArgument(2);
+            sink.accept(List.of(Map.of("id", "1"), Map.of("id", "2")));
+            return 2L;
+        });
+
+        ResponseEntity<?> response = controller.exportUploadedFile(AUTH, null, "F1", "NDJSON");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+
+        assertNull(response.getHeaders().getFirst("Content-Encoding"));
+        assertEquals("{\"id\":\"1\"}\n{\"id\":\"2\"}\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExportUploadedFile_unknownFileIs404_unknownFormatIs400() {
+        when(masterdataService.exportColumns("F9", AUTH)).thenReturn(Optional.empty());
+
+        assertEquals(404, controller.exportUploadedFile(AUTH, null, "F9", "csv").getStatusCodeValue());
+        assertEquals(400, controller.exportUploadedFile(AUTH, null, "F1", "xml").getStatusCodeValue());
+        verify(masterdataService, never()).exportColumns(eq("F1"), any());
+    }
+
+    @Test
+    void testExportUploadedFile_failureMidStream_abortsTheResponse() throws Exception {
+        when(masterdataService.exportColumns("F1", AUTH)).thenReturn(Optional.of(List.of("id")));
+        when(masterdataService.exportFile(eq("F1"), eq(AUTH), any())).thenAnswer(inv -> {
+            MasterdataService.RowSink sink = inv.getArgument(2);
+            sink.accept(List.of(Map.of("id", "1")));
+            throw new MasterdataServiceException("read failed");
+        });
+
+        StreamingResponseBody body = (StreamingResponseBody) controller.exportUploadedFile(AUTH, null, "F1", "csv")
+                .getBody();
+
+        assertThrows(MasterdataServiceException.class, () -> body.writeTo(new ByteArrayOutputStream()));
+        verify(auditService).logAudit(eq(auditDTO), eq(500), eq("read failed"), eq(AUTH));
+    }
+
+    @Test
+    void testEvictLocalOrganizationCache_evictsAndAudits() {
+        ResponseEntity<APIResponse<Map<String, Object>>> response = controller.evictLocalOrganizationCache(AUTH, " ORG1 ");
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertTrue(response.getBody().getSuccess());
+        assertTrue(response.getBody().getMessage().contains("this instance"));
+        verify(jsonReader).evictOrganization("ORG1");
+        verify(auditService).logAudit(eq(auditDTO), eq(200), contains("ORG1"), eq(AUTH));
+    }
+
     @Test
     void testGetUploadedData_serviceThrows() {
         SearchRequest request = new SearchRequest();
@@ -177,10 +383,10 @@ public class MasterdataControllerTest {
         request.setPolicyId("");
         request.setFileId("");
 
-        when(masterdataService.getAllData(AUTH)).thenThrow(new RuntimeException("boom"));
+        when(masterdataService.getAllData(eq(request), eq(AUTH))).thenThrow(new RuntimeException("boom"));
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.getUploadedData(AUTH, request);
+                controller.getUploadedData(AUTH, request, null);
 
         assertEquals(500, response.getStatusCodeValue());
         assertFalse(response.getBody().getSuccess());
@@ -195,10 +401,10 @@ public class MasterdataControllerTest {
     @Test
     void testGetUploadedFile_success() {
         List<Map<String, Object>> mockData = List.of(Map.of("fileId", "F1"));
-        when(masterdataService.getAllUploadFiles(AUTH)).thenReturn(mockData);
+        when(masterdataService.getAllUploadFiles(AUTH, "")).thenReturn(mockData);
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.getUploadedFile(AUTH);
+                controller.getUploadedFile(AUTH, "", null);
 
         assertEquals(200, response.getStatusCodeValue());
         assertTrue(response.getBody().getSuccess());
@@ -207,15 +413,104 @@ public class MasterdataControllerTest {
 
     @Test
     void testGetUploadedFile_error() {
-        when(masterdataService.getAllUploadFiles(AUTH)).thenThrow(new RuntimeException("x"));
+        when(masterdataService.getAllUploadFiles(AUTH, "")).thenThrow(new RuntimeException("x"));
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.getUploadedFile(AUTH);
+                controller.getUploadedFile(AUTH, "", null);
 
         assertEquals(500, response.getStatusCodeValue());
         assertFalse(response.getBody().getSuccess());
         verify(auditService).logAudit(eq(auditDTO), eq(500), contains("unexpected error"), eq(AUTH));
     }
+
+    @Test
+    void testGetUploadedFile_tooManyFields_returns400() {
+        when(masterdataService.getAllUploadFiles(AUTH, "a,b"))
+                .thenThrow(new IllegalArgumentException("At most 100 fields can be requested."));
+
+        ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
+                controller.getUploadedFile(AUTH, "a,b", null);
+
+        assertEquals(400, response.getStatusCodeValue());
+        verify(auditService).logAudit(eq(auditDTO), eq(400), contains("fields"), eq(AUTH));
+    }
+
+    @Test
+    void testGetUploadedFile_unchangedListing_servedFromCacheThen304() {
+        when(masterdataService.listingVersion(AUTH)).thenReturn("v1");
+        when(masterdataService.getAllUploadFiles(AUTH, "")).thenReturn(List.of(Map.of("id", "F1")));
+
+        ResponseEntity<APIResponse<List<Map<String, Object>>>> first = controller.getUploadedFile(AUTH, "", null);
+        ResponseEntity<APIResponse<List<Map<String, Object>>>> second = controller.getUploadedFile(AUTH, "", null);
+        String etag = first.getHeaders().getETag();
+
+        assertNotNull(etag);
+        assertEquals(etag, second.getHeaders().getETag());
+        assertEquals(1, second.getBody().getTotalRecord());
+        verify(masterdataService, times(1)).getAllUploadFiles(AUTH, "");
+
+        ResponseEntity<APIResponse<List<Map<String, Object>>>> notModified =
+                controller.getUploadedFile(AUTH, "", "W/\"other\", " + etag);
+        assertEquals(304, notModified.getStatusCodeValue());
+        assertNull(notModified.getBody());
+        verify(auditService).logAudit(eq(auditDTO), eq(304), anyString(), eq(AUTH));
+    }
+
+    @Test
+    void testGetUploadedData_versionChanged_reloadsWithNewEtag() {
+        SearchRequest request = new SearchRequest();
+        when(masterdataService.listingVersion(AUTH)).thenReturn("v1", "v2");
+        when(masterdataService.getAllData(request, AUTH)).thenReturn(new PageResult<>(List.of(), null));
+
+        String before = controller.getUploadedData(AUTH, request, null).getHeaders().getETag();
+        ResponseEntity<APIResponse<List<Map<String, Object>>>> after = controller.getUploadedData(AUTH, request, before);
+
+        assertEquals(200, after.getStatusCodeValue());
+        assertNotEquals(before, after.getHeaders().getETag());
+        verify(masterdataService, times(2)).getAllData(request, AUTH);
+    }
+
+    @Test
+    void testCountUploadedData_returnsCountInDataAndTotal() {
+        SearchRequest req = new SearchRequest();
+        when(masterdataService.countData(req, AUTH)).thenReturn(42L);
+
+        ResponseEntity<APIResponse<Map<String, Object>>> response = controller.countUploadedData(AUTH, req);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(42L, response.getBody().getData().get("count"));
+        assertEquals(42L, response.getBody().getTotalRecord());
+    }
+
+    @Test
+    void testUploadedDataExists_false() {
+        SearchRequest req = new SearchRequest();
+        when(masterdataService.dataExists(req, AUTH)).thenReturn(false);
+
+        ResponseEntity<APIResponse<Map<String, Object>>> response = controller.uploadedDataExists(AUTH, req);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(false, response.getBody().getData().get("exists"));
+    }
+
+    @Test
+    void testCountUploadedFiles_byStage() {
+        when(masterdataService.countUploadFiles(AUTH, FileProcessStage.UNPROCESSED)).thenReturn(3L);
+
+        ResponseEntity<APIResponse<Map<String, Object>>> response = controller.countUploadedFiles(AUTH, "unprocessed");
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(3L, response.getBody().getData().get("count"));
+    }
+
+    @Test
+    void testCountUploadedFiles_unknownStage_returns400() {
+        ResponseEntity<APIResponse<Map<String, Object>>> response = controller.countUploadedFiles(AUTH, "DONE");
+
+        assertEquals(400, response.getStatusCodeValue());
+        verify(auditService).logAudit(eq(auditDTO), eq(400), contains("Unknown stage"), eq(AUTH));
+        verifyNoInteractions(masterdataService);
+    }
  
 
     @Test
@@ -230,7 +525,7 @@ public class MasterdataControllerTest {
                 .thenReturn(result(1, "Inserted 1 record", data));
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.uploadAndInsertCsvData(AUTH, uploadRequest, file);
+                controller.uploadAndInsertCsvData(AUTH, uploadRequest, file, false);
 
         assertEquals(200, response.getStatusCodeValue());
         assertTrue(response.getBody().getSuccess());
@@ -245,7 +540,7 @@ public class MasterdataControllerTest {
                 .thenReturn(invalid(HttpStatus.BAD_REQUEST, "Missing file"));
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.uploadAndInsertCsvData(AUTH, uploadRequest, file);
+                controller.uploadAndInsertCsvData(AUTH, uploadRequest, file, false);
 
         assertEquals(400, response.getStatusCodeValue());
         assertFalse(response.getBody().getSuccess());
@@ -261,7 +556,7 @@ public class MasterdataControllerTest {
                 .thenReturn(result(0, "No rows", List.of()));
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.uploadAndInsertCsvData(AUTH, uploadRequest, file);
+                controller.uploadAndInsertCsvData(AUTH, uploadRequest, file, false);
 
         assertEquals(500, response.getStatusCodeValue());
         assertFalse(response.getBody().getSuccess());
@@ -276,7 +571,7 @@ public class MasterdataControllerTest {
                 .thenThrow(new MasterdataServiceException("Boom"));
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.uploadAndInsertCsvData(AUTH, uploadRequest, file);
+                controller.uploadAndInsertCsvData(AUTH, uploadRequest, file, false);
 
         assertEquals(500, response.getStatusCodeValue());
         assertFalse(response.getBody().getSuccess());
@@ -292,7 +587,7 @@ public class MasterdataControllerTest {
                 .thenThrow(new RuntimeException("NPE"));
 
         ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
-                controller.uploadAndInsertCsvData(AUTH, uploadRequest, file);
+                controller.uploadAndInsertCsvData(AUTH, uploadRequest, file, false);
 
         assertEquals(500, response.getStatusCodeValue());
         assertFalse(response.getBody().getSuccess());
@@ -301,6 +596,131 @@ public class MasterdataControllerTest {
     }
  
 
+    @Test
+    void testUploadAndInsertCsvData_async_returnsAcceptedWithFileId() {
+        MockMultipartFile file = new MockMultipartFile("file", "f.csv", "text/csv", "a\n1".getBytes());
+        when(dataUploadValidation.isValidToUpload(eq(file), eq(uploadRequest), eq(AUTH))).thenReturn(valid());
+        when(uploadJobService.submit(eq(file), eq(uploadRequest), eq(AUTH))).thenReturn("F1");
+
+        ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
+                controller.uploadAndInsertCsvData(AUTH, uploadRequest, file, true);
+
+        assertEquals(202, response.getStatusCodeValue());
+        Map<String, Object> job = response.getBody().getData().get(0);
+        assertEquals("F1", job.get("file_id"));
+        assertEquals("/api/mdm/data/upload/F1/progress", job.get("progress_url"));
+        verify(masterdataService, never()).uploadCsvDataToTable(any(), any(), any());
+    }
+
+    @Test
+    void testUploadAndInsertCsvData_async_queueFull_returns503() {
+        MockMultipartFile file = new MockMultipartFile("file", "f.csv", "text/csv", "a\n1".getBytes());
+        when(dataUploadValidation.isValidToUpload(eq(file), eq(uploadRequest), eq(AUTH))).thenReturn(valid());
+        when(uploadJobService.submit(eq(file), eq(uploadRequest), eq(AUTH))).thenThrow(
+                new MasterdataServiceException("Too many uploads", new RejectedExecutionException()));
+
+        ResponseEntity<APIResponse<List<Map<String, Object>>>> response =
+                controller.uploadAndInsertCsvData(AUTH, uploadRequest, file, true);
+
+        assertEquals(503, response.getStatusCodeValue());
+        assertEquals("Too many uploads", response.getBody().getMessage());
+    }
+
+    @Test
+    void testGetUploadProgress_found() {
+        MasterDataHeader header = new MasterDataHeader();
+        header.setId("F1");
+        header.setProcessStage(FileProcessStage.UPLOADING);
+        header.setUploadState(UploadJobState.RUNNING);
+        header.setRowsParsed(500);
+        header.setRowsWritten(450);
+        header.setRowsPerSecond(225);
+        when(uploadJobService.getProgress("F1", AUTH)).thenReturn(Optional.of(header));
+
+        ResponseEntity<APIResponse<Map<String, Object>>> response = controller.getUploadProgress(AUTH, "F1");
+
+        assertEquals(200, response.getStatusCodeValue());
+        Map<String, Object> progress = response.getBody().getData();
+        assertEquals("RUNNING", progress.get("upload_state"));
+        assertEquals("UPLOADING", progress.get("process_stage"));
+        assertEquals(500L, progress.get("rows_parsed"));
+        assertEquals(450L, progress.get("rows_written"));
+        assertEquals(225L, progress.get("rows_per_second"));
+    }
+
+    @Test
+    void testGetUploadProgress_notFound() {
+        when(uploadJobService.getProgress("nope", AUTH)).thenReturn(Optional.empty());
+
+        ResponseEntity<APIResponse<Map<String, Object>>> response = controller.getUploadProgress(AUTH, "nope");
+
+        assertEquals(404, response.getStatusCodeValue());
+        assertFalse(response.getBody().getSuccess());
+    }
+
+    @Test
+    void testCompleteChunkedUpload_missingChunks_returns409() {
+        ChunkedUploadService.ChunkStatus status = new ChunkedUploadService.ChunkStatus("U1", "big.csv", List.of(0, 2), 10);
+        when(chunkedUploadService.getStatus("U1", AUTH)).thenReturn(Optional.of(status));
+        when(chunkedUploadService.missingChunks(status, 3)).thenReturn(List.of(1));
+
+        ResponseEntity<APIResponse<Map<String, Object>>> response = controller.completeChunkedUpload(AUTH, "U1", 3);
+
+        assertEquals(409, response.getStatusCodeValue());
+        assertEquals("Missing chunks: [1]", response.getBody().getMessage());
+        assertEquals(List.of(0, 2), response.getBody().getData().get("received_chunks"));
+        verify(chunkedUploadService, never()).complete(anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    void testCompleteChunkedUpload_allChunks_returnsAccepted() {
+        ChunkedUploadService.ChunkStatus status = new ChunkedUploadService.ChunkStatus("U1", "big.csv", List.of(0, 1), 10);
+        when(chunkedUploadService.getStatus("U1", AUTH)).thenReturn(Optional.of(status));
+        when(chunkedUploadService.missingChunks(status, 2)).thenReturn(List.of());
+        when(chunkedUploadService.complete("U1", 2, AUTH)).thenReturn("F1");
+
+        ResponseEntity<APIResponse<Map<String, Object>>> response = controller.completeChunkedUpload(AUTH, "U1", 2);
+
+        assertEquals(202, response.getStatusCodeValue());
+        assertEquals("F1", response.getBody().getData().get("file_id"));
+    }
+
+    @Test
+    void testPutChunk_oversized_returns400() {
+        when(chunkedUploadService.putChunk(eq("U1"), eq(0), any(), eq(AUTH)))
+                .thenThrow(new IllegalArgumentException("Chunk exceeds 10 bytes."));
+
+        ResponseEntity<APIResponse<Map<String, Object>>> response =
+                controller.putChunk(AUTH, "U1", 0, new java.io.ByteArrayInputStream(new byte[0]));
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals("Chunk exceeds 10 bytes.", response.getBody().getMessage());
+    }
+
+    @Test
+    void testPutChunk_stored_auditsSuccess() {
+        ChunkedUploadService.ChunkStatus status = new ChunkedUploadService.ChunkStatus("U1", "big.csv", List.of(0), 10);
+        when(chunkedUploadService.putChunk(eq("U1"), eq(0), any(), eq(AUTH))).thenReturn(Optional.of(status));
+
+        ResponseEntity<APIResponse<Map<String, Object>>> response =
+                controller.putChunk(AUTH, "U1", 0, new java.io.ByteArrayInputStream(new byte[0]));
+
+        assertEquals(200, response.getStatusCodeValue());
+        verify(auditService).logAudit(eq(auditDTO), eq(200), eq("Chunk 0 stored."), eq(AUTH));
+    }
+
+    @Test
+    void testGetChunkedUploadStatus_found_auditsSuccess() {
+        ChunkedUploadService.ChunkStatus status = new ChunkedUploadService.ChunkStatus("U1", "big.csv", List.of(0, 1), 10);
+        when(chunkedUploadService.getStatus("U1", AUTH)).thenReturn(Optional.of(status));
+
+        ResponseEntity<APIResponse<Map<String, Object>>> response = controller.getChunkedUploadStatus(AUTH, "U1");
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(List.of(0, 1), response.getBody().getData().get("received_chunks"));
+        verify(auditService).logAudit(eq(auditDTO), eq(200), contains("chunked upload status"), eq(AUTH));
+    }
+
     @Test
     void testUpdateData_success() {
         Map<String, Object> payload = Map.of("id", "1", "name", "Acme");
@@ -0,0 +1,137 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.BatchWriteService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.WriteRateLimiter;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+class BatchWriteServiceTest {
+
+    private DynamoDbClient dynamoDbClient;
+    private BatchWriteService svc;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbClient = mock(DynamoDbClient.class);
+        svc = new BatchWriteService(dynamoDbClient, new WriteRateLimiter());
+        ReflectionTestUtils.setField(svc, "maxInFlight", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        svc.shutdown();
+    }
+
+    private static List<WriteRequest> batch(String id) {
+        return List.of(WriteRequest.builder()
+                .putRequest(PutRequest.builder().item(Map.of("id", AttributeValue.builder().s(id).build())).build())
+                .build());
+    }
+
+    private static BatchWriteItemResponse ok() {
+        return BatchWriteItemResponse.builder().unprocessedItems(Collections.emptyMap()).build();
+    }
+
+    @Test
+    void pipeline_keepsMultipleBatchesInFlight() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        AtomicInteger overlapping = new AtomicInteger();
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class))).thenAnswer(inv -> {
+            bothStarted.countDown();
+            if (bothStarted.await(5, TimeUnit.SECONDS)) overlapping.incrementAndGet();
+            return ok();
+        });
+
+        BatchWriteService.Pipeline p = svc.open("stage");
+        p.submit(batch("a"));
+        p.submit(batch("b"));
+        p.awaitAll();
+
+        assertEquals(2, overlapping.get());
+    }
+
+    @Test
+    void pipeline_retriesUnprocessedItems() {
+        List<WriteRequest> leftover = batch("b");
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().unprocessedItems(Map.of("stage", leftover)).build())
+                .thenReturn(ok());
+
+        BatchWriteService.Pipeline p = svc.open("stage");
+        p.submit(batch("a"));
+        p.awaitAll();
+
+        ArgumentCaptor<BatchWriteItemRequest> cap = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDbClient, times(2)).batchWriteItem(cap.capture());
+        assertEquals(leftover, cap.getAllValues().get(1).requestItems().get("stage"));
+    }
+
+    @Test
+    void pipeline_failedBatch_isRethrownToCaller() {
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenThrow(new IllegalStateException("throttled"));
+
+        BatchWriteService.Pipeline p = svc.open("stage");
+        p.submit(batch("a"));
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, p::awaitAll);
+        assertEquals("throttled", ex.getMessage());
+    }
+
+    @Test
+    void pipeline_abort_waitsForRunningBatchesAndAttachesTheirErrors() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class))).thenAnswer(inv -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            finished.incrementAndGet();
+            if ("b".equals(inv.<BatchWriteItemRequest>getArgument(0).requestItems().get("stage").get(0)
+                    .putRequest().item().get("id").s())) {
+                throw new IllegalStateException("throttled");
+            }
+            return ok();
+        });
+
+        BatchWriteService.Pipeline p = svc.open("stage");
+        p.submit(batch("a"));
+        p.submit(batch("b"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        RuntimeException producerFailure = new IllegalArgumentException("bad row 51");
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+            release.countDown();
+        }).start();
+        p.abort(producerFailure);
+
+        assertEquals(2, finished.get());
+        assertEquals(1, producerFailure.getSuppressed().length);
+        assertEquals("throttled", producerFailure.getSuppressed()[0].getMessage());
+        assertEquals(1, p.written());
+    }
+}
@@ -0,0 +1,150 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
+import sg.edu.nus.iss.edgp.masterdata.management.jwt.JWTService;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.ChunkedUploadRequest;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.UploadRequest;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.ChunkedUploadService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.ChunkedUploadService.ChunkStatus;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.UploadJobService;
+
+class ChunkedUploadServiceTest {
+
+    private static final String AUTH = "Bearer token";
+
+    @TempDir
+    Path tempDir;
+
+    private JWTService jwtService;
+    private UploadJobService uploadJobService;
+    private ChunkedUploadService service;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = mock(JWTService.class);
+        uploadJobService = mock(UploadJobService.class);
+        service = new ChunkedUploadService(jwtService, uploadJobService);
+        ReflectionTestUtils.setField(service, "chunkDir", tempDir.toString());
+        ReflectionTestUtils.setField(service, "maxChunkBytes", 16L);
+        when(jwtService.extractUserEmailFromToken("token")).thenReturn("u@x.com");
+    }
+
+    private String initiate() {
+        ChunkedUploadRequest req = new ChunkedUploadRequest();
+        req.setFileName("Big.csv");
+        req.setPolicyId("P1");
+        req.setDomainName("vendor");
+        return service.initiate(req, AUTH);
+    }
+
+    private static InputStream bytes(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void putChunk_outOfOrderAndResent_tracksDistinctIndices() {
+        String id = initiate();
+
+        service.putChunk(id, 1, bytes("2\n"), AUTH);
+        service.putChunk(id, 0, bytes("xx"), AUTH);
+        ChunkStatus status = service.putChunk(id, 0, bytes("a\n1\n"), AUTH).orElseThrow();
+
+        assertEquals(List.of(0, 1), status.receivedChunks());
+        assertEquals(6, status.receivedBytes());
+        assertEquals("Big.csv", status.fileName());
+        assertEquals(List.of(2), service.missingChunks(status, 3));
+    }
+
+    @Test
+    void putChunk_tooLarge_isRejectedAndNotStored() {
+        String id = initiate();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.putChunk(id, 0, bytes("0123456789abcdefXYZ"), AUTH));
+        assertTrue(service.getStatus(id, AUTH).orElseThrow().receivedChunks().isEmpty());
+    }
+
+    @Test
+    void putChunk_unknownOrForeignSession_returnsEmpty() {
+        String id = initiate();
+        when(jwtService.extractUserEmailFromToken("other")).thenReturn("someone@else.com");
+
+        assertTrue(service.putChunk("../../etc", 0, bytes("a"), AUTH).isEmpty());
+        assertTrue(service.putChunk(UUID.randomUUID().toString(), 0, bytes("a"), AUTH).isEmpty());
+        assertTrue(service.putChunk(id, 0, bytes("a"), "Bearer other").isEmpty());
+    }
+
+    @Test
+    void complete_streamsChunksInOrder_andCleansUpAfterJob() throws Exception {
+        String id = initiate();
+        service.putChunk(id, 1, bytes("2\n3\n"), AUTH);
+        service.putChunk(id, 0, bytes("num\n1\n"), AUTH);
+        when(uploadJobService.submit(eq("Big.csv"), any(UploadRequest.class), eq(AUTH), any(), any()))
+                .thenReturn("F1");
+
+        assertEquals("F1", service.complete(id, 2, AUTH));
+
+        ArgumentCaptor<UploadRequest> req = ArgumentCaptor.forClass(UploadRequest.class);
+        ArgumentCaptor<UploadJobService.UploadSource> source = ArgumentCaptor.forClass(UploadJobService.UploadSource.class);
+        ArgumentCaptor<Runnable> cleanup = ArgumentCaptor.forClass(Runnable.class);
+        verify(uploadJobService).submit(eq("Big.csv"), req.capture(), eq(AUTH), source.capture(), cleanup.capture());
+        assertEquals("P1", req.getValue().getPolicyId());
+        assertEquals("vendor", req.getValue().getDomainName());
+        try (InputStream in = source.getValue().open()) {
+            assertEquals("num\n1\n2\n3\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        // no more chunks once completion has been handed off
+        assertTrue(service.putChunk(id, 2, bytes("4\n"), AUTH).isEmpty());
+
+        cleanup.getValue().run();
+        assertFalse(Files.exists(tempDir.resolve(id)));
+    }
+
+    @Test
+    void complete_rejectedByJobQueue_keepsChunksForRetry() {
+        String id = initiate();
+        service.putChunk(id, 0, bytes("a\n1\n"), AUTH);
+        when(uploadJobService.submit(anyString(), any(), anyString(), any(), any()))
+                .thenThrow(new MasterdataServiceException("busy", new RejectedExecutionException()))
+                .thenReturn("F2");
+
+        assertThrows(MasterdataServiceException.class, () -> service.complete(id, 1, AUTH));
+        assertEquals(List.of(0), service.putChunk(id, 0, bytes("a\n1\n"), AUTH).orElseThrow().receivedChunks());
+        assertEquals("F2", service.complete(id, 1, AUTH));
+    }
+
+    @Test
+    void purgeExpired_removesIdleSessionsOnly() throws Exception {
+        String idle = initiate();
+        String active = initiate();
+        Files.setLastModifiedTime(tempDir.resolve(idle), FileTime.from(Instant.now().minus(2, ChronoUnit.DAYS)));
+
+        service.purgeExpired();
+
+        assertFalse(Files.exists(tempDir.resolve(idle)));
+        assertTrue(Files.exists(tempDir.resolve(active)));
+    }
+}
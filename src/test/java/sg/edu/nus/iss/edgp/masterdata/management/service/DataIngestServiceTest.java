@@ -11,16 +11,20 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import sg.edu.nus.iss.edgp.masterdata.management.dto.BulkIngestResult;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.InsertionSummary;
 import sg.edu.nus.iss.edgp.masterdata.management.dto.UploadResult;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
 import sg.edu.nus.iss.edgp.masterdata.management.jwt.JWTService;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.DataIngestService;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.DynamicDetailService;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.HeaderService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.IngestCoalescer;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.MasterdataService;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.StagingDataService;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
@@ -35,6 +39,7 @@ public class DataIngestServiceTest {
  private HeaderService headerService;
  private StagingDataService stagingDataService;
  private MasterdataService masterdataService;
+ private IngestCoalescer ingestCoalescer;
 
  private DataIngestService service;
 
@@ -46,9 +51,11 @@ public class DataIngestServiceTest {
      headerService = mock(HeaderService.class);
      stagingDataService = mock(StagingDataService.class);
      masterdataService = mock(MasterdataService.class);
+     ingestCoalescer = mock(IngestCoalescer.class);
 
      service = new DataIngestService(
-             dynamoDbClient, jwtService, dynamoService, headerService, stagingDataService, masterdataService
+             dynamoDbClient, jwtService, dynamoService, headerService, stagingDataService, masterdataService,
+             ingestCoalescer
      );
 
      // Inject @Value fields
@@ -290,5 +297,129 @@ public class DataIngestServiceTest {
      UploadResult res = service.updateDataToTable(new HashMap<>(), "raw");
      assertEquals("ok", res.getMessage());
  }
+
+ // ---------------- processBulkIngest ----------------
+
+ @SuppressWarnings("unchecked")
+ private List<Map<String, Object>> stubStagingAndCollect() {
+     List<Map<String, Object>> written = new ArrayList<>();
+     when(jwtService.extractUserEmailFromToken("abc")).thenReturn("u@x.com");
+     when(jwtService.extractOrgIdFromToken("abc")).thenReturn("ORG1");
+     when(dynamoService.tableExists(anyString())).thenReturn(true);
+     when(stagingDataService.insertToStaging(eq("md_staging"), any(Iterator.class), eq("ORG1"), eq("P1"),
+             eq("vendor"), anyString(), eq("u@x.com"))).thenAnswer(inv -> {
+                 Iterator<Map<String, Object>> rows = inv.getArgument(1);
+                 rows.forEachRemaining(written::add);
+                 return new InsertionSummary(written.size(), List.of());
+             });
+     return written;
+ }
+
+ private static java.io.InputStream body(String s) {
+     return new java.io.ByteArrayInputStream(s.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+ }
+
+ @Test
+ void processBulkIngest_ndjson_skipsBadLines_andSavesOneHeader() throws Exception {
+     List<Map<String, Object>> written = stubStagingAndCollect();
+     String ndjson = "{\"name\":\"A\",\"domain_name\":\"Vendor\"}\n"
+             + "not json\n"
+             + "\n"
+             + "{\"name\":\"B\",\"policy_id\":\"P2\"}\n"
+             + "[1,2]\n"
+             + "{\"name\":\"C\"}\n";
+
+     BulkIngestResult res = service.processBulkIngest(body(ndjson), true, "vendor", "P1", "Bearer abc");
+
+     assertEquals(2, res.getAccepted());
+     assertEquals(3, res.getRejected());
+     assertFalse(res.isTruncated());
+     assertEquals(List.of(2L, 3L, 4L), res.getErrors().stream().map(BulkIngestResult.RowError::row).toList());
+     assertEquals(List.of(Map.of("name", "A"), Map.of("name", "C")), written);
+
+     ArgumentCaptor<MasterDataHeader> header = ArgumentCaptor.forClass(MasterDataHeader.class);
+     InOrder order = inOrder(headerService, stagingDataService);
+     order.verify(headerService).saveHeader(eq("md_header"), header.capture());
+     order.verify(stagingDataService).insertToStaging(anyString(), any(Iterator.class), anyString(), anyString(),
+             anyString(), anyString(), anyString());
+     order.verify(headerService).completeUpload(eq(res.getFileId()), eq(2L), eq(2L), anyLong());
+     assertEquals(res.getFileId(), header.getValue().getId());
+     assertEquals(FileProcessStage.UPLOADING, header.getValue().getProcessStage());
+     verify(headerService, never()).failUpload(anyString(), any());
+ }
+
+ @Test
+ void processBulkIngest_jsonArray_malformedTail_isReportedAsTruncated() throws Exception {
+     List<Map<String, Object>> written = stubStagingAndCollect();
+
+     BulkIngestResult res = service.processBulkIngest(body("[{\"name\":\"A\"},{\"name\":\"B\"},{\"name\":"),
+             false, "vendor", "P1", "Bearer abc");
+
+     assertEquals(2, written.size());
+     assertEquals(2, res.getAccepted());
+     assertEquals(1, res.getRejected());
+     assertTrue(res.isTruncated());
+     assertEquals(3L, res.getErrors().get(0).row());
+ }
+
+ @Test
+ void processBulkIngest_noValidRows_headerIsFailedAndNeverDispatchable() throws Exception {
+     stubStagingAndCollect();
+
+     BulkIngestResult res = service.processBulkIngest(body("[1, {}]"), false, "vendor", "P1", "Bearer abc");
+
+     assertEquals(0, res.getAccepted());
+     assertEquals(2, res.getRejected());
+     assertNull(res.getFileId());
+     verify(headerService).failUpload(anyString(), eq("No valid rows."));
+     verify(headerService, never()).completeUpload(anyString(), anyLong(), anyLong(), anyLong());
+ }
+
+ @Test
+ @SuppressWarnings("unchecked")
+ void processBulkIngest_stagingFailsMidStream_headerIsFailedNotFinalized() {
+     when(jwtService.extractUserEmailFromToken("abc")).thenReturn("u@x.com");
+     when(jwtService.extractOrgIdFromToken("abc")).thenReturn("ORG1");
+     when(dynamoService.tableExists(anyString())).thenReturn(true);
+     when(stagingDataService.insertToStaging(eq("md_staging"), any(Iterator.class), eq("ORG1"), eq("P1"),
+             eq("vendor"), anyString(), eq("u@x.com"))).thenThrow(new IllegalStateException("throttled"));
+
+     assertThrows(IllegalStateException.class, () -> service.processBulkIngest(body("[{\"name\":\"A\"}]"), false,
+             "vendor", "P1", "Bearer abc"));
+
+     ArgumentCaptor<MasterDataHeader> header = ArgumentCaptor.forClass(MasterDataHeader.class);
+     verify(headerService).saveHeader(eq("md_header"), header.capture());
+     assertEquals(FileProcessStage.UPLOADING, header.getValue().getProcessStage());
+     verify(headerService).failUpload(header.getValue().getId(), "throttled");
+     verify(headerService, never()).completeUpload(anyString(), anyLong(), anyLong(), anyLong());
+ }
+
+ @Test
+ void processBulkIngest_missingDomain_throwsIllegalArgument() {
+     assertThrows(IllegalArgumentException.class,
+             () -> service.processBulkIngest(body("[]"), false, " ", "P1", "Bearer abc"));
+     verifyNoInteractions(stagingDataService);
+ }
+
+ @Test
+ void processIngest_coalescingEnabled_delegatesRowAndSkipsOwnHeader() {
+     when(ingestCoalescer.isEnabled()).thenReturn(true);
+     when(jwtService.extractUserEmailFromToken("abc")).thenReturn("u@x.com");
+     when(jwtService.extractOrgIdFromToken("abc")).thenReturn("ORG1");
+     Map<String, Object> staged = Map.of("id", "R1", "name", "Acme");
+     when(ingestCoalescer.ingest(eq(Map.of("name", "Acme")), eq("ORG1"), eq("P1"), eq("customer"), eq("u@x.com")))
+             .thenReturn(staged);
+
+     Map<String, Object> data = new LinkedHashMap<>();
+     data.put("domain_name", "customer");
+     data.put("policy_id", "P1");
+     data.put("name", "Acme");
+     UploadResult res = service.processIngest(Map.of("data", data), "Bearer abc");
+
+     assertEquals(1, res.getTotalRecord());
+     assertEquals(List.of(staged), res.getData());
+     verify(headerService, never()).saveHeader(anyString(), any());
+     verifyNoInteractions(stagingDataService);
+ }
 }
 
@@ -5,6 +5,7 @@ import static org.mockito.Mockito.*;
 
 import java.util.*;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,7 +24,6 @@ import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedExce
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
-import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 
 @ExtendWith(MockitoExtension.class)
 public class DomainServiceTest {
@@ -63,8 +63,8 @@ public class DomainServiceTest {
         Map<String, AttributeValue> it2 = Map.of("name", AttributeValue.builder().s("product").build());
         Map<String, AttributeValue> it3 = Map.of("other", AttributeValue.builder().s("ignore").build()); // no "name"
 
-        when(dynamoDbClient.scan(any(ScanRequest.class)))
-                .thenReturn(ScanResponse.builder().items(it1, it2, it3).build());
+        when(dynamoService.parallelScan(any(ScanRequest.class)))
+                .thenReturn(Stream.of(it1, it2, it3));
 
         List<String> out = svc.findDomains();
         assertEquals(2, out.size());
@@ -72,7 +72,7 @@ public class DomainServiceTest {
         assertTrue(out.contains("product"));
 
         ArgumentCaptor<ScanRequest> cap = ArgumentCaptor.forClass(ScanRequest.class);
-        verify(dynamoDbClient).scan(cap.capture());
+        verify(dynamoService).parallelScan(cap.capture());
         ScanRequest sent = cap.getValue();
         assertEquals("domain_tbl", sent.tableName());
         assertEquals(List.of("name"), sent.attributesToGet());
@@ -81,7 +81,7 @@ public class DomainServiceTest {
     @Test
     void findDomains_scanThrows_wrapsInMasterdataServiceException() {
         when(dynamoService.tableExists("domain_tbl")).thenReturn(true);
-        when(dynamoDbClient.scan(any(ScanRequest.class)))
+        when(dynamoService.parallelScan(any(ScanRequest.class)))
                 .thenThrow(DynamoDbException.builder().message("ddb down").build());
 
         MasterdataServiceException ex =
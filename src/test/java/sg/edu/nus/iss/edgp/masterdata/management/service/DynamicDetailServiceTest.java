@@ -4,15 +4,24 @@ package sg.edu.nus.iss.edgp.masterdata.management.service;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.DynamicDetailService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.QueryPlanner;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.WriteRateLimiter;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
@@ -25,7 +34,7 @@ public class DynamicDetailServiceTest {
     @BeforeEach
     void setUp() {
         dynamoDbClient = mock(DynamoDbClient.class);
-        svc = new DynamicDetailService(dynamoDbClient);
+        svc = new DynamicDetailService(dynamoDbClient, new WriteRateLimiter());
     }
 
 
@@ -94,6 +103,45 @@ public class DynamicDetailServiceTest {
         assertFalse(svc.tableExists("t"));
     }
 
+    @Test
+    void tableExists_knownTable_isAnsweredFromMemory() {
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class)))
+                .thenReturn(DescribeTableResponse.builder().build());
+        assertTrue(svc.tableExists("t"));
+        assertTrue(svc.tableExists("t"));
+        verify(dynamoDbClient, times(1)).describeTable(any(DescribeTableRequest.class));
+
+        svc.forgetTable("t");
+        assertTrue(svc.tableExists("t"));
+        verify(dynamoDbClient, times(2)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    void tableExists_missingTable_isCheckedAgain() {
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class)))
+                .thenThrow(ResourceNotFoundException.builder().message("nope").build());
+        assertFalse(svc.tableExists("t"));
+        assertFalse(svc.tableExists("t"));
+        verify(dynamoDbClient, times(2)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    void createTable_alreadyBeingCreated_waitsAndRegistersTable() {
+        when(dynamoDbClient.createTable(any(CreateTableRequest.class)))
+                .thenThrow(ResourceInUseException.builder().message("in use").build());
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class)))
+                .thenThrow(ResourceNotFoundException.builder().message("not yet").build(), notFoundByWaiter())
+                .thenReturn(DescribeTableResponse.builder()
+                        .table(TableDescription.builder().tableStatus(TableStatus.ACTIVE).build())
+                        .build());
+
+        svc.ensureTable("new_tbl", List.of());
+
+        assertTrue(svc.tableExists("new_tbl"));
+        // one miss from ensureTable, then the waiter: one miss and one ACTIVE
+        verify(dynamoDbClient, times(3)).describeTable(any(DescribeTableRequest.class));
+    }
+
 
     @Test
     void createTable_buildsSchema_andWaitsActiveOnce() {
@@ -195,6 +243,23 @@ public class DynamicDetailServiceTest {
         assertEquals("attribute_exists(id)", ur.conditionExpression());
         assertEquals("1", ur.expressionAttributeValues().get(":s").s());
         assertNotNull(ur.expressionAttributeValues().get(":ud").s()); // timestamp present
+        assertEquals(ReturnConsumedCapacity.TOTAL, ur.returnConsumedCapacity()); // settled by the write limiter
+    }
+
+    @Test
+    void updateStagingProcessedStatus_throttled_lowersTheSharedWriteRate() {
+        WriteRateLimiter limiter = new WriteRateLimiter();
+        svc = new DynamicDetailService(dynamoDbClient, limiter);
+        double before = limiter.currentRate();
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenThrow(
+                ProvisionedThroughputExceededException.builder().message("slow down")
+                        .awsErrorDetails(AwsErrorDetails.builder()
+                                .errorCode("ProvisionedThroughputExceededException").build())
+                        .build());
+
+        assertThrows(ProvisionedThroughputExceededException.class,
+                () -> svc.updateStagingProcessedStatus("stg", "S-1", "1"));
+        assertTrue(limiter.currentRate() < before);
     }
 
 
@@ -273,4 +338,208 @@ public class DynamicDetailServiceTest {
         assertNotNull(ur.expressionAttributeValues().get(":one"));
         assertNotNull(ur.expressionAttributeValues().get(":zero"));
     }
+
+    // the waiter matches on the service error code, not the exception type
+    private static ResourceNotFoundException notFoundByWaiter() {
+        return (ResourceNotFoundException) ResourceNotFoundException.builder().message("not yet")
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ResourceNotFoundException").build())
+                .build();
+    }
+
+    @Test
+    void createTable_withIndexes_definesKeyAttributesAndGsis() {
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class)))
+                .thenReturn(DescribeTableResponse.builder()
+                        .table(TableDescription.builder().tableStatus(TableStatus.ACTIVE).build())
+                        .build());
+
+        svc.createTable("stg", QueryPlanner.STAGING_INDEXES);
+
+        ArgumentCaptor<CreateTableRequest> cap = ArgumentCaptor.forClass(CreateTableRequest.class);
+        verify(dynamoDbClient).createTable(cap.capture());
+        CreateTableRequest ctr = cap.getValue();
+        assertEquals(List.of("id", "uploaded_by", "file_id", "policy_id", "domain_name"),
+                ctr.attributeDefinitions().stream().map(AttributeDefinition::attributeName).toList());
+        assertEquals(3, ctr.globalSecondaryIndexes().size());
+        GlobalSecondaryIndex gsi = ctr.globalSecondaryIndexes().get(0);
+        assertEquals("uploaded_by-file_id-index", gsi.indexName());
+        assertEquals(KeyType.HASH, gsi.keySchema().get(0).keyType());
+        assertEquals("file_id", gsi.keySchema().get(1).attributeName());
+        assertEquals(ProjectionType.ALL, gsi.projection().projectionType());
+    }
+
+    @Test
+    void indexActive_cachesActiveIndexes() {
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class)))
+                .thenReturn(tableWithIndex("uploaded_by-file_id-index", IndexStatus.ACTIVE));
+
+        assertTrue(svc.indexActive("stg", "uploaded_by-file_id-index"));
+        assertTrue(svc.indexActive("stg", "uploaded_by-file_id-index"));
+        // a missing index is only re-checked after the recheck interval
+        assertFalse(svc.indexActive("stg", "uploaded_by-domain_name-index"));
+        verify(dynamoDbClient, times(1)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    void ensureIndexes_createsMissingIndex_andWaitsForIt() {
+        ReflectionTestUtils.setField(svc, "indexPollMs", 1L);
+        QueryPlanner.Index idx = QueryPlanner.HEADER_INDEXES.get(0);
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class)))
+                .thenReturn(DescribeTableResponse.builder().table(TableDescription.builder().build()).build())
+                .thenReturn(tableWithIndex(idx.name(), IndexStatus.CREATING))
+                .thenReturn(tableWithIndex(idx.name(), IndexStatus.ACTIVE));
+
+        svc.ensureIndexes("hdr", List.of(idx));
+
+        ArgumentCaptor<UpdateTableRequest> cap = ArgumentCaptor.forClass(UpdateTableRequest.class);
+        verify(dynamoDbClient).updateTable(cap.capture());
+        CreateGlobalSecondaryIndexAction create = cap.getValue().globalSecondaryIndexUpdates().get(0).create();
+        assertEquals(idx.name(), create.indexName());
+        assertEquals(2, cap.getValue().attributeDefinitions().size());
+        verify(dynamoDbClient, times(3)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    void ensureIndexes_existingIndex_isNotCreatedAgain() {
+        QueryPlanner.Index idx = QueryPlanner.HEADER_INDEXES.get(0);
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class)))
+                .thenReturn(tableWithIndex(idx.name(), IndexStatus.ACTIVE));
+
+        svc.ensureIndexes("hdr", List.of(idx));
+
+        verify(dynamoDbClient, never()).updateTable(any(UpdateTableRequest.class));
+    }
+
+    private static DescribeTableResponse tableWithIndex(String name, IndexStatus status) {
+        return DescribeTableResponse.builder()
+                .table(TableDescription.builder().tableStatus(TableStatus.ACTIVE)
+                        .globalSecondaryIndexes(GlobalSecondaryIndexDescription.builder()
+                                .indexName(name).indexStatus(status).build())
+                        .build())
+                .build();
+    }
+
+    private static Map<String, AttributeValue> row(String id) {
+        return Map.of("id", AttributeValue.builder().s(id).build());
+    }
+
+    @Test
+    void parallelScan_oneSegment_pagesSequentiallyWithoutSegmentParameters() {
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(row("a"), row("b")).lastEvaluatedKey(row("b")).build())
+                .thenReturn(ScanResponse.builder().items(row("c")).build());
+
+        List<String> ids = new ArrayList<>();
+        try (Stream<Map<String, AttributeValue>> s =
+                     svc.parallelScan(ScanRequest.builder().tableName("t").build(), 1)) {
+            s.forEach(i -> ids.add(i.get("id").s()));
+        }
+
+        assertEquals(List.of("a", "b", "c"), ids);
+        ArgumentCaptor<ScanRequest> cap = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient, times(2)).scan(cap.capture());
+        assertNull(cap.getAllValues().get(0).totalSegments());
+        assertEquals("b", cap.getAllValues().get(1).exclusiveStartKey().get("id").s());
+    }
+
+    @Test
+    void parallelScan_segments_readsEverySegmentAndMergesAllItems() {
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenAnswer(inv -> {
+            ScanRequest r = inv.getArgument(0);
+            String seg = "s" + r.segment();
+            if (r.exclusiveStartKey().isEmpty()) {
+                return ScanResponse.builder().items(row(seg + "-1")).lastEvaluatedKey(row(seg + "-1")).build();
+            }
+            return ScanResponse.builder().items(row(seg + "-2")).build();
+        });
+
+        Set<String> ids = new HashSet<>();
+        try (Stream<Map<String, AttributeValue>> s =
+                     svc.parallelScan(ScanRequest.builder().tableName("t").build(), 3)) {
+            s.forEach(i -> ids.add(i.get("id").s()));
+        }
+
+        assertEquals(Set.of("s0-1", "s0-2", "s1-1", "s1-2", "s2-1", "s2-2"), ids);
+        ArgumentCaptor<ScanRequest> cap = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient, times(6)).scan(cap.capture());
+        assertTrue(cap.getAllValues().stream().allMatch(r -> r.totalSegments() == 3));
+        svc.shutdown();
+    }
+
+    @Test
+    void parallelScan_segmentFails_surfacesAsMasterdataServiceException() {
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenAnswer(inv -> {
+            ScanRequest r = inv.getArgument(0);
+            if (r.segment() == 1) throw DynamoDbException.builder().message("throttled").build();
+            return ScanResponse.builder().items(row("ok")).build();
+        });
+
+        Stream<Map<String, AttributeValue>> s =
+                svc.parallelScan(ScanRequest.builder().tableName("t").build(), 2);
+        assertThrows(MasterdataServiceException.class,
+                () -> s.forEach(i -> { }));
+        s.close();
+        svc.shutdown();
+    }
+
+    @Test
+    void parallelScan_segmentCountFollowsTableSize() {
+        ReflectionTestUtils.setField(svc, "scanSegmentMb", 1L);
+        ReflectionTestUtils.setField(svc, "maxScanSegments", 4);
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class)))
+                .thenReturn(DescribeTableResponse.builder().table(TableDescription.builder()
+                        .tableName("t").tableSizeBytes(3L * 1024 * 1024 - 1).build()).build());
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenReturn(ScanResponse.builder().build());
+
+        try (Stream<Map<String, AttributeValue>> s =
+                     svc.parallelScan(ScanRequest.builder().tableName("t").build())) {
+            assertEquals(0, s.count());
+        }
+
+        ArgumentCaptor<ScanRequest> cap = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient, times(3)).scan(cap.capture());
+        assertTrue(cap.getAllValues().stream().allMatch(r -> r.totalSegments() == 3));
+        svc.shutdown();
+    }
+
+    @Test
+    void parallelScan_slowConsumerOfOneScan_doesNotHoldUpAnotherScan() {
+        ReflectionTestUtils.setField(svc, "scanThreads", 2);
+        ReflectionTestUtils.setField(svc, "scanStallMs", 10_000L);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenAnswer(inv -> {
+            ScanRequest r = inv.getArgument(0);
+            if (r.tableName().equals("slow")) {
+                // an endless table: its readers fill the queue and then block on the idle consumer
+                return ScanResponse.builder().items(row("x")).lastEvaluatedKey(row("x")).build();
+            }
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return ScanResponse.builder().items(row("fast-" + r.segment())).build();
+        });
+
+        try (Stream<Map<String, AttributeValue>> slow =
+                     svc.parallelScan(ScanRequest.builder().tableName("slow").build(), 2)) {
+            Iterator<Map<String, AttributeValue>> it = slow.iterator();
+            assertTrue(it.hasNext());
+
+            Set<String> ids = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                Set<String> read = new HashSet<>();
+                try (Stream<Map<String, AttributeValue>> fast =
+                             svc.parallelScan(ScanRequest.builder().tableName("fast").build(), 4)) {
+                    fast.forEach(i -> read.add(i.get("id").s()));
+                }
+                return read;
+            });
+            assertEquals(Set.of("fast-0", "fast-1", "fast-2", "fast-3"), ids);
+        }
+
+        assertEquals(2, maxInFlight.get());
+        svc.shutdown();
+    }
 }
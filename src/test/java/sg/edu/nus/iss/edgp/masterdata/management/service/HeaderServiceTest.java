@@ -15,14 +15,20 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.UploadJobState;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.HeaderService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.ListingVersionService;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
 import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
 import software.amazon.awssdk.services.dynamodb.paginators.ScanIterable;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 
@@ -30,12 +36,14 @@ import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 class HeaderServiceTest {
 
     private DynamoDbClient ddb;
+    private ListingVersionService listingVersionService;
     private HeaderService service;
 
     @BeforeEach
     void setUp() {
         ddb = mock(DynamoDbClient.class);
-        service = new HeaderService(ddb);
+        listingVersionService = mock(ListingVersionService.class);
+        service = new HeaderService(ddb, listingVersionService);
         
         ReflectionTestUtils.setField(service, "headerTableName", "md_header");
     }
@@ -72,6 +80,7 @@ class HeaderServiceTest {
         assertEquals("5", item.get("total_rows_count").n());
         assertEquals(FileProcessStage.UNPROCESSED.toString(), item.get("process_stage").s());
         assertEquals("NEW", item.get("file_status").s());
+        verify(listingVersionService).bump("user@example.com");
 
         String uploaded = item.get("uploaded_date").s();
         assertTrue(Pattern.matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}", uploaded));
@@ -128,7 +137,7 @@ class HeaderServiceTest {
         assertEquals("md_header", req.tableName());
         assertEquals("F1", req.key().get("id").s());
         assertEquals("attribute_exists(id)", req.conditionExpression());
-        assertEquals(ReturnValue.UPDATED_NEW, req.returnValues());
+        assertEquals(ReturnValue.ALL_NEW, req.returnValues());
 
         assertTrue(req.updateExpression().contains("#ps = :ps"));
         assertTrue(req.updateExpression().contains("updated_date = :now"));
@@ -201,4 +210,164 @@ class HeaderServiceTest {
         m.put("total_rows_count", AttributeValue.builder().n(String.valueOf(totalRows)).build());
         return m;
     }
+    @Test
+    void saveHeader_asyncUpload_addsProgressAttributes() {
+        MasterDataHeader hdr = new MasterDataHeader();
+        hdr.setId("H1");
+        hdr.setProcessStage(FileProcessStage.UPLOADING);
+        hdr.setUploadState(UploadJobState.QUEUED);
+
+        service.saveHeader("tbl_name", hdr);
+
+        ArgumentCaptor<PutItemRequest> captor = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(ddb).putItem(captor.capture());
+        Map<String, AttributeValue> item = captor.getValue().item();
+        assertEquals("UPLOADING", item.get("process_stage").s());
+        assertEquals("QUEUED", item.get("upload_state").s());
+        assertEquals("0", item.get("rows_written").n());
+    }
+
+    @Test
+    void completeUpload_releasesFileToDispatcher() {
+        service.completeUpload("F1", 120, 20, 60);
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(ddb).updateItem(captor.capture());
+        UpdateItemRequest req = captor.getValue();
+        assertEquals("md_header", req.tableName());
+        assertEquals("attribute_exists(id)", req.conditionExpression());
+        assertEquals("COMPLETED", req.expressionAttributeValues().get(":st").s());
+        assertEquals("120", req.expressionAttributeValues().get(":rw").n());
+        Map<String, String> names = req.expressionAttributeNames();
+        for (Map.Entry<String, String> e : names.entrySet()) {
+            AttributeValue v = req.expressionAttributeValues().get(":" + e.getKey().substring(1));
+            if ("process_stage".equals(e.getValue())) assertEquals("UNPROCESSED", v.s());
+            if ("total_rows_count".equals(e.getValue())) assertEquals("120", v.n());
+        }
+        assertTrue(names.containsValue("process_stage"));
+        assertTrue(req.updateExpression().endsWith(" ADD #staged :staged"));
+        assertEquals("rows_staged", names.get("#staged"));
+        assertEquals("20", req.expressionAttributeValues().get(":staged").n());
+    }
+
+    @Test
+    void markDispatched_setsProcessingAndAddsOneInTheSameWrite_bumpsTheUploadersListingVersion() {
+        Map<String, AttributeValue> after = Map.of("rows_dispatched", AttributeValue.builder().n("7").build(),
+                "uploaded_by", AttributeValue.builder().s("u@x.com").build());
+        when(ddb.updateItem(any(UpdateItemRequest.class))).thenReturn(UpdateItemResponse.builder()
+                .attributes(after).build());
+
+        assertEquals(7, service.markDispatched("F1"));
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(ddb).updateItem(captor.capture());
+        UpdateItemRequest req = captor.getValue();
+        assertEquals("SET #ps = :ps, updated_date = :now ADD #d :one", req.updateExpression());
+        assertEquals("rows_dispatched", req.expressionAttributeNames().get("#d"));
+        assertEquals("PROCESSING", req.expressionAttributeValues().get(":ps").s());
+        assertEquals(ReturnValue.ALL_NEW, req.returnValues());
+        verify(listingVersionService).bump(after);
+    }
+
+    @Test
+    void heartbeatUpload_onlyTouchesQueuedOrRunningJobs_finishedJobIsIgnored() {
+        when(ddb.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("done").build());
+
+        assertDoesNotThrow(() -> service.heartbeatUpload("F1"));
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(ddb).updateItem(captor.capture());
+        UpdateItemRequest req = captor.getValue();
+        assertEquals("SET updated_date = :now", req.updateExpression());
+        assertEquals("upload_state IN (:queued, :running)", req.conditionExpression());
+        verifyNoInteractions(listingVersionService);
+    }
+
+    @Test
+    void failStaleUpload_isConditionalOnTheTimestampRead() {
+        when(ddb.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(UpdateItemResponse.builder().attributes(Map.of(
+                        "uploaded_by", AttributeValue.builder().s("u@x.com").build())).build())
+                .thenThrow(ConditionalCheckFailedException.builder().message("moved on").build());
+
+        assertTrue(service.failStaleUpload("F1", "2024-01-01 10:00:00", "stalled"));
+        assertFalse(service.failStaleUpload("F1", "2024-01-01 10:00:00", "stalled"));
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(ddb, times(2)).updateItem(captor.capture());
+        UpdateItemRequest req = captor.getAllValues().get(0);
+        assertEquals("updated_date = :seen AND upload_state IN (:queued, :running)", req.conditionExpression());
+        assertEquals("2024-01-01 10:00:00", req.expressionAttributeValues().get(":seen").s());
+        assertEquals("FAILED", req.expressionAttributeValues().get(":st").s());
+        verify(listingVersionService, times(1)).bump(anyMap());
+    }
+
+    @Test
+    void findById_mapsProgressAttributes() {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("id", AttributeValue.builder().s("F1").build());
+        item.put("process_stage", AttributeValue.builder().s("UPLOADING").build());
+        item.put("upload_state", AttributeValue.builder().s("RUNNING").build());
+        item.put("rows_parsed", AttributeValue.builder().n("75").build());
+        item.put("rows_written", AttributeValue.builder().n("50").build());
+        when(ddb.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().item(item).build());
+
+        MasterDataHeader header = service.findById("F1").orElseThrow();
+
+        assertEquals(FileProcessStage.UPLOADING, header.getProcessStage());
+        assertEquals(UploadJobState.RUNNING, header.getUploadState());
+        assertEquals(75, header.getRowsParsed());
+        assertEquals(50, header.getRowsWritten());
+    }
+
+    @Test
+    void findById_missing_returnsEmpty() {
+        when(ddb.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().build());
+        assertTrue(service.findById("nope").isEmpty());
+    }
+
+    @Test
+    void findRecentUploadersByOrganization_keepsOneUploaderPerOrg_acrossPages() {
+        Map<String, AttributeValue> a = Map.of("organization_id", AttributeValue.builder().s("ORG1").build(),
+                "uploaded_by", AttributeValue.builder().s("a@x.com").build());
+        Map<String, AttributeValue> b = Map.of("organization_id", AttributeValue.builder().s("ORG1").build(),
+                "uploaded_by", AttributeValue.builder().s("b@x.com").build());
+        Map<String, AttributeValue> c = Map.of("organization_id", AttributeValue.builder().s("ORG2").build(),
+                "uploaded_by", AttributeValue.builder().s("c@x.com").build());
+        when(ddb.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(a, b).scannedCount(2)
+                        .lastEvaluatedKey(Map.of("id", AttributeValue.builder().s("k").build())).build())
+                .thenReturn(ScanResponse.builder().items(c).scannedCount(1).build());
+
+        Map<String, String> out = service.findRecentUploadersByOrganization("2026-01-01 00:00:00", 100, 10);
+
+        assertEquals(Map.of("ORG1", "a@x.com", "ORG2", "c@x.com"), out);
+        ArgumentCaptor<ScanRequest> captor = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(ddb, times(2)).scan(captor.capture());
+        assertEquals("md_header", captor.getAllValues().get(0).tableName());
+        assertEquals("2026-01-01 00:00:00", captor.getAllValues().get(0).expressionAttributeValues().get(":since").s());
+    }
+
+    @Test
+    void findRecentUploadersByOrganization_stopsAtTheOrganizationCapOrThePageCap() {
+        Map<String, AttributeValue> a = Map.of("organization_id", AttributeValue.builder().s("ORG1").build(),
+                "uploaded_by", AttributeValue.builder().s("a@x.com").build());
+        Map<String, AttributeValue> b = Map.of("organization_id", AttributeValue.builder().s("ORG2").build(),
+                "uploaded_by", AttributeValue.builder().s("b@x.com").build());
+        Map<String, AttributeValue> more = Map.of("id", AttributeValue.builder().s("k").build());
+        // a filtered page can match nothing yet still carry a continuation key
+        when(ddb.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(List.of()).scannedCount(1000).lastEvaluatedKey(more).build());
+
+        assertTrue(service.findRecentUploadersByOrganization("2026-01-01 00:00:00", 100, 3).isEmpty());
+        verify(ddb, times(3)).scan(any(ScanRequest.class));
+
+        reset(ddb);
+        when(ddb.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(a, b).scannedCount(2).lastEvaluatedKey(more).build());
+
+        assertEquals(Map.of("ORG1", "a@x.com"), service.findRecentUploadersByOrganization("2026-01-01 00:00:00", 1, 3));
+        verify(ddb, times(1)).scan(any(ScanRequest.class));
+    }
 }
@@ -0,0 +1,190 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sg.edu.nus.iss.edgp.masterdata.management.dto.InsertionSummary;
+import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.DynamicDetailService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.HeaderService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.IngestCoalescer;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.StagingDataService;
+
+class IngestCoalescerTest {
+
+    private DynamicDetailService dynamoService;
+    private HeaderService headerService;
+    private StagingDataService stagingDataService;
+    private IngestCoalescer coalescer;
+    private ExecutorService callers;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        dynamoService = mock(DynamicDetailService.class);
+        headerService = mock(HeaderService.class);
+        stagingDataService = mock(StagingDataService.class);
+        coalescer = new IngestCoalescer(dynamoService, headerService, stagingDataService);
+        ReflectionTestUtils.setField(coalescer, "headerTableName", "hdr");
+        ReflectionTestUtils.setField(coalescer, "stagingTableName", "stg");
+        ReflectionTestUtils.setField(coalescer, "windowMs", 10_000L);
+        ReflectionTestUtils.setField(coalescer, "maxRows", 4);
+        when(dynamoService.tableExists(anyString())).thenReturn(true);
+        callers = Executors.newFixedThreadPool(8);
+
+        // echo each row back with a generated id, like the real staging writer
+        when(stagingDataService.insertToStaging(anyString(), any(Iterator.class), anyString(), anyString(),
+                anyString(), anyString(), anyString(), any(), any(Consumer.class))).thenAnswer(inv -> {
+                    Iterator<Map<String, Object>> rows = inv.getArgument(1);
+                    Consumer<Map<String, Object>> onStaged = inv.getArgument(8);
+                    int n = 0;
+                    while (rows.hasNext()) {
+                        Map<String, Object> staged = new LinkedHashMap<>(rows.next());
+                        staged.put("id", "id-" + staged.get("name"));
+                        onStaged.accept(staged);
+                        n++;
+                    }
+                    return new InsertionSummary(n, List.of());
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        coalescer.shutdown();
+    }
+
+    private Future<Map<String, Object>> ingestAsync(String name, String policyId) {
+        return callers.submit(() -> coalescer.ingest(Map.of("name", name), "ORG1", policyId, "Vendor", "u@x.com"));
+    }
+
+    @Test
+    void ingest_fullGroup_isFlushedAsOneHeader_andEachCallerGetsItsOwnRow() throws Exception {
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        for (String name : List.of("A", "B", "C", "D")) results.add(ingestAsync(name, "P1"));
+
+        Set<Object> ids = new HashSet<>();
+        for (Future<Map<String, Object>> f : results) {
+            Map<String, Object> row = f.get();
+            assertEquals("id-" + row.get("name"), row.get("id"));
+            ids.add(row.get("id"));
+        }
+        assertEquals(4, ids.size());
+
+        ArgumentCaptor<MasterDataHeader> header = ArgumentCaptor.forClass(MasterDataHeader.class);
+        verify(headerService, times(1)).saveHeader(eq("hdr"), header.capture());
+        assertEquals(4, header.getValue().getTotalRowsCount());
+        assertEquals("vendor", header.getValue().getDomainName());
+        verify(stagingDataService, times(1)).insertToStaging(eq("stg"), any(), eq("ORG1"), eq("P1"), eq("vendor"),
+                eq(header.getValue().getId()), eq("u@x.com"), any(), any());
+    }
+
+    @Test
+    void ingest_partialGroup_isFlushedWhenWindowCloses() throws Exception {
+        ReflectionTestUtils.setField(coalescer, "windowMs", 50L);
+
+        Future<Map<String, Object>> a = ingestAsync("A", "P1");
+        Future<Map<String, Object>> b = ingestAsync("B", "P2"); // different key, different header
+
+        assertEquals("id-A", a.get().get("id"));
+        assertEquals("id-B", b.get().get("id"));
+        verify(headerService, times(2)).saveHeader(eq("hdr"), any());
+    }
+
+    @Test
+    void ingest_failedFlush_failsEveryCallerInTheGroup() throws Exception {
+        ReflectionTestUtils.setField(coalescer, "maxRows", 2);
+        doThrow(new MasterdataServiceException("ddb down")).when(headerService).saveHeader(anyString(), any());
+
+        Future<Map<String, Object>> a = ingestAsync("A", "P1");
+        Future<Map<String, Object>> b = ingestAsync("B", "P1");
+
+        for (Future<Map<String, Object>> f : List.of(a, b)) {
+            Exception ex = assertThrows(Exception.class, f::get);
+            assertInstanceOf(MasterdataServiceException.class, ex.getCause());
+            assertEquals("ddb down", ex.getCause().getMessage());
+        }
+    }
+
+    @Test
+    void ingest_callerTimesOutBeforeFlush_rowIsWithdrawnFromTheWindow() throws Exception {
+        ReflectionTestUtils.setField(coalescer, "windowMs", 300L);
+        ReflectionTestUtils.setField(coalescer, "timeoutMs", 50L);
+
+        MasterdataServiceException ex = assertThrows(MasterdataServiceException.class,
+                () -> coalescer.ingest(Map.of("name", "A"), "ORG1", "P1", "Vendor", "u@x.com"));
+        assertEquals("Timed out waiting for ingest batch", ex.getMessage());
+
+        // the retry lands in a fresh window and is the only copy written
+        ReflectionTestUtils.setField(coalescer, "timeoutMs", 5_000L);
+        assertEquals("id-A", coalescer.ingest(Map.of("name", "A"), "ORG1", "P1", "Vendor", "u@x.com").get("id"));
+        Thread.sleep(400);
+
+        ArgumentCaptor<MasterDataHeader> header = ArgumentCaptor.forClass(MasterDataHeader.class);
+        verify(headerService, times(1)).saveHeader(eq("hdr"), header.capture());
+        assertEquals(1, header.getValue().getTotalRowsCount());
+    }
+
+    @Test
+    void ingest_callerTimesOutWhileItsRowIsWritten_getsTheAssignedRow() throws Exception {
+        ReflectionTestUtils.setField(coalescer, "windowMs", 10L);
+        ReflectionTestUtils.setField(coalescer, "timeoutMs", 100L);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(headerService).saveHeader(anyString(), any());
+
+        try {
+            Map<String, Object> row = coalescer.ingest(Map.of("name", "A"), "ORG1", "P1", "Vendor", "u@x.com");
+            assertEquals("id-A", row.get("id"));
+        } finally {
+            release.countDown();
+        }
+        verify(headerService, timeout(1_000)).saveHeader(eq("hdr"), any());
+    }
+
+    @Test
+    void ingest_slowFlush_doesNotDelayAnotherWindow() throws Exception {
+        ReflectionTestUtils.setField(coalescer, "windowMs", 20L);
+        ReflectionTestUtils.setField(coalescer, "threads", 2);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            MasterDataHeader h = inv.getArgument(1);
+            if ("p1".equalsIgnoreCase(h.getPolicyId())) release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(headerService).saveHeader(anyString(), any());
+
+        try {
+            Future<Map<String, Object>> slow = ingestAsync("A", "P1");
+            Thread.sleep(50);
+            Future<Map<String, Object>> fast = ingestAsync("B", "P2");
+            assertEquals("id-B", fast.get(2, TimeUnit.SECONDS).get("id"));
+            assertFalse(slow.isDone());
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.DynamicDetailService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.ListingVersionService;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+class ListingVersionServiceTest {
+
+    private DynamoDbClient dynamoDbClient;
+    private DynamicDetailService dynamoService;
+    private ListingVersionService versions;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbClient = mock(DynamoDbClient.class);
+        dynamoService = mock(DynamicDetailService.class);
+        versions = new ListingVersionService(dynamoDbClient, dynamoService);
+        ReflectionTestUtils.setField(versions, "versionTableName", "versions");
+    }
+
+    @Test
+    void current_readsOneItemConsistently_missingItemOrTableIsZero() {
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().item(Map.of(
+                        "id", AttributeValue.builder().s("u@x.com").build(),
+                        "epoch", AttributeValue.builder().s("e1").build(),
+                        "version", AttributeValue.builder().n("12").build())).build())
+                .thenReturn(GetItemResponse.builder().build())
+                .thenThrow(ResourceNotFoundException.builder().message("no table").build());
+
+        assertEquals("e1:12", versions.current("U@x.com "));
+        assertEquals("0", versions.current("u@x.com"));
+        assertEquals("0", versions.current("u@x.com"));
+
+        ArgumentCaptor<GetItemRequest> captor = ArgumentCaptor.forClass(GetItemRequest.class);
+        verify(dynamoDbClient, times(3)).getItem(captor.capture());
+        assertEquals("u@x.com", captor.getAllValues().get(0).key().get("id").s());
+        assertTrue(captor.getAllValues().get(0).consistentRead());
+    }
+
+    @Test
+    void bump_addsOneAndKeepsTheEpoch_createsTheTableOnFirstUse() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ResourceNotFoundException.builder().message("no table").build())
+                .thenReturn(null);
+
+        versions.bump(Map.of("uploaded_by", AttributeValue.builder().s("u@x.com").build()));
+
+        verify(dynamoService).createTable("versions");
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient, times(2)).updateItem(captor.capture());
+        UpdateItemRequest req = captor.getValue();
+        assertEquals("SET epoch = if_not_exists(epoch, :epoch) ADD version :one", req.updateExpression());
+        assertEquals("u@x.com", req.key().get("id").s());
+    }
+
+    @Test
+    void bump_isBestEffort_andSkipsHeadersWithoutAnUploader() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenThrow(new IllegalStateException("throttled"));
+
+        assertDoesNotThrow(() -> versions.bump("u@x.com"));
+        versions.bump(Map.of("id", AttributeValue.builder().s("F1").build()));
+        versions.bump((Map<String, AttributeValue>) null);
+
+        verify(dynamoDbClient, times(1)).updateItem(any(UpdateItemRequest.class));
+    }
+}
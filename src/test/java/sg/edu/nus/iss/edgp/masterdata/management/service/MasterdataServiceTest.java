@@ -7,14 +7,17 @@ import static org.mockito.Mockito.*;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.util.*; 
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import org.mockito.ArgumentCaptor;
-import org.mockito.MockedStatic;
+import org.mockito.InOrder;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -33,8 +36,10 @@ import sg.edu.nus.iss.edgp.masterdata.management.service.impl.DynamicDetailServi
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.HeaderService;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.MasterdataService;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.PayloadBuilderService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.QueryPlanner;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.ListingVersionService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.SchemaCatalogService;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.StagingDataService;
-import sg.edu.nus.iss.edgp.masterdata.management.utility.CSVParser;
 import sg.edu.nus.iss.edgp.masterdata.management.utility.GeneralUtility;
 import sg.edu.nus.iss.edgp.masterdata.management.utility.JSONReader;
 import software.amazon.awssdk.core.SdkBytes;
@@ -42,6 +47,10 @@ import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.Select;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
@@ -59,6 +68,8 @@ public class MasterdataServiceTest {
     private PayloadBuilderService payloadBuilderService;
     private JSONReader jsonReader;
     private GeneralUtility generalUtility;
+    private SchemaCatalogService schemaCatalogService;
+    private ListingVersionService listingVersionService;
     private static Method avToJava;
     private Method mapItemsBK;
     private MasterdataService svc;
@@ -76,6 +87,8 @@ public class MasterdataServiceTest {
         payloadBuilderService = mock(PayloadBuilderService.class);
         jsonReader = mock(JSONReader.class);
         generalUtility = mock(GeneralUtility.class);
+        schemaCatalogService = mock(SchemaCatalogService.class);
+        listingVersionService = mock(ListingVersionService.class);
 
         svc = new MasterdataService(
                 dynamoDbClient,
@@ -86,7 +99,10 @@ public class MasterdataServiceTest {
                 stagingDataService,
                 payloadBuilderService,
                 jsonReader,
-                generalUtility
+                generalUtility,
+                new QueryPlanner(dynamoDbClient, dynamoService),
+                schemaCatalogService,
+                listingVersionService
         );
 
         // Inject @Value fields
@@ -103,77 +119,95 @@ public class MasterdataServiceTest {
 
     @Test
     void uploadCsvDataToTable_emptyCsv_returnsMessage() throws Exception {
-        MultipartFile file = mock(MultipartFile.class);
+        MultipartFile file = new MockMultipartFile("file", "data.csv", "text/csv", new byte[0]);
         UploadRequest req = mock(UploadRequest.class);
 
-        try (MockedStatic<CSVParser> csv = mockStatic(CSVParser.class)) {
-            csv.when(() -> CSVParser.parseCsvObjects(file)).thenReturn(Collections.emptyList());
+        UploadResult res = svc.uploadCsvDataToTable(file, req, "Bearer tok");
 
-            UploadResult res = svc.uploadCsvDataToTable(file, req, "Bearer tok");
-
-            assertEquals("CSV is empty.", res.getMessage());
-            assertEquals(0, res.getTotalRecord());
-            
+        assertEquals("CSV is empty.", res.getMessage());
+        assertEquals(0, res.getTotalRecord());
+        
 
-            verifyNoInteractions(jwtService, dynamoService, headerService, stagingDataService, sqsPublishingService, dynamoDbClient);
-        }
+        verifyNoInteractions(jwtService, dynamoService, headerService, stagingDataService, sqsPublishingService, dynamoDbClient);
     }
 
 
     @Test
-    @SuppressWarnings("unchecked")
-    void uploadCsvDataToTable_happyPath_createsTables_savesHeader_insertsRows() throws Exception {
-        MultipartFile file = mock(MultipartFile.class);
-        when(file.getOriginalFilename()).thenReturn("data.csv");
+    void uploadCsvDataToTable_happyPath_createsTables_streamsRows_savesHeaderWithCount() throws Exception {
+        MultipartFile file = new MockMultipartFile("file", "data.csv", "text/csv",
+                "name\nAlice\nBob\n".getBytes(java.nio.charset.StandardCharsets.UTF_8));
 
         UploadRequest req = mock(UploadRequest.class);
         when(req.getDomainName()).thenReturn("customer");
         when(req.getPolicyId()).thenReturn("POL1");
 
-        Map<String, Object> r1 = new LinkedHashMap<>();
-        r1.put("name", "Alice");
-        Map<String, Object> r2 = new LinkedHashMap<>();
-        r2.put("name", "Bob");
-
-        try (MockedStatic<CSVParser> csv = mockStatic(CSVParser.class)) {
-            csv.when(() -> CSVParser.parseCsvObjects(file)).thenReturn(List.of(r1, r2));
-
-            when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
-            when(jwtService.extractOrgIdFromToken("tok")).thenReturn("ORG1");
-
-            when(dynamoService.tableExists("md_header")).thenReturn(false);
-            when(dynamoService.tableExists("md_staging")).thenReturn(false);
-
-            ArgumentCaptor<List<LinkedHashMap<String, Object>>> rowsCap = ArgumentCaptor.forClass(List.class);
-            when(stagingDataService.insertToStaging(
-                    eq("md_staging"),
-                    rowsCap.capture(),
-                    eq("ORG1"),
-                    eq("POL1"),
-                    eq("customer"),
-                    anyString(),
-                    eq("u@x.com")
-            )).thenReturn(new InsertionSummary(2, List.of(r1, r2)));
-
-            UploadResult res = svc.uploadCsvDataToTable(file, req, "Bearer tok");
-
-            assertEquals("Uploaded 2 rows successfully.", res.getMessage());
-            assertEquals(2, res.getTotalRecord());
-           
-
-            verify(dynamoService).createTable("md_header");
-            verify(dynamoService).createTable("md_staging");
-            verify(headerService).saveHeader(eq("md_header"), any(MasterDataHeader.class));
-
-            List<LinkedHashMap<String, Object>> rowsInserted = rowsCap.getValue();
-            assertEquals(2, rowsInserted.size());
-            assertEquals("Alice", rowsInserted.get(0).get("name"));
-            assertEquals("Bob", rowsInserted.get(1).get("name"));
-        }
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        when(jwtService.extractOrgIdFromToken("tok")).thenReturn("ORG1");
+
+        when(dynamoService.tableExists("md_header")).thenReturn(false);
+        when(dynamoService.tableExists("md_staging")).thenReturn(false);
+
+        List<Map<String, Object>> rowsInserted = new ArrayList<>();
+        when(stagingDataService.insertToStaging(
+                eq("md_staging"),
+                any(Iterator.class),
+                eq("ORG1"),
+                eq("POL1"),
+                eq("customer"),
+                anyString(),
+                eq("u@x.com")
+        )).thenAnswer(inv -> {
+            Iterator<Map<String, Object>> it = inv.getArgument(1);
+            it.forEachRemaining(rowsInserted::add);
+            return new InsertionSummary(rowsInserted.size(), rowsInserted);
+        });
+
+        UploadResult res = svc.uploadCsvDataToTable(file, req, "Bearer tok");
+
+        assertEquals("Uploaded 2 rows successfully.", res.getMessage());
+        assertEquals(2, res.getTotalRecord());
+       
+
+        verify(dynamoService).createTable("md_header");
+        verify(dynamoService).createTable("md_staging");
+        ArgumentCaptor<MasterDataHeader> headerCap = ArgumentCaptor.forClass(MasterDataHeader.class);
+        InOrder order = inOrder(headerService, stagingDataService);
+        order.verify(headerService).saveHeader(eq("md_header"), headerCap.capture());
+        order.verify(stagingDataService).insertToStaging(anyString(), any(Iterator.class), anyString(), anyString(),
+                anyString(), anyString(), anyString());
+        order.verify(headerService).completeUpload(eq(headerCap.getValue().getId()), eq(2L), eq(2L), anyLong());
+        assertEquals(FileProcessStage.UPLOADING, headerCap.getValue().getProcessStage());
+        assertEquals("data.csv", headerCap.getValue().getFileName());
+        verify(headerService, never()).failUpload(anyString(), any());
+
+        assertEquals(2, rowsInserted.size());
+        assertEquals("Alice", rowsInserted.get(0).get("name"));
+        assertEquals("Bob", rowsInserted.get(1).get("name"));
     }
 
    
 
+    @Test
+    void uploadCsvDataToTable_stagingFailsMidway_headerIsFailedNotCompleted() throws Exception {
+        MultipartFile file = new MockMultipartFile("file", "data.csv", "text/csv",
+                "name\nAlice\n".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        UploadRequest req = mock(UploadRequest.class);
+        when(req.getDomainName()).thenReturn("customer");
+        when(req.getPolicyId()).thenReturn("POL1");
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        when(jwtService.extractOrgIdFromToken("tok")).thenReturn("ORG1");
+        when(dynamoService.tableExists(anyString())).thenReturn(true);
+        when(stagingDataService.insertToStaging(anyString(), any(Iterator.class), anyString(), anyString(),
+                anyString(), anyString(), anyString())).thenThrow(new IllegalStateException("throttled"));
+
+        assertThrows(MasterdataServiceException.class, () -> svc.uploadCsvDataToTable(file, req, "Bearer tok"));
+
+        ArgumentCaptor<MasterDataHeader> headerCap = ArgumentCaptor.forClass(MasterDataHeader.class);
+        verify(headerService).saveHeader(eq("md_header"), headerCap.capture());
+        verify(headerService).failUpload(headerCap.getValue().getId(), "throttled");
+        verify(headerService, never()).completeUpload(anyString(), anyLong(), anyLong(), anyLong());
+    }
+
     @Test
     void getDataByPolicyAndDomainName_happy_scanAndMap() {
         when(dynamoService.tableExists("md_staging")).thenReturn(true);
@@ -204,7 +238,7 @@ public class MasterdataServiceTest {
         req.setPolicyId("POL1");
         req.setDomainName("customer");
 
-        List<Map<String, Object>> out = svc.getDataByPolicyAndDomainName(req, "Bearer tok");
+        List<Map<String, Object>> out = svc.getDataByPolicyAndDomainName(req, "Bearer tok").items();
         assertEquals(1, out.size());
 
         Map<String, Object> row = out.get(0);
@@ -226,10 +260,59 @@ public class MasterdataServiceTest {
         when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
         when(dynamoService.tableExists("md_staging")).thenReturn(false);
 
-        List<Map<String, Object>> out = svc.getAllData("Bearer tok");
+        List<Map<String, Object>> out = svc.getAllData(new SearchRequest(), "Bearer tok").items();
         assertTrue(out.isEmpty());
     }
 
+    @Test
+    void getAllData_tableDroppedAfterBeingCached_forgetsItAndReturnsEmpty() {
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        when(dynamoService.tableExists("md_staging")).thenReturn(true);
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenThrow(ResourceNotFoundException.builder().message("gone").build());
+
+        assertTrue(svc.getAllData(new SearchRequest(), "Bearer tok").items().isEmpty());
+        verify(dynamoService).forgetTable("md_staging");
+    }
+
+    @Test
+    void streamData_tableDroppedAfterBeingCached_forgetsItAndRethrows() {
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        when(dynamoService.tableExists("md_staging")).thenReturn(true);
+        when(dynamoService.parallelScan(any(ScanRequest.class)))
+                .thenThrow(ResourceNotFoundException.builder().message("gone").build());
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> svc.streamData(new SearchRequest(), "Bearer tok", rows -> fail("no rows expected")));
+        verify(dynamoService).forgetTable("md_staging");
+    }
+
+
+    @Test
+    void streamData_segmentReportsTableMissing_forgetsItAndRethrows() {
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        when(dynamoService.tableExists("md_staging")).thenReturn(true);
+        // a segment reader's error arrives wrapped by the parallel scan
+        Iterator<Map<String, AttributeValue>> failing = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                throw new MasterdataServiceException("Scan of md_staging failed: gone",
+                        ResourceNotFoundException.builder().message("gone").build());
+            }
+
+            @Override
+            public Map<String, AttributeValue> next() {
+                throw new NoSuchElementException();
+            }
+        };
+        when(dynamoService.parallelScan(any(ScanRequest.class)))
+                .thenReturn(StreamSupport.stream(Spliterators.spliteratorUnknownSize(failing, 0), false));
+
+        MasterdataServiceException ex = assertThrows(MasterdataServiceException.class,
+                () -> svc.streamData(new SearchRequest(), "Bearer tok", rows -> fail("no rows expected")));
+        assertInstanceOf(ResourceNotFoundException.class, ex.getCause());
+        verify(dynamoService).forgetTable("md_staging");
+    }
 
     @Test
     void getAllUploadFiles_happy_scanHeaders() {
@@ -242,10 +325,9 @@ public class MasterdataServiceTest {
         header.put("file_name", AttributeValue.builder().s("data.csv").build());
         header.put("process_stage", AttributeValue.builder().s(FileProcessStage.UNPROCESSED.toString()).build());
 
-        when(dynamoDbClient.scan(any(ScanRequest.class)))
-                .thenReturn(ScanResponse.builder().items(header).build());
+        when(dynamoService.parallelScan(any(ScanRequest.class))).thenReturn(Stream.of(header));
 
-        List<Map<String, Object>> out = svc.getAllUploadFiles("Bearer tok");
+        List<Map<String, Object>> out = svc.getAllUploadFiles("Bearer tok", "");
         assertEquals(1, out.size());
         assertEquals("H1", out.get(0).get("id"));
         assertEquals("data.csv", out.get(0).get("file_name"));
@@ -301,6 +383,7 @@ public class MasterdataServiceTest {
 
         when(jsonReader.getValidationRules("POLX", "Bearer atoken")).thenReturn(proot);
         when(payloadBuilderService.build(any(), anyMap(), anyList())).thenReturn("{json}");
+        when(headerService.markDispatched("F-1")).thenReturn(1L, 2L);
 
         
         int processed = svc.processAndSendRawDataToSqs();
@@ -309,7 +392,7 @@ public class MasterdataServiceTest {
  
         verify(sqsPublishingService, times(2)).sendRecordToQueue("{json}");
         verify(dynamoService, times(2)).insertValidatedMasterData(anyString(), anyMap());
-        verify(headerService, atLeastOnce()).updateFileStage("F-1", FileProcessStage.PROCESSING);
+        verify(headerService, times(2)).markDispatched("F-1");
         verify(dynamoService).markProcessed(anyString(), eq("S1"));
         verify(dynamoService).markProcessed(anyString(), eq("S2"));
         verify(dynamoService).updateStagingProcessedStatus(anyString(), eq("F-1"), eq("1"));
@@ -373,7 +456,7 @@ public class MasterdataServiceTest {
         SearchRequest req = new SearchRequest();
         req.setPolicyId("POL1");
 
-        List<Map<String, Object>> out = svc.getDataByPolicyId(req, "Bearer tok");
+        List<Map<String, Object>> out = svc.getDataByPolicyId(req, "Bearer tok").items();
         Map<String, Object> row = out.get(0);
 
         assertEquals(FileProcessStage.PROCESSING.toString(), row.get("process_stage"));
@@ -407,7 +490,7 @@ public class MasterdataServiceTest {
         SearchRequest req = new SearchRequest();
         req.setDomainName("supplier");
 
-        List<Map<String, Object>> out = svc.getDataByDomainName(req, "Bearer tok");
+        List<Map<String, Object>> out = svc.getDataByDomainName(req, "Bearer tok").items();
         assertEquals(1, out.size());
         Map<String, Object> row = out.get(0);
         assertEquals("IDD", row.get("id"));
@@ -443,7 +526,7 @@ public class MasterdataServiceTest {
         SearchRequest req = new SearchRequest();
         req.setFileId("FILE-9");
 
-        List<Map<String, Object>> out = svc.getDataByFileId(req, "Bearer tok");
+        List<Map<String, Object>> out = svc.getDataByFileId(req, "Bearer tok").items();
         assertEquals(1, out.size());
         Map<String, Object> row = out.get(0);
         assertEquals("IDF", row.get("id"));
@@ -477,7 +560,8 @@ public class MasterdataServiceTest {
         MasterdataService realSvc = new MasterdataService(
                 dynamoDbClient, jwtService, dynamoService, headerService,
                 sqsPublishingService, stagingDataService, payloadBuilderService, jsonReader,
-                new GeneralUtility()
+                new GeneralUtility(), new QueryPlanner(dynamoDbClient, dynamoService), schemaCatalogService,
+                listingVersionService
         );
         ReflectionTestUtils.setField(realSvc, "headerTableName", "md_header");
         ReflectionTestUtils.setField(realSvc, "stagingTableName", "md_staging");
@@ -509,7 +593,8 @@ public class MasterdataServiceTest {
         MasterdataService realSvc = new MasterdataService(
                 dynamoDbClient, jwtService, dynamoService, headerService,
                 sqsPublishingService, stagingDataService, payloadBuilderService, jsonReader,
-                new GeneralUtility()
+                new GeneralUtility(), new QueryPlanner(dynamoDbClient, dynamoService), schemaCatalogService,
+                listingVersionService
         );
         ReflectionTestUtils.setField(realSvc, "headerTableName", "md_header");
         ReflectionTestUtils.setField(realSvc, "stagingTableName", "md_staging");
@@ -558,7 +643,8 @@ public class MasterdataServiceTest {
         MasterdataService realSvc = new MasterdataService(
                 dynamoDbClient, jwtService, dynamoService, headerService,
                 sqsPublishingService, stagingDataService, payloadBuilderService, jsonReader,
-                new GeneralUtility()
+                new GeneralUtility(), new QueryPlanner(dynamoDbClient, dynamoService), schemaCatalogService,
+                listingVersionService
         );
         ReflectionTestUtils.setField(realSvc, "headerTableName", "md_header");
         ReflectionTestUtils.setField(realSvc, "stagingTableName", "md_staging");
@@ -601,7 +687,7 @@ public class MasterdataServiceTest {
         req.setPolicyId("POL1");
 
         // when
-        List<Map<String, Object>> out = svc.getDataByPolicyId(req, "Bearer tok");
+        List<Map<String, Object>> out = svc.getDataByPolicyId(req, "Bearer tok").items();
 
         // then
         assertTrue(out.isEmpty());
@@ -638,7 +724,7 @@ public class MasterdataServiceTest {
         req.setPolicyId("POL1");
 
         
-        List<Map<String, Object>> out = svc.getDataByPolicyId(req, "Bearer tok");
+        List<Map<String, Object>> out = svc.getDataByPolicyId(req, "Bearer tok").items();
 
       
         assertEquals(1, out.size());
@@ -658,9 +744,9 @@ public class MasterdataServiceTest {
         verify(dynamoDbClient).scan(captor.capture());
         ScanRequest built = captor.getValue();
         assertEquals("md_staging", built.tableName());
-        assertTrue(built.filterExpression().contains("policy_id = :policyId"));
+        assertTrue(built.filterExpression().contains("policy_id = :policy_id"));
         assertTrue(built.filterExpression().contains("uploaded_by = :uploaded_by"));
-        assertEquals("POL1", built.expressionAttributeValues().get(":policyId").s());
+        assertEquals("POL1", built.expressionAttributeValues().get(":policy_id").s());
         assertEquals("u@x.com", built.expressionAttributeValues().get(":uploaded_by").s());
     }
     
@@ -854,7 +940,7 @@ public class MasterdataServiceTest {
         when(jsonReader.getValidationRules("POL-ALL", "Bearer tok")).thenReturn(proot);
         when(jsonReader.getOrganizationName("ORG-ALL", "Bearer tok")).thenReturn("Org All");
 
-        List<Map<String, Object>> out = svc.getAllData("Bearer tok");
+        List<Map<String, Object>> out = svc.getAllData(new SearchRequest(), "Bearer tok").items();
 
         assertEquals(1, out.size());
         Map<String, Object> row = out.get(0);
@@ -970,5 +1056,390 @@ public class MasterdataServiceTest {
     }
 
 
-}
 
+    @Test
+    void getDataByFileId_activeIndex_queriesInsteadOfScanning() {
+        when(dynamoService.tableExists("md_staging")).thenReturn(true);
+        when(dynamoService.indexActive("md_staging", "uploaded_by-file_id-index")).thenReturn(true);
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        Map<String, AttributeValue> item = new LinkedHashMap<>();
+        item.put("id", AttributeValue.builder().s("ID1").build());
+        item.put("file_id", AttributeValue.builder().s("F-1").build());
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder().items(item).build());
+
+        SearchRequest req = new SearchRequest();
+        req.setFileId("F-1");
+        List<Map<String, Object>> out = svc.getDataByFileId(req, "Bearer tok").items();
+
+        assertEquals(1, out.size());
+        assertEquals("ID1", out.get(0).get("id"));
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient).query(captor.capture());
+        assertEquals("uploaded_by-file_id-index", captor.getValue().indexName());
+        assertEquals("u@x.com", captor.getValue().expressionAttributeValues().get(":uploaded_by").s());
+        verify(dynamoDbClient, never()).scan(any(ScanRequest.class));
+    }
+
+    @Test
+    void streamData_handsEachPageToTheSinkAsItIsRead() throws Exception {
+        when(dynamoService.tableExists("md_staging")).thenReturn(true);
+        when(dynamoService.indexActive("md_staging", "uploaded_by-domain_name-index")).thenReturn(true);
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        ReflectionTestUtils.setField(svc, "streamPageSize", 1);
+        Map<String, AttributeValue> a = Map.of("id", AttributeValue.builder().s("A").build());
+        Map<String, AttributeValue> b = Map.of("id", AttributeValue.builder().s("B").build());
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder().items(a).lastEvaluatedKey(a).build())
+                .thenReturn(QueryResponse.builder().items(b).build());
+
+        SearchRequest req = new SearchRequest();
+        req.setDomainName("vendor");
+        List<List<Map<String, Object>>> pages = new ArrayList<>();
+        long total = svc.streamData(req, "Bearer tok", pages::add);
+
+        assertEquals(2, total);
+        assertEquals(2, pages.size());
+        assertEquals("A", pages.get(0).get(0).get("id"));
+        assertEquals("B", pages.get(1).get(0).get("id"));
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient, times(2)).query(captor.capture());
+        assertEquals(1, captor.getAllValues().get(0).limit());
+        assertEquals("vendor", captor.getAllValues().get(0).expressionAttributeValues().get(":domain_name").s());
+    }
+
+    @Test
+    void getAllData_enrichment_looksUpEachDistinctPolicyAndOrgOnce() {
+        when(dynamoService.tableExists("md_staging")).thenReturn(true);
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Map<String, AttributeValue> item = new LinkedHashMap<>();
+            item.put("id", AttributeValue.builder().s("ROW-" + i).build());
+            item.put("policy_id", AttributeValue.builder().s(i % 2 == 0 ? "POL1" : "POL2").build());
+            item.put("organization_id", AttributeValue.builder().s(i % 2 == 0 ? "ORG1" : "ORG2").build());
+            items.add(item);
+        }
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenReturn(ScanResponse.builder().items(items).build());
+
+        PolicyData pdata = mock(PolicyData.class);
+        when(pdata.getPolicyName()).thenReturn("Customer Policy");
+        PolicyRoot proot = mock(PolicyRoot.class);
+        when(proot.getData()).thenReturn(pdata);
+        when(jsonReader.getValidationRules(anyString(), eq("Bearer tok"))).thenReturn(proot);
+        when(jsonReader.getOrganizationName("ORG1", "Bearer tok")).thenReturn("Acme Org");
+        when(jsonReader.getOrganizationName("ORG2", "Bearer tok")).thenReturn("Beta Org");
+
+        SearchRequest req = new SearchRequest();
+        req.setSize(100);
+        List<Map<String, Object>> out = svc.getAllData(req, "Bearer tok").items();
+
+        assertEquals(20, out.size());
+        assertEquals("Acme Org", ((Map<?, ?>) out.get(0).get("organization")).get("name"));
+        assertEquals("Beta Org", ((Map<?, ?>) out.get(1).get("organization")).get("name"));
+        assertEquals("POL2", ((Map<?, ?>) out.get(1).get("policy")).get("id"));
+        verify(jsonReader, times(1)).getValidationRules("POL1", "Bearer tok");
+        verify(jsonReader, times(1)).getValidationRules("POL2", "Bearer tok");
+        verify(jsonReader, times(1)).getOrganizationName("ORG1", "Bearer tok");
+        verify(jsonReader, times(1)).getOrganizationName("ORG2", "Bearer tok");
+        svc.shutdown();
+    }
+
+    @Test
+    void getAllData_fields_projectsTheScanAndSkipsUnrequestedLookups() {
+        when(dynamoService.tableExists("md_staging")).thenReturn(true);
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        Map<String, AttributeValue> item = new LinkedHashMap<>();
+        item.put("id", AttributeValue.builder().s("ROW-1").build());
+        item.put("name", AttributeValue.builder().s("Alice").build());
+        item.put("organization_id", AttributeValue.builder().s("ORG1").build());
+        item.put("process_stage", AttributeValue.builder().s(FileProcessStage.UNPROCESSED.toString()).build());
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenReturn(ScanResponse.builder().items(item).build());
+        when(jsonReader.getOrganizationName("ORG1", "Bearer tok")).thenReturn("Acme Org");
+
+        SearchRequest req = new SearchRequest();
+        req.setFields("name, organization");
+        List<Map<String, Object>> out = svc.getAllData(req, "Bearer tok").items();
+
+        assertEquals(Set.of("id", "name", "organization"), out.get(0).keySet());
+        assertEquals("Acme Org", ((Map<?, ?>) out.get(0).get("organization")).get("name"));
+        verify(jsonReader).getOrganizationName("ORG1", "Bearer tok");
+        verifyNoMoreInteractions(jsonReader);
+
+        ArgumentCaptor<ScanRequest> captor = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient).scan(captor.capture());
+        assertEquals(Set.of("name", "organization_id", "id"),
+                new HashSet<>(captor.getValue().expressionAttributeNames().values()));
+    }
+
+    @Test
+    void getAllData_tooManyFields_isRejected() {
+        when(dynamoService.tableExists("md_staging")).thenReturn(true);
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        SearchRequest req = new SearchRequest();
+        StringBuilder fields = new StringBuilder();
+        for (int i = 0; i <= 100; i++) fields.append("c").append(i).append(',');
+        req.setFields(fields.toString());
+
+        assertThrows(IllegalArgumentException.class, () -> svc.getAllData(req, "Bearer tok"));
+        verifyNoInteractions(dynamoDbClient);
+    }
+
+    @Test
+    void getAllData_filter_isPushedDownToDynamo() {
+        when(dynamoService.tableExists("md_staging")).thenReturn(true);
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenReturn(ScanResponse.builder().build());
+
+        SearchRequest req = new SearchRequest();
+        req.setFilter("status:eq:active");
+        svc.getAllData(req, "Bearer tok");
+
+        ArgumentCaptor<ScanRequest> captor = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient).scan(captor.capture());
+        assertEquals("uploaded_by = :uploaded_by AND #f0 = :f0", captor.getValue().filterExpression());
+        assertEquals("status", captor.getValue().expressionAttributeNames().get("#f0"));
+        assertEquals("active", captor.getValue().expressionAttributeValues().get(":f0").s());
+    }
+
+    @Test
+    void countData_wholeFinishedFile_usesTheHeaderCounter() {
+        when(dynamoService.tableExists("md_staging")).thenReturn(true);
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        MasterDataHeader header = new MasterDataHeader();
+        header.setUploadedBy("u@x.com");
+        header.setProcessStage(FileProcessStage.PROCESSING);
+        header.setTotalRowsCount(1234);
+        when(headerService.findById("F-1")).thenReturn(Optional.of(header));
+
+        SearchRequest req = new SearchRequest();
+        req.setFileId("F-1");
+
+        assertEquals(1234, svc.countData(req, "Bearer tok"));
+        verifyNoInteractions(dynamoDbClient);
+    }
+
+    @Test
+    void countData_withFilter_countsOnTheIndex() {
+        when(dynamoService.tableExists("md_staging")).thenReturn(true);
+        when(dynamoService.indexActive("md_staging", "uploaded_by-file_id-index")).thenReturn(true);
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder().count(7).build());
+
+        SearchRequest req = new SearchRequest();
+        req.setFileId("F-1");
+        req.setFilter("status:eq:active");
+
+        assertEquals(7, svc.countData(req, "Bearer tok"));
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient).query(captor.capture());
+        assertEquals(Select.COUNT, captor.getValue().select());
+        assertEquals("uploaded_by-file_id-index", captor.getValue().indexName());
+        verifyNoInteractions(headerService);
+    }
+
+    @Test
+    void countUploadFiles_byStage_filtersTheUploaderIndex() {
+        when(dynamoService.tableExists("md_header")).thenReturn(true);
+        when(dynamoService.indexActive("md_header", "uploaded_by-uploaded_date-index")).thenReturn(true);
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder().count(4).build());
+
+        assertEquals(4, svc.countUploadFiles("Bearer tok", FileProcessStage.COMPLETE));
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient).query(captor.capture());
+        assertEquals("process_stage = :process_stage", captor.getValue().filterExpression());
+        assertEquals("COMPLETE", captor.getValue().expressionAttributeValues().get(":process_stage").s());
+    }
+
+    @Test
+    void listingVersion_readsTheCallersCounterOnly() {
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        when(listingVersionService.current("u@x.com")).thenReturn("e1:4", "e1:5");
+
+        String v1 = svc.listingVersion("Bearer tok");
+        assertNotEquals(v1, svc.listingVersion("Bearer tok"));
+        assertTrue(v1.endsWith("e1:4"));
+        verifyNoInteractions(dynamoDbClient, dynamoService);
+    }
+
+    @Test
+    void exportColumns_ownFile_listsIdThenCataloguedColumns_otherUsersFileIsEmpty() {
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        MasterDataHeader own = new MasterDataHeader();
+        own.setUploadedBy("u@x.com");
+        own.setDomainName("vendor");
+        MasterDataHeader other = new MasterDataHeader();
+        other.setUploadedBy("someone@x.com");
+        when(headerService.findById("F1")).thenReturn(Optional.of(own));
+        when(headerService.findById("F2")).thenReturn(Optional.of(other));
+        Map<String, SchemaCatalogService.Column> catalog = new LinkedHashMap<>();
+        catalog.put("zip", new SchemaCatalogService.Column("Zip", "S"));
+        catalog.put("amount", new SchemaCatalogService.Column("amount", "N"));
+        catalog.put("file_id", new SchemaCatalogService.Column("file_id", "S"));
+        when(schemaCatalogService.columns("vendor")).thenReturn(catalog);
+
+        assertEquals(Optional.of(List.of("id", "amount", "Zip")), svc.exportColumns("F1", "Bearer tok"));
+        assertTrue(svc.exportColumns("F2", "Bearer tok").isEmpty());
+        assertTrue(svc.exportColumns("F3", "Bearer tok").isEmpty());
+    }
+
+    @Test
+    void exportFile_streamsPlainRowsWithoutStagingBookkeeping() throws Exception {
+        when(dynamoService.tableExists("md_staging")).thenReturn(true);
+        when(dynamoService.indexActive("md_staging", "uploaded_by-file_id-index")).thenReturn(true);
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        Map<String, AttributeValue> item = new LinkedHashMap<>();
+        item.put("id", AttributeValue.builder().s("R1").build());
+        item.put("amount", AttributeValue.builder().n("12.50").build());
+        item.put("file_id", AttributeValue.builder().s("F1").build());
+        item.put("uploaded_by", AttributeValue.builder().s("u@x.com").build());
+        item.put("is_processed", AttributeValue.builder().n("0").build());
+        item.put("policy_id", AttributeValue.builder().s("POL1").build());
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder().items(item).build());
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        long total = svc.exportFile("F1", "Bearer tok", rows::addAll);
+
+        assertEquals(1, total);
+        assertEquals(Map.of("id", "R1", "amount", new BigDecimal("12.50")), rows.get(0));
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient).query(captor.capture());
+        assertEquals("uploaded_by-file_id-index", captor.getValue().indexName());
+        verifyNoInteractions(jsonReader);
+    }
+
+    @Test
+    void processAndSendRawDataToSqs_finishesFileFromTheHeaderCounter_acrossRuns() throws Exception {
+        MasterDataHeader hdr = new MasterDataHeader();
+        hdr.setId("F-1");
+        hdr.setPolicyId("POLX");
+        hdr.setDomainName("customer");
+        hdr.setUploadedBy("user@x.com");
+        hdr.setOrganizationId("ORG9");
+        hdr.setTotalRowsCount(2);
+        when(headerService.fetchOldestByStage(FileProcessStage.UNPROCESSED)).thenReturn(Optional.of(hdr));
+        Map<String, AttributeValue> rec = new LinkedHashMap<>();
+        rec.put("id", AttributeValue.builder().s("S2").build());
+        when(dynamoService.getUnprocessedRecordsByFileId(anyString(), eq("F-1"), eq("POLX"), eq("customer")))
+                .thenReturn(List.of(rec));
+        when(dynamoService.tableExists(anyString())).thenReturn(true);
+        when(dynamoService.claimStagingRow(anyString(), eq("S2"))).thenReturn(true);
+        when(jsonReader.getAccessToken("user@x.com")).thenReturn("atoken");
+        PolicyRoot proot = mock(PolicyRoot.class);
+        PolicyData pdata = mock(PolicyData.class);
+        when(proot.getData()).thenReturn(pdata);
+        when(pdata.getRules()).thenReturn(Collections.emptyList());
+        when(jsonReader.getValidationRules("POLX", "Bearer atoken")).thenReturn(proot);
+        when(payloadBuilderService.build(any(), anyMap(), anyList())).thenReturn("{json}");
+        // the first row went out in an earlier run
+        when(headerService.markDispatched("F-1")).thenReturn(2L);
+
+        assertEquals(1, svc.processAndSendRawDataToSqs());
+        verify(dynamoService).updateStagingProcessedStatus(anyString(), eq("F-1"), eq("1"));
+    }
+
+    @Test
+    void fileSummary_readsCountersFromTheHeaderOnly() {
+        when(jwtService.extractUserEmailFromToken("tok")).thenReturn("u@x.com");
+        MasterDataHeader hdr = new MasterDataHeader();
+        hdr.setId("F1");
+        hdr.setUploadedBy("u@x.com");
+        hdr.setProcessStage(FileProcessStage.PROCESSING);
+        hdr.setRowsStaged(10);
+        hdr.setRowsDispatched(4);
+        when(headerService.findById("F1")).thenReturn(Optional.of(hdr));
+
+        Map<String, Object> summary = svc.fileSummary("F1", "Bearer tok").orElseThrow();
+
+        assertEquals("PROCESSING", summary.get("process_stage"));
+        assertEquals(10L, summary.get("rows_staged"));
+        assertEquals(4L, summary.get("rows_dispatched"));
+        assertFalse(summary.containsKey("rows_succeeded"));
+        assertEquals(6L, summary.get("rows_pending"));
+        verifyNoInteractions(dynamoDbClient, dynamoService);
+    }
+
+    @Test
+    void updateDataToTable_dispatchedRowEdited_returnsItToPendingOnTheHeaderCounter() {
+        MasterdataService realSvc = new MasterdataService(
+                dynamoDbClient, jwtService, dynamoService, headerService,
+                sqsPublishingService, stagingDataService, payloadBuilderService, jsonReader,
+                new GeneralUtility(), new QueryPlanner(dynamoDbClient, dynamoService), schemaCatalogService,
+                listingVersionService
+        );
+        ReflectionTestUtils.setField(realSvc, "headerTableName", "md_header");
+        ReflectionTestUtils.setField(realSvc, "stagingTableName", "md_staging");
+
+        Map<String, AttributeValue> stg = new LinkedHashMap<>();
+        stg.put("id", AttributeValue.builder().s("STG-1").build());
+        stg.put("file_id", AttributeValue.builder().s("F-1").build());
+        stg.put("col1", AttributeValue.builder().s("old").build());
+        stg.put("is_processed", AttributeValue.builder().n("1").build());
+        Map<String, AttributeValue> hdr = new LinkedHashMap<>();
+        hdr.put("id", AttributeValue.builder().s("F-1").build());
+        hdr.put("updated_date", AttributeValue.builder().s("2025-01-01 10:00:00").build());
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().item(stg).build())
+                .thenReturn(GetItemResponse.builder().item(hdr).build());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(UpdateItemResponse.builder().attributes(stg).build());
+
+        realSvc.updateDataToTable(Map.of("data", Map.of("id", "STG-1", "col1", "new")));
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient, times(2)).updateItem(captor.capture());
+        UpdateItemRequest header = captor.getAllValues().get(1);
+        assertEquals("md_header", header.tableName());
+        assertTrue(header.updateExpression().endsWith(" ADD #rows_dispatched :undispatched"));
+        assertEquals("rows_dispatched", header.expressionAttributeNames().get("#rows_dispatched"));
+        assertEquals("-1", header.expressionAttributeValues().get(":undispatched").n());
+    }
+
+    @Test
+    void updateDataToTable_newColumn_isRecordedInTheSchemaCatalog_bestEffort() {
+        MasterdataService realSvc = new MasterdataService(
+                dynamoDbClient, jwtService, dynamoService, headerService,
+                sqsPublishingService, stagingDataService, payloadBuilderService, jsonReader,
+                new GeneralUtility(), new QueryPlanner(dynamoDbClient, dynamoService), schemaCatalogService,
+                listingVersionService
+        );
+        ReflectionTestUtils.setField(realSvc, "headerTableName", "md_header");
+        ReflectionTestUtils.setField(realSvc, "stagingTableName", "md_staging");
+
+        Map<String, AttributeValue> stg = new LinkedHashMap<>();
+        stg.put("id", AttributeValue.builder().s("STG-1").build());
+        stg.put("file_id", AttributeValue.builder().s("F-1").build());
+        stg.put("domain_name", AttributeValue.builder().s("customer").build());
+        stg.put("col1", AttributeValue.builder().s("old").build());
+        Map<String, AttributeValue> stgNew = new LinkedHashMap<>(stg);
+        stgNew.put("col1", AttributeValue.builder().s("new").build());
+        stgNew.put("Region", AttributeValue.builder().s("north").build());
+        stgNew.put("is_processed", AttributeValue.builder().n("0").build());
+        Map<String, AttributeValue> hdr = new LinkedHashMap<>();
+        hdr.put("id", AttributeValue.builder().s("F-1").build());
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().item(stg).build())
+                .thenReturn(GetItemResponse.builder().item(hdr).build())
+                .thenReturn(GetItemResponse.builder().item(stgNew).build())
+                .thenReturn(GetItemResponse.builder().item(hdr).build());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(UpdateItemResponse.builder().attributes(stgNew).build());
+        doThrow(new RuntimeException("throttled")).when(schemaCatalogService).record(eq("customer"), anyMap());
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id", "STG-1");
+        data.put("col1", "new");
+        data.put("Region", "north");
+        UploadResult result = realSvc.updateDataToTable(Map.of("data", data));
+
+        assertEquals("Data updated successfully.", result.getMessage());
+        ArgumentCaptor<Map<String, SchemaCatalogService.Column>> observed = ArgumentCaptor.forClass(Map.class);
+        verify(schemaCatalogService).record(eq("customer"), observed.capture());
+        assertEquals(Map.of(
+                "col1", new SchemaCatalogService.Column("col1", "S"),
+                "region", new SchemaCatalogService.Column("Region", "S")), observed.getValue());
+        verify(schemaCatalogService).invalidate("customer");
+        verify(listingVersionService).bump(hdr);
+    }
+}
@@ -0,0 +1,297 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import sg.edu.nus.iss.edgp.masterdata.management.dto.PageResult;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.DynamicDetailService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.QueryFilter;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.QueryPlanner;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+
+class QueryPlannerTest {
+
+    private DynamoDbClient dynamoDbClient;
+    private DynamicDetailService dynamoService;
+    private QueryPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbClient = mock(DynamoDbClient.class);
+        dynamoService = mock(DynamicDetailService.class);
+        planner = new QueryPlanner(dynamoDbClient, dynamoService);
+        when(dynamoService.indexActive(eq("stg"), anyString())).thenReturn(true);
+    }
+
+    private static Map<String, String> criteria(String... kv) {
+        Map<String, String> m = new LinkedHashMap<>();
+        for (int i = 0; i < kv.length; i += 2) m.put(kv[i], kv[i + 1]);
+        return m;
+    }
+
+    @Test
+    void plan_fileAndUser_queriesFileIndexOnBothKeys() {
+        QueryPlanner.Plan plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES,
+                criteria("file_id", "F1", "uploaded_by", "u@x.com"));
+
+        assertTrue(plan.usesIndex());
+        assertEquals("uploaded_by-file_id-index", plan.query().indexName());
+        assertEquals("uploaded_by = :uploaded_by AND file_id = :file_id", plan.query().keyConditionExpression());
+        assertNull(plan.query().filterExpression());
+        assertEquals("F1", plan.query().expressionAttributeValues().get(":file_id").s());
+    }
+
+    @Test
+    void plan_policyDomainAndUser_filtersTheAttributeNotInTheKey() {
+        QueryPlanner.Plan plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES,
+                criteria("policy_id", "P1", "domain_name", "vendor", "uploaded_by", "u@x.com"));
+
+        assertEquals("uploaded_by-policy_id-index", plan.query().indexName());
+        assertEquals("domain_name = :domain_name", plan.query().filterExpression());
+    }
+
+    @Test
+    void plan_userOnly_usesTheIndexEveryRowIsIn() {
+        QueryPlanner.Plan plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES, criteria("uploaded_by", "u@x.com"));
+
+        // file_id and policy_id indexes are sparse, so only the domain index holds every row
+        assertEquals("uploaded_by-domain_name-index", plan.query().indexName());
+        assertEquals("uploaded_by = :uploaded_by", plan.query().keyConditionExpression());
+    }
+
+    @Test
+    void plan_indexStillBackfilling_fallsBackToAnotherIndexOrScan() {
+        when(dynamoService.indexActive("stg", "uploaded_by-file_id-index")).thenReturn(false);
+        QueryPlanner.Plan plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES,
+                criteria("file_id", "F1", "uploaded_by", "u@x.com"));
+
+        assertEquals("uploaded_by-domain_name-index", plan.query().indexName());
+        assertEquals("file_id = :file_id", plan.query().filterExpression());
+
+        when(dynamoService.indexActive(eq("stg"), anyString())).thenReturn(false);
+        plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES, criteria("file_id", "F1", "uploaded_by", "u@x.com"));
+
+        assertFalse(plan.usesIndex());
+        assertEquals("stg", plan.scan().tableName());
+        assertEquals("file_id = :file_id AND uploaded_by = :uploaded_by", plan.scan().filterExpression());
+    }
+
+    @Test
+    void plan_noCriteriaOnIndexKeys_scans() {
+        QueryPlanner.Plan plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES, criteria("policy_id", "P1"));
+
+        assertFalse(plan.usesIndex());
+        verify(dynamoService, never()).indexActive(anyString(), anyString());
+    }
+
+    @Test
+    void execute_followsEveryQueryPage() {
+        Map<String, AttributeValue> a = Map.of("id", AttributeValue.builder().s("A").build());
+        Map<String, AttributeValue> b = Map.of("id", AttributeValue.builder().s("B").build());
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder().items(a).lastEvaluatedKey(a).build())
+                .thenReturn(QueryResponse.builder().items(b).build());
+
+        QueryPlanner.Plan plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES, criteria("uploaded_by", "u@x.com"));
+        List<Map<String, AttributeValue>> items = planner.execute(plan);
+
+        assertEquals(List.of(a, b), items);
+        ArgumentCaptor<QueryRequest> cap = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient, times(2)).query(cap.capture());
+        assertNull(cap.getAllValues().get(0).exclusiveStartKey().get("id"));
+        assertEquals(a, cap.getAllValues().get(1).exclusiveStartKey());
+    }
+
+    @Test
+    void plan_rangePredicateOnIndexKey_goesIntoTheKeyCondition() {
+        QueryPlanner.Plan plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES, criteria("uploaded_by", "u@x.com"),
+                QueryFilter.parse("file_id:begins_with:2024;amount:ge:100", null));
+
+        assertEquals("uploaded_by-file_id-index", plan.query().indexName());
+        assertEquals("uploaded_by = :uploaded_by AND begins_with(#f0, :f0)", plan.query().keyConditionExpression());
+        assertEquals("#f1 >= :f1", plan.query().filterExpression());
+        assertEquals(Map.of("#f0", "file_id", "#f1", "amount"), plan.query().expressionAttributeNames());
+        assertEquals("100", plan.query().expressionAttributeValues().get(":f1").n());
+    }
+
+    @Test
+    void plan_notEqualOnIndexKey_cannotUseThatIndex() {
+        QueryPlanner.Plan plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES, criteria("uploaded_by", "u@x.com"),
+                QueryFilter.parse("domain_name:ne:vendor", null));
+
+        // a key attribute may not appear in a Query's filter, and the other indexes are sparse
+        assertFalse(plan.usesIndex());
+        assertEquals("uploaded_by = :uploaded_by AND #f0 <> :f0", plan.scan().filterExpression());
+    }
+
+    @Test
+    void plan_numericLiteralOnIndexKey_isComparedAsString() {
+        QueryPlanner.Plan plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES, criteria("uploaded_by", "u@x.com"),
+                QueryFilter.parse("file_id:eq:12345", null));
+
+        assertEquals("uploaded_by-file_id-index", plan.query().indexName());
+        assertEquals("12345", plan.query().expressionAttributeValues().get(":f0").s());
+    }
+
+    @Test
+    void plan_sortOnRangeKey_picksThatIndexAndOrdersIt() {
+        QueryPlanner.Plan plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES, criteria("uploaded_by", "u@x.com"),
+                QueryFilter.parse(null, "domain_name:desc"));
+
+        assertEquals("uploaded_by-domain_name-index", plan.query().indexName());
+        assertFalse(plan.query().scanIndexForward());
+    }
+
+    @Test
+    void plan_sortWithoutAUsableIndex_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> planner.plan("stg", QueryPlanner.STAGING_INDEXES,
+                criteria("uploaded_by", "u@x.com"), QueryFilter.parse(null, "amount")));
+        // file_id index is sparse: it can only sort rows the search constrains on file_id
+        assertThrows(IllegalArgumentException.class, () -> planner.plan("stg", QueryPlanner.STAGING_INDEXES,
+                criteria("uploaded_by", "u@x.com"), QueryFilter.parse(null, "file_id")));
+    }
+
+    @Test
+    void project_keepsThePlansFilterNames() {
+        QueryPlanner.Plan plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES, criteria("policy_id", "P1"),
+                QueryFilter.parse("name:eq:Alice", null));
+
+        ScanRequest scan = QueryPlanner.project(plan, List.of("name")).scan();
+
+        assertEquals("name", scan.expressionAttributeNames().get("#f0"));
+        assertEquals("name", scan.expressionAttributeNames().get("#p0"));
+        assertEquals("policy_id = :policy_id AND #f0 = :f0", scan.filterExpression());
+    }
+
+    @Test
+    void project_readsOnlyTheAttributesAskedForPlusTheKeys() {
+        when(dynamoService.indexActive("stg", "uploaded_by-domain_name-index")).thenReturn(true);
+        QueryPlanner.Plan plan = planner.plan("stg", QueryPlanner.STAGING_INDEXES,
+                criteria("uploaded_by", "u@x.com", "domain_name", "vendor"));
+
+        QueryRequest q = QueryPlanner.project(plan, List.of("name", "status")).query();
+
+        assertEquals("#p0, #p1, #p2, #p3, #p4", q.projectionExpression());
+        assertEquals(Set.of("name", "status", "id", "uploaded_by", "domain_name"),
+                new HashSet<>(q.expressionAttributeNames().values()));
+        assertEquals("uploaded_by = :uploaded_by AND domain_name = :domain_name", q.keyConditionExpression());
+        assertSame(plan, QueryPlanner.project(plan, List.of()));
+    }
+
+    @Test
+    void count_sumsSelectCountOverEveryPage() {
+        Map<String, AttributeValue> a = Map.of("id", AttributeValue.builder().s("A").build());
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder().count(3).lastEvaluatedKey(a).build())
+                .thenReturn(QueryResponse.builder().count(2).build());
+
+        long count = planner.count(planner.plan("stg", QueryPlanner.STAGING_INDEXES, criteria("uploaded_by", "u@x.com")));
+
+        assertEquals(5, count);
+        ArgumentCaptor<QueryRequest> cap = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient, times(2)).query(cap.capture());
+        assertEquals(Select.COUNT, cap.getAllValues().get(0).select());
+        assertEquals(a, cap.getAllValues().get(1).exclusiveStartKey());
+    }
+
+    @Test
+    void exists_stopsAtTheFirstPageWithAMatch() {
+        Map<String, AttributeValue> a = Map.of("id", AttributeValue.builder().s("A").build());
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().count(0).lastEvaluatedKey(a).build())
+                .thenReturn(ScanResponse.builder().count(1).lastEvaluatedKey(a).build());
+
+        assertTrue(planner.exists(planner.plan("stg", QueryPlanner.STAGING_INDEXES, criteria("policy_id", "P1"))));
+        verify(dynamoDbClient, times(2)).scan(argThat((ScanRequest r) -> r.select() == Select.COUNT));
+    }
+
+    private static Map<String, AttributeValue> row(String id, String domain) {
+        return Map.of("id", AttributeValue.builder().s(id).build(),
+                "uploaded_by", AttributeValue.builder().s("u@x.com").build(),
+                "domain_name", AttributeValue.builder().s(domain).build());
+    }
+
+    @Test
+    void page_pushesSizeDownAndResumesFromTheCursor() {
+        Map<String, AttributeValue> lek = row("B", "vendor");
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder().items(row("A", "vendor"), row("B", "vendor")).lastEvaluatedKey(lek).build())
+                .thenReturn(QueryResponse.builder().items(row("C", "vendor")).build());
+
+        PageResult<Map<String, AttributeValue>> first = planner.page("stg", QueryPlanner.STAGING_INDEXES,
+                criteria("uploaded_by", "u@x.com"), 0, 2, null);
+        assertEquals(2, first.items().size());
+        assertNotNull(first.nextCursor());
+
+        PageResult<Map<String, AttributeValue>> second = planner.page("stg", QueryPlanner.STAGING_INDEXES,
+                criteria("uploaded_by", "u@x.com"), 0, 2, first.nextCursor());
+        assertEquals("C", second.items().get(0).get("id").s());
+        assertNull(second.nextCursor());
+
+        ArgumentCaptor<QueryRequest> cap = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient, times(2)).query(cap.capture());
+        assertEquals(2, cap.getAllValues().get(0).limit());
+        assertEquals(lek, cap.getAllValues().get(1).exclusiveStartKey());
+    }
+
+    @Test
+    void page_withoutCursor_skipsEarlierPages() {
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(row("A", "v"), row("B", "v"), row("C", "v")).build());
+
+        PageResult<Map<String, AttributeValue>> page = planner.page("stg", QueryPlanner.STAGING_INDEXES,
+                criteria("policy_id", "P1"), 1, 1, "");
+
+        assertEquals("B", page.items().get(0).get("id").s());
+        // stopped inside the response, so the cursor points just past B
+        planner.page("stg", QueryPlanner.STAGING_INDEXES, criteria("policy_id", "P1"), 0, 1, page.nextCursor());
+        ArgumentCaptor<ScanRequest> cap = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient, times(2)).scan(cap.capture());
+        assertEquals(Map.of("id", AttributeValue.builder().s("B").build()), cap.getAllValues().get(1).exclusiveStartKey());
+    }
+
+    @Test
+    void page_cursorFromAnotherSearchOrGarbage_isRejected() {
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder().items(row("A", "vendor")).lastEvaluatedKey(row("A", "vendor")).build());
+        String cursor = planner.page("stg", QueryPlanner.STAGING_INDEXES, criteria("uploaded_by", "u@x.com"), 0, 1, null)
+                .nextCursor();
+
+        assertThrows(IllegalArgumentException.class, () -> planner.page("stg", QueryPlanner.STAGING_INDEXES,
+                criteria("uploaded_by", "other@x.com"), 0, 1, cursor));
+        assertThrows(IllegalArgumentException.class, () -> planner.page("stg", QueryPlanner.STAGING_INDEXES,
+                criteria("uploaded_by", "u@x.com"), 0, 1, "not-a-cursor"));
+    }
+
+    @Test
+    void pages_readsTheNextPageOnlyWhenAsked() {
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(row("A", "v")).lastEvaluatedKey(row("A", "v")).build())
+                .thenReturn(ScanResponse.builder().items(row("B", "v")).build());
+
+        Iterator<List<Map<String, AttributeValue>>> pages = planner.pages(
+                planner.plan("stg", QueryPlanner.STAGING_INDEXES, criteria("policy_id", "P1")), 1);
+
+        assertEquals("A", pages.next().get(0).get("id").s());
+        verify(dynamoDbClient, times(1)).scan(any(ScanRequest.class));
+        assertEquals("B", pages.next().get(0).get("id").s());
+        assertFalse(pages.hasNext());
+    }
+}
@@ -0,0 +1,133 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.DynamicDetailService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.SchemaCatalogService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.SchemaCatalogService.Column;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+class SchemaCatalogServiceTest {
+
+    private DynamoDbClient dynamoDbClient;
+    private DynamicDetailService dynamoService;
+    private SchemaCatalogService catalog;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbClient = mock(DynamoDbClient.class);
+        dynamoService = mock(DynamicDetailService.class);
+        catalog = new SchemaCatalogService(dynamoDbClient, dynamoService);
+        ReflectionTestUtils.setField(catalog, "schemaTableName", "schema");
+    }
+
+    private static AttributeValue s(String v) {
+        return AttributeValue.builder().s(v).build();
+    }
+
+    private static Map<String, AttributeValue> catalogItem() {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("id", s("customer"));
+        item.put("domain_name", s("customer"));
+        item.put("n:email", s("Email"));
+        item.put("t:email", s("S"));
+        return item;
+    }
+
+    @Test
+    void columns_areLoadedOnce_andServedFromCache() {
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().item(catalogItem()).build());
+
+        assertEquals(Map.of("email", "Email"), catalog.canonicalNames("Customer"));
+        assertEquals(Map.of("email", new Column("Email", "S")), catalog.columns("customer "));
+
+        verify(dynamoDbClient, times(1)).getItem(any(GetItemRequest.class));
+    }
+
+    @Test
+    void invalidate_forcesReload() {
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().item(catalogItem()).build());
+
+        catalog.columns("customer");
+        catalog.invalidate("CUSTOMER");
+        catalog.columns("customer");
+
+        verify(dynamoDbClient, times(2)).getItem(any(GetItemRequest.class));
+    }
+
+    @Test
+    void columns_missingTable_isEmpty() {
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenThrow(ResourceNotFoundException.builder().message("no table").build());
+
+        assertTrue(catalog.columns("customer").isEmpty());
+    }
+
+    @Test
+    void record_knownColumnsWithSameType_doesNoWrite() {
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().item(catalogItem()).build());
+
+        catalog.record("customer", Map.of("email", new Column("EMAIL", "S")));
+
+        verify(dynamoDbClient, never()).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    void record_newColumnAndTypeChange_updatesCatalogAndCache() {
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().item(catalogItem()).build());
+        Map<String, AttributeValue> after = catalogItem();
+        after.put("t:email", s(SchemaCatalogService.MIXED));
+        after.put("n:phone", s("Phone"));
+        after.put("t:phone", s("N"));
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(UpdateItemResponse.builder().attributes(after).build());
+
+        catalog.record("customer", Map.of("email", new Column("email", "N"), "phone", new Column("Phone", "N")));
+
+        ArgumentCaptor<UpdateItemRequest> cap = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient).updateItem(cap.capture());
+        UpdateItemRequest req = cap.getValue();
+        assertEquals("schema", req.tableName());
+        assertEquals("customer", req.key().get("id").s());
+        assertTrue(req.updateExpression().contains("if_not_exists"));
+        assertTrue(req.expressionAttributeNames().containsValue("n:phone"));
+        assertTrue(req.expressionAttributeValues().containsValue(s(SchemaCatalogService.MIXED)));
+
+        assertEquals(new Column("Email", SchemaCatalogService.MIXED), catalog.columns("customer").get("email"));
+        assertEquals(new Column("Phone", "N"), catalog.columns("customer").get("phone"));
+        verify(dynamoDbClient, times(1)).getItem(any(GetItemRequest.class));
+    }
+
+    @Test
+    void record_missingTable_createsItAndRetries() {
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenThrow(ResourceNotFoundException.builder().message("no table").build());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ResourceNotFoundException.builder().message("no table").build())
+                .thenReturn(UpdateItemResponse.builder().build());
+
+        catalog.record("customer", Map.of("email", new Column("Email", "S")));
+
+        verify(dynamoService).createTable("schema");
+        verify(dynamoDbClient, times(2)).updateItem(any(UpdateItemRequest.class));
+    }
+}
@@ -7,31 +7,47 @@ import static org.mockito.Mockito.*;
 import java.math.BigDecimal;
 import java.util.*;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import sg.edu.nus.iss.edgp.masterdata.management.dto.InsertionSummary;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.BatchWriteService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.SchemaCatalogService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.SchemaCatalogService.Column;
 import sg.edu.nus.iss.edgp.masterdata.management.service.impl.StagingDataService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.WriteRateLimiter;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 @ExtendWith(MockitoExtension.class)
 public class StagingDataServiceTest {
 
     private DynamoDbClient dynamoDbClient;
+    private SchemaCatalogService schemaCatalogService;
     private StagingDataService svc;
 
     @BeforeEach
     void setUp() {
         dynamoDbClient = mock(DynamoDbClient.class);
-        svc = new StagingDataService(dynamoDbClient);
+        BatchWriteService batchWriteService = new BatchWriteService(dynamoDbClient, new WriteRateLimiter());
+        // one batch in flight keeps the captured call order deterministic
+        ReflectionTestUtils.setField(batchWriteService, "maxInFlight", 1);
+        schemaCatalogService = mock(SchemaCatalogService.class);
+        lenient().when(schemaCatalogService.canonicalNames(anyString())).thenReturn(new HashMap<>());
+        svc = new StagingDataService(batchWriteService, schemaCatalogService);
     }
 
     
@@ -227,5 +243,122 @@ public class StagingDataServiceTest {
         Map<String, ?> item = cap.getValue().requestItems().get("stage").get(0).putRequest().item();
         assertEquals("1e-3", ((AttributeValue) item.get("exp")).n());
     }
-}
 
+    @Test
+    void insertToStaging_iterator_keepsParsingWhileFirstBatchIsInFlight() throws Exception {
+        CountDownLatch allRowsPulled = new CountDownLatch(1);
+        AtomicBoolean parsedDuringWrite = new AtomicBoolean();
+        int[] pulled = {0};
+        Iterator<Map<String, Object>> rows = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return pulled[0] < 30;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                Map<String, Object> row = Map.of("k", "v" + pulled[0]++);
+                if (pulled[0] == 30) allRowsPulled.countDown();
+                return row;
+            }
+        };
+        List<Integer> batchSizes = new ArrayList<>();
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class))).thenAnswer(inv -> {
+            BatchWriteItemRequest req = inv.getArgument(0);
+            synchronized (batchSizes) {
+                if (batchSizes.isEmpty()) {
+                    // the first batch only completes once the caller has read past it
+                    parsedDuringWrite.set(allRowsPulled.await(5, TimeUnit.SECONDS));
+                }
+                batchSizes.add(req.requestItems().get("stage").size());
+            }
+            return BatchWriteItemResponse.builder().unprocessedItems(Collections.emptyMap()).build();
+        });
+
+        InsertionSummary sum = svc.insertToStaging("stage", rows, "O", "P", "customer", "F", "u");
+
+        assertEquals(30, sum.totalInserted());
+        assertTrue(parsedDuringWrite.get());
+        assertEquals(List.of(25, 5), batchSizes);
+    }
+
+    @Test
+    void insertToStaging_rowFailsMidway_waitsForTheRunningBatchBeforeRethrowing() {
+        AtomicBoolean firstBatchDone = new AtomicBoolean();
+        int[] pulled = {0};
+        Iterator<Map<String, Object>> rows = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                if (pulled[0] == 26) throw new IllegalArgumentException("Malformed CSV row 27");
+                return Map.of("k", "v" + pulled[0]++);
+            }
+        };
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class))).thenAnswer(inv -> {
+            Thread.sleep(100);
+            firstBatchDone.set(true);
+            return BatchWriteItemResponse.builder().unprocessedItems(Collections.emptyMap()).build();
+        });
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> svc.insertToStaging("stage", rows, "O", "P", "customer", "F", "u"));
+
+        assertEquals("Malformed CSV row 27", ex.getMessage());
+        assertTrue(firstBatchDone.get());
+        verify(dynamoDbClient, times(1)).batchWriteItem(any(BatchWriteItemRequest.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void insertToStaging_usesCataloguedCasing_andRecordsNewColumns() {
+        when(schemaCatalogService.canonicalNames("customer")).thenReturn(new HashMap<>(Map.of("email", "Email")));
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().unprocessedItems(Collections.emptyMap()).build());
+
+        LinkedHashMap<String, Object> first = new LinkedHashMap<>();
+        first.put("EMAIL", "a@x.com");
+        first.put("Phone", "123");
+        LinkedHashMap<String, Object> second = new LinkedHashMap<>();
+        second.put("email", "b@x.com");
+        second.put("PHONE", "n/a");
+
+        svc.insertToStaging("stage", List.of(first, second), "O", "P", "customer", "F", "u");
+
+        ArgumentCaptor<BatchWriteItemRequest> cap = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDbClient).batchWriteItem(cap.capture());
+        List<WriteRequest> wrs = cap.getValue().requestItems().get("stage");
+        assertEquals(Set.of("Email", "Phone"), userKeys(wrs.get(0).putRequest().item()));
+        assertEquals(Set.of("Email", "Phone"), userKeys(wrs.get(1).putRequest().item()));
+
+        ArgumentCaptor<Map<String, Column>> observed = ArgumentCaptor.forClass(Map.class);
+        verify(schemaCatalogService).record(eq("customer"), observed.capture());
+        assertEquals(new Column("Email", "S"), observed.getValue().get("email"));
+        assertEquals(new Column("Phone", SchemaCatalogService.MIXED), observed.getValue().get("phone"));
+        verify(dynamoDbClient, never()).scan(any(ScanRequest.class));
+    }
+
+    private static Set<String> userKeys(Map<String, AttributeValue> item) {
+        Set<String> keys = new HashSet<>(item.keySet());
+        keys.removeAll(Set.of("id", "organization_id", "policy_id", "domain_name", "file_id", "uploaded_by",
+                "uploaded_date", "is_processed", "is_handled"));
+        return keys;
+    }
+
+    @Test
+    void insertToStaging_catalogWriteFails_rowsStayStaged_cacheInvalidated() {
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().unprocessedItems(Collections.emptyMap()).build());
+        doThrow(new RuntimeException("catalog down")).when(schemaCatalogService).record(eq("customer"), anyMap());
+
+        InsertionSummary sum = svc.insertToStaging("stage", List.of(new LinkedHashMap<>(Map.of("a", "b"))),
+                "ORG1", "POL1", "customer", "F-1", "user@x.com");
+
+        assertEquals(1, sum.totalInserted());
+        verify(dynamoDbClient).batchWriteItem(any(BatchWriteItemRequest.class));
+        verify(schemaCatalogService).invalidate("customer");
+    }
+}
@@ -0,0 +1,244 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sg.edu.nus.iss.edgp.masterdata.management.dto.InsertionSummary;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.UploadJobState;
+import sg.edu.nus.iss.edgp.masterdata.management.exception.MasterdataServiceException;
+import sg.edu.nus.iss.edgp.masterdata.management.jwt.JWTService;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
+import sg.edu.nus.iss.edgp.masterdata.management.pojo.UploadRequest;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.DynamicDetailService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.HeaderService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.StagingDataService;
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.UploadJobService;
+
+class UploadJobServiceTest {
+
+    private static final String AUTH = "Bearer token";
+
+    private JWTService jwtService;
+    private DynamicDetailService dynamoService;
+    private HeaderService headerService;
+    private StagingDataService stagingDataService;
+    private UploadJobService service;
+    private UploadRequest uploadReq;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = mock(JWTService.class);
+        dynamoService = mock(DynamicDetailService.class);
+        headerService = mock(HeaderService.class);
+        stagingDataService = mock(StagingDataService.class);
+        service = new UploadJobService(jwtService, dynamoService, headerService, stagingDataService);
+        ReflectionTestUtils.setField(service, "headerTableName", "hdr");
+        ReflectionTestUtils.setField(service, "stagingTableName", "stg");
+        ReflectionTestUtils.setField(service, "progressIntervalMs", 0L);
+
+        when(jwtService.extractUserEmailFromToken("token")).thenReturn("u@x.com");
+        when(jwtService.extractOrgIdFromToken("token")).thenReturn("ORG1");
+        when(dynamoService.tableExists(anyString())).thenReturn(true);
+
+        uploadReq = new UploadRequest();
+        uploadReq.setDomainName("Vendor");
+        uploadReq.setPolicyId("P1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private static MockMultipartFile csv(String body) {
+        return new MockMultipartFile("file", "Vendors.csv", "text/csv", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void submit_savesUploadingHeader_thenCompletesInBackground() {
+        when(stagingDataService.insertToStaging(eq("stg"), any(Iterator.class), eq("ORG1"), eq("P1"), eq("Vendor"),
+                anyString(), eq("u@x.com"), any(StagingDataService.ProgressListener.class))).thenAnswer(inv -> {
+                    Iterator<Map<String, Object>> rows = inv.getArgument(1);
+                    StagingDataService.ProgressListener progress = inv.getArgument(7);
+                    int n = 0;
+                    while (rows.hasNext()) {
+                        rows.next();
+                        n++;
+                    }
+                    progress.onProgress(n, n);
+                    return new InsertionSummary(n, List.of());
+                });
+
+        String fileId = service.submit(csv("name\nA\nB\nC"), uploadReq, AUTH);
+
+        ArgumentCaptor<MasterDataHeader> header = ArgumentCaptor.forClass(MasterDataHeader.class);
+        verify(headerService).saveHeader(eq("hdr"), header.capture());
+        assertEquals(fileId, header.getValue().getId());
+        assertEquals(FileProcessStage.UPLOADING, header.getValue().getProcessStage());
+        assertEquals(UploadJobState.QUEUED, header.getValue().getUploadState());
+        assertEquals("vendors.csv", header.getValue().getFileName());
+
+        verify(headerService, timeout(5000)).completeUpload(eq(fileId), eq(3L), eq(0L), anyLong());
+        verify(headerService, atLeastOnce()).updateUploadProgress(eq(fileId), eq(UploadJobState.RUNNING), eq(3L),
+                eq(3L), eq(3L), anyLong());
+        verify(headerService, never()).failUpload(anyString(), anyString());
+    }
+
+    @Test
+    void submit_emptyCsv_marksUploadFailed() {
+        String fileId = service.submit(csv(""), uploadReq, AUTH);
+
+        verify(headerService, timeout(5000)).failUpload(fileId, "CSV is empty.");
+        verifyNoInteractions(stagingDataService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void submit_stagingFailure_marksUploadFailed() {
+        when(stagingDataService.insertToStaging(anyString(), any(Iterator.class), anyString(), anyString(),
+                anyString(), anyString(), anyString(), any(StagingDataService.ProgressListener.class)))
+                .thenThrow(new MasterdataServiceException("ddb down"));
+
+        String fileId = service.submit(csv("name\nA"), uploadReq, AUTH);
+
+        verify(headerService, timeout(5000)).failUpload(fileId, "ddb down");
+        verify(headerService, never()).completeUpload(anyString(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void submit_whenQueueIsFull_rejects() throws Exception {
+        ReflectionTestUtils.setField(service, "threads", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(stagingDataService.insertToStaging(anyString(), any(Iterator.class), anyString(), anyString(),
+                anyString(), anyString(), anyString(), any(StagingDataService.ProgressListener.class)))
+                .thenAnswer(inv -> {
+                    started.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return new InsertionSummary(1, List.of());
+                });
+
+        service.submit(csv("name\nA"), uploadReq, AUTH);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        service.submit(csv("name\nB"), uploadReq, AUTH); // queued
+
+        MasterdataServiceException ex = assertThrows(MasterdataServiceException.class,
+                () -> service.submit(csv("name\nC"), uploadReq, AUTH));
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+        verify(headerService).failUpload(anyString(), contains("queue is full"));
+        release.countDown();
+    }
+
+    @Test
+    void getProgress_onlyReturnsTheCallersOwnUploads() {
+        MasterDataHeader own = new MasterDataHeader();
+        own.setUploadedBy("U@x.com");
+        MasterDataHeader other = new MasterDataHeader();
+        other.setUploadedBy("someone@x.com");
+        when(headerService.findById("F1")).thenReturn(Optional.of(own));
+        when(headerService.findById("F2")).thenReturn(Optional.of(other));
+
+        assertTrue(service.getProgress("F1", AUTH).isPresent());
+        assertTrue(service.getProgress("F2", AUTH).isEmpty());
+    }
+
+    private static MasterDataHeader running(String fileId, String updatedDate) {
+        MasterDataHeader h = new MasterDataHeader();
+        h.setId(fileId);
+        h.setUploadedBy("u@x.com");
+        h.setUploadState(UploadJobState.RUNNING);
+        h.setUpdated_date(updatedDate);
+        return h;
+    }
+
+    @Test
+    void getProgress_jobSilentPastTheTimeout_isMarkedFailed() {
+        String old = LocalDateTime.now(ZoneId.of("Asia/Singapore")).minusHours(1)
+                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        when(headerService.findById("F1")).thenReturn(Optional.of(running("F1", old)));
+        when(headerService.failStaleUpload(eq("F1"), eq(old), anyString())).thenReturn(true);
+
+        MasterDataHeader h = service.getProgress("F1", AUTH).orElseThrow();
+
+        assertEquals(UploadJobState.FAILED, h.getUploadState());
+        assertEquals("Upload stalled: no progress since " + old, h.getUploadError());
+    }
+
+    @Test
+    void getProgress_queuedJobThatNeverStarted_isAgedFromItsUploadDate() {
+        String old = LocalDateTime.now(ZoneId.of("Asia/Singapore")).minusHours(1)
+                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        MasterDataHeader queued = running("F1", "");
+        queued.setUploadState(UploadJobState.QUEUED);
+        queued.setUploadDate(old);
+        when(headerService.findById("F1")).thenReturn(Optional.of(queued));
+        when(headerService.failStaleUpload(eq("F1"), eq(""), anyString())).thenReturn(true);
+
+        MasterDataHeader h = service.getProgress("F1", AUTH).orElseThrow();
+
+        assertEquals(UploadJobState.FAILED, h.getUploadState());
+        assertEquals("Upload stalled: no progress since " + old, h.getUploadError());
+    }
+
+    @Test
+    void getProgress_recentJob_isLeftRunning_andARacingUpdateIsReRead() {
+        String now = LocalDateTime.now(ZoneId.of("Asia/Singapore"))
+                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        when(headerService.findById("F1")).thenReturn(Optional.of(running("F1", now)));
+        assertEquals(UploadJobState.RUNNING, service.getProgress("F1", AUTH).orElseThrow().getUploadState());
+        verify(headerService, never()).failStaleUpload(anyString(), anyString(), anyString());
+
+        // the job reported progress between the read and the conditional write
+        MasterDataHeader completed = running("F2", now);
+        completed.setUploadState(UploadJobState.COMPLETED);
+        when(headerService.findById("F2")).thenReturn(Optional.of(running("F2", "2000-01-01 00:00:00")),
+                Optional.of(completed));
+        when(headerService.failStaleUpload(eq("F2"), eq("2000-01-01 00:00:00"), anyString())).thenReturn(false);
+        assertEquals(UploadJobState.COMPLETED, service.getProgress("F2", AUTH).orElseThrow().getUploadState());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void heartbeat_touchesOnlyJobsStillActiveOnThisPod() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(stagingDataService.insertToStaging(anyString(), any(Iterator.class), anyString(), anyString(),
+                anyString(), anyString(), anyString(), any())).thenAnswer(inv -> {
+                    release.await(5, TimeUnit.SECONDS);
+                    return new InsertionSummary(1, List.of());
+                });
+
+        String fileId = service.submit(csv("name\nA\n"), uploadReq, AUTH);
+        service.heartbeat();
+        verify(headerService).heartbeatUpload(fileId);
+
+        release.countDown();
+        verify(headerService, timeout(2_000)).completeUpload(eq(fileId), anyLong(), anyLong(), anyLong());
+        Thread.sleep(50);
+        service.heartbeat();
+        verify(headerService, times(1)).heartbeatUpload(fileId);
+    }
+}
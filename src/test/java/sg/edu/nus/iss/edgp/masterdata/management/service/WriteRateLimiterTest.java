@@ -0,0 +1,96 @@
+package sg.edu.nus.iss.edgp.masterdata.management.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sg.edu.nus.iss.edgp.masterdata.management.service.impl.WriteRateLimiter;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+
+class WriteRateLimiterTest {
+
+    private WriteRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new WriteRateLimiter();
+        ReflectionTestUtils.setField(limiter, "initialRate", 100.0);
+        ReflectionTestUtils.setField(limiter, "minRate", 10.0);
+        ReflectionTestUtils.setField(limiter, "maxRate", 200.0);
+    }
+
+    @Test
+    void acquire_withinBurst_doesNotBlock() {
+        long start = System.nanoTime();
+        limiter.acquire(50);
+        limiter.acquire(50);
+        assertTrue(System.nanoTime() - start < 50_000_000L);
+    }
+
+    @Test
+    void acquire_beyondBurst_waitsForRefill() {
+        limiter.acquire(100);
+        long start = System.nanoTime();
+        limiter.acquire(20); // 20 units at 100/s is ~200 ms
+        assertTrue(System.nanoTime() - start >= 150_000_000L);
+    }
+
+    @Test
+    void record_unprocessedItems_cutRateInProportion() {
+        limiter.record(25, null, 25, 25);
+        assertEquals(50.0, limiter.currentRate(), 0.001);
+
+        limiter.record(25, null, 25, 5); // 20% rejected -> x0.9
+        assertEquals(45.0, limiter.currentRate(), 0.001);
+    }
+
+    @Test
+    void onThrottled_halvesRate_butNotBelowMinimum() {
+        for (int i = 0; i < 10; i++) limiter.onThrottled();
+        assertEquals(10.0, limiter.currentRate(), 0.001);
+    }
+
+    @Test
+    void record_cleanSecondThatWaitedForTokens_raisesRateUpToMaximum() {
+        limiter.acquire(100);
+        limiter.acquire(5); // bucket drained, waits ~50 ms
+        ReflectionTestUtils.setField(limiter, "lastAdjustNanos", System.nanoTime() - 2_000_000_000L);
+        limiter.record(1, List.of(ConsumedCapacity.builder().capacityUnits(1.0).build()), 1, 0);
+        assertEquals(110.0, limiter.currentRate(), 0.001);
+
+        ReflectionTestUtils.setField(limiter, "rate", 195.0);
+        ReflectionTestUtils.setField(limiter, "waitedSinceAdjust", true);
+        ReflectionTestUtils.setField(limiter, "lastAdjustNanos", System.nanoTime() - 2_000_000_000L);
+        limiter.record(1, null, 1, 0);
+        assertEquals(200.0, limiter.currentRate(), 0.001);
+    }
+
+    @Test
+    void record_cleanSecondThatUsedMostOfTheRate_raisesRate() {
+        limiter.currentRate();
+        ReflectionTestUtils.setField(limiter, "lastAdjustNanos", System.nanoTime() - 1_000_000_000L);
+        limiter.acquire(95); // within the burst, but 95% of one second's budget
+        limiter.record(95, null, 95, 0);
+        assertEquals(110.0, limiter.currentRate(), 0.001);
+    }
+
+    @Test
+    void record_idleSeconds_doNotRaiseRate() {
+        limiter.currentRate();
+        ReflectionTestUtils.setField(limiter, "lastAdjustNanos", System.nanoTime() - 60_000_000_000L);
+        limiter.acquire(1);
+        limiter.record(1, null, 1, 0);
+        assertEquals(100.0, limiter.currentRate(), 0.001);
+
+        // the quiet minute is forgotten: the next busy second starts from the unchanged rate
+        limiter.acquire(100);
+        limiter.acquire(5);
+        ReflectionTestUtils.setField(limiter, "lastAdjustNanos", System.nanoTime() - 1_000_000_000L);
+        limiter.record(5, null, 5, 0);
+        assertEquals(110.0, limiter.currentRate(), 0.001);
+    }
+}
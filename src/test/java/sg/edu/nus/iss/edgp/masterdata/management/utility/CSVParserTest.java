@@ -111,4 +111,119 @@ class CSVParserTest {
         List<LinkedHashMap<String, Object>> rows = CSVParser.parseCsvObjects(null);
         assertTrue(rows.isEmpty());
     }
+
+    @Test
+    void streamCsvObjects_yieldsRowsLazily_andExposesHeaders() throws Exception {
+        String content = "Name,Age\nAlice,30\n\nBob,41\n";
+        try (CSVParser.CsvRowIterator rows = CSVParser.streamCsvObjects(
+                new java.io.ByteArrayInputStream(content.getBytes(java.nio.charset.StandardCharsets.UTF_8)))) {
+            assertEquals(List.of("Name", "Age"), rows.getHeaders());
+
+            assertTrue(rows.hasNext());
+            assertTrue(rows.hasNext()); // idempotent look-ahead
+            Map<String, Object> r1 = rows.next();
+            assertEquals("Alice", r1.get("Name"));
+            assertEquals(new BigDecimal("30"), r1.get("Age"));
+
+            Map<String, Object> r2 = rows.next();
+            assertEquals("Bob", r2.get("Name"));
+
+            assertFalse(rows.hasNext());
+            assertThrows(java.util.NoSuchElementException.class, rows::next);
+        }
+    }
+
+    @Test
+    void streamCsvObjects_nullOrEmptyFile_returnsEmptyIterator() throws Exception {
+        try (CSVParser.CsvRowIterator rows = CSVParser.streamCsvObjects((MockMultipartFile) null)) {
+            assertFalse(rows.hasNext());
+            assertTrue(rows.getHeaders().isEmpty());
+        }
+        try (CSVParser.CsvRowIterator rows = CSVParser.streamCsvObjects(csv("e.csv", ""))) {
+            assertFalse(rows.hasNext());
+        }
+    }
+
+    @Test
+    void parseCsvObjects_quotedFieldWithEmbeddedNewline_staysOneRow() throws Exception {
+        String content = "Id,Address\r\n1,\"10 Main St\r\nUnit 5\"\r\n2,\"Short\"\r\n";
+        List<LinkedHashMap<String, Object>> rows = CSVParser.parseCsvObjects(csv("n.csv", content));
+        assertEquals(2, rows.size());
+        assertEquals("10 Main St\r\nUnit 5", rows.get(0).get("Address"));
+        assertEquals("Short", rows.get(1).get("Address"));
+    }
+
+    @Test
+    void inferColumnTypes_uniformColumnsGetTypedAndMixedColumnsFallBackToString() {
+        List<List<String>> sample = List.of(
+                List.of("1", "true", "2025-01-01", "2025-01-01T12:00:00", "2025-01-01T12:00:00Z", "abc", "1"),
+                List.of("2.5", "FALSE", "2025-02-01", "2025-02-01T00:00:00", "2025-01-01T12:00:00+08:00", "def", "x"),
+                List.of("", "", "", "", "", "", ""));
+
+        CSVParser.ColumnType[] types = CSVParser.inferColumnTypes(8, sample);
+
+        assertArrayEquals(new CSVParser.ColumnType[] {
+                CSVParser.ColumnType.NUMBER, CSVParser.ColumnType.BOOLEAN, CSVParser.ColumnType.LOCAL_DATE,
+                CSVParser.ColumnType.LOCAL_DATE_TIME, CSVParser.ColumnType.ZONED_DATE_TIME,
+                CSVParser.ColumnType.STRING, CSVParser.ColumnType.STRING, CSVParser.ColumnType.STRING }, types);
+    }
+
+    @Test
+    void castCell_valueNotFittingColumnType_fallsBackToPerCellCast() {
+        assertEquals(new BigDecimal("12"), CSVParser.castCell(CSVParser.ColumnType.NUMBER, " 12 "));
+        assertEquals("n/a", CSVParser.castCell(CSVParser.ColumnType.NUMBER, "n/a"));
+        assertEquals(Boolean.TRUE, CSVParser.castCell(CSVParser.ColumnType.LOCAL_DATE, "true"));
+        assertEquals("2025-13-01", CSVParser.castCell(CSVParser.ColumnType.LOCAL_DATE, "2025-13-01"));
+        assertEquals("2025-01-01T04:00:00Z",
+                CSVParser.castCell(CSVParser.ColumnType.LOCAL_DATE, "2025-01-01T12:00:00"));
+        assertEquals(new BigDecimal("5"), CSVParser.castCell(CSVParser.ColumnType.STRING, "5"));
+        assertEquals("", CSVParser.castCell(CSVParser.ColumnType.NUMBER, "  "));
+    }
+
+    @Test
+    void parseCsvObjects_rowsBeyondTypeSample_stillCastPerColumn() throws Exception {
+        StringBuilder sb = new StringBuilder("n,label\n");
+        for (int i = 0; i < CSVParser.TYPE_SAMPLE_ROWS + 5; i++) {
+            sb.append(i).append(",row").append(i).append('\n');
+        }
+        sb.append("oops,2025-01-01\n");
+
+        List<LinkedHashMap<String, Object>> rows = CSVParser.parseCsvObjects(csv("big.csv", sb.toString()));
+
+        assertEquals(CSVParser.TYPE_SAMPLE_ROWS + 6, rows.size());
+        assertEquals(new BigDecimal(CSVParser.TYPE_SAMPLE_ROWS + 4), rows.get(CSVParser.TYPE_SAMPLE_ROWS + 4).get("n"));
+        Map<String, Object> last = rows.get(rows.size() - 1);
+        assertEquals("oops", last.get("n"));
+        assertEquals("2025-01-01", last.get("label"));
+    }
+
+    @Test
+    void parseCsvObjects_gzipUpload_isDecompressedWhileStreaming() throws Exception {
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        try (java.util.zip.GZIPOutputStream gz = new java.util.zip.GZIPOutputStream(bytes)) {
+            gz.write("name,qty\nA,1\nB,2\n".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        }
+        MockMultipartFile file = new MockMultipartFile("file", "data.csv.gz", "application/gzip", bytes.toByteArray());
+
+        List<LinkedHashMap<String, Object>> rows = CSVParser.parseCsvObjects(file);
+
+        assertEquals(2, rows.size());
+        assertEquals("B", rows.get(1).get("name"));
+        assertEquals(new BigDecimal("2"), rows.get(1).get("qty"));
+    }
+
+    @Test
+    void parseCsvObjects_zstdUpload_isRejectedWithClearMessage() {
+        byte[] zstd = { 0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, 0x00, 0x00 };
+        MockMultipartFile file = new MockMultipartFile("file", "data.csv.zst", "application/zstd", zstd);
+
+        java.io.IOException ex = assertThrows(java.io.IOException.class, () -> CSVParser.parseCsvObjects(file));
+        assertTrue(ex.getMessage().contains("Zstandard"));
+    }
+
+    @Test
+    void parseCsvObjects_inputShorterThanMagic_isReadAsPlainText() throws Exception {
+        List<LinkedHashMap<String, Object>> rows = CSVParser.parseCsvObjects(csv("tiny.csv", "a\n"));
+        assertTrue(rows.isEmpty());
+    }
 }
@@ -0,0 +1,121 @@
+package sg.edu.nus.iss.edgp.masterdata.management.utility;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link CSVTokenizer} with the readLine()/StringBuilder splitting that CSVParser used before it,
+ * reproduced below as {@code legacy*}. Only tokenization is measured; value casting is the same for both.
+ *
+ * Run after {@code mvn test-compile} with the main method below (IDE) or
+ * {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main CSVTokenizerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVTokenizerBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int rows;
+
+    private String csv;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder("id,name,email,amount,joined,active,notes,region\r\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append(i).append(",Customer ").append(i).append(",user").append(i).append("@example.com,")
+                    .append(i * 3 % 1000).append('.').append(i % 100).append(",2024-01-")
+                    .append(10 + i % 18).append(',').append(i % 2 == 0).append(',');
+            // every tenth row carries a quoted field with a comma and an escaped quote
+            if (i % 10 == 0) sb.append("\"said \"\"hi\"\", then left\"");
+            else sb.append("regular note");
+            sb.append(",APAC\r\n");
+        }
+        csv = sb.toString();
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole bh) throws IOException {
+        try (CSVTokenizer t = new CSVTokenizer(new StringReader(csv))) {
+            List<String> record;
+            while ((record = t.nextRecord()) != null) {
+                bh.consume(record.get(record.size() - 1));
+            }
+        }
+    }
+
+    @Benchmark
+    public void legacyReadLine(Blackhole bh) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new StringReader(csv))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                List<String> fields = legacyParseLine(line);
+                for (int i = 0; i < fields.size(); i++) {
+                    fields.set(i, legacyUnquote(fields.get(i)));
+                }
+                bh.consume(fields.get(fields.size() - 1));
+            }
+        }
+    }
+
+    private static List<String> legacyParseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    sb.append('"');
+                    i++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else if (c == ',' && !inQuotes) {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        fields.add(sb.toString());
+        return fields;
+    }
+
+    private static String legacyUnquote(String s) {
+        String t = s;
+        if (t.length() >= 2 && t.startsWith("\"") && t.endsWith("\"")) {
+            t = t.substring(1, t.length() - 1);
+        }
+        return t.replace("\"\"", "\"");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CSVTokenizerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
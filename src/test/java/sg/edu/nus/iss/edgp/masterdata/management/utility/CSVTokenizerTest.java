@@ -0,0 +1,67 @@
+package sg.edu.nus.iss.edgp.masterdata.management.utility;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CSVTokenizerTest {
+
+    private List<List<String>> tokenize(String content) throws Exception {
+        List<List<String>> out = new ArrayList<>();
+        try (CSVTokenizer t = new CSVTokenizer(new StringReader(content))) {
+            List<String> rec;
+            while ((rec = t.nextRecord()) != null) {
+                out.add(new ArrayList<>(rec));
+            }
+        }
+        return out;
+    }
+
+    @Test
+    void nextRecord_splitsOnLfCrAndCrlf() throws Exception {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d"), List.of("e", "f")),
+                tokenize("a,b\r\nc,d\re,f\n"));
+    }
+
+    @Test
+    void nextRecord_lastRecordWithoutTerminator_isReturned() throws Exception {
+        assertEquals(List.of(List.of("a", "b"), List.of("1", "2")), tokenize("a,b\n1,2"));
+    }
+
+    @Test
+    void nextRecord_quotedFieldsKeepCommasNewlinesAndEscapedQuotes() throws Exception {
+        List<List<String>> recs = tokenize("id,note\n1,\"line one\r\nline, two \"\"quoted\"\"\"\n2,x\n");
+        assertEquals(3, recs.size());
+        assertEquals(List.of("1", "line one\r\nline, two \"quoted\""), recs.get(1));
+        assertEquals(List.of("2", "x"), recs.get(2));
+    }
+
+    @Test
+    void nextRecord_emptyFieldsAndEmptyQuotedFields() throws Exception {
+        assertEquals(List.of(List.of("", "", "")), tokenize(",\"\",\n"));
+    }
+
+    @Test
+    void nextRecord_stripsBomAndWhitespaceBeforeOpeningQuote() throws Exception {
+        assertEquals(List.of(List.of("h1", "h2"), List.of("a", "b c")), tokenize("\uFEFFh1,h2\na, \"b c\"\n"));
+    }
+
+    @Test
+    void nextRecord_longFieldGrowsBuffer_andCrlfAcrossReadBoundary() throws Exception {
+        String longValue = "x".repeat(8191);
+        List<List<String>> recs = tokenize(longValue + "\r\nnext\n");
+        assertEquals(2, recs.size());
+        assertEquals(longValue, recs.get(0).get(0));
+        assertEquals(List.of("next"), recs.get(1));
+    }
+
+    @Test
+    void nextRecord_emptyInput_returnsNull() throws Exception {
+        assertTrue(tokenize("").isEmpty());
+        assertTrue(tokenize("\uFEFF").isEmpty());
+    }
+}
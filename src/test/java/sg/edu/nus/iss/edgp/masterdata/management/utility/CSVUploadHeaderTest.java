@@ -12,6 +12,7 @@ import java.util.regex.Pattern;
 import org.junit.jupiter.api.Test;
 
 import sg.edu.nus.iss.edgp.masterdata.management.enums.FileProcessStage;
+import sg.edu.nus.iss.edgp.masterdata.management.enums.UploadJobState;
 import sg.edu.nus.iss.edgp.masterdata.management.pojo.MasterDataHeader;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
@@ -61,7 +62,34 @@ class CSVUploadHeaderTest {
         assertFalse(parsed.isBefore(before.minusSeconds(5)), "uploaded_date should not be earlier than a few seconds before test start");
         assertFalse(parsed.isAfter(after.plusMinutes(2)), "uploaded_date should be reasonably close to 'now'");
 
-        assertEquals(11, item.size(), "Expected exactly 11 attributes in the item");
+        assertEquals("42", item.get("rows_staged").n());
+        assertEquals("0", item.get("rows_dispatched").n());
+
+        assertEquals(13, item.size(), "Expected exactly 13 attributes in the item");
     }
-}
 
+    @Test
+    void toItem_asyncUpload_startsCountersAtZero_andAddsProgressAttributes() {
+        MasterDataHeader header = new MasterDataHeader();
+        header.setId("H-124");
+        header.setFileName("data.csv");
+        header.setDomainName("customer");
+        header.setOrganizationId("ORG-9");
+        header.setPolicyId("POL-7");
+        header.setUploadedBy("user@example.com");
+        header.setProcessStage(FileProcessStage.UPLOADING);
+        header.setFileStatus("");
+        header.setUploadState(UploadJobState.QUEUED);
+
+        Map<String, AttributeValue> item = new CSVUploadHeader(header).toItem();
+
+        assertEquals("0", item.get("rows_staged").n());
+        assertEquals("0", item.get("rows_dispatched").n());
+        assertEquals("QUEUED", item.get("upload_state").s());
+        assertEquals("0", item.get("rows_parsed").n());
+        assertEquals("0", item.get("rows_written").n());
+        assertEquals("0", item.get("rows_per_second").n());
+
+        assertEquals(17, item.size(), "Expected the 13 header attributes plus 4 upload progress attributes");
+    }
+}
@@ -0,0 +1,51 @@
+package sg.edu.nus.iss.edgp.masterdata.management.utility;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CSVWriterTest {
+
+    private String write(List<?>... records) throws Exception {
+        StringWriter out = new StringWriter();
+        CSVWriter csv = new CSVWriter(out);
+        for (List<?> record : records) {
+            csv.writeRecord(record);
+        }
+        csv.flush();
+        return out.toString();
+    }
+
+    @Test
+    void writeRecord_plainFieldsAreUnquoted_recordsEndWithCrlf() throws Exception {
+        assertEquals("id,name\r\n1,ann\r\n", write(List.of("id", "name"), List.of(1, "ann")));
+    }
+
+    @Test
+    void writeRecord_nullIsEmpty_numbersArePlain() throws Exception {
+        assertEquals("a,,1000000\r\n", write(Arrays.asList("a", null, new BigDecimal("1E+6"))));
+    }
+
+    @Test
+    void writeRecord_specialFieldsRoundTripThroughTheTokenizer() throws Exception {
+        List<String> record = List.of("x,y", "say \"hi\"", "line one\r\nline two", "");
+        String csv = write(record);
+
+        List<List<String>> read = new ArrayList<>();
+        try (CSVTokenizer t = new CSVTokenizer(new StringReader(csv))) {
+            List<String> rec;
+            while ((rec = t.nextRecord()) != null) {
+                read.add(new ArrayList<>(rec));
+            }
+        }
+        assertEquals(List.of(record), read);
+        assertTrue(csv.startsWith("\"x,y\",\"say \"\"hi\"\"\","));
+    }
+}
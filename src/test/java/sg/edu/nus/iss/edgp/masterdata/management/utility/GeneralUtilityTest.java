@@ -294,4 +294,15 @@ class GeneralUtilityTest {
                 .anyMatch(av -> "123".equals(av.n()));
         assertTrue(valueMatches);
     }
+
+    @Test
+    void isNumeric_matchesBigDecimalSyntax() {
+        for (String ok : List.of("0", "-42", "+7", "3.14", ".5", "-.5e3", "1E+10", "6.02e-23", "1e000000000001")) {
+            assertTrue(GeneralUtility.isNumeric(ok), ok);
+            assertNotNull(new BigDecimal(ok));
+        }
+        for (String bad : Arrays.asList(null, "", "+", "-", ".", "5.", "e5", "1e", "1e+", "12a", "1,000", " 1", "1e1234567890")) {
+            assertFalse(GeneralUtility.isNumeric(bad), String.valueOf(bad));
+        }
+    }
 }
@@ -0,0 +1,173 @@
+package sg.edu.nus.iss.edgp.masterdata.management.utility;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class RefreshingCacheTest {
+
+    private final List<Runnable> queued = new ArrayList<>();
+    private final Executor queue = queued::add;
+
+    @Test
+    void get_freshEntry_loadsOnce() {
+        RefreshingCache<String, String> cache = new RefreshingCache<>("t", 10, 60_000, 60_000, 1_000, v -> v == null, queue);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v", cache.get("k", () -> {
+            loads.incrementAndGet();
+            return "v";
+        }));
+        assertEquals("v", cache.get("k", () -> "other"));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void get_staleEntry_servesOldValueAndRefreshesInBackground() {
+        RefreshingCache<String, String> cache = new RefreshingCache<>("t", 10, 0, 60_000, 0, v -> v == null, queue);
+        cache.get("k", () -> "v1");
+
+        assertEquals("v1", cache.get("k", () -> "v2"));
+        // only one refresh is queued while one is pending
+        assertEquals("v1", cache.get("k", () -> "v3"));
+        assertEquals(1, queued.size());
+
+        queued.get(0).run();
+        assertEquals("v2", cache.get("k", () -> "v4"));
+        assertEquals(3, cache.stats().staleHits());
+    }
+
+    @Test
+    void get_failedRefresh_keepsStaleValue() {
+        RefreshingCache<String, String> cache = new RefreshingCache<>("t", 10, 0, 60_000, 0, v -> v == null, Runnable::run);
+        cache.get("k", () -> "v1");
+
+        assertEquals("v1", cache.get("k", () -> {
+            throw new IllegalStateException("down");
+        }));
+        assertEquals("v1", cache.get("k", () -> "v2"));
+        assertEquals(1, cache.stats().loadFailures());
+    }
+
+    @Test
+    void get_failedLoad_returnsNullAndIsNotCached() {
+        RefreshingCache<String, String> cache = new RefreshingCache<>("t", 10, 60_000, 0, 60_000, v -> v == null, queue);
+
+        assertNull(cache.get("k", () -> {
+            throw new IllegalStateException("down");
+        }));
+        assertEquals("v", cache.get("k", () -> "v"));
+        assertEquals(2, cache.stats().misses());
+    }
+
+    @Test
+    void get_illegalArgument_isRethrownWithoutCountingAFailure() {
+        RefreshingCache<String, String> cache = new RefreshingCache<>("t", 10, 60_000, 0, 0, v -> v == null, queue);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.get("k", () -> {
+            throw new IllegalArgumentException("At most 100 fields");
+        }));
+
+        assertEquals(0, cache.stats().loadFailures());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void get_negativeValue_isKeptForTheNegativeTtlOnly() {
+        RefreshingCache<String, String> cache = new RefreshingCache<>("t", 10, 60_000, 60_000, 0, v -> v == null, queue);
+
+        assertNull(cache.get("k", () -> null));
+        // negative TTL of 0 has already expired, and negatives are never served stale
+        assertEquals("found", cache.get("k", () -> "found"));
+        assertTrue(queued.isEmpty());
+
+        RefreshingCache<String, String> longer = new RefreshingCache<>("t", 10, 60_000, 60_000, 60_000, v -> v == null, queue);
+        longer.get("k", () -> null);
+        assertNull(longer.get("k", () -> "found"));
+    }
+
+    @Test
+    void get_overCapacity_evictsTheOldestEntry() {
+        RefreshingCache<String, String> cache = new RefreshingCache<>("t", 2, 60_000, 0, 0, v -> v == null, queue);
+        cache.get("a", () -> "1");
+        cache.get("b", () -> "2");
+        cache.get("c", () -> "3");
+
+        assertEquals(2, cache.stats().size());
+        assertEquals(1, cache.stats().evictions());
+        assertEquals("new", cache.get("a", () -> "new"));
+    }
+
+    @Test
+    void get_concurrentColdMisses_shareOneLoad() throws Exception {
+        RefreshingCache<String, String> cache = new RefreshingCache<>("t", 10, 60_000, 60_000, 1_000, v -> v == null, queue);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(callers.submit(() -> cache.get("k", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return "v";
+            })));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(callers.submit(() -> cache.get("k", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> f : results) assertEquals("v", f.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+            assertEquals(8, cache.stats().misses());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_sharedLoadFails_everyWaiterGetsNull_failureCountedOnce() throws Exception {
+        RefreshingCache<String, String> cache = new RefreshingCache<>("t", 10, 60_000, 60_000, 1_000, v -> v == null, queue);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = callers.submit(() -> cache.get("k", () -> {
+                loading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                throw new IllegalStateException("down");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<String> waiter = callers.submit(() -> cache.get("k", () -> "unused"));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertNull(leader.get(5, TimeUnit.SECONDS));
+            assertNull(waiter.get(5, TimeUnit.SECONDS));
+            assertEquals(1, cache.stats().loadFailures());
+            // nothing cached, so the next miss loads again
+            assertEquals("v", cache.get("k", () -> "v"));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}